@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to create the Votes and Ballots of an election, as an importer of paper ballots would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BallotConstructionBenchmark {
+	@Param({"10", "30"})
+	public int numberOfCandidates;
+
+	@Param({"10000", "100000", "1000000"})
+	public int numberOfBallots;
+
+	private Election<Candidate> election;
+	private ImmutableList<Vote<Candidate>> votes;
+
+	@Setup
+	public void createVotes() {
+		election = SyntheticBallots.createElection(numberOfCandidates);
+		votes = SyntheticBallots.createVotes(4711, election, numberOfBallots);
+	}
+
+	@Benchmark
+	public ImmutableList<Ballot<Candidate>> createBallots() {
+		ImmutableList.Builder<Ballot<Candidate>> ballots = ImmutableList.builderWithExpectedSize(votes.size());
+		for (int i = 0; i < votes.size(); i++) {
+			Vote<Candidate> vote = votes.get(i);
+			Vote<Candidate> copyOfVote;
+			if (!vote.isValid()) {
+				copyOfVote = Vote.createInvalidVote(election);
+			} else if (vote.isNo()) {
+				copyOfVote = Vote.createNoVote(election);
+			} else {
+				copyOfVote = Vote.createPreferenceVote(election, vote.getRankedCandidates());
+			}
+			ballots.add(new Ballot<>(i, ImmutableSet.of(copyOfVote)));
+		}
+		return ballots.build();
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reported time per operation should grow linearly with the number of ballots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DuplicateBallotIdDetectorBenchmark {
+	@Param({"1000", "10000", "100000", "200000", "1000000"})
+	public int numberOfBallots;
+
+	private ImmutableList<Ballot<Candidate>> ballots;
+
+	@Setup
+	public void createBallots() {
+		Random random = new Random(4711);
+		ImmutableList.Builder<Ballot<Candidate>> builder = ImmutableList.builderWithExpectedSize(numberOfBallots);
+		for (int i = 0; i < numberOfBallots; i++) {
+			// Ballot ids are sequential in practice, but we do not want to rely on it
+			builder.add(new Ballot<>(random.nextLong(), ImmutableSet.of()));
+		}
+		ballots = builder.build();
+	}
+
+	@Benchmark
+	public ImmutableSortedSet<Long> findDuplicateIds() {
+		return DuplicateBallotIdDetector.findDuplicateIds(ballots);
+	}
+}
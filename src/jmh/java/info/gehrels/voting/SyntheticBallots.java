@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.genderedElections.GenderedCandidate;
+import info.gehrels.voting.genderedElections.GenderedElection;
+
+import java.util.Random;
+
+/**
+ * Creates reproducible Elections and Ballots for the benchmarks. The same seed always results in the same ballots.
+ * <p>
+ * Candidates are not equally popular: The candidate at position i of the Election is ranked next with a probability
+ * proportional to 1 / (i + 1), so that some candidates reach the quorum early and others are struck one after another.
+ * The length of the rankings is uniformly distributed. About one in fifty ballots is invalid and another one in fifty
+ * is a no vote.
+ */
+public final class SyntheticBallots {
+	private SyntheticBallots() {
+	}
+
+	public static ImmutableSet<Candidate> createCandidates(int numberOfCandidates) {
+		ImmutableSet.Builder<Candidate> candidates = ImmutableSet.builder();
+		for (int i = 0; i < numberOfCandidates; i++) {
+			candidates.add(new Candidate("Candidate " + i));
+		}
+		return candidates.build();
+	}
+
+	/**
+	 * Every second candidate, beginning with the first one, is female.
+	 */
+	public static ImmutableSet<GenderedCandidate> createGenderedCandidates(int numberOfCandidates) {
+		ImmutableSet.Builder<GenderedCandidate> candidates = ImmutableSet.builder();
+		for (int i = 0; i < numberOfCandidates; i++) {
+			candidates.add(new GenderedCandidate("Candidate " + i, (i % 2) == 0));
+		}
+		return candidates.build();
+	}
+
+	public static Election<Candidate> createElection(int numberOfCandidates) {
+		return new Election<>("Synthetic Office", createCandidates(numberOfCandidates));
+	}
+
+	public static GenderedElection createGenderedElection(int numberOfCandidates,
+	                                                      long numberOfFemaleExclusivePositions,
+	                                                      long numberOfNotFemaleExclusivePositions) {
+		return new GenderedElection("Synthetic Office", numberOfFemaleExclusivePositions,
+		                            numberOfNotFemaleExclusivePositions, createGenderedCandidates(numberOfCandidates));
+	}
+
+	public static <CANDIDATE_TYPE extends Candidate> ImmutableList<Vote<CANDIDATE_TYPE>> createVotes(
+		long seed, Election<CANDIDATE_TYPE> election, int numberOfVotes) {
+		Random random = new Random(seed);
+		ImmutableList<CANDIDATE_TYPE> candidates = election.getCandidates().asList();
+		double[] popularity = new double[candidates.size()];
+
+		ImmutableList.Builder<Vote<CANDIDATE_TYPE>> votes = ImmutableList.builderWithExpectedSize(numberOfVotes);
+		for (int i = 0; i < numberOfVotes; i++) {
+			int kind = random.nextInt(50);
+			if (kind == 0) {
+				votes.add(Vote.createInvalidVote(election));
+			} else if ((kind == 1) || candidates.isEmpty()) {
+				votes.add(Vote.createNoVote(election));
+			} else {
+				votes.add(Vote.createPreferenceVote(election, createRanking(random, candidates, popularity)));
+			}
+		}
+		return votes.build();
+	}
+
+	/**
+	 * Creates one Ballot per Vote from {@link #createVotes(long, Election, int)}. Ballot ids start at 0.
+	 */
+	public static <CANDIDATE_TYPE extends Candidate> ImmutableList<Ballot<CANDIDATE_TYPE>> createBallots(
+		long seed, Election<CANDIDATE_TYPE> election, int numberOfBallots) {
+		ImmutableList<Vote<CANDIDATE_TYPE>> votes = createVotes(seed, election, numberOfBallots);
+		ImmutableList.Builder<Ballot<CANDIDATE_TYPE>> ballots = ImmutableList.builderWithExpectedSize(numberOfBallots);
+		for (int i = 0; i < votes.size(); i++) {
+			ballots.add(new Ballot<>(i, ImmutableSet.of(votes.get(i))));
+		}
+		return ballots.build();
+	}
+
+	private static <CANDIDATE_TYPE extends Candidate> ImmutableList<CANDIDATE_TYPE> createRanking(
+		Random random, ImmutableList<CANDIDATE_TYPE> candidates, double[] popularity) {
+		double sumOfPopularity = 0;
+		for (int i = 0; i < popularity.length; i++) {
+			popularity[i] = 1.0 / (i + 1);
+			sumOfPopularity += popularity[i];
+		}
+
+		int rankingLength = 1 + random.nextInt(candidates.size());
+		ImmutableList.Builder<CANDIDATE_TYPE> ranking = ImmutableList.builderWithExpectedSize(rankingLength);
+		for (int rank = 0; rank < rankingLength; rank++) {
+			double threshold = random.nextDouble() * sumOfPopularity;
+			int chosen = -1;
+			for (int i = 0; i < popularity.length; i++) {
+				if (popularity[i] > 0) {
+					chosen = i;
+					threshold -= popularity[i];
+					if (threshold < 0) {
+						break;
+					}
+				}
+			}
+
+			ranking.add(candidates.get(chosen));
+			sumOfPopularity -= popularity[chosen];
+			popularity[chosen] = 0;
+		}
+		return ranking.build();
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.genderedElections;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.SyntheticBallots;
+import info.gehrels.voting.TestUtils.JustTakeTheFirstOneAmbiguityResolver;
+import info.gehrels.voting.genderedElections.ElectionCalculationWithFemaleExclusivePositions.Result;
+import info.gehrels.voting.singleTransferableVote.NoOpSTVElectionCalculationListener;
+import info.gehrels.voting.singleTransferableVote.STVElectionCalculationFactory;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole gendered election, consisting of the female exclusive run and the open run, on synthetic ballots.
+ * Half of the seats are female exclusive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ElectionCalculationWithFemaleExclusivePositionsBenchmark {
+	@Param({"10", "30"})
+	public int numberOfCandidates;
+
+	@Param({"2", "6"})
+	public int numberOfSeats;
+
+	@Param({"10000", "100000", "1000000"})
+	public int numberOfBallots;
+
+	private GenderedElection election;
+	private ImmutableList<Ballot<GenderedCandidate>> ballots;
+	private ElectionCalculationWithFemaleExclusivePositions electionCalculation;
+
+	@Setup
+	public void createElectionCalculation() {
+		election = SyntheticBallots.createGenderedElection(numberOfCandidates, numberOfSeats / 2,
+		                                                   numberOfSeats - (numberOfSeats / 2));
+		ballots = SyntheticBallots.createBallots(4711, election, numberOfBallots);
+		electionCalculation = new ElectionCalculationWithFemaleExclusivePositions(
+			new STVElectionCalculationFactory<>(
+				new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000)),
+				new NoOpSTVElectionCalculationListener<>(),
+				new JustTakeTheFirstOneAmbiguityResolver<>()),
+			new NoOpListener());
+	}
+
+	@Benchmark
+	public Result calculateElectionResult() {
+		return electionCalculation.calculateElectionResult(election, ballots);
+	}
+
+	private static final class NoOpListener implements ElectionCalculationWithFemaleExclusivePositionsListener {
+		@Override
+		public void reducedNotFemaleExclusiveSeats(long numberOfOpenFemaleExclusiveSeats,
+		                                           long numberOfElectedFemaleExclusiveSeats,
+		                                           long numberOfOpenNotFemaleExclusiveSeats,
+		                                           long numberOfElectableNotFemaleExclusiveSeats) {
+		}
+
+		@Override
+		public void candidateNotQualified(GenderedCandidate candidate, NonQualificationReason reason) {
+		}
+
+		@Override
+		public void startElectionCalculation(GenderedElection election,
+		                                     ImmutableCollection<Ballot<GenderedCandidate>> ballots) {
+		}
+
+		@Override
+		public void startFemaleExclusiveElectionRun() {
+		}
+
+		@Override
+		public void startNotFemaleExclusiveElectionRun() {
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.ElectionCalculation;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.QuorumCalculation;
+import info.gehrels.voting.TestUtils.JustTakeTheFirstOneAmbiguityResolver;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+
+/**
+ * Measures both calculations with exact vote weights on an election with 100000 ballots that takes 15 rounds, so that
+ * the vote weights pass through many transfers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ExactVoteWeightBenchmark {
+	// With the ballots created from the seed below, these numbers result in 15 rounds.
+	private static final int NUMBER_OF_CANDIDATES = 18;
+	private static final int NUMBER_OF_SEATS = 7;
+	private static final int NUMBER_OF_BALLOTS = 100000;
+
+	@Param({"STVElectionCalculation", "CompactSTVElectionCalculation"})
+	public String calculation;
+
+	private ImmutableSet<Candidate> candidates;
+	private ElectionCalculation<Candidate> electionCalculation;
+
+	@Setup
+	public void createElectionCalculation() {
+		ImmutableSet.Builder<Candidate> candidatesBuilder = ImmutableSet.builder();
+		for (int i = 0; i < NUMBER_OF_CANDIDATES; i++) {
+			candidatesBuilder.add(new Candidate("Candidate " + i));
+		}
+		candidates = candidatesBuilder.build();
+		Election<Candidate> election = new Election<>("office", candidates);
+		ImmutableList<Ballot<Candidate>> ballots = createRandomBallots(new Random(4711), election, NUMBER_OF_BALLOTS);
+
+		QuorumCalculation quorumCalculation =
+			new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000));
+		NoOpSTVElectionCalculationListener<Candidate> listener = new NoOpSTVElectionCalculationListener<>();
+		if ("STVElectionCalculation".equals(calculation)) {
+			electionCalculation = new STVElectionCalculationFactory<>(quorumCalculation, listener,
+			                                                          new JustTakeTheFirstOneAmbiguityResolver<>())
+				.createElectionCalculation(election, ballots);
+		} else {
+			electionCalculation = new CompactSTVElectionCalculation<>(ballots, quorumCalculation, listener, election,
+			                                                          new JustTakeTheFirstOneAmbiguityResolver<>());
+		}
+	}
+
+	@Benchmark
+	public ImmutableSet<Candidate> calculate() {
+		return electionCalculation.calculate(candidates, NUMBER_OF_SEATS);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.SyntheticBallots;
+import info.gehrels.voting.TestUtils.JustTakeTheFirstOneAmbiguityResolver;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures STVElectionCalculation.calculate with the Weighted Inclusive Gregory Method on synthetic ballots. Use
+ * -p to restrict the parameters, the full matrix takes a while. Parallel counting tallies and recalculates the vote
+ * weights with ParallelWeightedInclusiveGregoryMethod on the common ForkJoinPool. It has to report the same steps
+ * as sequential counting, which the setup checks once before measuring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class STVElectionCalculationBenchmark {
+	@Param({"10", "30"})
+	public int numberOfCandidates;
+
+	@Param({"1", "5"})
+	public int numberOfSeats;
+
+	@Param({"10000", "100000", "1000000"})
+	public int numberOfBallots;
+
+	@Param({"sequential", "parallel"})
+	public String counting;
+
+	private ImmutableSet<Candidate> candidates;
+	private STVElectionCalculation<Candidate> electionCalculation;
+
+	@Setup
+	public void createElectionCalculation() {
+		Election<Candidate> election = SyntheticBallots.createElection(numberOfCandidates);
+		ImmutableList<Ballot<Candidate>> ballots = SyntheticBallots.createBallots(4711, election, numberOfBallots);
+		candidates = election.getCandidates();
+		electionCalculation = createElectionCalculation(election, ballots, new NoOpSTVElectionCalculationListener<>(),
+		                                                counting);
+		if ("parallel".equals(counting)) {
+			String expectedProtocol = calculateProtocol(election, ballots, "sequential");
+			if (!calculateProtocol(election, ballots, counting).equals(expectedProtocol)) {
+				throw new IllegalStateException("Parallel counting reports other steps than sequential counting");
+			}
+		}
+	}
+
+	@Benchmark
+	public ImmutableSet<Candidate> calculate() {
+		return electionCalculation.calculate(candidates, numberOfSeats);
+	}
+
+	private String calculateProtocol(Election<Candidate> election, ImmutableList<Ballot<Candidate>> ballots,
+	                                 String counting) {
+		StringBuilder protocol = new StringBuilder();
+		createElectionCalculation(election, ballots, new StringBuilderBackedSTVElectionCalculationListener<>(protocol),
+		                          counting).calculate(candidates, numberOfSeats);
+		return protocol.toString();
+	}
+
+	private static STVElectionCalculation<Candidate> createElectionCalculation(
+		Election<Candidate> election, ImmutableList<Ballot<Candidate>> ballots,
+		STVElectionCalculationListener<Candidate> listener, String counting) {
+		boolean parallel = "parallel".equals(counting);
+		return new STVElectionCalculationFactory<>(
+			new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000)),
+			listener,
+			new JustTakeTheFirstOneAmbiguityResolver<>(),
+			parallel
+				? new ParallelWeightedInclusiveGregoryMethod<>(listener, ForkJoinPool.commonPool())
+				: new WeightedInclusiveGregoryMethod<>(listener),
+			CountingOptions.defaults().withVoteTallying(
+				parallel ? VoteTallying.parallel(ForkJoinPool.commonPool()) : VoteTallying.sequential()))
+			.createElectionCalculation(election, ballots);
+	}
+}
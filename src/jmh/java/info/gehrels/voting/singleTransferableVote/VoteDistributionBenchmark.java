@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.SyntheticBallots;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of a VoteDistribution from the VoteStates at the beginning of a calculation. Parallel
+ * tallying uses the common ForkJoinPool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class VoteDistributionBenchmark {
+	@Param({"10", "30"})
+	public int numberOfCandidates;
+
+	@Param({"10000", "100000", "1000000"})
+	public int numberOfBallots;
+
+	@Param({"sequential", "parallel"})
+	public String tallying;
+
+	private VoteTallying voteTallying;
+	private ImmutableSet<Candidate> candidates;
+	private ImmutableList<VoteState<Candidate>> voteStates;
+
+	@Setup
+	public void createVoteStates() {
+		Election<Candidate> election = SyntheticBallots.createElection(numberOfCandidates);
+		candidates = election.getCandidates();
+		voteStates = createInitialVoteStates(election, SyntheticBallots.createBallots(4711, election, numberOfBallots));
+		voteTallying = "parallel".equals(tallying)
+			? VoteTallying.parallel(ForkJoinPool.commonPool())
+			: VoteTallying.sequential();
+	}
+
+	@Benchmark
+	public VoteDistribution<Candidate> createVoteDistribution() {
+		return voteTallying.tally(candidates, voteStates);
+	}
+
+	static ImmutableList<VoteState<Candidate>> createInitialVoteStates(Election<Candidate> election,
+	                                                                   ImmutableList<Ballot<Candidate>> ballots) {
+		CandidateStates<Candidate> candidateStates = new CandidateStates<>(election.getCandidates());
+		ImmutableList.Builder<VoteState<Candidate>> voteStates = ImmutableList.builderWithExpectedSize(ballots.size());
+		for (Ballot<Candidate> ballot : ballots) {
+			VoteState.forBallotAndElection(ballot, election)
+				.ifPresent(voteState -> voteStates.add(voteState.withFirstHopefulCandidate(candidateStates)));
+		}
+		return voteStates.build();
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.TestUtils.JustTakeTheFirstOneAmbiguityResolver;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+
+/**
+ * Compares the exact and the fixed point arithmetic of CompactSTVElectionCalculation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class VoteWeightArithmeticBenchmark {
+	private static final int NUMBER_OF_CANDIDATES = 12;
+	private static final int NUMBER_OF_SEATS = 5;
+
+	@Param({"10000", "100000"})
+	public int numberOfBallots;
+
+	@Param({"exact", "fixedPoint5"})
+	public String arithmetic;
+
+	private ImmutableSet<Candidate> candidates;
+	private CompactSTVElectionCalculation<Candidate> electionCalculation;
+
+	@Setup
+	public void createElectionCalculation() {
+		ImmutableSet.Builder<Candidate> candidatesBuilder = ImmutableSet.builder();
+		for (int i = 0; i < NUMBER_OF_CANDIDATES; i++) {
+			candidatesBuilder.add(new Candidate("Candidate " + i));
+		}
+		candidates = candidatesBuilder.build();
+		Election<Candidate> election = new Election<>("office", candidates);
+		ImmutableList<Ballot<Candidate>> ballots = createRandomBallots(new Random(4711), election, numberOfBallots);
+
+		electionCalculation = new CompactSTVElectionCalculation<>(
+			ballots,
+			new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000)),
+			new NoOpSTVElectionCalculationListener<>(),
+			election,
+			new JustTakeTheFirstOneAmbiguityResolver<>(),
+			BallotRepresentation.COLUMNS,
+			"exact".equals(arithmetic) ? VoteWeightArithmetic.exact() : VoteWeightArithmetic.fixedPoint(5));
+	}
+
+	@Benchmark
+	public ImmutableSet<Candidate> calculate() {
+		return electionCalculation.calculate(candidates, NUMBER_OF_SEATS);
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.SyntheticBallots;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static info.gehrels.voting.singleTransferableVote.VoteDistributionBenchmark.createInitialVoteStates;
+
+/**
+ * Measures one recalculation of the vote weights after the first candidate of the synthetic election has been elected
+ * with half of its votes as the quorum. ParallelWeightedInclusiveGregoryMethod uses the common ForkJoinPool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WeightedInclusiveGregoryMethodBenchmark {
+	@Param({"10", "30"})
+	public int numberOfCandidates;
+
+	@Param({"10000", "100000", "1000000"})
+	public int numberOfBallots;
+
+	@Param({"WeightedInclusiveGregoryMethod", "ParallelWeightedInclusiveGregoryMethod"})
+	public String method;
+
+	private Candidate winner;
+	private BigFraction quorum;
+	private ImmutableList<VoteState<Candidate>> voteStates;
+	private CandidateStates<Candidate> candidateStates;
+	private VoteWeightRecalculator<Candidate> voteWeightRecalculator;
+
+	@Setup
+	public void createVoteStates() {
+		Election<Candidate> election = SyntheticBallots.createElection(numberOfCandidates);
+		ImmutableSet<Candidate> candidates = election.getCandidates();
+		voteStates = createInitialVoteStates(election, SyntheticBallots.createBallots(4711, election, numberOfBallots));
+		candidateStates = new CandidateStates<>(candidates);
+		// The synthetic ballots prefer the first candidate
+		winner = candidates.iterator().next();
+		quorum = new VoteDistribution<>(candidates, voteStates).votesByCandidate.get(winner).divide(2);
+		NoOpSTVElectionCalculationListener<Candidate> listener = new NoOpSTVElectionCalculationListener<>();
+		VoteWeightRecalculationMethod<Candidate> voteWeightRecalculationMethod =
+			"ParallelWeightedInclusiveGregoryMethod".equals(method)
+				? new ParallelWeightedInclusiveGregoryMethod<>(listener, ForkJoinPool.commonPool())
+				: new WeightedInclusiveGregoryMethod<>(listener);
+		voteWeightRecalculator = voteWeightRecalculationMethod.recalculatorFor();
+	}
+
+	@Benchmark
+	public ImmutableCollection<VoteState<Candidate>> recalculateExceededVoteWeight() {
+		return voteWeightRecalculator.recalculateExceededVoteWeight(winner, quorum, voteStates, candidateStates);
+	}
+}
@@ -17,6 +17,7 @@
 package info.gehrels.voting;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.collect.ImmutableSet;
@@ -26,7 +27,9 @@ import java.util.Optional;
 import static com.google.common.base.Objects.equal;
 import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 /**
  * A Ballot instance represents a physical piece of paper marked by a voter. It contains one or more areas, each
@@ -36,6 +39,9 @@ import static org.hamcrest.Matchers.notNullValue;
 public final class Ballot<CANDIDATE_TYPE extends Candidate> {
 	public final long id;
 	public final ImmutableMap<Election<CANDIDATE_TYPE>, Vote<CANDIDATE_TYPE>> votesByElections;
+	// Both null if the Ballot has been created without an ElectionCatalogue
+	private final ElectionCatalogue electionCatalogue;
+	private final Vote<CANDIDATE_TYPE>[] votesBySlot;
 
 	public Ballot(long id, ImmutableSet<Vote<CANDIDATE_TYPE>> votes) {
 		this.id = id;
@@ -46,6 +52,51 @@ public final class Ballot<CANDIDATE_TYPE extends Candidate> {
 			builder.put(vote.getElection(), vote);
 		}
 		this.votesByElections = builder.build();
+		this.electionCatalogue = null;
+		this.votesBySlot = null;
+	}
+
+	/**
+	 * @param electionCatalogue must contain the office of each Vote. Each office may only be voted on once.
+	 */
+	public Ballot(long id, ImmutableSet<Vote<CANDIDATE_TYPE>> votes, ElectionCatalogue electionCatalogue) {
+		this(id, validateThat(votes, is(notNullValue())).asList(),
+		     validateThat(electionCatalogue, is(notNullValue())), null);
+	}
+
+	/**
+	 * @param votesBySlot the Votes by slot in electionCatalogue, or null if they are yet to be sorted into slots.
+	 */
+	private Ballot(long id, ImmutableList<Vote<CANDIDATE_TYPE>> votes, ElectionCatalogue electionCatalogue,
+	               Vote<CANDIDATE_TYPE>[] votesBySlot) {
+		this.id = id;
+		this.electionCatalogue = electionCatalogue;
+		Builder<Election<CANDIDATE_TYPE>, Vote<CANDIDATE_TYPE>> builder = ImmutableMap.builderWithExpectedSize(
+			votes.size());
+		for (Vote<CANDIDATE_TYPE> vote : votes) {
+			builder.put(vote.getElection(), vote);
+		}
+		this.votesByElections = builder.build();
+
+		if (votesBySlot != null) {
+			this.votesBySlot = votesBySlot;
+		} else {
+			this.votesBySlot = newVoteArray(electionCatalogue.size());
+			for (Vote<CANDIDATE_TYPE> vote : votes) {
+				String officeName = vote.getElection().getOfficeName();
+				int slot = electionCatalogue.slotOf(officeName);
+				validateThat("Office " + officeName + " must be part of the catalogue", slot,
+				             is(not(ElectionCatalogue.NO_SLOT)));
+				validateThat("Office " + officeName + " may only be voted on once", this.votesBySlot[slot],
+				             is(nullValue()));
+				this.votesBySlot[slot] = vote;
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <CANDIDATE_TYPE extends Candidate> Vote<CANDIDATE_TYPE>[] newVoteArray(int length) {
+		return (Vote<CANDIDATE_TYPE>[]) new Vote<?>[length];
 	}
 
 	public Optional<Vote<CANDIDATE_TYPE>> getVote(Election<CANDIDATE_TYPE> election) {
@@ -57,16 +108,49 @@ public final class Ballot<CANDIDATE_TYPE extends Candidate> {
 	public Optional<Vote<CANDIDATE_TYPE>> getVote(String officeName) {
 		validateThat(officeName, is(notNullValue()));
 
-		return votesByElections.values().stream().filter(v -> v.getElection().getOfficeName().equals(officeName)).findAny();
+		if (electionCatalogue != null) {
+			int slot = electionCatalogue.slotOf(officeName);
+			return (slot == ElectionCatalogue.NO_SLOT) ? Optional.empty() : Optional.ofNullable(votesBySlot[slot]);
+		}
+
+		for (Vote<CANDIDATE_TYPE> vote : votesByElections.values()) {
+			if (vote.getElection().getOfficeName().equals(officeName)) {
+				return Optional.of(vote);
+			}
+		}
+		return Optional.empty();
 	}
 
+	/**
+	 * @throws IllegalArgumentException if the candidates differ, or if the Ballot also votes on the new office.
+	 */
 	public Ballot<CANDIDATE_TYPE> withReplacedElection(String oldOfficeName, Election<CANDIDATE_TYPE> newElection) {
+		String newOfficeName = newElection.getOfficeName();
+		if (electionCatalogue != null) {
+			int slot = electionCatalogue.slotOf(oldOfficeName);
+			if ((slot == ElectionCatalogue.NO_SLOT) || (votesBySlot[slot] == null)) {
+				return this;
+			}
+			throwIfCandidatesChanged(newElection, votesBySlot[slot]);
+			int newSlot = electionCatalogue.slotOf(newOfficeName);
+			if ((newSlot == ElectionCatalogue.NO_SLOT) || (newSlot == slot)) {
+				return withReplacedVote(slot, votesBySlot[slot].withReplacedElection(newElection),
+				                        electionCatalogue.withRenamedOffice(slot, newOfficeName));
+			}
+			// The catalogue already has a slot for the new office, so the Ballot is renamed like one without
+		} else if (getVote(oldOfficeName).isEmpty()) {
+			return this;
+		}
+
 		ImmutableSet.Builder<Vote<CANDIDATE_TYPE>> builder = ImmutableSet.builder();
 		for (Vote<CANDIDATE_TYPE> vote : votesByElections.values()) {
-			if (vote.getElection().getOfficeName().equals(oldOfficeName)) {
+			String officeName = vote.getElection().getOfficeName();
+			if (officeName.equals(oldOfficeName)) {
 				throwIfCandidatesChanged(newElection, vote);
 				builder.add(vote.withReplacedElection(newElection));
 			} else {
+				validateThat("Office " + newOfficeName + " may only be voted on once", officeName,
+				             is(not(newOfficeName)));
 				builder.add(vote);
 			}
 		}
@@ -81,6 +165,16 @@ public final class Ballot<CANDIDATE_TYPE extends Candidate> {
 
 
 	public Ballot<CANDIDATE_TYPE> withReplacedCandidateVersion(Election<CANDIDATE_TYPE> adaptedElection, CANDIDATE_TYPE newCandidateVersion) {
+		if (electionCatalogue != null) {
+			int slot = electionCatalogue.slotOf(adaptedElection.getOfficeName());
+			if ((slot == ElectionCatalogue.NO_SLOT) || (votesBySlot[slot] == null)) {
+				return this;
+			}
+			return withReplacedVote(slot,
+			                        votesBySlot[slot].withReplacedCandidateVersion(adaptedElection, newCandidateVersion),
+			                        electionCatalogue);
+		}
+
 		ImmutableSet.Builder<Vote<CANDIDATE_TYPE>> builder = ImmutableSet.builder();
 		for (Vote<CANDIDATE_TYPE> vote : votesByElections.values()) {
 			if (vote.getElection().getOfficeName().equals(adaptedElection.getOfficeName())) {
@@ -92,6 +186,19 @@ public final class Ballot<CANDIDATE_TYPE extends Candidate> {
 		return new Ballot<>(id, builder.build());
 	}
 
+	private Ballot<CANDIDATE_TYPE> withReplacedVote(int slot, Vote<CANDIDATE_TYPE> newVote,
+	                                                ElectionCatalogue newElectionCatalogue) {
+		Vote<CANDIDATE_TYPE> oldVote = votesBySlot[slot];
+		ImmutableList.Builder<Vote<CANDIDATE_TYPE>> votes = ImmutableList.builderWithExpectedSize(
+			votesByElections.size());
+		for (Vote<CANDIDATE_TYPE> vote : votesByElections.values()) {
+			votes.add((vote == oldVote) ? newVote : vote);
+		}
+		Vote<CANDIDATE_TYPE>[] newVotesBySlot = votesBySlot.clone();
+		newVotesBySlot[slot] = newVote;
+		return new Ballot<>(id, votes.build(), newElectionCatalogue, newVotesBySlot);
+	}
+
 	@Override
 	public int hashCode() {
 		return Objects.hashCode(id, votesByElections);
@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Ballots that can be read one after the other, e.g. from a file or a database cursor, without holding all of them in
+ * memory at once. Each call to forEachBallot or forEachVote is a new pass over all ballots, in the same order.
+ */
+public interface BallotSource<CANDIDATE_TYPE extends Candidate> {
+	static <CANDIDATE_TYPE extends Candidate> BallotSource<CANDIDATE_TYPE> of(
+		ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots) {
+		validateThat(ballots, is(notNullValue()));
+		return ballots::forEach;
+	}
+
+	void forEachBallot(Consumer<? super Ballot<CANDIDATE_TYPE>> consumer);
+
+	/**
+	 * Passes the Vote of each ballot that has one for the given Election to the consumer. Sources that do not need to
+	 * create Ballot objects in the first place should override this.
+	 */
+	default void forEachVote(Election<CANDIDATE_TYPE> election, VoteConsumer consumer) {
+		validateThat(election, is(notNullValue()));
+		validateThat(consumer, is(notNullValue()));
+		forEachBallot(ballot -> ballot.getVote(election).ifPresent(vote -> consumer.accept(ballot.id, vote)));
+	}
+
+	/**
+	 * Passes the Votes of each ballot for any of the given Elections to the consumer, in a single pass over the
+	 * ballots, e.g. to count several Elections that share the ballots. Sources that do not need to create Ballot
+	 * objects in the first place should override this.
+	 */
+	default void forEachVote(ImmutableList<Election<CANDIDATE_TYPE>> elections, ElectionVoteConsumer consumer) {
+		validateThat(elections, is(notNullValue()));
+		validateThat(consumer, is(notNullValue()));
+		// Elections are compared by identity, just like in Ballot.votesByElections
+		Map<Election<CANDIDATE_TYPE>, Integer> electionIndices = new IdentityHashMap<>();
+		for (int electionIndex = 0; electionIndex < elections.size(); electionIndex++) {
+			electionIndices.put(elections.get(electionIndex), electionIndex);
+		}
+		forEachBallot(ballot -> {
+			for (Vote<CANDIDATE_TYPE> vote : ballot.votesByElections.values()) {
+				Integer electionIndex = electionIndices.get(vote.getElection());
+				if (electionIndex != null) {
+					consumer.accept(electionIndex, ballot.id, vote.isValid(), vote.isNo(),
+					                vote.getRankedCandidateIndices(), vote.getRankedCandidates().size());
+				}
+			}
+		});
+	}
+
+	@FunctionalInterface
+	interface VoteConsumer {
+		/**
+		 * @param rankedCandidateIndices the first numberOfRankedCandidates elements are the ranking, as indices of the
+		 *                               CandidateIndex of the Election. Only valid during the call and must not be
+		 *                               modified.
+		 */
+		void accept(long ballotId, boolean valid, boolean no, int[] rankedCandidateIndices,
+		            int numberOfRankedCandidates);
+
+		default void accept(long ballotId, Vote<?> vote) {
+			accept(ballotId, vote.isValid(), vote.isNo(), vote.getRankedCandidateIndices(),
+			       vote.getRankedCandidates().size());
+		}
+	}
+
+	@FunctionalInterface
+	interface ElectionVoteConsumer {
+		/**
+		 * @param electionIndex          the index of the Election of the Vote in the list given to forEachVote.
+		 * @param rankedCandidateIndices as in VoteConsumer.
+		 */
+		void accept(int electionIndex, long ballotId, boolean valid, boolean no, int[] rankedCandidateIndices,
+		            int numberOfRankedCandidates);
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Numbers the Candidates of one Election densely from 0 to size() - 1, in the order of Election.getCandidates().
+ * Calculations can then keep rankings, tallies and candidate states in arrays indexed by these numbers instead of
+ * looking candidates up in hash maps. Each Election builds its CandidateIndex once, see Election.getCandidateIndex().
+ */
+public final class CandidateIndex<CANDIDATE_TYPE extends Candidate> {
+	public static final int NOT_INDEXED = -1;
+
+	private final ImmutableList<CANDIDATE_TYPE> candidates;
+	private final ImmutableMap<Candidate, Integer> indices;
+
+	CandidateIndex(ImmutableSet<CANDIDATE_TYPE> candidates) {
+		this.candidates = candidates.asList();
+		ImmutableMap.Builder<Candidate, Integer> indicesBuilder = ImmutableMap.builderWithExpectedSize(candidates.size());
+		for (int i = 0; i < this.candidates.size(); i++) {
+			indicesBuilder.put(this.candidates.get(i), i);
+		}
+		this.indices = indicesBuilder.build();
+	}
+
+	public int size() {
+		return candidates.size();
+	}
+
+	public CANDIDATE_TYPE get(int index) {
+		return candidates.get(index);
+	}
+
+	/**
+	 * @return the index of the candidate, or NOT_INDEXED if it does not run in this Election.
+	 */
+	public int indexOf(Candidate candidate) {
+		Integer index = indices.get(candidate);
+		return (index == null) ? NOT_INDEXED : index;
+	}
+
+	public ImmutableList<CANDIDATE_TYPE> asList() {
+		return candidates;
+	}
+
+	@Override
+	public String toString() {
+		return candidates.toString();
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting;
+
+import com.google.common.collect.ImmutableSortedSet;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Finds Ballot ids that occur more than once in a collection of Ballots. Ids are collected in an open addressing hash
+ * set of primitive longs, so the detection takes linear time and does not box the ids.
+ */
+public final class DuplicateBallotIdDetector {
+	private DuplicateBallotIdDetector() {
+	}
+
+	public static ImmutableSortedSet<Long> findDuplicateIds(Iterable<? extends Ballot<?>> ballots) {
+		validateThat(ballots, is(notNullValue()));
+
+		LongHashSet seenIds = new LongHashSet();
+		ImmutableSortedSet.Builder<Long> duplicateIds = ImmutableSortedSet.naturalOrder();
+		for (Ballot<?> ballot : ballots) {
+			if (!seenIds.add(ballot.id)) {
+				duplicateIds.add(ballot.id);
+			}
+		}
+
+		return duplicateIds.build();
+	}
+
+	/**
+	 * Same as findDuplicateIds(ballots), but for the ids of the first numberOfBallots ballots.
+	 */
+	public static ImmutableSortedSet<Long> findDuplicateIds(long[] ballotIds, int numberOfBallots) {
+		validateThat(ballotIds, is(notNullValue()));
+
+		LongHashSet seenIds = new LongHashSet();
+		ImmutableSortedSet.Builder<Long> duplicateIds = ImmutableSortedSet.naturalOrder();
+		for (int i = 0; i < numberOfBallots; i++) {
+			if (!seenIds.add(ballotIds[i])) {
+				duplicateIds.add(ballotIds[i]);
+			}
+		}
+
+		return duplicateIds.build();
+	}
+
+	public static Matcher<Iterable<? extends Ballot<?>>> hasNoPairOfElementsWithEqualIds() {
+		return new TypeSafeDiagnosingMatcher<>() {
+			@Override
+			protected boolean matchesSafely(Iterable<? extends Ballot<?>> ballots, Description mismatchDescription) {
+				ImmutableSortedSet<Long> duplicateIds = findDuplicateIds(ballots);
+				if (!duplicateIds.isEmpty()) {
+					mismatchDescription.appendText("the ids ").appendValue(duplicateIds)
+						.appendText(" were used by more than one ballot");
+					return false;
+				}
+				return true;
+			}
+
+			@Override
+			public void describeTo(Description description) {
+				description.appendText("not has a pair of Elements that has equal ids");
+			}
+		};
+	}
+
+	private static final class LongHashSet {
+		private static final int INITIAL_CAPACITY = 1 << 10;
+
+		private long[] keys = new long[INITIAL_CAPACITY];
+		private boolean[] used = new boolean[INITIAL_CAPACITY];
+		private int size = 0;
+
+		boolean add(long key) {
+			if (2 * (size + 1) > keys.length) {
+				grow();
+			}
+
+			int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+			while (used[slot]) {
+				if (keys[slot] == key) {
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+
+			used[slot] = true;
+			keys[slot] = key;
+			size++;
+			return true;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			boolean[] oldUsed = used;
+			keys = new long[oldKeys.length * 2];
+			used = new boolean[oldUsed.length * 2];
+
+			int mask = keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldUsed[i]) {
+					int slot = hash(oldKeys[i]) & mask;
+					while (used[slot]) {
+						slot = (slot + 1) & mask;
+					}
+					used[slot] = true;
+					keys[slot] = oldKeys[i];
+				}
+			}
+		}
+
+		private static int hash(long key) {
+			// Finalization step of MurmurHash3, spreads sequential ballot ids over the whole table
+			long h = key;
+			h ^= h >>> 33;
+			h *= 0xff51afd7ed558ccdL;
+			h ^= h >>> 33;
+			h *= 0xc4ceb9fe1a85ec53L;
+			h ^= h >>> 33;
+			return (int) h;
+		}
+	}
+}
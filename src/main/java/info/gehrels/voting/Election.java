@@ -30,10 +30,12 @@ import static org.hamcrest.Matchers.*;
 public class Election<CANDIDATE_TYPE extends Candidate> {
 	private final String officeName;
 	private final ImmutableSet<CANDIDATE_TYPE> candidates;
+	private final CandidateIndex<CANDIDATE_TYPE> candidateIndex;
 
 	public Election(String officeName, ImmutableSet<CANDIDATE_TYPE> candidates) {
 		this.officeName = validateThat(officeName, not(is(emptyOrNullString())));
 		this.candidates = validateThat(candidates, is(notNullValue()));
+		this.candidateIndex = new CandidateIndex<>(candidates);
 	}
 
 	public final String getOfficeName() {
@@ -44,6 +46,10 @@ public class Election<CANDIDATE_TYPE extends Candidate> {
 		return candidates;
 	}
 
+	public final CandidateIndex<CANDIDATE_TYPE> getCandidateIndex() {
+		return candidateIndex;
+	}
+
 	public final Optional<CANDIDATE_TYPE> getCandidate(String name) {
 		return candidates.stream().filter(c -> c.getName().equals(name)).findAny();
 	}
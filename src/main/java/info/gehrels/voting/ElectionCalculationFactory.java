@@ -17,7 +17,19 @@
 package info.gehrels.voting;
 
 import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
 
 public interface ElectionCalculationFactory<CANDIDATE_TYPE extends Candidate> {
 	ElectionCalculation<CANDIDATE_TYPE> createElectionCalculation(Election<CANDIDATE_TYPE> election, ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots);
+
+	/**
+	 * Collects all ballots into memory by default. Factories whose calculations can read the ballots in one pass
+	 * should override this.
+	 */
+	default ElectionCalculation<CANDIDATE_TYPE> createElectionCalculation(Election<CANDIDATE_TYPE> election,
+	                                                                      BallotSource<CANDIDATE_TYPE> ballots) {
+		ImmutableList.Builder<Ballot<CANDIDATE_TYPE>> ballotsBuilder = ImmutableList.builder();
+		ballots.forEachBallot(ballotsBuilder::add);
+		return createElectionCalculation(election, ballotsBuilder.build());
+	}
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Numbers the offices of a set of ballots densely from 0 to size() - 1. Ballots created with an ElectionCatalogue keep
+ * their Votes in an array indexed by these slots, so that Ballot.getVote(officeName) and the withReplaced... methods
+ * find a Vote with a single hash lookup instead of comparing the office names of all Votes. A catalogue should be
+ * created once per ballot set, e.g. by a ballot file reader, and shared by all of its ballots.
+ */
+public final class ElectionCatalogue {
+	public static final int NO_SLOT = -1;
+
+	private final ImmutableList<String> officeNames;
+	private final ImmutableMap<String, Integer> slots;
+	// Ballots whose office has been renamed share the catalogue with the new name, indexed by slot and new name
+	private final ImmutableList<ConcurrentMap<String, ElectionCatalogue>> renamedCatalogues;
+
+	public ElectionCatalogue(ImmutableList<String> officeNames) {
+		validateThat(officeNames, is(notNullValue()));
+		this.officeNames = officeNames;
+		ImmutableMap.Builder<String, Integer> slotsBuilder = ImmutableMap.builderWithExpectedSize(officeNames.size());
+		ImmutableList.Builder<ConcurrentMap<String, ElectionCatalogue>> renamedCataloguesBuilder =
+			ImmutableList.builderWithExpectedSize(officeNames.size());
+		for (int slot = 0; slot < officeNames.size(); slot++) {
+			slotsBuilder.put(validateThat(officeNames.get(slot), is(notNullValue())), slot);
+			renamedCataloguesBuilder.add(new ConcurrentHashMap<>());
+		}
+		// Rejects equal office names
+		this.slots = slotsBuilder.buildOrThrow();
+		this.renamedCatalogues = renamedCataloguesBuilder.build();
+	}
+
+	public static ElectionCatalogue of(Collection<? extends Election<?>> elections) {
+		validateThat(elections, is(notNullValue()));
+		ImmutableList.Builder<String> officeNames = ImmutableList.builderWithExpectedSize(elections.size());
+		for (Election<?> election : elections) {
+			officeNames.add(election.getOfficeName());
+		}
+		return new ElectionCatalogue(officeNames.build());
+	}
+
+	public int size() {
+		return officeNames.size();
+	}
+
+	public String getOfficeName(int slot) {
+		return officeNames.get(slot);
+	}
+
+	/**
+	 * @return the slot of the office, or NO_SLOT if it is not part of this catalogue.
+	 */
+	public int slotOf(String officeName) {
+		Integer slot = slots.get(officeName);
+		return (slot == null) ? NO_SLOT : slot;
+	}
+
+	/**
+	 * @param newOfficeName must not be the name of another office of this catalogue.
+	 * @return a catalogue with the office in the given slot renamed, the same one for all calls with equal arguments.
+	 */
+	ElectionCatalogue withRenamedOffice(int slot, String newOfficeName) {
+		if (officeNames.get(slot).equals(newOfficeName)) {
+			return this;
+		}
+		validateThat("Office " + newOfficeName + " is already part of the catalogue", slotOf(newOfficeName),
+		             is(NO_SLOT));
+
+		return renamedCatalogues.get(slot).computeIfAbsent(newOfficeName, name -> {
+			String[] newOfficeNames = officeNames.toArray(new String[0]);
+			newOfficeNames[slot] = name;
+			return new ElectionCatalogue(ImmutableList.copyOf(newOfficeNames));
+		});
+	}
+
+	@Override
+	public String toString() {
+		return officeNames.toString();
+	}
+}
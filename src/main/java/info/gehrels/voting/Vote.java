@@ -19,6 +19,8 @@ package info.gehrels.voting;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 
+import java.util.Arrays;
+
 import static com.google.common.base.Objects.equal;
 import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
 import static info.gehrels.voting.CollectionMatchers.hasOnlyDistinctElements;
@@ -26,10 +28,14 @@ import static info.gehrels.voting.CollectionMatchers.isSubSetOf;
 import static org.hamcrest.Matchers.*;
 
 public final class Vote<CANDIDATE_TYPE extends Candidate> {
+	private static final int[] NO_INDICES = new int[0];
+	private static final int MAX_RANKING_LENGTH_TO_COMPARE_PAIRWISE = 16;
+
 	private final Election<CANDIDATE_TYPE> election;
 	private final boolean valid;
 	private final boolean no;
 	private final ImmutableList<CANDIDATE_TYPE> rankedCandidates;
+	private final int[] rankedCandidateIndices;
 
 	public static <CANDIDATE_TYPE extends Candidate> Vote<CANDIDATE_TYPE> createInvalidVote(
 		Election<CANDIDATE_TYPE> election) {
@@ -46,18 +52,44 @@ public final class Vote<CANDIDATE_TYPE extends Candidate> {
 		return new Vote<>(election, true, true, ImmutableList.of());
 	}
 
+	/**
+	 * Creates the Vote that BallotSource.VoteConsumer receives as these arguments.
+	 */
+	public static <CANDIDATE_TYPE extends Candidate> Vote<CANDIDATE_TYPE> createVote(
+		Election<CANDIDATE_TYPE> election, boolean valid, boolean no, int[] rankedCandidateIndices,
+		int numberOfRankedCandidates) {
+		if (!valid) {
+			return createInvalidVote(election);
+		} else if (no) {
+			return createNoVote(election);
+		}
+
+		ImmutableList.Builder<CANDIDATE_TYPE> preference = ImmutableList.builderWithExpectedSize(numberOfRankedCandidates);
+		for (int position = 0; position < numberOfRankedCandidates; position++) {
+			int index = validateThat(rankedCandidateIndices[position],
+			                         allOf(greaterThanOrEqualTo(0), lessThan(election.getCandidateIndex().size())));
+			preference.add(election.getCandidateIndex().get(index));
+		}
+		return createPreferenceVote(election, preference.build());
+	}
+
 	private Vote(Election<CANDIDATE_TYPE> election, boolean valid, boolean no,
 	             ImmutableList<CANDIDATE_TYPE> rankedCandidates) {
 		this.election = validateThat(election, is(not(nullValue())));
 		this.valid = valid;
 		this.no = no;
-		this.rankedCandidates = validateThat(
-				rankedCandidates,
-				allOf(
-						isSubSetOf(election.getCandidates()),
-						hasOnlyDistinctElements()
-				)
-		);
+		this.rankedCandidateIndices = indicesOf(rankedCandidates, election.getCandidateIndex());
+		if (rankedCandidateIndices == null) {
+			// Only to describe what is wrong with the ranking
+			validateThat(
+					rankedCandidates,
+					allOf(
+							isSubSetOf(election.getCandidates()),
+							hasOnlyDistinctElements()
+					)
+			);
+		}
+		this.rankedCandidates = rankedCandidates;
 	}
 
 	public Election<CANDIDATE_TYPE> getElection() {
@@ -76,6 +108,18 @@ public final class Vote<CANDIDATE_TYPE extends Candidate> {
 		return rankedCandidates;
 	}
 
+	/**
+	 * @return the index of getRankedCandidates().get(position) in getElection().getCandidateIndex().
+	 */
+	public int getRankedCandidateIndex(int position) {
+		return rankedCandidateIndices[position];
+	}
+
+	// Shared, not copied, so it must not be modified
+	int[] getRankedCandidateIndices() {
+		return rankedCandidateIndices;
+	}
+
 	public Vote<CANDIDATE_TYPE> withReplacedElection(Election<CANDIDATE_TYPE> newElection) {
 		return new Vote<>(newElection, valid, no, rankedCandidates);
 	}
@@ -97,6 +141,51 @@ public final class Vote<CANDIDATE_TYPE extends Candidate> {
 		return new Vote<>(adaptedElection, valid, no, newRankedCandidates.build());
 	}
 
+	/**
+	 * @return null if a candidate does not run in the election or is ranked more than once.
+	 */
+	private static int[] indicesOf(ImmutableList<? extends Candidate> rankedCandidates,
+	                               CandidateIndex<?> candidateIndex) {
+		if (rankedCandidates == null) {
+			return null;
+		} else if (rankedCandidates.isEmpty()) {
+			return NO_INDICES;
+		}
+
+		int[] indices = new int[rankedCandidates.size()];
+		for (int position = 0; position < indices.length; position++) {
+			int index = candidateIndex.indexOf(rankedCandidates.get(position));
+			if (index == CandidateIndex.NOT_INDEXED) {
+				return null;
+			}
+			indices[position] = index;
+		}
+		return containsDuplicates(indices) ? null : indices;
+	}
+
+	// Looks at the ranking only, which is usually much shorter than the list of candidates
+	private static boolean containsDuplicates(int[] indices) {
+		if (indices.length <= MAX_RANKING_LENGTH_TO_COMPARE_PAIRWISE) {
+			for (int position = 1; position < indices.length; position++) {
+				for (int earlierPosition = 0; earlierPosition < position; earlierPosition++) {
+					if (indices[earlierPosition] == indices[position]) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		int[] sortedIndices = indices.clone();
+		Arrays.sort(sortedIndices);
+		for (int position = 1; position < sortedIndices.length; position++) {
+			if (sortedIndices[position - 1] == sortedIndices[position]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (!(obj instanceof Vote<?> otherVote)) {
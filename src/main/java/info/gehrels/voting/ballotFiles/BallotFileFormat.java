@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary ballot file format, version 1:
+ * <pre>
+ * file      := magic ("STVB", 4 bytes) version (1 byte) elections ballot*
+ * elections := varint(n) election{n}
+ * election  := string(officeName) varint(m) string(candidateName){m}
+ * string    := varint(number of bytes) UTF-8 bytes
+ * ballot    := zigzag-varint(ballotId) varint(k) vote{k}
+ * vote      := varint(election index) flags (1 byte, VALID | NO) varint(r) varint(candidate index){r}
+ * </pre>
+ * A varint is an unsigned number written 7 bits at a time, least significant group first, with the high bit of each
+ * byte set if another byte follows. Ballot ids are zigzag encoded, so that small negative ids stay short, too.
+ * Election indices refer to the order of the elections in the header, candidate indices to the order of the
+ * candidates of their election. The ballots simply continue up to the end of the file.
+ */
+final class BallotFileFormat {
+	static final byte[] MAGIC = {'S', 'T', 'V', 'B'};
+	static final int VERSION = 1;
+	static final int VALID = 1;
+	static final int NO = 2;
+
+	private BallotFileFormat() {
+	}
+
+	static void writeVarLong(DataOutput out, long value) throws IOException {
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0) {
+			out.writeByte((int) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		out.writeByte((int) remaining);
+	}
+
+	static void writeZigZagVarLong(DataOutput out, long value) throws IOException {
+		writeVarLong(out, (value << 1) ^ (value >> 63));
+	}
+
+	static void writeString(DataOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(out, bytes.length);
+		out.write(bytes);
+	}
+
+	static long readVarLong(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varint at position " + (in.position() - 1));
+	}
+
+	static int readVarInt(ByteBuffer in) {
+		long value = readVarLong(in);
+		if ((value < 0) || (value > Integer.MAX_VALUE)) {
+			throw new IllegalStateException("Number " + value + " at position " + in.position() + " is out of range");
+		}
+		return (int) value;
+	}
+
+	static long readZigZagVarLong(ByteBuffer in) {
+		long value = readVarLong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
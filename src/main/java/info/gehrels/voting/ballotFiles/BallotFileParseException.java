@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import java.io.IOException;
+
+/**
+ * Signals a malformed line of a text ballot file. Lines and columns are counted from 1, columns in bytes.
+ */
+public final class BallotFileParseException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	private final long line;
+	private final long column;
+
+	BallotFileParseException(long line, long column, String message) {
+		super("Line " + line + ", column " + column + ": " + message);
+		this.line = line;
+		this.column = column;
+	}
+
+	public long getLine() {
+		return line;
+	}
+
+	public long getColumn() {
+		return column;
+	}
+}
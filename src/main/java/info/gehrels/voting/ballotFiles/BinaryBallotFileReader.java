@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.BallotSource;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.ElectionCatalogue;
+import info.gehrels.voting.Vote;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Reads a file in the format described in BallotFileFormat from a MappedByteBuffer. Only the header is read when the
+ * file is opened. forEachVote decodes the ballots straight into the VoteConsumer, without creating Ballot or Vote
+ * objects, so each pass is bound by reading the file. Passes may run concurrently. Files are limited to 2 GiB.
+ * <p>
+ * The elections of the file are matched to the given Elections by office name, their candidates by name, so the
+ * ballots of the file can be counted for Elections with other candidate objects or another candidate order. A
+ * malformed ballot section causes a RuntimeException during the pass that reaches it.
+ */
+public final class BinaryBallotFileReader<CANDIDATE_TYPE extends Candidate> implements BallotSource<CANDIDATE_TYPE> {
+	private final MappedByteBuffer buffer;
+	private final int startOfBallots;
+	private final ImmutableList<Election<CANDIDATE_TYPE>> elections;
+	private final ElectionCatalogue electionCatalogue;
+	// The index of each candidate of the file in the CandidateIndex of its Election, by election of the file
+	private final int[][] candidateIndices;
+	private final int maximumNumberOfCandidates;
+
+	private BinaryBallotFileReader(MappedByteBuffer buffer, ImmutableCollection<Election<CANDIDATE_TYPE>> elections)
+		throws IOException {
+		this.buffer = buffer;
+		byte[] magic = new byte[BallotFileFormat.MAGIC.length];
+		if (buffer.remaining() <= magic.length) {
+			throw new IOException("Not a ballot file");
+		}
+		buffer.get(magic);
+		if (!Arrays.equals(magic, BallotFileFormat.MAGIC)) {
+			throw new IOException("Not a ballot file");
+		}
+		int version = buffer.get();
+		if (version != BallotFileFormat.VERSION) {
+			throw new IOException("Unsupported ballot file version " + version);
+		}
+
+		int numberOfElections = BallotFileFormat.readVarInt(buffer);
+		ImmutableList.Builder<Election<CANDIDATE_TYPE>> electionsBuilder = ImmutableList.builder();
+		this.candidateIndices = new int[numberOfElections][];
+		int maximumNumberOfCandidatesDraft = 0;
+		for (int electionIndex = 0; electionIndex < numberOfElections; electionIndex++) {
+			String officeName = BallotFileFormat.readString(buffer);
+			Election<CANDIDATE_TYPE> election = elections.stream()
+				.filter(e -> e.getOfficeName().equals(officeName))
+				.findAny()
+				.orElseThrow(() -> new IllegalArgumentException("The election " + officeName + " is not given"));
+			electionsBuilder.add(election);
+
+			candidateIndices[electionIndex] = new int[BallotFileFormat.readVarInt(buffer)];
+			for (int i = 0; i < candidateIndices[electionIndex].length; i++) {
+				String name = BallotFileFormat.readString(buffer);
+				CANDIDATE_TYPE candidate = election.getCandidate(name).orElseThrow(
+					() -> new IllegalArgumentException("The election " + officeName + " has no candidate " + name));
+				candidateIndices[electionIndex][i] = election.getCandidateIndex().indexOf(candidate);
+			}
+			maximumNumberOfCandidatesDraft = Math.max(maximumNumberOfCandidatesDraft,
+			                                          candidateIndices[electionIndex].length);
+		}
+		this.elections = electionsBuilder.build();
+		this.electionCatalogue = ElectionCatalogue.of(elections);
+		this.maximumNumberOfCandidates = maximumNumberOfCandidatesDraft;
+		this.startOfBallots = buffer.position();
+	}
+
+	public static <CANDIDATE_TYPE extends Candidate> BinaryBallotFileReader<CANDIDATE_TYPE> open(
+		Path file, ImmutableCollection<Election<CANDIDATE_TYPE>> elections) throws IOException {
+		validateThat(file, is(notNullValue()));
+		validateThat(elections, is(notNullValue()));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel has been closed
+			return new BinaryBallotFileReader<>(channel.map(MapMode.READ_ONLY, 0, channel.size()), elections);
+		}
+	}
+
+	/**
+	 * @return the Elections the elections of the file have been matched to, in the order of the file.
+	 */
+	public ImmutableList<Election<CANDIDATE_TYPE>> getElections() {
+		return elections;
+	}
+
+	@Override
+	public void forEachVote(Election<CANDIDATE_TYPE> election, VoteConsumer consumer) {
+		validateThat(election, is(notNullValue()));
+		validateThat(consumer, is(notNullValue()));
+		forEachVote(ImmutableList.of(election), (electionIndex, ballotId, valid, no, rankedCandidateIndices,
+		                                         numberOfRankedCandidates) ->
+			consumer.accept(ballotId, valid, no, rankedCandidateIndices, numberOfRankedCandidates));
+	}
+
+	@Override
+	public void forEachVote(ImmutableList<Election<CANDIDATE_TYPE>> wantedElections, ElectionVoteConsumer consumer) {
+		validateThat(wantedElections, is(notNullValue()));
+		validateThat(consumer, is(notNullValue()));
+
+		// The index in wantedElections of each election of the file, or -1 if it is not wanted
+		int[] wantedElectionIndices = new int[elections.size()];
+		for (int electionIndex = 0; electionIndex < wantedElectionIndices.length; electionIndex++) {
+			wantedElectionIndices[electionIndex] = wantedElections.indexOf(elections.get(electionIndex));
+		}
+		int[] rankedCandidateIndices = new int[maximumNumberOfCandidates];
+		ByteBuffer in = ballots();
+		while (in.hasRemaining()) {
+			long ballotId = BallotFileFormat.readZigZagVarLong(in);
+			int numberOfVotes = BallotFileFormat.readVarInt(in);
+			for (int vote = 0; vote < numberOfVotes; vote++) {
+				int electionIndex = BallotFileFormat.readVarInt(in);
+				int flags = in.get();
+				int numberOfRankedCandidates = BallotFileFormat.readVarInt(in);
+				if (wantedElectionIndices[electionIndex] < 0) {
+					skipVarInts(in, numberOfRankedCandidates);
+					continue;
+				}
+
+				for (int position = 0; position < numberOfRankedCandidates; position++) {
+					rankedCandidateIndices[position] = candidateIndices[electionIndex][BallotFileFormat.readVarInt(in)];
+				}
+				consumer.accept(wantedElectionIndices[electionIndex], ballotId, (flags & BallotFileFormat.VALID) != 0,
+				                (flags & BallotFileFormat.NO) != 0, rankedCandidateIndices, numberOfRankedCandidates);
+			}
+		}
+	}
+
+	@Override
+	public void forEachBallot(Consumer<? super Ballot<CANDIDATE_TYPE>> consumer) {
+		validateThat(consumer, is(notNullValue()));
+
+		int[] rankedCandidateIndices = new int[maximumNumberOfCandidates];
+		ByteBuffer in = ballots();
+		while (in.hasRemaining()) {
+			long ballotId = BallotFileFormat.readZigZagVarLong(in);
+			int numberOfVotes = BallotFileFormat.readVarInt(in);
+			ImmutableSet.Builder<Vote<CANDIDATE_TYPE>> votes = ImmutableSet.builderWithExpectedSize(numberOfVotes);
+			for (int vote = 0; vote < numberOfVotes; vote++) {
+				int electionIndex = BallotFileFormat.readVarInt(in);
+				int flags = in.get();
+				int numberOfRankedCandidates = BallotFileFormat.readVarInt(in);
+				for (int position = 0; position < numberOfRankedCandidates; position++) {
+					rankedCandidateIndices[position] = candidateIndices[electionIndex][BallotFileFormat.readVarInt(in)];
+				}
+				votes.add(Vote.createVote(elections.get(electionIndex), (flags & BallotFileFormat.VALID) != 0,
+				                          (flags & BallotFileFormat.NO) != 0, rankedCandidateIndices,
+				                          numberOfRankedCandidates));
+			}
+			consumer.accept(new Ballot<>(ballotId, votes.build(), electionCatalogue));
+		}
+	}
+
+	// Each pass gets its own position, so that passes can run concurrently
+	private ByteBuffer ballots() {
+		return buffer.duplicate().position(startOfBallots);
+	}
+
+	private static void skipVarInts(ByteBuffer in, int numberOfVarInts) {
+		int remaining = numberOfVarInts;
+		while (remaining > 0) {
+			if (in.get() >= 0) {
+				remaining--;
+			}
+		}
+	}
+}
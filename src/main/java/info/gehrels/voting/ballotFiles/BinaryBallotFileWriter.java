@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import com.google.common.collect.ImmutableList;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.Vote;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Writes Ballots in the format described in BallotFileFormat. The header is written on construction, every Ballot
+ * is appended as soon as it is written.
+ */
+public final class BinaryBallotFileWriter<CANDIDATE_TYPE extends Candidate> implements Closeable {
+	private final DataOutputStream out;
+	// Elections are compared by identity, just like in Ballot.votesByElections
+	private final Map<Election<CANDIDATE_TYPE>, Integer> electionIndices = new IdentityHashMap<>();
+
+	public BinaryBallotFileWriter(OutputStream out, ImmutableList<Election<CANDIDATE_TYPE>> elections)
+		throws IOException {
+		validateThat(out, is(notNullValue()));
+		validateThat(elections, is(notNullValue()));
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+
+		this.out.write(BallotFileFormat.MAGIC);
+		this.out.writeByte(BallotFileFormat.VERSION);
+		BallotFileFormat.writeVarLong(this.out, elections.size());
+		for (Election<CANDIDATE_TYPE> election : elections) {
+			electionIndices.put(election, electionIndices.size());
+			BallotFileFormat.writeString(this.out, election.getOfficeName());
+			ImmutableList<CANDIDATE_TYPE> candidates = election.getCandidateIndex().asList();
+			BallotFileFormat.writeVarLong(this.out, candidates.size());
+			for (CANDIDATE_TYPE candidate : candidates) {
+				BallotFileFormat.writeString(this.out, candidate.name);
+			}
+		}
+	}
+
+	public static <CANDIDATE_TYPE extends Candidate> void write(Path file,
+	                                                            ImmutableList<Election<CANDIDATE_TYPE>> elections,
+	                                                            Iterable<Ballot<CANDIDATE_TYPE>> ballots)
+		throws IOException {
+		validateThat(ballots, is(notNullValue()));
+		try (BinaryBallotFileWriter<CANDIDATE_TYPE> writer =
+			     new BinaryBallotFileWriter<>(Files.newOutputStream(file), elections)) {
+			for (Ballot<CANDIDATE_TYPE> ballot : ballots) {
+				writer.write(ballot);
+			}
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the Ballot contains a Vote for an Election that is not in the header.
+	 */
+	public void write(Ballot<CANDIDATE_TYPE> ballot) throws IOException {
+		validateThat(ballot, is(notNullValue()));
+		for (Vote<CANDIDATE_TYPE> vote : ballot.votesByElections.values()) {
+			if (!electionIndices.containsKey(vote.getElection())) {
+				throw new IllegalArgumentException(
+					"Ballot " + ballot.id + " contains a vote for the unknown election " + vote.getElection());
+			}
+		}
+
+		BallotFileFormat.writeZigZagVarLong(out, ballot.id);
+		BallotFileFormat.writeVarLong(out, ballot.votesByElections.size());
+		for (Vote<CANDIDATE_TYPE> vote : ballot.votesByElections.values()) {
+			BallotFileFormat.writeVarLong(out, electionIndices.get(vote.getElection()));
+			out.writeByte((vote.isValid() ? BallotFileFormat.VALID : 0) | (vote.isNo() ? BallotFileFormat.NO : 0));
+			int numberOfRankedCandidates = vote.getRankedCandidates().size();
+			BallotFileFormat.writeVarLong(out, numberOfRankedCandidates);
+			for (int position = 0; position < numberOfRankedCandidates; position++) {
+				BallotFileFormat.writeVarLong(out, vote.getRankedCandidateIndex(position));
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
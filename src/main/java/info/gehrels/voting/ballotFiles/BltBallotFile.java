@@ -0,0 +1,308 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.CandidateIndex;
+import info.gehrels.voting.Election;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * A ballot file in the .blt format of OpenSTV and OpaVote:
+ * <pre>
+ * 4 2              the number of candidates and the number of seats
+ * -3               optional, the withdrawn candidates, negated
+ * 2 1 2 4 0        a weight, the candidate numbers in order of preference, 0
+ * 1 0              a blank ballot, read as an invalid vote
+ * 0                the end of the ballots
+ * "Ann"            the name of each candidate, in the order of their numbers
+ * "Bob"
+ * "Carl"
+ * "Dora"
+ * "Board Election" the title
+ * </pre>
+ * Candidates are numbered from 1. Withdrawn candidates are left out of the rankings, so a ballot that only ranks
+ * withdrawn candidates is read as an invalid vote, just as a blank one. All other candidates are matched to the
+ * candidates of the Election by name. A line with weight w stands for w ballots. The ballots get the ids 1, 2, ..., in
+ * the order of the file. Equal rankings and fractional weights are not supported.
+ */
+public final class BltBallotFile<CANDIDATE_TYPE extends Candidate> {
+	private final long numberOfSeats;
+	private final String title;
+	private final ImportedBallots<CANDIDATE_TYPE> ballots;
+
+	private BltBallotFile(long numberOfSeats, String title, ImportedBallots<CANDIDATE_TYPE> ballots) {
+		this.numberOfSeats = numberOfSeats;
+		this.title = title;
+		this.ballots = ballots;
+	}
+
+	public static <CANDIDATE_TYPE extends Candidate> BltBallotFile<CANDIDATE_TYPE> read(
+		Path file, Election<CANDIDATE_TYPE> election) throws IOException {
+		return read(file, election, ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism());
+	}
+
+	/**
+	 * Parses the ballots in up to parallelism chunks of lines at once.
+	 *
+	 * @throws BallotFileParseException if the file is malformed or names a candidate the Election does not have.
+	 */
+	public static <CANDIDATE_TYPE extends Candidate> BltBallotFile<CANDIDATE_TYPE> read(
+		Path file, Election<CANDIDATE_TYPE> election, Executor executor, int parallelism) throws IOException {
+		validateThat(file, is(notNullValue()));
+		validateThat(election, is(notNullValue()));
+		validateThat(executor, is(notNullValue()));
+		validateThat(parallelism, is(greaterThan(0)));
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			try {
+				return read(channel, election, executor, parallelism);
+			} catch (MalformedLineException e) {
+				throw TextBallotFile.toParseException(channel, e);
+			}
+		}
+	}
+
+	public long getNumberOfSeats() {
+		return numberOfSeats;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public ImportedBallots<CANDIDATE_TYPE> getBallots() {
+		return ballots;
+	}
+
+	private static <CANDIDATE_TYPE extends Candidate> BltBallotFile<CANDIDATE_TYPE> read(
+		FileChannel channel, Election<CANDIDATE_TYPE> election, Executor executor, int parallelism)
+		throws IOException {
+		long size = channel.size();
+
+		// The header
+		ByteBuffer head = TextBallotFile.map(channel, 0, size);
+		int endOfLine = endOfLine(head, 0);
+		int position = TextBallotFile.skipBlanks(head, 0, endOfLine);
+		int endOfToken = TextBallotFile.endOfToken(head, position, endOfLine);
+		long numberOfCandidates = TextBallotFile.parseLong(head, position, endOfToken, 0);
+		if ((numberOfCandidates < 1) || (numberOfCandidates > (Integer.MAX_VALUE - 8))) {
+			throw new MalformedLineException(position, "The number of candidates must be positive");
+		}
+		// Each candidate needs a line with a quoted name of its own, so the rest of the file has at least 3 bytes for
+		// each of them. This keeps a malformed number from sizing the arrays below.
+		if (numberOfCandidates > ((size - endOfLine) / 3)) {
+			throw new MalformedLineException(position,
+			                                 "The file is too short for " + numberOfCandidates + " candidates");
+		}
+		position = TextBallotFile.skipBlanks(head, endOfToken, endOfLine);
+		endOfToken = TextBallotFile.endOfToken(head, position, endOfLine);
+		long numberOfSeats = TextBallotFile.parseLong(head, position, endOfToken, 0);
+		if (numberOfSeats < 1) {
+			throw new MalformedLineException(position, "The number of seats must be positive");
+		}
+		expectEndOfLine(head, endOfToken, endOfLine, 0);
+
+		boolean[] withdrawn = new boolean[(int) numberOfCandidates];
+		long startOfBallots = Math.min(endOfLine + 1L, size);
+		if (startOfBallots < head.limit()) {
+			int startOfLine = (int) startOfBallots;
+			endOfLine = endOfLine(head, startOfLine);
+			position = TextBallotFile.skipBlanks(head, startOfLine, endOfLine);
+			if ((position < endOfLine) && (head.get(position) == '-')) {
+				while (position < endOfLine) {
+					endOfToken = TextBallotFile.endOfToken(head, position, endOfLine);
+					long candidateNumber = -TextBallotFile.parseLong(head, position, endOfToken, 0);
+					if ((candidateNumber < 1) || (candidateNumber > numberOfCandidates)) {
+						throw new MalformedLineException(position, "There is no candidate " + candidateNumber);
+					}
+					withdrawn[(int) candidateNumber - 1] = true;
+					position = TextBallotFile.skipBlanks(head, endOfToken, endOfLine);
+				}
+				startOfBallots = Math.min(endOfLine + 1L, size);
+			}
+		}
+
+		// The trailer, found from the end of the file: the line ending the ballots, the names and the title
+		long offsetOfTail = Math.max(0, size - Integer.MAX_VALUE);
+		ByteBuffer tail = TextBallotFile.map(channel, offsetOfTail, size);
+		int numberOfTrailerLines = (int) numberOfCandidates + 2;
+		int[] trailerLineStarts = new int[numberOfTrailerLines];
+		int[] trailerLineEnds = new int[numberOfTrailerLines];
+		int endOfTrailerLine = tail.limit();
+		for (int line = numberOfTrailerLines - 1; line >= 0; ) {
+			if (endOfTrailerLine < 0) {
+				throw new MalformedLineException(startOfBallots, "The file is missing the candidate names");
+			}
+			int startOfTrailerLine = endOfTrailerLine;
+			while ((startOfTrailerLine > 0) && (tail.get(startOfTrailerLine - 1) != '\n')) {
+				startOfTrailerLine--;
+			}
+			int start = TextBallotFile.skipBlanks(tail, startOfTrailerLine, endOfTrailerLine);
+			if (start < endOfTrailerLine) {
+				trailerLineStarts[line] = start;
+				trailerLineEnds[line] = endOfTrailerLine;
+				line--;
+			}
+			endOfTrailerLine = startOfTrailerLine - 1;
+		}
+
+		long endOfBallots = offsetOfTail + trailerLineStarts[0];
+		endOfToken = TextBallotFile.endOfToken(tail, trailerLineStarts[0], trailerLineEnds[0]);
+		if ((endOfBallots < startOfBallots)
+		    || (TextBallotFile.parseLong(tail, trailerLineStarts[0], endOfToken, offsetOfTail) != 0)) {
+			throw new MalformedLineException(endOfBallots, "Expected 0, ending the ballots");
+		}
+		expectEndOfLine(tail, endOfToken, trailerLineEnds[0], offsetOfTail);
+
+		CandidateIndex<CANDIDATE_TYPE> candidateIndex = election.getCandidateIndex();
+		int[] candidateIndices = new int[(int) numberOfCandidates];
+		for (int i = 0; i < numberOfCandidates; i++) {
+			String name = readQuotedString(tail, trailerLineStarts[i + 1], trailerLineEnds[i + 1], offsetOfTail);
+			Optional<CANDIDATE_TYPE> candidate = election.getCandidate(name);
+			if (withdrawn[i]) {
+				candidateIndices[i] = CandidateIndex.NOT_INDEXED;
+			} else if (candidate.isPresent()) {
+				candidateIndices[i] = candidateIndex.indexOf(candidate.get());
+			} else {
+				throw new MalformedLineException(offsetOfTail + trailerLineStarts[i + 1],
+				                                 "The election has no candidate " + name);
+			}
+		}
+		String title = readQuotedString(tail, trailerLineStarts[numberOfTrailerLines - 1],
+		                                trailerLineEnds[numberOfTrailerLines - 1], offsetOfTail);
+
+		List<RankingRows> chunks = TextBallotFile.parseLines(channel, startOfBallots, endOfBallots, executor,
+		                                                     parallelism, () -> new BallotLineParser(candidateIndices));
+		long nextBallotId = 1;
+		for (RankingRows chunk : chunks) {
+			chunk.shiftBallotIds(nextBallotId);
+			nextBallotId += chunk.numberOfBallots;
+		}
+		return new BltBallotFile<>(numberOfSeats, title, new ImportedBallots<>(election, chunks));
+	}
+
+	private static int endOfLine(ByteBuffer in, int start) {
+		int position = start;
+		while ((position < in.limit()) && (in.get(position) != '\n')) {
+			position++;
+		}
+		return position;
+	}
+
+	private static void expectEndOfLine(ByteBuffer in, int position, int endOfLine, long offsetOfBuffer) {
+		int nonBlank = TextBallotFile.skipBlanks(in, position, endOfLine);
+		if (nonBlank != endOfLine) {
+			throw new MalformedLineException(offsetOfBuffer + nonBlank, "Unexpected text at the end of the line");
+		}
+	}
+
+	private static String readQuotedString(ByteBuffer in, int start, int end, long offsetOfBuffer) {
+		int last = end - 1;
+		while (TextBallotFile.isBlank(in.get(last))) {
+			last--;
+		}
+		if ((last == start) || (in.get(start) != '"') || (in.get(last) != '"')) {
+			throw new MalformedLineException(offsetOfBuffer + start, "Expected a quoted name");
+		}
+
+		byte[] bytes = new byte[last - start - 1];
+		in.get(start + 1, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static final class BallotLineParser implements TextBallotFile.LineParser {
+		private final int[] candidateIndices;
+		private final int[] ranking;
+		// The line each candidate number has been ranked on last, to find duplicates without clearing anything
+		private final int[] lastRankedOnLine;
+		private int line = 0;
+
+		BallotLineParser(int[] candidateIndices) {
+			this.candidateIndices = candidateIndices;
+			this.ranking = new int[candidateIndices.length];
+			this.lastRankedOnLine = new int[candidateIndices.length];
+		}
+
+		@Override
+		public void parseLine(ByteBuffer in, int start, int end, long offsetOfBuffer, RankingRows rows) {
+			int position = TextBallotFile.skipBlanks(in, start, end);
+			if (position == end) {
+				return;
+			}
+
+			line++;
+			int endOfToken = TextBallotFile.endOfToken(in, position, end);
+			long weight = TextBallotFile.parseLong(in, position, endOfToken, offsetOfBuffer);
+			if (weight < 1) {
+				throw new MalformedLineException(offsetOfBuffer + position, "The weight must be positive");
+			}
+
+			int numberOfRankedCandidates = 0;
+			while (true) {
+				position = TextBallotFile.skipBlanks(in, endOfToken, end);
+				if (position == end) {
+					throw new MalformedLineException(offsetOfBuffer + position, "Expected 0, ending the ballot");
+				}
+				endOfToken = TextBallotFile.endOfToken(in, position, end);
+				for (int i = position; i < endOfToken; i++) {
+					if (in.get(i) == '=') {
+						throw new MalformedLineException(offsetOfBuffer + position,
+						                                 "Equal rankings are not supported");
+					}
+				}
+
+				long candidateNumber = TextBallotFile.parseLong(in, position, endOfToken, offsetOfBuffer);
+				if (candidateNumber == 0) {
+					break;
+				}
+				if ((candidateNumber < 0) || (candidateNumber > candidateIndices.length)) {
+					throw new MalformedLineException(offsetOfBuffer + position,
+					                                 "There is no candidate " + candidateNumber);
+				}
+				int candidate = (int) candidateNumber - 1;
+				if (lastRankedOnLine[candidate] == line) {
+					throw new MalformedLineException(offsetOfBuffer + position,
+					                                 "Candidate " + candidateNumber + " is ranked more than once");
+				}
+				lastRankedOnLine[candidate] = line;
+				if (candidateIndices[candidate] != CandidateIndex.NOT_INDEXED) {
+					ranking[numberOfRankedCandidates++] = candidateIndices[candidate];
+				}
+			}
+			expectEndOfLine(in, endOfToken, end, offsetOfBuffer);
+
+			// Numbered within the chunk, shifted once all chunks are known
+			rows.add(rows.numberOfBallots, weight, offsetOfBuffer + start, ranking, numberOfRankedCandidates);
+		}
+	}
+}
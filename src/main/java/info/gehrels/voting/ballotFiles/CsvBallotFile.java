@@ -0,0 +1,282 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import com.google.common.collect.ImmutableSortedSet;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.CandidateIndex;
+import info.gehrels.voting.DuplicateBallotIdDetector;
+import info.gehrels.voting.Election;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Reads ballots for a single Election from a CSV file with one ballot per line: the ballot id, followed by the names
+ * of the candidates in order of preference.
+ * <pre>
+ * 1,Ann,Bob
+ * 2,"Carl ""The Count"" Smith",Ann
+ * 3                  (a blank ballot, read as an invalid vote)
+ * </pre>
+ * Names may be quoted as in RFC 4180, but must not span lines. Trailing empty fields are ignored, so that rows exported
+ * from a spreadsheet may be padded to equal length. Blank lines are skipped.
+ */
+public final class CsvBallotFile {
+	private CsvBallotFile() {
+	}
+
+	public static <CANDIDATE_TYPE extends Candidate> ImportedBallots<CANDIDATE_TYPE> read(
+		Path file, Election<CANDIDATE_TYPE> election) throws IOException {
+		return read(file, election, ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism());
+	}
+
+	/**
+	 * Parses the file in up to parallelism chunks of lines at once.
+	 *
+	 * @throws BallotFileParseException if a line is malformed, names a candidate the Election does not have, or
+	 *                                  reuses the id of another ballot.
+	 */
+	public static <CANDIDATE_TYPE extends Candidate> ImportedBallots<CANDIDATE_TYPE> read(
+		Path file, Election<CANDIDATE_TYPE> election, Executor executor, int parallelism) throws IOException {
+		validateThat(file, is(notNullValue()));
+		validateThat(election, is(notNullValue()));
+		validateThat(executor, is(notNullValue()));
+		validateThat(parallelism, is(greaterThan(0)));
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			try {
+				CandidateNames candidateNames = new CandidateNames(election.getCandidateIndex());
+				List<RankingRows> chunks = TextBallotFile.parseLines(channel, 0, channel.size(), executor, parallelism,
+				                                                     () -> new BallotLineParser(candidateNames));
+				ImportedBallots<CANDIDATE_TYPE> ballots = new ImportedBallots<>(election, chunks);
+				validateThatBallotIdsAreDistinct(ballots, chunks);
+				return ballots;
+			} catch (MalformedLineException e) {
+				throw TextBallotFile.toParseException(channel, e);
+			}
+		}
+	}
+
+	private static void validateThatBallotIdsAreDistinct(ImportedBallots<?> ballots, List<RankingRows> chunks) {
+		ImmutableSortedSet<Long> duplicateIds =
+			DuplicateBallotIdDetector.findDuplicateIds(ballots.firstBallotIds, ballots.firstBallotIds.length);
+		if (duplicateIds.isEmpty()) {
+			return;
+		}
+
+		// Only searched for if there is a duplicate, to report its second occurrence
+		long duplicateId = duplicateIds.first();
+		boolean seen = false;
+		for (RankingRows chunk : chunks) {
+			for (int row = 0; row < chunk.numberOfRows; row++) {
+				if (chunk.firstBallotIds[row] == duplicateId) {
+					if (seen) {
+						throw new MalformedLineException(chunk.lineOffsets[row],
+						                                 "The ballot id " + duplicateId + " is used more than once");
+					}
+					seen = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Looks up candidates by the UTF-8 bytes of their names in an open addressing hash table, so that fields need not be
+	 * decoded into Strings.
+	 */
+	private static final class CandidateNames {
+		private static final int EMPTY = -1;
+
+		private final byte[][] names;
+		private final int[] table;
+
+		CandidateNames(CandidateIndex<?> candidateIndex) {
+			this.names = new byte[candidateIndex.size()][];
+			this.table = new int[Integer.highestOneBit(Math.max(1, 2 * names.length)) * 2];
+			Arrays.fill(table, EMPTY);
+			for (int i = 0; i < names.length; i++) {
+				names[i] = candidateIndex.get(i).name.getBytes(StandardCharsets.UTF_8);
+				int slot = hash(ByteBuffer.wrap(names[i]), 0, names[i].length, false) & (table.length - 1);
+				while (table[slot] != EMPTY) {
+					slot = (slot + 1) & (table.length - 1);
+				}
+				table[slot] = i;
+			}
+		}
+
+		/**
+		 * @return the candidate index of the candidate named by the field, or CandidateIndex.NOT_INDEXED.
+		 */
+		int indexOf(ByteBuffer in, int start, int end, boolean quoted) {
+			int slot = hash(in, start, end, quoted) & (table.length - 1);
+			while (table[slot] != EMPTY) {
+				if (equals(names[table[slot]], in, start, end, quoted)) {
+					return table[slot];
+				}
+				slot = (slot + 1) & (table.length - 1);
+			}
+			return CandidateIndex.NOT_INDEXED;
+		}
+
+		// Within quotes, each pair of quotes stands for one quote
+		private static int hash(ByteBuffer in, int start, int end, boolean quoted) {
+			int hash = 0;
+			for (int position = start; position < end; position++) {
+				if (quoted && (in.get(position) == '"')) {
+					position++;
+				}
+				hash = (31 * hash) + in.get(position);
+			}
+			return hash ^ (hash >>> 16);
+		}
+
+		private static boolean equals(byte[] name, ByteBuffer in, int start, int end, boolean quoted) {
+			int i = 0;
+			for (int position = start; position < end; position++) {
+				if (quoted && (in.get(position) == '"')) {
+					position++;
+				}
+				if ((i == name.length) || (name[i] != in.get(position))) {
+					return false;
+				}
+				i++;
+			}
+			return i == name.length;
+		}
+	}
+
+	private static final class BallotLineParser implements TextBallotFile.LineParser {
+		private final CandidateNames candidateNames;
+		private final int[] ranking;
+		// The line each candidate has been ranked on last, to find duplicates without clearing anything
+		private final int[] lastRankedOnLine;
+		private int line = 0;
+
+		// The field parsed last
+		private int startOfContent;
+		private int endOfContent;
+		private boolean quoted;
+
+		BallotLineParser(CandidateNames candidateNames) {
+			this.candidateNames = candidateNames;
+			this.ranking = new int[candidateNames.names.length];
+			this.lastRankedOnLine = new int[candidateNames.names.length];
+		}
+
+		@Override
+		public void parseLine(ByteBuffer in, int start, int end, long offsetOfBuffer, RankingRows rows) {
+			if (TextBallotFile.skipBlanks(in, start, end) == end) {
+				return;
+			}
+
+			line++;
+			int endOfField = parseField(in, start, end, offsetOfBuffer);
+			long ballotId = TextBallotFile.parseLong(in, startOfContent, endOfContent, offsetOfBuffer);
+
+			int numberOfRankedCandidates = 0;
+			int startOfEmptyField = -1;
+			while (endOfField < end) {
+				int startOfField = endOfField + 1;
+				endOfField = parseField(in, startOfField, end, offsetOfBuffer);
+				if (startOfContent == endOfContent) {
+					if (startOfEmptyField == -1) {
+						startOfEmptyField = startOfField;
+					}
+					continue;
+				}
+				if (startOfEmptyField != -1) {
+					throw new MalformedLineException(offsetOfBuffer + startOfEmptyField,
+					                                 "Only trailing fields may be empty");
+				}
+
+				int candidate = candidateNames.indexOf(in, startOfContent, endOfContent, quoted);
+				if (candidate == CandidateIndex.NOT_INDEXED) {
+					throw new MalformedLineException(offsetOfBuffer + startOfField, "The election has no candidate "
+					                                                                + contentAsString(in));
+				}
+				if (lastRankedOnLine[candidate] == line) {
+					throw new MalformedLineException(offsetOfBuffer + startOfField, "The candidate "
+					                                                                + contentAsString(in)
+					                                                                + " is ranked more than once");
+				}
+				lastRankedOnLine[candidate] = line;
+				ranking[numberOfRankedCandidates++] = candidate;
+			}
+
+			rows.add(ballotId, 1, offsetOfBuffer + start, ranking, numberOfRankedCandidates);
+		}
+
+		// Sets the content of the field and returns its end, the position of the comma or the end of the line
+		private int parseField(ByteBuffer in, int start, int end, long offsetOfBuffer) {
+			int position = TextBallotFile.skipBlanks(in, start, end);
+			quoted = (position < end) && (in.get(position) == '"');
+			if (!quoted) {
+				startOfContent = position;
+				while ((position < end) && (in.get(position) != ',')) {
+					position++;
+				}
+				endOfContent = position;
+				while ((endOfContent > startOfContent) && TextBallotFile.isBlank(in.get(endOfContent - 1))) {
+					endOfContent--;
+				}
+				return position;
+			}
+
+			startOfContent = position + 1;
+			position = startOfContent;
+			while (true) {
+				if (position >= end) {
+					throw new MalformedLineException(offsetOfBuffer + startOfContent - 1, "The quote is not closed");
+				} else if (in.get(position) != '"') {
+					position++;
+				} else if (((position + 1) < end) && (in.get(position + 1) == '"')) {
+					position += 2;
+				} else {
+					break;
+				}
+			}
+			endOfContent = position;
+
+			position = TextBallotFile.skipBlanks(in, position + 1, end);
+			if ((position < end) && (in.get(position) != ',')) {
+				throw new MalformedLineException(offsetOfBuffer + position, "Expected a comma after the quote");
+			}
+			return position;
+		}
+
+		private String contentAsString(ByteBuffer in) {
+			byte[] bytes = new byte[endOfContent - startOfContent];
+			in.get(startOfContent, bytes);
+			String content = new String(bytes, StandardCharsets.UTF_8);
+			return quoted ? content.replace("\"\"", "\"") : content;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.BallotSource;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.CandidateIndex;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.ElectionCatalogue;
+import info.gehrels.voting.Vote;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * The ballots imported from a text ballot file for a single Election. They are kept as candidate indices, one row per
+ * line of the file, so that millions of ballots can be imported and counted without creating a Ballot or Vote for
+ * each of them. A line that ranks at least one candidate stands for a valid vote. A line that ranks no candidate,
+ * e.g. a blank ballot or one that only ranks withdrawn candidates, stands for an invalid vote: The no votes of this
+ * library reject all candidates and count towards the number of valid votes and thereby the quorum, which a blank
+ * ballot in a ballot file does not.
+ * <p>
+ * forEachVote matches the Election by office name and its candidates by name, like BinaryBallotFileReader, so the
+ * ballots can be counted for an Election with other candidate objects or another candidate order. Instances are
+ * immutable.
+ */
+public final class ImportedBallots<CANDIDATE_TYPE extends Candidate> implements BallotSource<CANDIDATE_TYPE> {
+	private final Election<CANDIDATE_TYPE> election;
+	private final ElectionCatalogue electionCatalogue;
+	private final long numberOfBallots;
+	final long[] firstBallotIds;
+	private final long[] weights;
+	private final int[] rankingStart;
+	private final int[] rankedCandidates;
+
+	ImportedBallots(Election<CANDIDATE_TYPE> election, List<RankingRows> chunks) {
+		this.election = election;
+		this.electionCatalogue = ElectionCatalogue.of(ImmutableSet.of(election));
+		int numberOfRows = 0;
+		int numberOfRankedCandidates = 0;
+		long numberOfBallotsDraft = 0;
+		for (RankingRows chunk : chunks) {
+			numberOfRows = Math.addExact(numberOfRows, chunk.numberOfRows);
+			numberOfRankedCandidates = Math.addExact(numberOfRankedCandidates, chunk.rankingStart[chunk.numberOfRows]);
+			numberOfBallotsDraft += chunk.numberOfBallots;
+		}
+		this.numberOfBallots = numberOfBallotsDraft;
+
+		this.firstBallotIds = new long[numberOfRows];
+		this.weights = new long[numberOfRows];
+		this.rankingStart = new int[numberOfRows + 1];
+		this.rankedCandidates = new int[numberOfRankedCandidates];
+		int row = 0;
+		for (RankingRows chunk : chunks) {
+			int rankingOffset = rankingStart[row];
+			System.arraycopy(chunk.firstBallotIds, 0, firstBallotIds, row, chunk.numberOfRows);
+			System.arraycopy(chunk.weights, 0, weights, row, chunk.numberOfRows);
+			System.arraycopy(chunk.rankedCandidates, 0, rankedCandidates, rankingOffset,
+			                 chunk.rankingStart[chunk.numberOfRows]);
+			for (int chunkRow = 1; chunkRow <= chunk.numberOfRows; chunkRow++) {
+				rankingStart[row + chunkRow] = rankingOffset + chunk.rankingStart[chunkRow];
+			}
+			row += chunk.numberOfRows;
+		}
+	}
+
+	public Election<CANDIDATE_TYPE> getElection() {
+		return election;
+	}
+
+	public long getNumberOfBallots() {
+		return numberOfBallots;
+	}
+
+	@Override
+	public void forEachVote(Election<CANDIDATE_TYPE> election, VoteConsumer consumer) {
+		validateThat(election, is(notNullValue()));
+		validateThat(consumer, is(notNullValue()));
+		if (!election.getOfficeName().equals(this.election.getOfficeName())) {
+			return;
+		}
+
+		int[] candidateIndices = candidateIndicesIn(election);
+		int[] ranking = new int[election.getCandidateIndex().size()];
+		for (int row = 0; row < weights.length; row++) {
+			int numberOfRankedCandidates = rankingStart[row + 1] - rankingStart[row];
+			for (int position = 0; position < numberOfRankedCandidates; position++) {
+				ranking[position] = candidateIndices[rankedCandidates[rankingStart[row] + position]];
+			}
+			for (long i = 0; i < weights[row]; i++) {
+				consumer.accept(firstBallotIds[row] + i, numberOfRankedCandidates > 0, false, ranking,
+				                numberOfRankedCandidates);
+			}
+		}
+	}
+
+	@Override
+	public void forEachVote(ImmutableList<Election<CANDIDATE_TYPE>> elections, ElectionVoteConsumer consumer) {
+		validateThat(elections, is(notNullValue()));
+		validateThat(consumer, is(notNullValue()));
+		for (int electionIndex = 0; electionIndex < elections.size(); electionIndex++) {
+			int wantedElectionIndex = electionIndex;
+			forEachVote(elections.get(electionIndex), (ballotId, valid, no, rankedCandidateIndices,
+			                                            numberOfRankedCandidates) ->
+				consumer.accept(wantedElectionIndex, ballotId, valid, no, rankedCandidateIndices,
+				                numberOfRankedCandidates));
+		}
+	}
+
+	/**
+	 * @return the index in the CandidateIndex of the other Election of each candidate, by its index in ours.
+	 */
+	private int[] candidateIndicesIn(Election<CANDIDATE_TYPE> otherElection) {
+		CandidateIndex<CANDIDATE_TYPE> candidateIndex = this.election.getCandidateIndex();
+		int[] candidateIndices = new int[candidateIndex.size()];
+		for (int i = 0; i < candidateIndices.length; i++) {
+			String name = candidateIndex.get(i).name;
+			candidateIndices[i] = otherElection.getCandidate(name)
+				.map(candidate -> otherElection.getCandidateIndex().indexOf(candidate))
+				.orElseThrow(() -> new IllegalArgumentException(
+					"The election " + otherElection.getOfficeName() + " has no candidate " + name));
+		}
+		return candidateIndices;
+	}
+
+	@Override
+	public void forEachBallot(Consumer<? super Ballot<CANDIDATE_TYPE>> consumer) {
+		validateThat(consumer, is(notNullValue()));
+
+		ImmutableSet<Vote<CANDIDATE_TYPE>> invalidVotes = ImmutableSet.of(Vote.createInvalidVote(election));
+		for (int row = 0; row < weights.length; row++) {
+			int[] ranking = Arrays.copyOfRange(rankedCandidates, rankingStart[row], rankingStart[row + 1]);
+			ImmutableSet<Vote<CANDIDATE_TYPE>> votes = (ranking.length == 0)
+				? invalidVotes
+				: ImmutableSet.of(Vote.createVote(election, true, false, ranking, ranking.length));
+			for (long i = 0; i < weights[row]; i++) {
+				consumer.accept(new Ballot<>(firstBallotIds[row] + i, votes, electionCatalogue));
+			}
+		}
+	}
+}
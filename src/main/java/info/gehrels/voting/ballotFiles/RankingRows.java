@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import java.util.Arrays;
+
+/**
+ * The rankings parsed from one chunk of a text ballot file. Row r stands for weights[r] ballots with the ids
+ * firstBallotIds[r], firstBallotIds[r] + 1, ..., which all rank the candidate indices rankedCandidates[rankingStart[r]]
+ * up to (exclusively) rankedCandidates[rankingStart[r + 1]]. lineOffsets[r] is the offset of the row's line in the
+ * file.
+ */
+final class RankingRows {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	int numberOfRows = 0;
+	long numberOfBallots = 0;
+	long[] firstBallotIds = new long[INITIAL_CAPACITY];
+	long[] weights = new long[INITIAL_CAPACITY];
+	long[] lineOffsets = new long[INITIAL_CAPACITY];
+	int[] rankingStart = new int[INITIAL_CAPACITY + 1];
+	int[] rankedCandidates = new int[INITIAL_CAPACITY];
+
+	void add(long firstBallotId, long weight, long lineOffset, int[] ranking, int numberOfRankedCandidates) {
+		int row = numberOfRows++;
+		if (row == firstBallotIds.length) {
+			int newLength = 2 * row;
+			firstBallotIds = Arrays.copyOf(firstBallotIds, newLength);
+			weights = Arrays.copyOf(weights, newLength);
+			lineOffsets = Arrays.copyOf(lineOffsets, newLength);
+			rankingStart = Arrays.copyOf(rankingStart, newLength + 1);
+		}
+
+		int end = rankingStart[row] + numberOfRankedCandidates;
+		if (end > rankedCandidates.length) {
+			rankedCandidates = Arrays.copyOf(rankedCandidates, Math.max(end, 2 * rankedCandidates.length));
+		}
+		System.arraycopy(ranking, 0, rankedCandidates, rankingStart[row], numberOfRankedCandidates);
+		rankingStart[row + 1] = end;
+		firstBallotIds[row] = firstBallotId;
+		weights[row] = weight;
+		lineOffsets[row] = lineOffset;
+		numberOfBallots += weight;
+	}
+
+	void shiftBallotIds(long delta) {
+		for (int row = 0; row < numberOfRows; row++) {
+			firstBallotIds[row] += delta;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * The parts the text ballot file importers share: Splitting a section of a file into chunks of whole lines, parsing
+ * the chunks concurrently from read-only mappings, and turning the byte offset of a MalformedLineException into line
+ * and column. The parsers work on the bytes of the mapping, so only the rows they produce are allocated per line.
+ */
+final class TextBallotFile {
+	// Keeps every chunk well below the 2 GiB limit of a single mapping, even if it is extended to the end of a line
+	private static final long MAXIMUM_CHUNK_SIZE = 1L << 30;
+	private static final int SCAN_BUFFER_SIZE = 1 << 16;
+
+	private TextBallotFile() {
+	}
+
+	/**
+	 * Parses a single line of a chunk. Instances are used by one chunk only and may keep scratch space.
+	 */
+	interface LineParser {
+		/**
+		 * @param start          the position of the first byte of the line in the buffer
+		 * @param end            the position after the last byte of the line, without the line terminator
+		 * @param offsetOfBuffer the offset of the buffer in the file, to report positions and line offsets
+		 */
+		void parseLine(ByteBuffer in, int start, int end, long offsetOfBuffer, RankingRows rows);
+	}
+
+	static MappedByteBuffer map(FileChannel channel, long start, long end) throws IOException {
+		return channel.map(MapMode.READ_ONLY, start, Math.min(end - start, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Parses the lines from start to end, which must be the start of a line, in up to parallelism chunks at once.
+	 *
+	 * @return the rows of each chunk, in the order of the file.
+	 */
+	static List<RankingRows> parseLines(FileChannel channel, long start, long end, Executor executor, int parallelism,
+	                                    Supplier<LineParser> lineParsers) throws IOException {
+		long[] boundaries = chunkBoundaries(channel, start, end, parallelism);
+		List<CompletableFuture<RankingRows>> chunks = new ArrayList<>(boundaries.length - 1);
+		for (int chunk = 0; chunk < (boundaries.length - 1); chunk++) {
+			long offsetOfChunk = boundaries[chunk];
+			MappedByteBuffer buffer = map(channel, offsetOfChunk, boundaries[chunk + 1]);
+			LineParser lineParser = lineParsers.get();
+			chunks.add(CompletableFuture.supplyAsync(() -> parseChunk(buffer, offsetOfChunk, lineParser), executor));
+		}
+
+		List<RankingRows> rows = new ArrayList<>(chunks.size());
+		for (CompletableFuture<RankingRows> chunk : chunks) {
+			rows.add(join(chunk));
+		}
+		return rows;
+	}
+
+	static BallotFileParseException toParseException(FileChannel channel, MalformedLineException e)
+		throws IOException {
+		long line = 1;
+		long startOfLine = 0;
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		long position = 0;
+		while (position < e.offset) {
+			buffer.clear().limit((int) Math.min(SCAN_BUFFER_SIZE, e.offset - position));
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					line++;
+					startOfLine = position + i + 1;
+				}
+			}
+			position += read;
+		}
+
+		BallotFileParseException parseException =
+			new BallotFileParseException(line, (e.offset - startOfLine) + 1, e.getMessage());
+		parseException.initCause(e);
+		return parseException;
+	}
+
+	static boolean isBlank(byte b) {
+		return (b == ' ') || (b == '\t') || (b == '\r');
+	}
+
+	static int skipBlanks(ByteBuffer in, int start, int end) {
+		int position = start;
+		while ((position < end) && isBlank(in.get(position))) {
+			position++;
+		}
+		return position;
+	}
+
+	static int endOfToken(ByteBuffer in, int start, int end) {
+		int position = start;
+		while ((position < end) && !isBlank(in.get(position))) {
+			position++;
+		}
+		return position;
+	}
+
+	static long parseLong(ByteBuffer in, int start, int end, long offsetOfBuffer) {
+		boolean negative = (start < end) && (in.get(start) == '-');
+		int position = negative ? (start + 1) : start;
+		if (position == end) {
+			throw new MalformedLineException(offsetOfBuffer + start, "Expected a number");
+		}
+
+		long value = 0;
+		for (; position < end; position++) {
+			int digit = in.get(position) - '0';
+			if ((digit < 0) || (digit > 9)) {
+				throw new MalformedLineException(offsetOfBuffer + start, "Expected a number");
+			}
+			// Accumulates negatively, so that Long.MIN_VALUE can be parsed, too
+			if ((value < (Long.MIN_VALUE / 10)) || ((value * 10) < (Long.MIN_VALUE + digit))) {
+				throw new MalformedLineException(offsetOfBuffer + start, "The number is too large");
+			}
+			value = (value * 10) - digit;
+		}
+
+		if (!negative) {
+			if (value == Long.MIN_VALUE) {
+				throw new MalformedLineException(offsetOfBuffer + start, "The number is too large");
+			}
+			return -value;
+		}
+		return value;
+	}
+
+	private static RankingRows parseChunk(ByteBuffer in, long offsetOfBuffer, LineParser lineParser) {
+		RankingRows rows = new RankingRows();
+		int limit = in.limit();
+		int startOfLine = 0;
+		while (startOfLine < limit) {
+			int endOfLine = startOfLine;
+			while ((endOfLine < limit) && (in.get(endOfLine) != '\n')) {
+				endOfLine++;
+			}
+			lineParser.parseLine(in, startOfLine, endOfLine, offsetOfBuffer, rows);
+			startOfLine = endOfLine + 1;
+		}
+		return rows;
+	}
+
+	// Moves evenly spaced boundaries forward to the start of the next line
+	private static long[] chunkBoundaries(FileChannel channel, long start, long end, int parallelism)
+		throws IOException {
+		int numberOfChunks = (int) Math.max(parallelism, ((end - start) / MAXIMUM_CHUNK_SIZE) + 1);
+		long[] boundaries = new long[numberOfChunks + 1];
+		boundaries[0] = start;
+		boundaries[numberOfChunks] = end;
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		for (int chunk = 1; chunk < numberOfChunks; chunk++) {
+			long boundary = Math.max(boundaries[chunk - 1], start + (((end - start) / numberOfChunks) * chunk));
+			boundaries[chunk] = startOfNextLine(channel, boundary, end, buffer);
+		}
+		return boundaries;
+	}
+
+	private static long startOfNextLine(FileChannel channel, long position, long end, ByteBuffer buffer)
+		throws IOException {
+		if (position == 0) {
+			return 0;
+		}
+
+		long current = position - 1;
+		while (current < end) {
+			buffer.clear().limit((int) Math.min(SCAN_BUFFER_SIZE, end - current));
+			int read = channel.read(buffer, current);
+			if (read < 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return current + i + 1;
+				}
+			}
+			current += read;
+		}
+		return end;
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			} else if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.AmbiguityResolver.AmbiguityResolverResult;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Passes the events of a calculation to another listener on an Executor, so that the calculation does not wait for
+ * the other listener to format its audit trail. All event parameters are immutable, so the events are queued as they
+ * are, in a bounded queue. They are delivered one at a time and in order. The drain task only runs while events are
+ * queued, so it does not occupy a thread of the Executor in between.
+ * <p>
+ * electedCandidates, the last event of a calculation, is never discarded and waits until all events have been
+ * delivered, so the audit trail is complete once calculate returns. The first exception thrown by the other listener
+ * is rethrown then, or by the next flush.
+ * <p>
+ * With WhenFull.BLOCK the calculation must not run on the only thread the Executor has, or it would wait for itself.
+ */
+public final class AsynchronousSTVElectionCalculationListener<CANDIDATE_TYPE extends Candidate>
+	implements STVElectionCalculationListener<CANDIDATE_TYPE> {
+	public enum WhenFull {
+		/**
+		 * The calculation waits until the queue has room for the event.
+		 */
+		BLOCK,
+		/**
+		 * The event is discarded and counted, the calculation continues at once.
+		 */
+		DISCARD
+	}
+
+	private final STVElectionCalculationListener<CANDIDATE_TYPE> delegate;
+	private final BlockingQueue<Runnable> events;
+	private final WhenFull whenFull;
+	private final Executor executor;
+
+	private final AtomicBoolean draining = new AtomicBoolean(false);
+	private final Object drained = new Object();
+	private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+	private final LongAdder numberOfDiscardedEvents = new LongAdder();
+
+	public AsynchronousSTVElectionCalculationListener(STVElectionCalculationListener<CANDIDATE_TYPE> delegate,
+	                                                  int capacity, WhenFull whenFull, Executor executor) {
+		this.delegate = validateThat(delegate, is(notNullValue()));
+		this.events = new ArrayBlockingQueue<>(validateThat(capacity, is(greaterThan(0))));
+		this.whenFull = validateThat(whenFull, is(notNullValue()));
+		this.executor = validateThat(executor, is(notNullValue()));
+	}
+
+	public long getNumberOfDiscardedEvents() {
+		return numberOfDiscardedEvents.sum();
+	}
+
+	/**
+	 * Waits until all events that have been queued so far have been delivered.
+	 */
+	public void flush() {
+		synchronized (drained) {
+			while (!events.isEmpty() || draining.get()) {
+				try {
+					drained.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for the events to be delivered", e);
+				}
+			}
+		}
+
+		RuntimeException firstFailure = failure.getAndSet(null);
+		if (firstFailure != null) {
+			throw firstFailure;
+		}
+	}
+
+	@Override
+	public DetailLevel getDetailLevel() {
+		return delegate.getDetailLevel();
+	}
+
+	@Override
+	public void numberOfElectedPositions(long numberOfElectedCandidates, long numberOfSeatsToElect) {
+		enqueue(() -> delegate.numberOfElectedPositions(numberOfElectedCandidates, numberOfSeatsToElect));
+	}
+
+	@Override
+	public void electedCandidates(ImmutableSet<CANDIDATE_TYPE> electedCandidates) {
+		put(() -> delegate.electedCandidates(electedCandidates));
+		flush();
+	}
+
+	@Override
+	public void candidateDropped(VoteDistribution<CANDIDATE_TYPE> voteDistributionBeforeStriking,
+	                             CANDIDATE_TYPE candidate) {
+		enqueue(() -> delegate.candidateDropped(voteDistributionBeforeStriking, candidate));
+	}
+
+	@Override
+	public void voteWeightRedistributionCompleted(ImmutableCollection<VoteState<CANDIDATE_TYPE>> originalVoteStates,
+	                                              ImmutableCollection<VoteState<CANDIDATE_TYPE>> newVoteStates,
+	                                              VoteDistribution<CANDIDATE_TYPE> voteDistribution) {
+		enqueue(() -> delegate.voteWeightRedistributionCompleted(originalVoteStates, newVoteStates, voteDistribution));
+	}
+
+	@Override
+	public void delegatingToExternalAmbiguityResolution(ImmutableSet<CANDIDATE_TYPE> bestCandidates) {
+		enqueue(() -> delegate.delegatingToExternalAmbiguityResolution(bestCandidates));
+	}
+
+	@Override
+	public void externallyResolvedAmbiguity(AmbiguityResolverResult<CANDIDATE_TYPE> ambiguityResolverResult) {
+		enqueue(() -> delegate.externallyResolvedAmbiguity(ambiguityResolverResult));
+	}
+
+	@Override
+	public void candidateIsElected(CANDIDATE_TYPE winner, BigFraction numberOfVotes, BigFraction quorum) {
+		enqueue(() -> delegate.candidateIsElected(winner, numberOfVotes, quorum));
+	}
+
+	@Override
+	public void nobodyReachedTheQuorumYet(BigFraction quorum) {
+		enqueue(() -> delegate.nobodyReachedTheQuorumYet(quorum));
+	}
+
+	@Override
+	public void noCandidatesAreLeft() {
+		enqueue(delegate::noCandidatesAreLeft);
+	}
+
+	@Override
+	public void calculationStarted(Election<CANDIDATE_TYPE> election,
+	                               VoteDistribution<CANDIDATE_TYPE> voteDistribution) {
+		enqueue(() -> delegate.calculationStarted(election, voteDistribution));
+	}
+
+	@Override
+	public void quorumHasBeenCalculated(long numberOfValidBallots, long numberOfSeats, BigFraction quorum) {
+		enqueue(() -> delegate.quorumHasBeenCalculated(numberOfValidBallots, numberOfSeats, quorum));
+	}
+
+	@Override
+	public void redistributingExcessiveFractionOfVoteWeight(CANDIDATE_TYPE winner,
+	                                                        BigFraction excessiveFractionOfVoteWeight) {
+		enqueue(() -> delegate.redistributingExcessiveFractionOfVoteWeight(winner, excessiveFractionOfVoteWeight));
+	}
+
+	private void enqueue(Runnable event) {
+		if (whenFull == WhenFull.BLOCK) {
+			put(event);
+		} else if (events.offer(event)) {
+			startDraining();
+		} else {
+			numberOfDiscardedEvents.increment();
+		}
+	}
+
+	private void put(Runnable event) {
+		try {
+			events.put(event);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for room in the queue", e);
+		}
+		startDraining();
+	}
+
+	private void startDraining() {
+		if (draining.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::drain);
+			} catch (RuntimeException e) {
+				draining.set(false);
+				throw e;
+			}
+		}
+	}
+
+	private void drain() {
+		do {
+			Runnable event;
+			while ((event = events.poll()) != null) {
+				try {
+					event.run();
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+				}
+			}
+			draining.set(false);
+			// An event may have been queued after the last poll, but before draining was reset
+		} while (!events.isEmpty() && draining.compareAndSet(false, true));
+
+		synchronized (drained) {
+			drained.notifyAll();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import info.gehrels.voting.BallotSource;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+
+/**
+ * The ways CompactSTVElectionCalculation can store the ballots of an election while counting.
+ */
+public enum BallotRepresentation {
+	/**
+	 * Ballots with equal votes are grouped into one row of parallel arrays. Transferring the votes of a candidate
+	 * visits each group that currently counts for that candidate.
+	 */
+	COLUMNS {
+		@Override
+		<CANDIDATE_TYPE extends Candidate> CountingModel.Builder<CANDIDATE_TYPE> createModelBuilder(
+			Election<CANDIDATE_TYPE> election, int expectedNumberOfBallots) {
+			return new VoteColumns.Builder<>(election, expectedNumberOfBallots);
+		}
+	},
+
+	/**
+	 * Rankings are stored as a prefix tree. Transferring the votes of a candidate visits each subtree that currently
+	 * counts for that candidate, and skips candidates that are no longer hopeful once per tree node instead of once
+	 * per ballot.
+	 */
+	PREFERENCE_TREE {
+		@Override
+		<CANDIDATE_TYPE extends Candidate> CountingModel.Builder<CANDIDATE_TYPE> createModelBuilder(
+			Election<CANDIDATE_TYPE> election, int expectedNumberOfBallots) {
+			return new PreferenceTree.Builder<>(election, expectedNumberOfBallots);
+		}
+	};
+
+	/**
+	 * Reads the ballots in one pass.
+	 *
+	 * @param expectedNumberOfBallots only a hint for the initial capacity.
+	 */
+	<CANDIDATE_TYPE extends Candidate> CountingModel<CANDIDATE_TYPE> createModel(
+		Election<CANDIDATE_TYPE> election, BallotSource<CANDIDATE_TYPE> ballots, int expectedNumberOfBallots) {
+		CountingModel.Builder<CANDIDATE_TYPE> builder = createModelBuilder(election, expectedNumberOfBallots);
+		ballots.forEachVote(election, builder);
+		return builder.build();
+	}
+
+	/**
+	 * @param expectedNumberOfBallots only a hint for the initial capacity.
+	 */
+	abstract <CANDIDATE_TYPE extends Candidate> CountingModel.Builder<CANDIDATE_TYPE> createModelBuilder(
+		Election<CANDIDATE_TYPE> election, int expectedNumberOfBallots);
+}
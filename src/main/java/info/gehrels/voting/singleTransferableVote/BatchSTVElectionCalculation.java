@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.AmbiguityResolver;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.BallotSource;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.QuorumCalculation;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static info.gehrels.voting.DuplicateBallotIdDetector.hasNoPairOfElementsWithEqualIds;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Counts several Elections that share the same ballots, e.g. all offices of one assembly. The ballots are read only
+ * once: each Vote goes straight into the CountingModel of its Election. The Elections are then counted concurrently
+ * on the given Executor with CompactSTVElectionCalculation, each with all of its candidates qualified and with its own
+ * STVElectionCalculationListener. The AmbiguityResolver is shared and must therefore be thread safe.
+ */
+public final class BatchSTVElectionCalculation<CANDIDATE_TYPE extends Candidate> {
+	private final QuorumCalculation quorumCalculation;
+	private final Function<Election<CANDIDATE_TYPE>, STVElectionCalculationListener<CANDIDATE_TYPE>> listenerFactory;
+	private final AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver;
+	private final BallotRepresentation ballotRepresentation;
+	private final VoteWeightArithmetic arithmetic;
+	private final Executor executor;
+
+	public BatchSTVElectionCalculation(
+		QuorumCalculation quorumCalculation,
+		Function<Election<CANDIDATE_TYPE>, STVElectionCalculationListener<CANDIDATE_TYPE>> listenerFactory,
+		AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
+		Executor executor) {
+		this(quorumCalculation, listenerFactory, ambiguityResolver, BallotRepresentation.COLUMNS,
+		     VoteWeightArithmetic.exact(), executor);
+	}
+
+	public BatchSTVElectionCalculation(
+		QuorumCalculation quorumCalculation,
+		Function<Election<CANDIDATE_TYPE>, STVElectionCalculationListener<CANDIDATE_TYPE>> listenerFactory,
+		AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
+		BallotRepresentation ballotRepresentation,
+		VoteWeightArithmetic arithmetic,
+		Executor executor) {
+		this.quorumCalculation = validateThat(quorumCalculation, is(not(nullValue())));
+		this.listenerFactory = validateThat(listenerFactory, is(not(nullValue())));
+		this.ambiguityResolver = validateThat(ambiguityResolver, is(not(nullValue())));
+		this.ballotRepresentation = validateThat(ballotRepresentation, is(not(nullValue())));
+		this.arithmetic = validateThat(arithmetic, is(not(nullValue())));
+		this.executor = validateThat(executor, is(not(nullValue())));
+	}
+
+	/**
+	 * @param numberOfSeatsByElection the Elections to count and the number of seats to fill in each of them. Votes
+	 *                                for other Elections are ignored.
+	 * @return the elected candidates of each Election, in the order of numberOfSeatsByElection.
+	 */
+	public ImmutableMap<Election<CANDIDATE_TYPE>, ImmutableSet<CANDIDATE_TYPE>> calculate(
+		ImmutableMap<Election<CANDIDATE_TYPE>, Long> numberOfSeatsByElection,
+		ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots) {
+		validateThat(ballots, allOf(
+			is(not(nullValue())),
+			hasNoPairOfElementsWithEqualIds()
+		));
+		return calculate(numberOfSeatsByElection, BallotSource.of(ballots), ballots.size());
+	}
+
+	/**
+	 * Same as calculate(numberOfSeatsByElection, ballots), but reads the ballots from a BallotSource in one pass.
+	 * Ballots with equal ids are rejected with an IllegalArgumentException.
+	 */
+	public ImmutableMap<Election<CANDIDATE_TYPE>, ImmutableSet<CANDIDATE_TYPE>> calculate(
+		ImmutableMap<Election<CANDIDATE_TYPE>, Long> numberOfSeatsByElection, BallotSource<CANDIDATE_TYPE> ballots) {
+		validateThat(ballots, is(not(nullValue())));
+		return calculate(numberOfSeatsByElection, ballots, 0);
+	}
+
+	private ImmutableMap<Election<CANDIDATE_TYPE>, ImmutableSet<CANDIDATE_TYPE>> calculate(
+		ImmutableMap<Election<CANDIDATE_TYPE>, Long> numberOfSeatsByElection, BallotSource<CANDIDATE_TYPE> ballots,
+		int expectedNumberOfBallots) {
+		validateThat(numberOfSeatsByElection, is(not(nullValue())));
+		validateThat(numberOfSeatsByElection.values(), everyItem(is(greaterThanOrEqualTo(0L))));
+
+		Map<Election<CANDIDATE_TYPE>, CountingModel<CANDIDATE_TYPE>> countingModels =
+			createCountingModels(numberOfSeatsByElection.keySet(), ballots, expectedNumberOfBallots);
+
+		Map<Election<CANDIDATE_TYPE>, CompletableFuture<ImmutableSet<CANDIDATE_TYPE>>> futures = new LinkedHashMap<>();
+		for (Map.Entry<Election<CANDIDATE_TYPE>, Long> numberOfSeats : numberOfSeatsByElection.entrySet()) {
+			Election<CANDIDATE_TYPE> election = numberOfSeats.getKey();
+			CompactSTVElectionCalculation<CANDIDATE_TYPE> electionCalculation = new CompactSTVElectionCalculation<>(
+				countingModels.get(election), quorumCalculation, listenerFactory.apply(election), election,
+				ambiguityResolver, arithmetic);
+			futures.put(election, CompletableFuture.supplyAsync(
+				() -> electionCalculation.calculate(election.getCandidates(), numberOfSeats.getValue()), executor));
+		}
+
+		ImmutableMap.Builder<Election<CANDIDATE_TYPE>, ImmutableSet<CANDIDATE_TYPE>> results =
+			ImmutableMap.builderWithExpectedSize(futures.size());
+		for (Map.Entry<Election<CANDIDATE_TYPE>, CompletableFuture<ImmutableSet<CANDIDATE_TYPE>>> future : futures
+			.entrySet()) {
+			results.put(future.getKey(), join(future.getValue()));
+		}
+		return results.build();
+	}
+
+	private Map<Election<CANDIDATE_TYPE>, CountingModel<CANDIDATE_TYPE>> createCountingModels(
+		ImmutableSet<Election<CANDIDATE_TYPE>> elections, BallotSource<CANDIDATE_TYPE> ballots,
+		int expectedNumberOfBallots) {
+		ImmutableList<Election<CANDIDATE_TYPE>> electionList = elections.asList();
+		List<CountingModel.Builder<CANDIDATE_TYPE>> builders = new ArrayList<>(electionList.size());
+		for (Election<CANDIDATE_TYPE> election : electionList) {
+			builders.add(ballotRepresentation.createModelBuilder(election, expectedNumberOfBallots));
+		}
+
+		// Streaming sources decode each vote straight into its builder, without creating Ballot or Vote objects
+		ballots.forEachVote(electionList, (electionIndex, ballotId, valid, no, rankedCandidateIndices,
+		                                   numberOfRankedCandidates) ->
+			builders.get(electionIndex).accept(ballotId, valid, no, rankedCandidateIndices, numberOfRankedCandidates));
+
+		// Elections are compared by identity, just like in Ballot.votesByElections
+		Map<Election<CANDIDATE_TYPE>, CountingModel<CANDIDATE_TYPE>> countingModels = new IdentityHashMap<>();
+		for (int electionIndex = 0; electionIndex < electionList.size(); electionIndex++) {
+			countingModels.put(electionList.get(electionIndex), builders.get(electionIndex).build());
+		}
+		return countingModels;
+	}
+
+	static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			} else if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw e;
+		}
+	}
+}
@@ -29,7 +29,7 @@ public final class CandidateState<CANDIDATE_TYPE> {
 		this.candidate = candidate;
 	}
 
-	private CandidateState(CANDIDATE_TYPE candidate, boolean elected, boolean looser) {
+	CandidateState(CANDIDATE_TYPE candidate, boolean elected, boolean looser) {
 		this.candidate = candidate;
 		this.elected = elected;
 		this.looser = looser;
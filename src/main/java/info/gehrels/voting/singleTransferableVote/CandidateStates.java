@@ -16,71 +16,135 @@
  */
 package info.gehrels.voting.singleTransferableVote;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.collect.ImmutableSet;
 
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
 
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Keeps the state of each candidate in two bitsets over the position of the candidate in the original candidate set.
+ * The candidates and their positions are shared by all CandidateStates derived from the same instance, so a state
+ * transition only copies the bitsets. The hopeful candidates and the CandidateState views are created on first use.
+ * Instances are immutable and may be shared between threads.
+ */
 public final class CandidateStates<CANDIDATE_TYPE> implements Iterable<CandidateState<CANDIDATE_TYPE>> {
-	private final ImmutableMap<CANDIDATE_TYPE, CandidateState<CANDIDATE_TYPE>> candidateStates;
+	private final ImmutableList<CANDIDATE_TYPE> candidates;
+	private final ImmutableMap<CANDIDATE_TYPE, Integer> indices;
+	private final BitSet elected;
+	private final BitSet loosers;
+
+	// Computed lazily. Concurrent initializations yield equal, safely published immutable values.
+	private ImmutableSet<CANDIDATE_TYPE> hopefulCandidates;
+	private ImmutableList<CandidateState<CANDIDATE_TYPE>> candidateStates;
 
 	CandidateStates(ImmutableSet<CANDIDATE_TYPE> candidates) {
-		Builder<CANDIDATE_TYPE, CandidateState<CANDIDATE_TYPE>> candidateStatesBuilder = ImmutableMap.builder();
-		for (CANDIDATE_TYPE candidate : candidates) {
-			candidateStatesBuilder.put(candidate, new CandidateState<>(candidate));
+		this.candidates = candidates.asList();
+		ImmutableMap.Builder<CANDIDATE_TYPE, Integer> indicesBuilder = ImmutableMap.builderWithExpectedSize(candidates.size());
+		for (int i = 0; i < this.candidates.size(); i++) {
+			indicesBuilder.put(this.candidates.get(i), i);
 		}
-		candidateStates = candidateStatesBuilder.build();
+		this.indices = indicesBuilder.build();
+		this.elected = new BitSet(candidates.size());
+		this.loosers = new BitSet(candidates.size());
 	}
 
-	private CandidateStates(ImmutableMap<CANDIDATE_TYPE, CandidateState<CANDIDATE_TYPE>> candidateStates) {
-		this.candidateStates = candidateStates;
+	private CandidateStates(CandidateStates<CANDIDATE_TYPE> original, BitSet elected, BitSet loosers) {
+		this.candidates = original.candidates;
+		this.indices = original.indices;
+		this.elected = elected;
+		this.loosers = loosers;
 	}
 
 	public ImmutableSet<CANDIDATE_TYPE> getHopefulCandidates() {
-		ImmutableSet.Builder<CANDIDATE_TYPE> builder = ImmutableSet.builder();
-        candidateStates.entrySet().stream()
-                .filter(this::isHopefulCandidate)
-                .forEach(entry -> builder.add(entry.getKey()));
-
-		return builder.build();
+		ImmutableSet<CANDIDATE_TYPE> result = hopefulCandidates;
+		if (result == null) {
+			ImmutableSet.Builder<CANDIDATE_TYPE> builder = ImmutableSet.builder();
+			for (int i = 0; i < candidates.size(); i++) {
+				if (isHopeful(i)) {
+					builder.add(candidates.get(i));
+				}
+			}
+			result = builder.build();
+			hopefulCandidates = result;
+		}
+		return result;
 	}
 
-    private boolean isHopefulCandidate(Entry<CANDIDATE_TYPE, CandidateState<CANDIDATE_TYPE>> entry) {
-        return (entry.getValue() != null) && entry.getValue().isHopeful();
-    }
+	public CandidateStates<CANDIDATE_TYPE> withElected(CANDIDATE_TYPE candidate) {
+		int index = indices.get(candidate);
+		validateThat("Candidate " + candidate + " may not already be a looser", loosers.get(index), is(false));
+		if (elected.get(index)) {
+			return this;
+		}
 
-    public CandidateStates<CANDIDATE_TYPE> withElected(CANDIDATE_TYPE candidate) {
-		return new CandidateStates<>(
-			mapWithChangedEntry(candidateStates, candidate, candidateStates.get(candidate).asElected()));
+		BitSet newElected = (BitSet) elected.clone();
+		newElected.set(index);
+		return new CandidateStates<>(this, newElected, loosers);
 	}
 
 	public CandidateStates<CANDIDATE_TYPE> withLoser(CANDIDATE_TYPE candidate) {
-		return new CandidateStates<>(
-			mapWithChangedEntry(candidateStates, candidate, candidateStates.get(candidate).asLooser()));
+		int index = indices.get(candidate);
+		validateThat("Candidate " + candidate + " may not already be elected", elected.get(index), is(false));
+		if (loosers.get(index)) {
+			return this;
+		}
+
+		BitSet newLoosers = (BitSet) loosers.clone();
+		newLoosers.set(index);
+		return new CandidateStates<>(this, elected, newLoosers);
 	}
 
+	/**
+	 * @return the state of the candidate, or null if the candidate is unknown.
+	 */
 	public CandidateState<CANDIDATE_TYPE> getCandidateState(CANDIDATE_TYPE candidate) {
-		return candidateStates.get(candidate);
+		Integer index = indices.get(candidate);
+		return (index == null) ? null : getCandidateStates().get(index);
+	}
+
+	/**
+	 * Same as getCandidateState(candidate).isHopeful(), but false for unknown candidates.
+	 */
+	boolean isHopeful(CANDIDATE_TYPE candidate) {
+		Integer index = indices.get(candidate);
+		return (index != null) && isHopeful(index);
 	}
 
 	@Override
 	public Iterator<CandidateState<CANDIDATE_TYPE>> iterator() {
-		return candidateStates.values().iterator();
+		return getCandidateStates().iterator();
 	}
 
 	@Override
 	public String toString() {
-		return candidateStates.toString();
+		ImmutableMap.Builder<CANDIDATE_TYPE, CandidateState<CANDIDATE_TYPE>> builder =
+			ImmutableMap.builderWithExpectedSize(candidates.size());
+		for (CandidateState<CANDIDATE_TYPE> candidateState : this) {
+			builder.put(candidateState.getCandidate(), candidateState);
+		}
+		return builder.build().toString();
 	}
 
-	private static <K, V, EK extends K, EV extends V> ImmutableMap<K, V> mapWithChangedEntry(
-		ImmutableMap<K, V> map, EK changedKey, EV newValue) {
-		Map<K, V> tmpMap = new HashMap<>(map);
-		tmpMap.put(changedKey, newValue);
-		return ImmutableMap.copyOf(tmpMap);
+	private boolean isHopeful(int index) {
+		return !elected.get(index) && !loosers.get(index);
+	}
+
+	private ImmutableList<CandidateState<CANDIDATE_TYPE>> getCandidateStates() {
+		ImmutableList<CandidateState<CANDIDATE_TYPE>> result = candidateStates;
+		if (result == null) {
+			ImmutableList.Builder<CandidateState<CANDIDATE_TYPE>> builder =
+				ImmutableList.builderWithExpectedSize(candidates.size());
+			for (int i = 0; i < candidates.size(); i++) {
+				builder.add(new CandidateState<>(candidates.get(i), elected.get(i), loosers.get(i)));
+			}
+			result = builder.build();
+			candidateStates = result;
+		}
+		return result;
 	}
 }
@@ -0,0 +1,262 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.singleTransferableVote.NumberColumn.TransferFactor;
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.util.Arrays;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * The mutable state of one calculation over VoteColumns: The current position in the ranking and the vote weight
+ * of each row, and the state of each candidate. All of it is updated in place. All ballots of a row always share the
+ * same position and vote weight, so the row contributes its vote weight times its multiplicity to the tallies.
+ * <p>
+ * The rows currently counting for a candidate are chained into a pile, and the sum of their vote weights is kept up to
+ * date while votes are transferred. Transferring votes therefore only visits the rows of the candidates that are no
+ * longer hopeful, and the VoteDistribution can be read without counting all rows again.
+ */
+final class ColumnCountingState<CANDIDATE_TYPE extends Candidate> implements CountingState<CANDIDATE_TYPE> {
+	private static final int NO_CANDIDATE = -1;
+	private static final int END_OF_PILE = -1;
+
+	private final VoteColumns<CANDIDATE_TYPE> columns;
+	private final int[] currentPosition;
+	private final NumberColumn voteWeights;
+	private final boolean[] hopeful;
+	private final boolean[] elected;
+
+	private final int[] pileHead;
+	private final int[] nextInPile;
+	// Indexed by candidate index, followed by the no votes and the invalid votes
+	private final NumberColumn votes;
+	private final int noVotes;
+	private final int invalidVotes;
+
+	private final VoteState<CANDIDATE_TYPE>[] voteStates;
+	private final boolean[] voteStatesAreOutdated;
+
+	ColumnCountingState(VoteColumns<CANDIDATE_TYPE> columns, ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates,
+	                    VoteWeightArithmetic arithmetic) {
+		this.columns = columns;
+		int numberOfRows = columns.numberOfRows();
+		int numberOfCandidates = columns.candidateIndex.size();
+		this.currentPosition = new int[numberOfRows];
+		this.voteWeights = arithmetic.newColumn(numberOfRows);
+		this.hopeful = new boolean[numberOfCandidates];
+		this.elected = new boolean[numberOfCandidates];
+		for (CANDIDATE_TYPE qualifiedCandidate : qualifiedCandidates) {
+			int candidateIndex = columns.indexOf(qualifiedCandidate);
+			if (candidateIndex != NO_CANDIDATE) {
+				hopeful[candidateIndex] = true;
+			}
+		}
+
+		this.pileHead = new int[numberOfCandidates];
+		Arrays.fill(pileHead, END_OF_PILE);
+		this.nextInPile = new int[numberOfRows];
+		this.noVotes = numberOfCandidates;
+		this.invalidVotes = numberOfCandidates + 1;
+		this.votes = arithmetic.newColumn(numberOfCandidates + 2);
+		for (int i = 0; i < (numberOfCandidates + 2); i++) {
+			votes.setToInteger(i, 0);
+		}
+		@SuppressWarnings("unchecked")
+		VoteState<CANDIDATE_TYPE>[] voteStates = (VoteState<CANDIDATE_TYPE>[]) new VoteState<?>[columns.numberOfBallots()];
+		this.voteStates = voteStates;
+		this.voteStatesAreOutdated = new boolean[numberOfRows];
+		Arrays.fill(voteStatesAreOutdated, true);
+
+		for (int row = 0; row < numberOfRows; row++) {
+			voteWeights.setToInteger(row, 1);
+			if (!columns.valid[row]) {
+				votes.addMultiple(invalidVotes, voteWeights, row, columns.multiplicity[row]);
+			} else {
+				moveToNextHopefulCandidate(row);
+			}
+		}
+	}
+
+	@Override
+	public int numberOfCandidates() {
+		return hopeful.length;
+	}
+
+	@Override
+	public CANDIDATE_TYPE candidate(int candidateIndex) {
+		return columns.candidateIndex.get(candidateIndex);
+	}
+
+	@Override
+	public boolean isHopeful(int candidateIndex) {
+		return hopeful[candidateIndex];
+	}
+
+	@Override
+	public boolean anyCandidateIsHopeful() {
+		for (boolean isHopeful : hopeful) {
+			if (isHopeful) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void markAsElected(int candidateIndex) {
+		validateThat("Candidate " + candidate(candidateIndex) + " must be hopeful", hopeful[candidateIndex], is(true));
+		hopeful[candidateIndex] = false;
+		elected[candidateIndex] = true;
+	}
+
+	@Override
+	public void markAsLooser(int candidateIndex) {
+		validateThat("Candidate " + candidate(candidateIndex) + " must be hopeful", hopeful[candidateIndex], is(true));
+		hopeful[candidateIndex] = false;
+	}
+
+	@Override
+	public BigFraction votesFor(int candidateIndex) {
+		return votes.get(candidateIndex);
+	}
+
+	@Override
+	public int compareVotes(int candidateIndex, int otherCandidateIndex) {
+		return votes.compare(candidateIndex, otherCandidateIndex);
+	}
+
+	@Override
+	public int compareVotesTo(int candidateIndex, BigFraction numberOfVotes) {
+		return votes.compareTo(candidateIndex, numberOfVotes);
+	}
+
+	@Override
+	public TransferFactor excessiveFractionOfVoteWeight(int candidateIndex, BigFraction quorum) {
+		return votes.excessiveFraction(candidateIndex, quorum);
+	}
+
+	@Override
+	public void multiplyVoteWeightsOfVotesFor(int candidateIndex, TransferFactor factor) {
+		// The sum is built anew, because truncating arithmetics do not distribute the factor over the sum.
+		votes.setToInteger(candidateIndex, 0);
+		for (int row = pileHead[candidateIndex]; row != END_OF_PILE; row = nextInPile[row]) {
+			voteWeights.multiply(row, factor);
+			votes.addMultiple(candidateIndex, voteWeights, row, columns.multiplicity[row]);
+			voteStatesAreOutdated[row] = true;
+		}
+	}
+
+	@Override
+	public void moveVotesToNextHopefulCandidate() {
+		for (int candidateIndex = 0; candidateIndex < hopeful.length; candidateIndex++) {
+			if (hopeful[candidateIndex] || (pileHead[candidateIndex] == END_OF_PILE)) {
+				continue;
+			}
+
+			int row = pileHead[candidateIndex];
+			pileHead[candidateIndex] = END_OF_PILE;
+			votes.setToInteger(candidateIndex, 0);
+			while (row != END_OF_PILE) {
+				int next = nextInPile[row];
+				moveToNextHopefulCandidate(row);
+				row = next;
+			}
+		}
+	}
+
+	@Override
+	public ImmutableSet<CANDIDATE_TYPE> electedCandidates() {
+		ImmutableSet.Builder<CANDIDATE_TYPE> builder = ImmutableSet.builder();
+		for (int candidateIndex = 0; candidateIndex < elected.length; candidateIndex++) {
+			if (elected[candidateIndex]) {
+				builder.add(candidate(candidateIndex));
+			}
+		}
+		return builder.build();
+	}
+
+	@Override
+	public VoteDistribution<CANDIDATE_TYPE> toVoteDistribution() {
+		ImmutableMap.Builder<CANDIDATE_TYPE, BigFraction> votesByCandidateBuilder = ImmutableMap.builder();
+		for (int candidateIndex = 0; candidateIndex < hopeful.length; candidateIndex++) {
+			if (hopeful[candidateIndex]) {
+				votesByCandidateBuilder.put(candidate(candidateIndex), votes.get(candidateIndex));
+			}
+		}
+
+		return new VoteDistribution<>(votesByCandidateBuilder.build(), votes.get(noVotes), votes.get(invalidVotes));
+	}
+
+	/**
+	 * Only the VoteStates of rows that have been transferred or reweighted since the last call are created anew.
+	 */
+	@Override
+	public ImmutableList<VoteState<CANDIDATE_TYPE>> toVoteStates() {
+		BigFraction[] voteWeightOfRow = new BigFraction[voteStatesAreOutdated.length];
+		for (int ballotIndex = 0; ballotIndex < voteStates.length; ballotIndex++) {
+			int row = columns.rowOfBallot[ballotIndex];
+			if (voteStatesAreOutdated[row]) {
+				if (voteWeightOfRow[row] == null) {
+					voteWeightOfRow[row] = voteWeights.get(row);
+				}
+				voteStates[ballotIndex] = new VoteState<>(columns.ballotIds[ballotIndex],
+				                                          columns.voteOfBallot(ballotIndex), voteWeightOfRow[row],
+				                                          currentPosition[row]);
+			}
+		}
+		Arrays.fill(voteStatesAreOutdated, false);
+		return ImmutableList.copyOf(voteStates);
+	}
+
+	private void moveToNextHopefulCandidate(int row) {
+		int end = columns.rankingStart[row + 1];
+		int position = columns.rankingStart[row] + currentPosition[row];
+		while ((position < end) && !hopeful[columns.rankedCandidates[position]]) {
+			position++;
+		}
+		currentPosition[row] = position - columns.rankingStart[row];
+		voteStatesAreOutdated[row] = true;
+
+		int preferredCandidate = preferredCandidate(row);
+		if (preferredCandidate == NO_CANDIDATE) {
+			votes.addMultiple(noVotes, voteWeights, row, columns.multiplicity[row]);
+		} else {
+			nextInPile[row] = pileHead[preferredCandidate];
+			pileHead[preferredCandidate] = row;
+			votes.addMultiple(preferredCandidate, voteWeights, row, columns.multiplicity[row]);
+		}
+	}
+
+	private int preferredCandidate(int row) {
+		if (!columns.valid[row] || columns.no[row]) {
+			return NO_CANDIDATE;
+		}
+
+		int position = columns.rankingStart[row] + currentPosition[row];
+		if (position >= columns.rankingStart[row + 1]) {
+			return NO_CANDIDATE;
+		}
+		return columns.rankedCandidates[position];
+	}
+}
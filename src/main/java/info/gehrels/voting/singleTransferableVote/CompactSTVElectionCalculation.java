@@ -0,0 +1,275 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.AmbiguityResolver;
+import info.gehrels.voting.AmbiguityResolver.AmbiguityResolverResult;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.BallotSource;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.ElectionCalculation;
+import info.gehrels.voting.QuorumCalculation;
+import info.gehrels.voting.singleTransferableVote.NumberColumn.TransferFactor;
+import info.gehrels.voting.singleTransferableVote.STVElectionCalculationListener.DetailLevel;
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static info.gehrels.voting.DuplicateBallotIdDetector.hasNoPairOfElementsWithEqualIds;
+import static java.util.Comparator.comparing;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Calculates the same result as STVElectionCalculation with the Weighted Inclusive Gregory Method, but keeps the
+ * votes in a compact CountingModel (see BallotRepresentation) and updates positions and vote weights in place instead
+ * of creating new VoteStates in each step. VoteStates are only created to inform the STVElectionCalculationListener.
+ * If multiple candidates are equally weak, the AmbiguityResolver gets them in the order of Election.getCandidates().
+ * Vote weights are calculated exactly unless another VoteWeightArithmetic is given.
+ */
+public class CompactSTVElectionCalculation<CANDIDATE_TYPE extends Candidate>
+	implements ElectionCalculation<CANDIDATE_TYPE> {
+	// Same start value as in STVElectionCalculationStep, candidates with more votes are never struck.
+	private static final BigFraction UPPER_BOUND_OF_VOTES_OF_WEAKEST_CANDIDATE = new BigFraction(Integer.MAX_VALUE, 1);
+
+	private final CountingModel<CANDIDATE_TYPE> countingModel;
+	private final VoteWeightArithmetic arithmetic;
+	private final QuorumCalculation quorumCalculation;
+	private final STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener;
+	private final Election<CANDIDATE_TYPE> election;
+	private final AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver;
+	private final DetailLevel detailLevel;
+
+	public CompactSTVElectionCalculation(ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots,
+	                                     QuorumCalculation quorumCalculation,
+	                                     STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener,
+	                                     Election<CANDIDATE_TYPE> election,
+	                                     AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver) {
+		this(ballots, quorumCalculation, electionCalculationListener, election, ambiguityResolver,
+		     BallotRepresentation.COLUMNS, VoteWeightArithmetic.exact());
+	}
+
+	public CompactSTVElectionCalculation(ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots,
+	                                     QuorumCalculation quorumCalculation,
+	                                     STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener,
+	                                     Election<CANDIDATE_TYPE> election,
+	                                     AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
+	                                     BallotRepresentation ballotRepresentation,
+	                                     VoteWeightArithmetic arithmetic) {
+		this(createModel(ballots, election, ballotRepresentation), quorumCalculation, electionCalculationListener,
+		     election, ambiguityResolver, arithmetic);
+	}
+
+	/**
+	 * Reads the ballots only once, while the CountingModel is built. Ballots with equal ids are rejected with an
+	 * IllegalArgumentException.
+	 */
+	public CompactSTVElectionCalculation(BallotSource<CANDIDATE_TYPE> ballots,
+	                                     QuorumCalculation quorumCalculation,
+	                                     STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener,
+	                                     Election<CANDIDATE_TYPE> election,
+	                                     AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
+	                                     BallotRepresentation ballotRepresentation,
+	                                     VoteWeightArithmetic arithmetic) {
+		this(createModel(ballots, election, ballotRepresentation), quorumCalculation, electionCalculationListener,
+		     election, ambiguityResolver, arithmetic);
+	}
+
+	/**
+	 * Counts a CountingModel that has already been built for the election, e.g. by BatchSTVElectionCalculation.
+	 */
+	CompactSTVElectionCalculation(CountingModel<CANDIDATE_TYPE> countingModel,
+	                              QuorumCalculation quorumCalculation,
+	                              STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener,
+	                              Election<CANDIDATE_TYPE> election,
+	                              AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
+	                              VoteWeightArithmetic arithmetic) {
+		this.countingModel = validateThat(countingModel, is(not(nullValue())));
+		this.quorumCalculation = validateThat(quorumCalculation, is(not(nullValue())));
+		this.electionCalculationListener = validateThat(electionCalculationListener, is(not(nullValue())));
+		this.detailLevel = DetailLevel.of(electionCalculationListener);
+		this.election = validateThat(election, is(not(nullValue())));
+		this.ambiguityResolver = validateThat(ambiguityResolver, is(not(nullValue())));
+		this.arithmetic = validateThat(arithmetic, is(not(nullValue())));
+	}
+
+	private static <CANDIDATE_TYPE extends Candidate> CountingModel<CANDIDATE_TYPE> createModel(
+		ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots, Election<CANDIDATE_TYPE> election,
+		BallotRepresentation ballotRepresentation) {
+		validateThat(ballots, allOf(
+			is(not(nullValue())),
+			hasNoPairOfElementsWithEqualIds()
+		));
+		validateThat(election, is(not(nullValue())));
+		return validateThat(ballotRepresentation, is(not(nullValue())))
+			.createModel(election, BallotSource.of(ballots), ballots.size());
+	}
+
+	private static <CANDIDATE_TYPE extends Candidate> CountingModel<CANDIDATE_TYPE> createModel(
+		BallotSource<CANDIDATE_TYPE> ballots, Election<CANDIDATE_TYPE> election,
+		BallotRepresentation ballotRepresentation) {
+		validateThat(ballots, is(not(nullValue())));
+		validateThat(election, is(not(nullValue())));
+		return validateThat(ballotRepresentation, is(not(nullValue()))).createModel(election, ballots, 0);
+	}
+
+	@Override
+	public final ImmutableSet<CANDIDATE_TYPE> calculate(ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates,
+	                                                    long numberOfSeats) {
+		validateThat(qualifiedCandidates, is(not(nullValue())));
+		validateThat(numberOfSeats, is(greaterThanOrEqualTo(0L)));
+
+		long numberOfValidBallots = countingModel.numberOfValidVotes();
+		BigFraction quorum = quorumCalculation.calculateQuorum(numberOfValidBallots, numberOfSeats);
+		electionCalculationListener.quorumHasBeenCalculated(numberOfValidBallots, numberOfSeats, quorum);
+
+		CountingState<CANDIDATE_TYPE> state = countingModel.startCounting(qualifiedCandidates, arithmetic);
+		ImmutableList<VoteState<CANDIDATE_TYPE>> voteStates = voteStatesForListener(state);
+		if (detailLevel.includes(DetailLevel.ROUND_SUMMARIES)) {
+			electionCalculationListener.calculationStarted(election, state.toVoteDistribution());
+		}
+
+		long numberOfElectedCandidates = 0;
+		while (notAllSeatsFilled(numberOfElectedCandidates, numberOfSeats) && anyCandidateIsHopeful(state)) {
+			List<Integer> winners = allCandidatesThatReachedTheQuorum(quorum, state);
+			if (winners.isEmpty()) {
+				strikeWeakestCandidate(quorum, state);
+			} else {
+				redistributeTheWinnersExceedingVotes(quorum, winners, state);
+				numberOfElectedCandidates += winners.size();
+			}
+
+			if (detailLevel.includes(DetailLevel.ROUND_SUMMARIES)) {
+				ImmutableList<VoteState<CANDIDATE_TYPE>> newVoteStates = voteStatesForListener(state);
+				electionCalculationListener.voteWeightRedistributionCompleted(voteStates,
+				                                                              newVoteStates,
+				                                                              state.toVoteDistribution());
+				voteStates = newVoteStates;
+			}
+		}
+
+		ImmutableSet<CANDIDATE_TYPE> electedCandidates = state.electedCandidates();
+		electionCalculationListener.electedCandidates(electedCandidates);
+		return electedCandidates;
+	}
+
+	private ImmutableList<VoteState<CANDIDATE_TYPE>> voteStatesForListener(CountingState<CANDIDATE_TYPE> state) {
+		return detailLevel.includes(DetailLevel.FULL_TRACE) ? state.toVoteStates() : ImmutableList.of();
+	}
+
+	private List<Integer> allCandidatesThatReachedTheQuorum(BigFraction quorum, CountingState<CANDIDATE_TYPE> state) {
+		List<Integer> candidatesThatReachedTheQuorum = new ArrayList<>();
+		for (int candidateIndex = 0; candidateIndex < state.numberOfCandidates(); candidateIndex++) {
+			if (state.isHopeful(candidateIndex) && (state.compareVotesTo(candidateIndex, quorum) >= 0)) {
+				candidatesThatReachedTheQuorum.add(candidateIndex);
+			}
+		}
+
+		// Same order as in STVElectionCalculationStep, so that listeners see the same sequence of events.
+		candidatesThatReachedTheQuorum.sort(comparing(candidateIndex -> state.candidate(candidateIndex).name));
+		return candidatesThatReachedTheQuorum;
+	}
+
+	private void redistributeTheWinnersExceedingVotes(BigFraction quorum, List<Integer> winners,
+	                                                  CountingState<CANDIDATE_TYPE> state) {
+		for (int winner : winners) {
+			electionCalculationListener.candidateIsElected(state.candidate(winner), state.votesFor(winner), quorum);
+			TransferFactor excessiveFractionOfVoteWeight = state.excessiveFractionOfVoteWeight(winner, quorum);
+			state.markAsElected(winner);
+
+			electionCalculationListener.redistributingExcessiveFractionOfVoteWeight(
+				state.candidate(winner), excessiveFractionOfVoteWeight.fraction);
+			state.multiplyVoteWeightsOfVotesFor(winner, excessiveFractionOfVoteWeight);
+		}
+
+		state.moveVotesToNextHopefulCandidate();
+	}
+
+	private void strikeWeakestCandidate(BigFraction quorum, CountingState<CANDIDATE_TYPE> state) {
+		electionCalculationListener.nobodyReachedTheQuorumYet(quorum);
+		VoteDistribution<CANDIDATE_TYPE> voteDistributionBeforeStriking = state.toVoteDistribution();
+
+		int weakestCandidate = calculateWeakestCandidate(state);
+		state.markAsLooser(weakestCandidate);
+		state.moveVotesToNextHopefulCandidate();
+
+		electionCalculationListener.candidateDropped(voteDistributionBeforeStriking, state.candidate(weakestCandidate));
+	}
+
+	private int calculateWeakestCandidate(CountingState<CANDIDATE_TYPE> state) {
+		List<Integer> weakestCandidates = new ArrayList<>();
+		for (int candidateIndex = 0; candidateIndex < state.numberOfCandidates(); candidateIndex++) {
+			if (!state.isHopeful(candidateIndex)) {
+				continue;
+			}
+
+			int comparison = weakestCandidates.isEmpty()
+				? state.compareVotesTo(candidateIndex, UPPER_BOUND_OF_VOTES_OF_WEAKEST_CANDIDATE)
+				: state.compareVotes(candidateIndex, weakestCandidates.get(0));
+			if (comparison < 0) {
+				weakestCandidates.clear();
+				weakestCandidates.add(candidateIndex);
+			} else if (comparison == 0) {
+				weakestCandidates.add(candidateIndex);
+			}
+		}
+
+		return chooseOneOutOfManyCandidates(weakestCandidates, state);
+	}
+
+	private int chooseOneOutOfManyCandidates(List<Integer> candidateIndices,
+	                                         CountingState<CANDIDATE_TYPE> state) {
+		if (candidateIndices.size() == 1) {
+			return candidateIndices.get(0);
+		}
+
+		ImmutableSet.Builder<CANDIDATE_TYPE> candidatesBuilder = ImmutableSet.builder();
+		for (int candidateIndex : candidateIndices) {
+			candidatesBuilder.add(state.candidate(candidateIndex));
+		}
+		ImmutableSet<CANDIDATE_TYPE> candidates = candidatesBuilder.build();
+
+		electionCalculationListener.delegatingToExternalAmbiguityResolution(candidates);
+		AmbiguityResolverResult<CANDIDATE_TYPE> ambiguityResolverResult = ambiguityResolver.chooseOneOfMany(candidates);
+		electionCalculationListener.externallyResolvedAmbiguity(ambiguityResolverResult);
+		return countingModel.indexOf(ambiguityResolverResult.chosenCandidate);
+	}
+
+	private boolean notAllSeatsFilled(long numberOfElectedCandidates, long numberOfSeatsToElect) {
+		boolean notAllSeatsFilled = numberOfElectedCandidates < numberOfSeatsToElect;
+		electionCalculationListener.numberOfElectedPositions(numberOfElectedCandidates, numberOfSeatsToElect);
+		return notAllSeatsFilled;
+	}
+
+	private boolean anyCandidateIsHopeful(CountingState<CANDIDATE_TYPE> state) {
+		if (state.anyCandidateIsHopeful()) {
+			return true;
+		}
+
+		electionCalculationListener.noCandidatesAreLeft();
+		return false;
+	}
+}
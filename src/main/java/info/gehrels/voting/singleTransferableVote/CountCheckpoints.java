@@ -0,0 +1,329 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.Vote;
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Where STVElectionCalculation keeps the state of a running count after each round, so that a count that has been
+ * interrupted, e.g. by a restart while waiting for an external AmbiguityResolver, continues with the next round
+ * instead of starting over.
+ */
+public abstract class CountCheckpoints {
+	private static final int MAGIC = 0x53_54_56_43; // "STVC"
+	private static final int VERSION = 2;
+	private static final byte HOPEFUL = 0;
+	private static final byte ELECTED = 1;
+	private static final byte LOOSER = 2;
+
+	private CountCheckpoints() {
+	}
+
+	/**
+	 * Keeps no checkpoints, every count starts with the first round.
+	 */
+	public static CountCheckpoints none() {
+		return new CountCheckpoints() {
+			@Override
+			<CANDIDATE_TYPE extends Candidate> void save(Election<CANDIDATE_TYPE> election, long numberOfSeats,
+			                                             Checkpoint<CANDIDATE_TYPE> checkpoint) {
+			}
+
+			@Override
+			<CANDIDATE_TYPE extends Candidate> Optional<Checkpoint<CANDIDATE_TYPE>> restore(
+				Election<CANDIDATE_TYPE> election, long numberOfSeats, Checkpoint<CANDIDATE_TYPE> initialState) {
+				return Optional.empty();
+			}
+
+			@Override
+			<CANDIDATE_TYPE extends Candidate> void discard(Election<CANDIDATE_TYPE> election, long numberOfSeats,
+			                                                CandidateStates<CANDIDATE_TYPE> candidateStates) {
+			}
+
+			@Override
+			public String toString() {
+				return "none";
+			}
+		};
+	}
+
+	/**
+	 * Keeps a file in the directory for each count, named after the office, the number of seats and the qualified
+	 * candidates of the count. The counts of a gendered election, or of several elections, thus each resume from
+	 * their own checkpoint. The file is replaced after each round, and deleted once the count is complete. It is
+	 * replaced atomically, so it always holds a complete checkpoint. It holds the state of each candidate, the
+	 * position and vote weight of each vote, and the round, with each distinct vote weight written only once.
+	 * <p>
+	 * A count only resumes from a checkpoint of the same votes, which are compared by a SHA-256 fingerprint of the id
+	 * and ranking of each ballot. Other votes cause an IllegalArgumentException. I/O errors are thrown as
+	 * UncheckedIOException.
+	 */
+	public static CountCheckpoints inDirectory(Path directory) {
+		validateThat(directory, is(notNullValue()));
+		return new CountCheckpoints() {
+			@Override
+			<CANDIDATE_TYPE extends Candidate> void save(Election<CANDIDATE_TYPE> election, long numberOfSeats,
+			                                             Checkpoint<CANDIDATE_TYPE> checkpoint) {
+				Path file = checkpointFile(directory, election, numberOfSeats, checkpoint.candidateStates);
+				Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+				try {
+					try (DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+						write(out, election, numberOfSeats, checkpoint);
+					}
+					Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING,
+					           StandardCopyOption.ATOMIC_MOVE);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			@Override
+			<CANDIDATE_TYPE extends Candidate> Optional<Checkpoint<CANDIDATE_TYPE>> restore(
+				Election<CANDIDATE_TYPE> election, long numberOfSeats, Checkpoint<CANDIDATE_TYPE> initialState) {
+				Path file = checkpointFile(directory, election, numberOfSeats, initialState.candidateStates);
+				try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+					return Optional.of(read(in, election, numberOfSeats, initialState));
+				} catch (NoSuchFileException e) {
+					return Optional.empty();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			@Override
+			<CANDIDATE_TYPE extends Candidate> void discard(Election<CANDIDATE_TYPE> election, long numberOfSeats,
+			                                                CandidateStates<CANDIDATE_TYPE> candidateStates) {
+				try {
+					Files.deleteIfExists(checkpointFile(directory, election, numberOfSeats, candidateStates));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			@Override
+			public String toString() {
+				return "in " + directory;
+			}
+		};
+	}
+
+	abstract <CANDIDATE_TYPE extends Candidate> void save(Election<CANDIDATE_TYPE> election, long numberOfSeats,
+	                                                      Checkpoint<CANDIDATE_TYPE> checkpoint);
+
+	/**
+	 * @param initialState the state of the count before the first round, which the checkpoint is applied to.
+	 */
+	abstract <CANDIDATE_TYPE extends Candidate> Optional<Checkpoint<CANDIDATE_TYPE>> restore(
+		Election<CANDIDATE_TYPE> election, long numberOfSeats, Checkpoint<CANDIDATE_TYPE> initialState);
+
+	/**
+	 * Called when a count is complete, so that its checkpoint is not resumed by a later count.
+	 */
+	abstract <CANDIDATE_TYPE extends Candidate> void discard(Election<CANDIDATE_TYPE> election, long numberOfSeats,
+	                                                         CandidateStates<CANDIDATE_TYPE> candidateStates);
+
+	private static <CANDIDATE_TYPE extends Candidate> Path checkpointFile(
+		Path directory, Election<CANDIDATE_TYPE> election, long numberOfSeats,
+		CandidateStates<CANDIDATE_TYPE> candidateStates) {
+		Hasher hasher = Hashing.sha256().newHasher()
+			.putString(election.getOfficeName(), UTF_8).putByte((byte) 0)
+			.putLong(numberOfSeats);
+		for (CandidateState<CANDIDATE_TYPE> candidateState : candidateStates) {
+			hasher.putString(candidateState.getCandidate().name, UTF_8).putByte((byte) 0);
+		}
+		return directory.resolve(hasher.hash() + ".checkpoint");
+	}
+
+	private static <CANDIDATE_TYPE extends Candidate> void write(DataOutputStream out,
+	                                                             Election<CANDIDATE_TYPE> election,
+	                                                             long numberOfSeats,
+	                                                             Checkpoint<CANDIDATE_TYPE> checkpoint)
+		throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeUTF(election.getOfficeName());
+		out.writeLong(numberOfSeats);
+		byte[] fingerprint = fingerprint(checkpoint);
+		out.writeInt(fingerprint.length);
+		out.write(fingerprint);
+		out.writeLong(checkpoint.round);
+		out.writeLong(checkpoint.numberOfElectedCandidates);
+
+		List<CandidateState<CANDIDATE_TYPE>> candidateStates = ImmutableList.copyOf(checkpoint.candidateStates);
+		out.writeInt(candidateStates.size());
+		for (CandidateState<CANDIDATE_TYPE> candidateState : candidateStates) {
+			out.writeUTF(candidateState.getCandidate().name);
+			out.writeByte(candidateState.isElected() ? ELECTED : (candidateState.isHopeful() ? HOPEFUL : LOOSER));
+		}
+
+		// Most votes share their vote weight with many others
+		Map<BigFraction, Integer> weightIndices = new HashMap<>();
+		List<BigFraction> weights = new ArrayList<>();
+		for (VoteState<CANDIDATE_TYPE> voteState : checkpoint.voteStates) {
+			if (weightIndices.putIfAbsent(voteState.getVoteWeight(), weights.size()) == null) {
+				weights.add(voteState.getVoteWeight());
+			}
+		}
+		out.writeInt(weights.size());
+		for (BigFraction weight : weights) {
+			writeBigInteger(out, weight.getNumerator());
+			writeBigInteger(out, weight.getDenominator());
+		}
+
+		out.writeInt(checkpoint.voteStates.size());
+		for (VoteState<CANDIDATE_TYPE> voteState : checkpoint.voteStates) {
+			out.writeLong(voteState.getBallotId());
+			out.writeInt(voteState.getCurrentPosition());
+			out.writeInt(weightIndices.get(voteState.getVoteWeight()));
+		}
+	}
+
+	private static <CANDIDATE_TYPE extends Candidate> Checkpoint<CANDIDATE_TYPE> read(
+		DataInputStream in, Election<CANDIDATE_TYPE> election, long numberOfSeats,
+		Checkpoint<CANDIDATE_TYPE> initialState) throws IOException {
+		if ((in.readInt() != MAGIC) || (in.readByte() != VERSION)) {
+			throw new IOException("Not a checkpoint file");
+		}
+		validateThatCheckpointBelongsToCount(election.getOfficeName().equals(in.readUTF()), "election");
+		validateThatCheckpointBelongsToCount(in.readLong() == numberOfSeats, "number of seats");
+		byte[] fingerprint = new byte[in.readInt()];
+		in.readFully(fingerprint);
+		validateThatCheckpointBelongsToCount(Arrays.equals(fingerprint, fingerprint(initialState)),
+		                                     "candidates or votes");
+		long round = in.readLong();
+		long numberOfElectedCandidates = in.readLong();
+
+		CandidateStates<CANDIDATE_TYPE> candidateStates = initialState.candidateStates;
+		List<CandidateState<CANDIDATE_TYPE>> initialCandidateStates =
+			ImmutableList.copyOf(initialState.candidateStates);
+		validateThatCheckpointBelongsToCount(in.readInt() == initialCandidateStates.size(), "candidates");
+		for (CandidateState<CANDIDATE_TYPE> initialCandidateState : initialCandidateStates) {
+			CANDIDATE_TYPE candidate = initialCandidateState.getCandidate();
+			validateThatCheckpointBelongsToCount(candidate.name.equals(in.readUTF()), "candidates");
+			byte state = in.readByte();
+			if (state == ELECTED) {
+				candidateStates = candidateStates.withElected(candidate);
+			} else if (state == LOOSER) {
+				candidateStates = candidateStates.withLoser(candidate);
+			}
+		}
+
+		BigFraction[] weights = new BigFraction[in.readInt()];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = new BigFraction(readBigInteger(in), readBigInteger(in));
+		}
+
+		validateThatCheckpointBelongsToCount(in.readInt() == initialState.voteStates.size(), "ballots");
+		ImmutableList.Builder<VoteState<CANDIDATE_TYPE>> voteStates =
+			ImmutableList.builderWithExpectedSize(initialState.voteStates.size());
+		for (VoteState<CANDIDATE_TYPE> initialVoteState : initialState.voteStates) {
+			validateThatCheckpointBelongsToCount(in.readLong() == initialVoteState.getBallotId(), "ballots");
+			int position = in.readInt();
+			voteStates.add(initialVoteState.withVoteWeightAndPosition(weights[in.readInt()], position));
+		}
+
+		return new Checkpoint<>(round, numberOfElectedCandidates, candidateStates, voteStates.build());
+	}
+
+	/**
+	 * Identifies the qualified candidates and the votes of a count. They are the same in each of its checkpoints.
+	 */
+	private static <CANDIDATE_TYPE extends Candidate> byte[] fingerprint(Checkpoint<CANDIDATE_TYPE> checkpoint) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		for (CandidateState<CANDIDATE_TYPE> candidateState : checkpoint.candidateStates) {
+			hasher.putString(candidateState.getCandidate().name, UTF_8).putByte((byte) 0);
+		}
+		hasher.putInt(checkpoint.voteStates.size());
+		for (VoteState<CANDIDATE_TYPE> voteState : checkpoint.voteStates) {
+			Vote<CANDIDATE_TYPE> vote = voteState.getVote();
+			hasher.putLong(voteState.getBallotId()).putBoolean(vote.isValid()).putBoolean(vote.isNo());
+			ImmutableList<CANDIDATE_TYPE> rankedCandidates = vote.getRankedCandidates();
+			hasher.putInt(rankedCandidates.size());
+			for (CANDIDATE_TYPE rankedCandidate : rankedCandidates) {
+				hasher.putString(rankedCandidate.name, UTF_8).putByte((byte) 0);
+			}
+		}
+		return hasher.hash().asBytes();
+	}
+
+	private static void validateThatCheckpointBelongsToCount(boolean matches, String mismatch) {
+		if (!matches) {
+			throw new IllegalArgumentException("The checkpoint belongs to a count with other " + mismatch);
+		}
+	}
+
+	private static void writeBigInteger(DataOutputStream out, BigInteger value) throws IOException {
+		byte[] bytes = value.toByteArray();
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static BigInteger readBigInteger(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new BigInteger(bytes);
+	}
+
+	/**
+	 * The state of a count after round rounds.
+	 */
+	static final class Checkpoint<CANDIDATE_TYPE extends Candidate> {
+		final long round;
+		final long numberOfElectedCandidates;
+		final CandidateStates<CANDIDATE_TYPE> candidateStates;
+		final ImmutableCollection<VoteState<CANDIDATE_TYPE>> voteStates;
+
+		Checkpoint(long round, long numberOfElectedCandidates, CandidateStates<CANDIDATE_TYPE> candidateStates,
+		           ImmutableCollection<VoteState<CANDIDATE_TYPE>> voteStates) {
+			this.round = round;
+			this.numberOfElectedCandidates = numberOfElectedCandidates;
+			this.candidateStates = candidateStates;
+			this.voteStates = voteStates;
+		}
+	}
+}
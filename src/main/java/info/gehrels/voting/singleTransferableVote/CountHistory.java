@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.singleTransferableVote.CountCheckpoints.Checkpoint;
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The state of a count of STVElectionCalculation before its first round and after each round, as calculated by
+ * calculateWithHistory or recount. Instances are immutable.
+ */
+public final class CountHistory<CANDIDATE_TYPE extends Candidate> {
+	final String officeName;
+	final long numberOfSeats;
+	final BigFraction quorum;
+	// The state after round r is rounds.get(r)
+	final ImmutableList<Checkpoint<CANDIDATE_TYPE>> rounds;
+	private final ImmutableSet<CANDIDATE_TYPE> electedCandidates;
+	private final int firstCountedRound;
+
+	CountHistory(String officeName, long numberOfSeats, BigFraction quorum, List<Checkpoint<CANDIDATE_TYPE>> rounds,
+	             ImmutableSet<CANDIDATE_TYPE> electedCandidates, int firstCountedRound) {
+		this.officeName = officeName;
+		this.numberOfSeats = numberOfSeats;
+		this.quorum = quorum;
+		this.rounds = ImmutableList.copyOf(rounds);
+		this.electedCandidates = electedCandidates;
+		this.firstCountedRound = firstCountedRound;
+	}
+
+	public ImmutableSet<CANDIDATE_TYPE> getElectedCandidates() {
+		return electedCandidates;
+	}
+
+	public int getNumberOfRounds() {
+		return rounds.size() - 1;
+	}
+
+	/**
+	 * @return 1 for a complete count. For a recount, the rounds before this one have been taken from the previous
+	 * count. getNumberOfRounds() + 1 if no round had to be counted again.
+	 */
+	public int getFirstCountedRound() {
+		return firstCountedRound;
+	}
+
+	/**
+	 * The first round whose outcome may differ if only the qualifiedCandidates take part in the count. The state
+	 * after the round before it is still valid, because it holds no votes for a withdrawn candidate and no withdrawn
+	 * candidate has been elected or dropped until then.
+	 */
+	int firstAffectedRound(ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates) {
+		// The earlier rounds of a recount may still include the candidates it has been recounted without
+		Set<String> previouslyQualifiedCandidateNames = new HashSet<>();
+		for (CandidateState<CANDIDATE_TYPE> candidateState : rounds.get(rounds.size() - 1).candidateStates) {
+			previouslyQualifiedCandidateNames.add(candidateState.getCandidate().name);
+		}
+		Set<String> withdrawnCandidateNames = new HashSet<>(previouslyQualifiedCandidateNames);
+		for (CANDIDATE_TYPE qualifiedCandidate : qualifiedCandidates) {
+			if (!withdrawnCandidateNames.remove(qualifiedCandidate.name)
+			    && !previouslyQualifiedCandidateNames.contains(qualifiedCandidate.name)) {
+				// An added candidate may take votes from the very first round on
+				return 1;
+			}
+		}
+
+		// The state after a round is where the next round starts from, a surplus may have been transferred to a
+		// withdrawn candidate during the round
+		for (int round = 1; round < rounds.size(); round++) {
+			if (anyVoteCountsFor(rounds.get(round).voteStates, withdrawnCandidateNames)
+			    || anyIsNoLongerHopeful(rounds.get(round).candidateStates, withdrawnCandidateNames)) {
+				return round;
+			}
+		}
+		return rounds.size();
+	}
+
+	/**
+	 * Transfers a state of this count to a count on other ballots or with fewer candidates.
+	 *
+	 * @param initialState the state of the other count before its first round.
+	 */
+	static <CANDIDATE_TYPE extends Candidate> Checkpoint<CANDIDATE_TYPE> applyTo(
+		Checkpoint<CANDIDATE_TYPE> checkpoint, Checkpoint<CANDIDATE_TYPE> initialState) {
+		Map<String, CandidateState<CANDIDATE_TYPE>> candidateStatesByName = new HashMap<>();
+		for (CandidateState<CANDIDATE_TYPE> candidateState : checkpoint.candidateStates) {
+			candidateStatesByName.put(candidateState.getCandidate().name, candidateState);
+		}
+		CandidateStates<CANDIDATE_TYPE> candidateStates = initialState.candidateStates;
+		for (CandidateState<CANDIDATE_TYPE> initialCandidateState : initialState.candidateStates) {
+			CANDIDATE_TYPE candidate = initialCandidateState.getCandidate();
+			CandidateState<CANDIDATE_TYPE> candidateState = candidateStatesByName.get(candidate.name);
+			if (candidateState == null) {
+				throw new IllegalArgumentException("The previous count did not include " + candidate);
+			} else if (candidateState.isElected()) {
+				candidateStates = candidateStates.withElected(candidate);
+			} else if (!candidateState.isHopeful()) {
+				candidateStates = candidateStates.withLoser(candidate);
+			}
+		}
+
+		ImmutableCollection<VoteState<CANDIDATE_TYPE>> voteStates = checkpoint.voteStates;
+		if (voteStates.size() != initialState.voteStates.size()) {
+			throw new IllegalArgumentException("The previous count belongs to other ballots");
+		}
+		ImmutableList.Builder<VoteState<CANDIDATE_TYPE>> builder =
+			ImmutableList.builderWithExpectedSize(voteStates.size());
+		Iterator<VoteState<CANDIDATE_TYPE>> voteStatesIterator = voteStates.iterator();
+		for (VoteState<CANDIDATE_TYPE> initialVoteState : initialState.voteStates) {
+			VoteState<CANDIDATE_TYPE> voteState = voteStatesIterator.next();
+			if (voteState.getBallotId() != initialVoteState.getBallotId()) {
+				throw new IllegalArgumentException("The previous count belongs to other ballots");
+			}
+			// A count on the same ballots can share the VoteStates
+			builder.add((voteState.getVote() == initialVoteState.getVote())
+				            ? voteState
+				            : initialVoteState.withVoteWeightAndPosition(voteState.getVoteWeight(),
+				                                                         voteState.getCurrentPosition()));
+		}
+
+		return new Checkpoint<>(checkpoint.round, checkpoint.numberOfElectedCandidates, candidateStates,
+		                        builder.build());
+	}
+
+	private static <CANDIDATE_TYPE extends Candidate> boolean anyVoteCountsFor(
+		ImmutableCollection<VoteState<CANDIDATE_TYPE>> voteStates, Set<String> candidateNames) {
+		if (candidateNames.isEmpty()) {
+			return false;
+		}
+		for (VoteState<CANDIDATE_TYPE> voteState : voteStates) {
+			Optional<CANDIDATE_TYPE> preferredCandidate = voteState.getPreferredCandidate();
+			if (preferredCandidate.isPresent() && candidateNames.contains(preferredCandidate.get().name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static <CANDIDATE_TYPE extends Candidate> boolean anyIsNoLongerHopeful(
+		CandidateStates<CANDIDATE_TYPE> candidateStates, Set<String> candidateNames) {
+		for (CandidateState<CANDIDATE_TYPE> candidateState : candidateStates) {
+			if (!candidateState.isHopeful() && candidateNames.contains(candidateState.getCandidate().name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
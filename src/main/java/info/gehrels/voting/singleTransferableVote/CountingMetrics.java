@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+/**
+ * Receives measurements of STVElectionCalculation, to find out where a count spends its time. Durations are measured
+ * with System.nanoTime(). The round is measured around STVElectionCalculationStep.declareWinnerOrStrikeCandidate.
+ * Within a round, the quorum check is measured separately from the transfer of the votes. For a surplus, the transfer
+ * includes the VoteWeightRecalculator, which is also measured on its own for each elected candidate. Listener calls
+ * made during a transfer are included in its duration.
+ * <p>
+ * All methods are called on the counting thread. They should return quickly. Nothing is measured for metrics that
+ * are not enabled.
+ */
+public interface CountingMetrics {
+	enum Transfer {
+		SURPLUS,
+		EXCLUSION
+	}
+
+	/**
+	 * Measures nothing.
+	 */
+	static CountingMetrics none() {
+		return new CountingMetrics() {
+			@Override
+			public boolean isEnabled() {
+				return false;
+			}
+
+			@Override
+			public String toString() {
+				return "none";
+			}
+		};
+	}
+
+	/**
+	 * Asked once, when a calculation is created.
+	 */
+	default boolean isEnabled() {
+		return true;
+	}
+
+	default void calculationCompleted(String officeName, long numberOfSeats, long numberOfRounds,
+	                                  long durationInNanos) {
+	}
+
+	default void roundCompleted(String officeName, long round, long durationInNanos) {
+	}
+
+	default void quorumChecked(long durationInNanos) {
+	}
+
+	/**
+	 * @param numberOfTransferredVotes the number of VoteStates that have been reweighted or moved on to another
+	 *                                 candidate.
+	 */
+	default void votesTransferred(Transfer transfer, long numberOfTransferredVotes, long durationInNanos) {
+	}
+
+	/**
+	 * Measured around the VoteWeightRecalculator, once for each elected candidate whose surplus is transferred. This
+	 * duration is part of the duration passed to votesTransferred.
+	 */
+	default void voteWeightsRecalculated(long durationInNanos) {
+	}
+
+	/**
+	 * The largest bit lengths of the numerators and denominators of all vote weights after a round. Exact vote
+	 * weights grow with each surplus transfer, which makes the arithmetic of later rounds slower.
+	 */
+	default void voteWeightsMeasured(int maximumNumeratorBitLength, int maximumDenominatorBitLength) {
+	}
+}
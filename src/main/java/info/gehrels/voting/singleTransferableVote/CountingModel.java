@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import info.gehrels.voting.BallotSource.VoteConsumer;
+import info.gehrels.voting.Candidate;
+
+import static info.gehrels.voting.DuplicateBallotIdDetector.findDuplicateIds;
+
+/**
+ * The votes of all ballots for one Election, prepared for counting. Implementations are immutable, so one model may
+ * be counted any number of times.
+ */
+interface CountingModel<CANDIDATE_TYPE extends Candidate> {
+	long numberOfValidVotes();
+
+	/**
+	 * @return the index of the candidate or -1, if it is no candidate of this election.
+	 */
+	int indexOf(CANDIDATE_TYPE candidate);
+
+	CountingState<CANDIDATE_TYPE> startCounting(ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates,
+	                                            VoteWeightArithmetic arithmetic);
+
+	/**
+	 * Ballots from a BallotSource do not pass the duplicate id validation of the calculations, so each model checks the
+	 * ids of the ballots it has been built from.
+	 */
+	static void validateThatBallotIdsAreDistinct(long[] ballotIds, int numberOfBallots) {
+		ImmutableSortedSet<Long> duplicateIds = findDuplicateIds(ballotIds, numberOfBallots);
+		if (!duplicateIds.isEmpty()) {
+			throw new IllegalArgumentException("The ids " + duplicateIds + " were used by more than one ballot");
+		}
+	}
+
+	/**
+	 * Collects the votes of one Election ballot by ballot, in the order in which the ballots should be reported.
+	 */
+	interface Builder<CANDIDATE_TYPE extends Candidate> extends VoteConsumer {
+		CountingModel<CANDIDATE_TYPE> build();
+	}
+}
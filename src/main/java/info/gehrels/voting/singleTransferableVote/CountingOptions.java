@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * The optional collaborators of STVElectionCalculation: How it tallies the votes, where it keeps its checkpoints and
+ * where it reports its measurements. Instances are immutable, the with... methods return a changed copy.
+ */
+public final class CountingOptions {
+	private static final CountingOptions DEFAULTS =
+		new CountingOptions(VoteTallying.sequential(), CountCheckpoints.none(), CountingMetrics.none());
+
+	final VoteTallying voteTallying;
+	final CountCheckpoints countCheckpoints;
+	final CountingMetrics countingMetrics;
+
+	private CountingOptions(VoteTallying voteTallying, CountCheckpoints countCheckpoints,
+	                        CountingMetrics countingMetrics) {
+		this.voteTallying = voteTallying;
+		this.countCheckpoints = countCheckpoints;
+		this.countingMetrics = countingMetrics;
+	}
+
+	/**
+	 * Sequential tallying, no checkpoints and no metrics.
+	 */
+	public static CountingOptions defaults() {
+		return DEFAULTS;
+	}
+
+	public CountingOptions withVoteTallying(VoteTallying voteTallying) {
+		return new CountingOptions(validateThat(voteTallying, is(notNullValue())), countCheckpoints, countingMetrics);
+	}
+
+	public CountingOptions withCountCheckpoints(CountCheckpoints countCheckpoints) {
+		return new CountingOptions(voteTallying, validateThat(countCheckpoints, is(notNullValue())), countingMetrics);
+	}
+
+	public CountingOptions withCountingMetrics(CountingMetrics countingMetrics) {
+		return new CountingOptions(voteTallying, countCheckpoints, validateThat(countingMetrics, is(notNullValue())));
+	}
+
+	@Override
+	public String toString() {
+		return "tallying " + voteTallying + ", checkpoints " + countCheckpoints + ", metrics " + countingMetrics;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.singleTransferableVote.NumberColumn.TransferFactor;
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ * The mutable state of one calculation, as used by CompactSTVElectionCalculation. Candidates are addressed by their
+ * index in Election.getCandidates(). Votes are only available for hopeful candidates.
+ */
+interface CountingState<CANDIDATE_TYPE extends Candidate> {
+	int numberOfCandidates();
+
+	CANDIDATE_TYPE candidate(int candidateIndex);
+
+	boolean isHopeful(int candidateIndex);
+
+	boolean anyCandidateIsHopeful();
+
+	void markAsElected(int candidateIndex);
+
+	void markAsLooser(int candidateIndex);
+
+	BigFraction votesFor(int candidateIndex);
+
+	int compareVotes(int candidateIndex, int otherCandidateIndex);
+
+	int compareVotesTo(int candidateIndex, BigFraction numberOfVotes);
+
+	/**
+	 * @return the fraction of the votes for the candidate that exceeds the quorum.
+	 */
+	TransferFactor excessiveFractionOfVoteWeight(int candidateIndex, BigFraction quorum);
+
+	void multiplyVoteWeightsOfVotesFor(int candidateIndex, TransferFactor factor);
+
+	/**
+	 * Transfers the votes of all candidates that are no longer hopeful to the next hopeful candidate of the respective
+	 * ranking.
+	 */
+	void moveVotesToNextHopefulCandidate();
+
+	ImmutableSet<CANDIDATE_TYPE> electedCandidates();
+
+	VoteDistribution<CANDIDATE_TYPE> toVoteDistribution();
+
+	/**
+	 * @return one VoteState per ballot, in the order of the original ballots.
+	 */
+	ImmutableList<VoteState<CANDIDATE_TYPE>> toVoteStates();
+}
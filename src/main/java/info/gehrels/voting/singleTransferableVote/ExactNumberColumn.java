@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Stores BigFractions. Vote weights of ballots with the same transfer history share one BigFraction instance:
+ * multiplying equal instances with the same TransferFactor yields one new instance. Sums are collected as the number
+ * of times each instance was added, so adding is an integer addition. The BigFraction arithmetic happens once per
+ * distinct instance, when the sum is read (see VoteWeightSum).
+ */
+final class ExactNumberColumn extends NumberColumn {
+	private final BigFraction[] values;
+	private final VoteWeightSum[] pendingSummands;
+
+	private TransferFactor factorOfProducts;
+	private final Map<BigFraction, BigFraction> products = new IdentityHashMap<>();
+
+	ExactNumberColumn(int size) {
+		this.values = new BigFraction[size];
+		this.pendingSummands = new VoteWeightSum[size];
+	}
+
+	@Override
+	BigFraction get(int index) {
+		if (pendingSummands[index] != null) {
+			values[index] = values[index].add(pendingSummands[index].sum());
+			pendingSummands[index] = null;
+		}
+		return values[index];
+	}
+
+	@Override
+	void setToInteger(int index, long value) {
+		pendingSummands[index] = null;
+		if (value == 0) {
+			values[index] = BigFraction.ZERO;
+		} else if (value == 1) {
+			values[index] = BigFraction.ONE;
+		} else {
+			values[index] = new BigFraction(value);
+		}
+	}
+
+	@Override
+	void copy(int index, NumberColumn source, int sourceIndex) {
+		pendingSummands[index] = null;
+		values[index] = ((ExactNumberColumn) source).get(sourceIndex);
+	}
+
+	@Override
+	void addMultiple(int index, NumberColumn source, int sourceIndex, long multiplicity) {
+		BigFraction value = ((ExactNumberColumn) source).get(sourceIndex);
+		if (pendingSummands[index] == null) {
+			pendingSummands[index] = new VoteWeightSum();
+		}
+		pendingSummands[index].add(value, multiplicity);
+	}
+
+	@Override
+	void multiply(int index, TransferFactor factor) {
+		if (factor != factorOfProducts) {
+			factorOfProducts = factor;
+			products.clear();
+		}
+		values[index] = products.computeIfAbsent(get(index), value -> value.multiply(factor.fraction));
+	}
+
+	@Override
+	int compare(int index, int otherIndex) {
+		return get(index).compareTo(get(otherIndex));
+	}
+
+	@Override
+	int compareTo(int index, BigFraction value) {
+		return get(index).compareTo(value);
+	}
+
+	@Override
+	TransferFactor excessiveFraction(int index, BigFraction quorum) {
+		BigFraction votes = get(index);
+		return new TransferFactor(votes.subtract(quorum).divide(votes), 0);
+	}
+}
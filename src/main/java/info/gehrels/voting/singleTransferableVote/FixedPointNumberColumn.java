@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+import static com.google.common.math.BigIntegerMath.divide;
+import static com.google.common.math.LongMath.pow;
+
+/**
+ * Stores each number x as the long x * 10^decimalPlaces. All numbers handled here are non-negative, so truncating
+ * means rounding down.
+ */
+final class FixedPointNumberColumn extends NumberColumn {
+	private final long[] values;
+	private final long scale;
+
+	FixedPointNumberColumn(int size, int decimalPlaces) {
+		this.values = new long[size];
+		this.scale = pow(10, decimalPlaces);
+	}
+
+	@Override
+	BigFraction get(int index) {
+		return new BigFraction(values[index], scale);
+	}
+
+	@Override
+	void setToInteger(int index, long value) {
+		values[index] = Math.multiplyExact(value, scale);
+	}
+
+	@Override
+	void copy(int index, NumberColumn source, int sourceIndex) {
+		values[index] = ((FixedPointNumberColumn) source).values[sourceIndex];
+	}
+
+	@Override
+	void addMultiple(int index, NumberColumn source, int sourceIndex, long multiplicity) {
+		long value = ((FixedPointNumberColumn) source).values[sourceIndex];
+		values[index] = Math.addExact(values[index], Math.multiplyExact(value, multiplicity));
+	}
+
+	@Override
+	void multiply(int index, TransferFactor factor) {
+		// Vote weights and factors are at most 1, so the product fits into a long for up to 9 decimal places.
+		values[index] = (values[index] * factor.scaledValue) / scale;
+	}
+
+	@Override
+	int compare(int index, int otherIndex) {
+		return Long.compare(values[index], values[otherIndex]);
+	}
+
+	@Override
+	int compareTo(int index, BigFraction value) {
+		return get(index).compareTo(value);
+	}
+
+	@Override
+	TransferFactor excessiveFraction(int index, BigFraction quorum) {
+		BigInteger bigScale = BigInteger.valueOf(scale);
+		BigInteger votes = BigInteger.valueOf(values[index]);
+		BigInteger roundedQuorum = divide(quorum.getNumerator().multiply(bigScale), quorum.getDenominator(),
+		                                  RoundingMode.CEILING);
+		long scaledFactor = divide(votes.subtract(roundedQuorum).multiply(bigScale), votes, RoundingMode.FLOOR)
+			.longValueExact();
+		return new TransferFactor(new BigFraction(scaledFactor, scale), scaledFactor);
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits each measurement as a JDK Flight Recorder event in the category "STV Elections", so that slow counts can be
+ * diagnosed in a running system. The events are named info.gehrels.voting.Calculation, .Round, .QuorumCheck,
+ * .VoteTransfer, .VoteWeightRecalculation and .VoteWeights. JFR only records them while a recording with these events enabled is running.
+ */
+public final class JfrCountingMetrics implements CountingMetrics {
+	private static final String CATEGORY = "STV Elections";
+
+	@Override
+	public void calculationCompleted(String officeName, long numberOfSeats, long numberOfRounds,
+	                                 long durationInNanos) {
+		CalculationEvent event = new CalculationEvent();
+		if (event.shouldCommit()) {
+			event.officeName = officeName;
+			event.numberOfSeats = numberOfSeats;
+			event.numberOfRounds = numberOfRounds;
+			event.countingTime = durationInNanos;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void roundCompleted(String officeName, long round, long durationInNanos) {
+		RoundEvent event = new RoundEvent();
+		if (event.shouldCommit()) {
+			event.officeName = officeName;
+			event.round = round;
+			event.countingTime = durationInNanos;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void quorumChecked(long durationInNanos) {
+		QuorumCheckEvent event = new QuorumCheckEvent();
+		if (event.shouldCommit()) {
+			event.countingTime = durationInNanos;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void votesTransferred(Transfer transfer, long numberOfTransferredVotes, long durationInNanos) {
+		VoteTransferEvent event = new VoteTransferEvent();
+		if (event.shouldCommit()) {
+			event.transfer = transfer.name();
+			event.numberOfTransferredVotes = numberOfTransferredVotes;
+			event.countingTime = durationInNanos;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void voteWeightsRecalculated(long durationInNanos) {
+		VoteWeightRecalculationEvent event = new VoteWeightRecalculationEvent();
+		if (event.shouldCommit()) {
+			event.countingTime = durationInNanos;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void voteWeightsMeasured(int maximumNumeratorBitLength, int maximumDenominatorBitLength) {
+		VoteWeightsEvent event = new VoteWeightsEvent();
+		if (event.shouldCommit()) {
+			event.maximumNumeratorBitLength = maximumNumeratorBitLength;
+			event.maximumDenominatorBitLength = maximumDenominatorBitLength;
+			event.commit();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "JDK Flight Recorder";
+	}
+
+	@Name("info.gehrels.voting.Calculation")
+	@Label("STV Calculation")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class CalculationEvent extends Event {
+		@Label("Office")
+		String officeName;
+		@Label("Seats")
+		long numberOfSeats;
+		@Label("Rounds")
+		long numberOfRounds;
+		@Label("Counting Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long countingTime;
+	}
+
+	@Name("info.gehrels.voting.Round")
+	@Label("STV Round")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class RoundEvent extends Event {
+		@Label("Office")
+		String officeName;
+		@Label("Round")
+		long round;
+		@Label("Counting Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long countingTime;
+	}
+
+	@Name("info.gehrels.voting.QuorumCheck")
+	@Label("STV Quorum Check")
+	@Description("Tallying the votes and finding the candidates that reached the quorum")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class QuorumCheckEvent extends Event {
+		@Label("Counting Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long countingTime;
+	}
+
+	@Name("info.gehrels.voting.VoteTransfer")
+	@Label("STV Vote Transfer")
+	@Description("Transferring the surplus of the elected or the votes of an excluded candidate")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class VoteTransferEvent extends Event {
+		@Label("Transfer")
+		String transfer;
+		@Label("Transferred Votes")
+		long numberOfTransferredVotes;
+		@Label("Counting Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long countingTime;
+	}
+
+	@Name("info.gehrels.voting.VoteWeightRecalculation")
+	@Label("STV Vote Weight Recalculation")
+	@Description("Recalculating the vote weights of the votes for an elected candidate, as part of a vote transfer")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class VoteWeightRecalculationEvent extends Event {
+		@Label("Counting Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long countingTime;
+	}
+
+	@Name("info.gehrels.voting.VoteWeights")
+	@Label("STV Vote Weights")
+	@Description("The largest bit lengths of the vote weights after a round")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class VoteWeightsEvent extends Event {
+		@Label("Maximum Numerator Bit Length")
+		int maximumNumeratorBitLength;
+		@Label("Maximum Denominator Bit Length")
+		int maximumDenominatorBitLength;
+	}
+}
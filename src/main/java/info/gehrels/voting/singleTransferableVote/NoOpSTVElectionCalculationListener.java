@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.AmbiguityResolver.AmbiguityResolverResult;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ * Ignores all events and asks for results only, e.g. so that benchmarks measure the calculation only.
+ */
+public final class NoOpSTVElectionCalculationListener<CANDIDATE_TYPE extends Candidate>
+	implements STVElectionCalculationListener<CANDIDATE_TYPE> {
+	@Override
+	public DetailLevel getDetailLevel() {
+		return DetailLevel.RESULTS;
+	}
+
+	@Override
+	public void numberOfElectedPositions(long numberOfElectedCandidates, long numberOfSeatsToElect) {
+	}
+
+	@Override
+	public void electedCandidates(ImmutableSet<CANDIDATE_TYPE> electedCandidates) {
+	}
+
+	@Override
+	public void candidateDropped(VoteDistribution<CANDIDATE_TYPE> voteDistributionBeforeStriking,
+	                             CANDIDATE_TYPE candidate) {
+	}
+
+	@Override
+	public void voteWeightRedistributionCompleted(ImmutableCollection<VoteState<CANDIDATE_TYPE>> originalVoteStates,
+	                                              ImmutableCollection<VoteState<CANDIDATE_TYPE>> newVoteStates,
+	                                              VoteDistribution<CANDIDATE_TYPE> voteDistribution) {
+	}
+
+	@Override
+	public void delegatingToExternalAmbiguityResolution(ImmutableSet<CANDIDATE_TYPE> bestCandidates) {
+	}
+
+	@Override
+	public void externallyResolvedAmbiguity(AmbiguityResolverResult<CANDIDATE_TYPE> ambiguityResolverResult) {
+	}
+
+	@Override
+	public void candidateIsElected(CANDIDATE_TYPE winner, BigFraction numberOfVotes, BigFraction quorum) {
+	}
+
+	@Override
+	public void nobodyReachedTheQuorumYet(BigFraction quorum) {
+	}
+
+	@Override
+	public void noCandidatesAreLeft() {
+	}
+
+	@Override
+	public void calculationStarted(Election<CANDIDATE_TYPE> election,
+	                               VoteDistribution<CANDIDATE_TYPE> voteDistribution) {
+	}
+
+	@Override
+	public void quorumHasBeenCalculated(long numberOfValidBallots, long numberOfSeats, BigFraction quorum) {
+	}
+
+	@Override
+	public void redistributingExcessiveFractionOfVoteWeight(CANDIDATE_TYPE winner,
+	                                                        BigFraction excessiveFractionOfVoteWeight) {
+	}
+}
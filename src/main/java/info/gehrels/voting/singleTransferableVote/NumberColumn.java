@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ * A mutable array of non-negative numbers in the representation of a VoteWeightArithmetic. Methods taking a source
+ * column expect it to be created by the same VoteWeightArithmetic.
+ */
+abstract class NumberColumn {
+	abstract BigFraction get(int index);
+
+	abstract void setToInteger(int index, long value);
+
+	abstract void copy(int index, NumberColumn source, int sourceIndex);
+
+	/**
+	 * Adds multiplicity times the value at sourceIndex of source to the value at index.
+	 */
+	abstract void addMultiple(int index, NumberColumn source, int sourceIndex, long multiplicity);
+
+	abstract void multiply(int index, TransferFactor factor);
+
+	abstract int compare(int index, int otherIndex);
+
+	abstract int compareTo(int index, BigFraction value);
+
+	/**
+	 * @return the fraction of the value at index that exceeds the quorum.
+	 */
+	abstract TransferFactor excessiveFraction(int index, BigFraction quorum);
+
+	/**
+	 * A factor vote weights are multiplied with, in the representation of its NumberColumn.
+	 */
+	static final class TransferFactor {
+		final BigFraction fraction;
+		final long scaledValue;
+
+		TransferFactor(BigFraction fraction, long scaledValue) {
+			this.fraction = fraction;
+			this.scaledValue = scaledValue;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import info.gehrels.voting.Candidate;
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Recalculates the vote weights like WeightedInclusiveGregoryMethod, but splits the VoteStates into parts that are
+ * processed as tasks of the given pool. The resulting VoteStates have the same order as the original ones, and votes
+ * that shared their vote weight instance share the reduced one, just as with WeightedInclusiveGregoryMethod.
+ */
+public class ParallelWeightedInclusiveGregoryMethod<CANDIDATE_TYPE extends Candidate> implements
+	VoteWeightRecalculationMethod<CANDIDATE_TYPE> {
+	private final STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener;
+	private final ForkJoinPool forkJoinPool;
+	private final int voteStatesPerTask;
+
+	public ParallelWeightedInclusiveGregoryMethod(
+		STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener, ForkJoinPool forkJoinPool) {
+		this(electionCalculationListener, forkJoinPool, VoteTallying.VOTE_STATES_PER_TASK);
+	}
+
+	// Smaller parts let tests split a few VoteStates like many
+	ParallelWeightedInclusiveGregoryMethod(STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener,
+	                                       ForkJoinPool forkJoinPool, int voteStatesPerTask) {
+		this.electionCalculationListener = validateThat(electionCalculationListener, is(notNullValue()));
+		this.forkJoinPool = validateThat(forkJoinPool, is(notNullValue()));
+		this.voteStatesPerTask = validateThat(voteStatesPerTask, is(greaterThan(0)));
+	}
+
+	@Override
+	public final VoteWeightRecalculator<CANDIDATE_TYPE> recalculatorFor() {
+		return new ParallelWigmVoteWeightRecalculator<>(electionCalculationListener, forkJoinPool, voteStatesPerTask);
+	}
+
+	@Override
+	public final VoteWeightRecalculator<CANDIDATE_TYPE> recalculatorFor(
+		STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener) {
+		return new ParallelWigmVoteWeightRecalculator<>(
+			validateThat(electionCalculationListener, is(notNullValue())), forkJoinPool, voteStatesPerTask);
+	}
+
+	private record ParallelWigmVoteWeightRecalculator<CANDIDATE extends Candidate>(
+		STVElectionCalculationListener<CANDIDATE> electionCalculationListener, ForkJoinPool forkJoinPool,
+		int voteStatesPerTask) implements VoteWeightRecalculator<CANDIDATE> {
+
+		@Override
+		public ImmutableList<VoteState<CANDIDATE>> recalculateExceededVoteWeight(CANDIDATE winner,
+		                                                                         BigFraction quorum,
+		                                                                         ImmutableCollection<VoteState<CANDIDATE>> originalVoteStates,
+		                                                                         CandidateStates<CANDIDATE> candidateStates) {
+			ImmutableList<VoteState<CANDIDATE>> voteStates = originalVoteStates.asList();
+			VoteDistribution<CANDIDATE> voteDistribution = VoteTallying.parallel(forkJoinPool, voteStatesPerTask)
+				.tally(candidateStates.getHopefulCandidates(), voteStates);
+
+			BigFraction votesForCandidate = voteDistribution.votesByCandidate.get(winner);
+			BigFraction excessiveVotes = votesForCandidate.subtract(quorum);
+			BigFraction excessiveFractionOfVoteWeight = excessiveVotes.divide(votesForCandidate);
+
+			electionCalculationListener
+				.redistributingExcessiveFractionOfVoteWeight(winner, excessiveFractionOfVoteWeight);
+
+			// Each distinct vote weight instance is multiplied once, so the parts share the products
+			Map<BigFraction, BigFraction> newVoteWeights = forkJoinPool.invoke(
+				new CollectVoteWeights<>(winner, voteStates, voteStatesPerTask, 0, voteStates.size()));
+			newVoteWeights.replaceAll((voteWeight, unused) -> voteWeight.multiply(excessiveFractionOfVoteWeight));
+
+			@SuppressWarnings("unchecked")
+			VoteState<CANDIDATE>[] newVoteStates = (VoteState<CANDIDATE>[]) new VoteState<?>[voteStates.size()];
+			forkJoinPool.invoke(
+				new ReplaceVoteWeights<>(winner, voteStates, newVoteWeights, newVoteStates, voteStatesPerTask, 0,
+				                         voteStates.size()));
+			return ImmutableList.copyOf(newVoteStates);
+		}
+	}
+
+	private static final class CollectVoteWeights<CANDIDATE extends Candidate>
+		extends RecursiveTask<Map<BigFraction, BigFraction>> {
+		private static final long serialVersionUID = 1L;
+
+		private final CANDIDATE winner;
+		private final ImmutableList<VoteState<CANDIDATE>> voteStates;
+		private final int voteStatesPerTask;
+		private final int from;
+		private final int to;
+
+		CollectVoteWeights(CANDIDATE winner, ImmutableList<VoteState<CANDIDATE>> voteStates, int voteStatesPerTask,
+		                   int from, int to) {
+			this.winner = winner;
+			this.voteStates = voteStates;
+			this.voteStatesPerTask = voteStatesPerTask;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Map<BigFraction, BigFraction> compute() {
+			if ((to - from) <= voteStatesPerTask) {
+				Map<BigFraction, BigFraction> voteWeights = new IdentityHashMap<>();
+				for (int i = from; i < to; i++) {
+					VoteState<CANDIDATE> voteState = voteStates.get(i);
+					if (voteState.getPreferredCandidate().orElse(null) == winner) {
+						voteWeights.put(voteState.getVoteWeight(), null);
+					}
+				}
+				return voteWeights;
+			}
+
+			int middle = (from + to) >>> 1;
+			CollectVoteWeights<CANDIDATE> secondHalf = new CollectVoteWeights<>(winner, voteStates, voteStatesPerTask,
+			                                                                    middle, to);
+			secondHalf.fork();
+			Map<BigFraction, BigFraction> voteWeights = new CollectVoteWeights<>(winner, voteStates,
+			                                                                     voteStatesPerTask, from, middle)
+				.compute();
+			voteWeights.putAll(secondHalf.join());
+			return voteWeights;
+		}
+	}
+
+	private static final class ReplaceVoteWeights<CANDIDATE extends Candidate> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final CANDIDATE winner;
+		private final ImmutableList<VoteState<CANDIDATE>> voteStates;
+		private final Map<BigFraction, BigFraction> newVoteWeights;
+		private final VoteState<CANDIDATE>[] newVoteStates;
+		private final int voteStatesPerTask;
+		private final int from;
+		private final int to;
+
+		ReplaceVoteWeights(CANDIDATE winner, ImmutableList<VoteState<CANDIDATE>> voteStates,
+		                   Map<BigFraction, BigFraction> newVoteWeights, VoteState<CANDIDATE>[] newVoteStates,
+		                   int voteStatesPerTask, int from, int to) {
+			this.winner = winner;
+			this.voteStates = voteStates;
+			this.newVoteWeights = newVoteWeights;
+			this.newVoteStates = newVoteStates;
+			this.voteStatesPerTask = voteStatesPerTask;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if ((to - from) <= voteStatesPerTask) {
+				for (int i = from; i < to; i++) {
+					VoteState<CANDIDATE> voteState = voteStates.get(i);
+					if (voteState.getPreferredCandidate().orElse(null) == winner) {
+						newVoteStates[i] = voteState.withVoteWeight(newVoteWeights.get(voteState.getVoteWeight()));
+					} else {
+						newVoteStates[i] = voteState;
+					}
+				}
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new ReplaceVoteWeights<>(winner, voteStates, newVoteWeights, newVoteStates, voteStatesPerTask,
+			                                   from, middle),
+			          new ReplaceVoteWeights<>(winner, voteStates, newVoteWeights, newVoteStates, voteStatesPerTask,
+			                                   middle, to));
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.BallotSource;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.CandidateIndex;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.Vote;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The rankings of all valid ballots for one Election, stored as a prefix tree. Node 0 is the root. Every other node n
+ * represents the ranking prefix that leads from the root to n, ending with the candidate index candidateOfNode[n].
+ * subtreeCount[n] ballots have a ranking starting with that prefix, terminalCount[n] of them end exactly there. The
+ * children of a node are chained by firstChild and nextSibling. Ballot b, counted in the order of the original
+ * collection, has the id ballotIds[b] and ends at node nodeOfBallot[b], or at NO_NODE if it is invalid or a no vote.
+ * Instances are immutable.
+ */
+final class PreferenceTree<CANDIDATE_TYPE extends Candidate> implements CountingModel<CANDIDATE_TYPE> {
+	static final int ROOT = 0;
+	static final int NO_NODE = -1;
+
+	final CandidateIndex<CANDIDATE_TYPE> candidateIndex;
+	final int[] candidateOfNode;
+	final int[] parentOfNode;
+	final int[] depthOfNode;
+	final int[] firstChild;
+	final int[] nextSibling;
+	final long[] terminalCount;
+	final long[] subtreeCount;
+	final long[] ballotIds;
+	final int[] nodeOfBallot;
+	final long numberOfNoVotes;
+	final long numberOfInvalidVotes;
+
+	// Only the nodes that some ranking ends at have a Vote, the others map to the invalid vote
+	private final ImmutableList<Vote<CANDIDATE_TYPE>> voteOfNode;
+	private final BitSet invalidBallots;
+	private final Vote<CANDIDATE_TYPE> invalidVote;
+	private final Vote<CANDIDATE_TYPE> noVote;
+
+	private PreferenceTree(Builder<CANDIDATE_TYPE> builder) {
+		this.candidateIndex = builder.candidateIndex;
+		this.candidateOfNode = Arrays.copyOf(builder.candidateOfNode, builder.numberOfNodes);
+		this.parentOfNode = Arrays.copyOf(builder.parentOfNode, builder.numberOfNodes);
+		this.depthOfNode = Arrays.copyOf(builder.depthOfNode, builder.numberOfNodes);
+		this.firstChild = Arrays.copyOf(builder.firstChild, builder.numberOfNodes);
+		this.nextSibling = Arrays.copyOf(builder.nextSibling, builder.numberOfNodes);
+		this.terminalCount = Arrays.copyOf(builder.terminalCount, builder.numberOfNodes);
+		this.subtreeCount = Arrays.copyOf(builder.subtreeCount, builder.numberOfNodes);
+		this.ballotIds = Arrays.copyOf(builder.ballotIds, builder.numberOfBallots);
+		this.nodeOfBallot = Arrays.copyOf(builder.nodeOfBallot, builder.numberOfBallots);
+		this.numberOfNoVotes = builder.numberOfNoVotes;
+		this.numberOfInvalidVotes = builder.numberOfInvalidVotes;
+		this.invalidVote = Vote.createInvalidVote(builder.election);
+		this.noVote = Vote.createNoVote(builder.election);
+		ImmutableList.Builder<Vote<CANDIDATE_TYPE>> voteOfNodeBuilder = ImmutableList.builderWithExpectedSize(
+			builder.numberOfNodes);
+		for (int node = 0; node < builder.numberOfNodes; node++) {
+			voteOfNodeBuilder.add((builder.voteOfNode[node] == null) ? invalidVote : builder.voteOfNode[node]);
+		}
+		this.voteOfNode = voteOfNodeBuilder.build();
+		this.invalidBallots = (BitSet) builder.invalidBallots.clone();
+	}
+
+	static <CANDIDATE_TYPE extends Candidate> PreferenceTree<CANDIDATE_TYPE> fromBallots(
+		Election<CANDIDATE_TYPE> election, ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots) {
+		Builder<CANDIDATE_TYPE> builder = new Builder<>(election, ballots.size());
+		BallotSource.of(ballots).forEachVote(election, builder);
+		return builder.build();
+	}
+
+	int numberOfNodes() {
+		return candidateOfNode.length;
+	}
+
+	int numberOfBallots() {
+		return ballotIds.length;
+	}
+
+	Vote<CANDIDATE_TYPE> voteOfBallot(int ballotIndex) {
+		int node = nodeOfBallot[ballotIndex];
+		if (node != NO_NODE) {
+			return voteOfNode.get(node);
+		}
+		return invalidBallots.get(ballotIndex) ? invalidVote : noVote;
+	}
+
+	@Override
+	public long numberOfValidVotes() {
+		return ballotIds.length - numberOfInvalidVotes;
+	}
+
+	@Override
+	public int indexOf(CANDIDATE_TYPE candidate) {
+		return candidateIndex.indexOf(candidate);
+	}
+
+	@Override
+	public TreeCountingState<CANDIDATE_TYPE> startCounting(ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates,
+	                                                   VoteWeightArithmetic arithmetic) {
+		return new TreeCountingState<>(this, qualifiedCandidates, arithmetic);
+	}
+
+	static final class Builder<CANDIDATE_TYPE extends Candidate> implements CountingModel.Builder<CANDIDATE_TYPE> {
+		private final Election<CANDIDATE_TYPE> election;
+		private final CandidateIndex<CANDIDATE_TYPE> candidateIndex;
+
+		private int numberOfNodes = 1;
+		private int[] candidateOfNode = {-1};
+		private int[] parentOfNode = {NO_NODE};
+		private int[] depthOfNode = {0};
+		private int[] firstChild = {NO_NODE};
+		private int[] nextSibling = {NO_NODE};
+		private long[] terminalCount = {0};
+		private long[] subtreeCount = {0};
+		private Vote<CANDIDATE_TYPE>[] voteOfNode = newVoteArray(1);
+
+		private int numberOfBallots = 0;
+		private long[] ballotIds;
+		private int[] nodeOfBallot;
+		private final BitSet invalidBallots = new BitSet();
+		private long numberOfNoVotes = 0;
+		private long numberOfInvalidVotes = 0;
+
+		Builder(Election<CANDIDATE_TYPE> election, int expectedNumberOfBallots) {
+			this.election = election;
+			this.candidateIndex = election.getCandidateIndex();
+			this.ballotIds = new long[Math.max(expectedNumberOfBallots, 1)];
+			this.nodeOfBallot = new int[Math.max(expectedNumberOfBallots, 1)];
+		}
+
+		@Override
+		public void accept(long ballotId, boolean valid, boolean no, int[] rankedCandidateIndices,
+		                   int numberOfRankedCandidates) {
+			int node = NO_NODE;
+			if (!valid) {
+				numberOfInvalidVotes++;
+				invalidBallots.set(numberOfBallots);
+			} else if (no) {
+				numberOfNoVotes++;
+			} else {
+				node = ROOT;
+				for (int position = 0; position < numberOfRankedCandidates; position++) {
+					node = childOf(node, rankedCandidateIndices[position]);
+				}
+				if (voteOfNode[node] == null) {
+					// The first ranking that ends here, validate it before anything is counted
+					voteOfNode[node] = Vote.createVote(election, true, false, rankedCandidateIndices,
+					                                   numberOfRankedCandidates);
+				}
+				terminalCount[node]++;
+				for (int ancestor = node; ancestor != NO_NODE; ancestor = parentOfNode[ancestor]) {
+					subtreeCount[ancestor]++;
+				}
+			}
+
+			if (numberOfBallots == ballotIds.length) {
+				ballotIds = Arrays.copyOf(ballotIds, 2 * numberOfBallots);
+				nodeOfBallot = Arrays.copyOf(nodeOfBallot, 2 * numberOfBallots);
+			}
+			ballotIds[numberOfBallots] = ballotId;
+			nodeOfBallot[numberOfBallots] = node;
+			numberOfBallots++;
+		}
+
+		@Override
+		public PreferenceTree<CANDIDATE_TYPE> build() {
+			CountingModel.validateThatBallotIdsAreDistinct(ballotIds, numberOfBallots);
+			return new PreferenceTree<>(this);
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <CANDIDATE_TYPE extends Candidate> Vote<CANDIDATE_TYPE>[] newVoteArray(int length) {
+			return (Vote<CANDIDATE_TYPE>[]) new Vote<?>[length];
+		}
+
+		private int childOf(int node, int candidateIndex) {
+			for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+				if (candidateOfNode[child] == candidateIndex) {
+					return child;
+				}
+			}
+
+			if (numberOfNodes == candidateOfNode.length) {
+				int newLength = 2 * numberOfNodes;
+				candidateOfNode = Arrays.copyOf(candidateOfNode, newLength);
+				parentOfNode = Arrays.copyOf(parentOfNode, newLength);
+				depthOfNode = Arrays.copyOf(depthOfNode, newLength);
+				firstChild = Arrays.copyOf(firstChild, newLength);
+				nextSibling = Arrays.copyOf(nextSibling, newLength);
+				terminalCount = Arrays.copyOf(terminalCount, newLength);
+				subtreeCount = Arrays.copyOf(subtreeCount, newLength);
+				voteOfNode = Arrays.copyOf(voteOfNode, newLength);
+			}
+
+			int child = numberOfNodes++;
+			candidateOfNode[child] = candidateIndex;
+			parentOfNode[child] = node;
+			depthOfNode[child] = depthOfNode[node] + 1;
+			firstChild[child] = NO_NODE;
+			nextSibling[child] = firstChild[node];
+			firstChild[node] = child;
+			return child;
+		}
+	}
+}
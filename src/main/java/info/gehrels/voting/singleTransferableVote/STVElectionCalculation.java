@@ -25,17 +25,18 @@ import info.gehrels.voting.Candidate;
 import info.gehrels.voting.Election;
 import info.gehrels.voting.ElectionCalculation;
 import info.gehrels.voting.QuorumCalculation;
-import info.gehrels.voting.Vote;
+import info.gehrels.voting.singleTransferableVote.CountCheckpoints.Checkpoint;
+import info.gehrels.voting.singleTransferableVote.STVElectionCalculationListener.DetailLevel;
 import info.gehrels.voting.singleTransferableVote.STVElectionCalculationStep.ElectionStepResult;
 import org.apache.commons.math3.fraction.BigFraction;
-import org.apache.commons.math3.util.Pair;
-import org.hamcrest.Description;
-import org.hamcrest.Matcher;
-import org.hamcrest.TypeSafeDiagnosingMatcher;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static info.gehrels.voting.DuplicateBallotIdDetector.hasNoPairOfElementsWithEqualIds;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
@@ -49,6 +50,13 @@ public class STVElectionCalculation<CANDIDATE_TYPE extends Candidate> implements
 	private final Election<CANDIDATE_TYPE> election;
 	private final VoteWeightRecalculationMethod<CANDIDATE_TYPE> voteWeightRecalculationMethod;
 	private final STVElectionCalculationStep<CANDIDATE_TYPE> electionStep;
+	private final VoteTallying voteTallying;
+	private final CountCheckpoints countCheckpoints;
+	private final CountingMetrics countingMetrics;
+	private final DetailLevel detailLevel;
+	// Read from the ballots by the first calculation and shared by all later ones, e.g. by both runs of a gendered
+	// election. Racing first calculations may each read the ballots, but they all arrive at equal results.
+	private volatile PreprocessedBallots<CANDIDATE_TYPE> preprocessedBallots;
 
 	public STVElectionCalculation(ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots,
 	                              QuorumCalculation quorumCalculation,
@@ -56,19 +64,36 @@ public class STVElectionCalculation<CANDIDATE_TYPE extends Candidate> implements
 	                              Election<CANDIDATE_TYPE> election,
 	                              AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
 	                              VoteWeightRecalculationMethod<CANDIDATE_TYPE> redistributionMethod) {
+		this(ballots, quorumCalculation, electionCalculationListener, election, ambiguityResolver, redistributionMethod,
+		     CountingOptions.defaults());
+	}
+
+	public STVElectionCalculation(ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots,
+	                              QuorumCalculation quorumCalculation,
+	                              STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener,
+	                              Election<CANDIDATE_TYPE> election,
+	                              AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
+	                              VoteWeightRecalculationMethod<CANDIDATE_TYPE> redistributionMethod,
+	                              CountingOptions countingOptions) {
 
 		this.ballots = validateThat(ballots, allOf(
 			is(not(nullValue())),
-			not(hasAPairOfElementsThat(this.hasEqualIds()))
-			));
+			hasNoPairOfElementsWithEqualIds()
+		));
 		this.quorumCalculation = validateThat(quorumCalculation, is(not(nullValue())));
 		this.election = validateThat(election, is(not(nullValue())));
 		this.voteWeightRecalculationMethod = validateThat(redistributionMethod, is(not(nullValue())));
+		validateThat(countingOptions, is(not(nullValue())));
+		this.voteTallying = countingOptions.voteTallying;
+		this.countCheckpoints = countingOptions.countCheckpoints;
+		this.countingMetrics = countingOptions.countingMetrics;
 		this.electionStep = new STVElectionCalculationStep<>(
 			validateThat(electionCalculationListener, is(not(nullValue()))),
-			validateThat(ambiguityResolver, is(not(nullValue())))
+			validateThat(ambiguityResolver, is(not(nullValue()))),
+			countingOptions
 		);
 		this.electionCalculationListener = electionCalculationListener;
+		this.detailLevel = DetailLevel.of(electionCalculationListener);
 	}
 
 	@Override
@@ -76,20 +101,92 @@ public class STVElectionCalculation<CANDIDATE_TYPE extends Candidate> implements
 	                                                    long numberOfSeats) {
 		validateThat(qualifiedCandidates, is(not(nullValue())));
 		validateThat(numberOfSeats, is(greaterThanOrEqualTo(0L)));
+		return count(qualifiedCandidates, numberOfSeats,
+		             initialState -> countCheckpoints.restore(election, numberOfSeats, initialState)
+			             .orElse(initialState),
+		             null);
+	}
+
+	/**
+	 * Same as calculate, but keeps the state after each round, so that the count can be repeated with recount. The
+	 * count always starts with the first round. The history holds one reference per ballot and round.
+	 */
+	public final CountHistory<CANDIDATE_TYPE> calculateWithHistory(ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates,
+	                                                               long numberOfSeats) {
+		validateThat(qualifiedCandidates, is(not(nullValue())));
+		validateThat(numberOfSeats, is(greaterThanOrEqualTo(0L)));
+		List<Checkpoint<CANDIDATE_TYPE>> rounds = new ArrayList<>();
+		ImmutableSet<CANDIDATE_TYPE> electedCandidates =
+			count(qualifiedCandidates, numberOfSeats, initialState -> initialState, rounds);
+		return new CountHistory<>(election.getOfficeName(), numberOfSeats, calculateQuorum(numberOfSeats), rounds,
+		                          electedCandidates, 1);
+	}
+
+	/**
+	 * Repeats a count after candidates have withdrawn. The previous count may have been calculated on other ballots
+	 * of the same election, e.g. after a candidate has been corrected with GenderedElection.withReplacedCandidate
+	 * and Ballot.withReplacedCandidateVersion. Candidates are matched by name, ballots by id.
+	 * <p>
+	 * Up to the first round in which a withdrawn candidate held votes, was elected or was dropped, the rounds of the
+	 * previous count stay valid. Only the rounds from there on are counted again. If a candidate has been added or
+	 * the quorum differs, the whole count is repeated.
+	 */
+	public final CountHistory<CANDIDATE_TYPE> recount(CountHistory<CANDIDATE_TYPE> previousCount,
+	                                                  ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates) {
+		validateThat(previousCount, is(not(nullValue())));
+		validateThat(qualifiedCandidates, is(not(nullValue())));
+		validateThat("The previous count must belong to the same election", previousCount.officeName,
+		             is(election.getOfficeName()));
+
+		long numberOfSeats = previousCount.numberOfSeats;
+		BigFraction quorum = calculateQuorum(numberOfSeats);
+		int firstRecountedRound = quorum.equals(previousCount.quorum)
+			? previousCount.firstAffectedRound(qualifiedCandidates)
+			: 1;
+
+		List<Checkpoint<CANDIDATE_TYPE>> rounds =
+			new ArrayList<>(previousCount.rounds.subList(0, firstRecountedRound - 1));
+		UnaryOperator<Checkpoint<CANDIDATE_TYPE>> startingState = (firstRecountedRound == 1)
+			? initialState -> initialState
+			: initialState -> CountHistory.applyTo(previousCount.rounds.get(firstRecountedRound - 1), initialState);
+		ImmutableSet<CANDIDATE_TYPE> electedCandidates =
+			count(qualifiedCandidates, numberOfSeats, startingState, rounds);
+		return new CountHistory<>(election.getOfficeName(), numberOfSeats, quorum, rounds, electedCandidates,
+		                          firstRecountedRound);
+	}
+
+	/**
+	 * @param startingState the state to count on from, given the state before the first round.
+	 * @param rounds        receives the starting state and the state after each round, if not null.
+	 */
+	private ImmutableSet<CANDIDATE_TYPE> count(ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates, long numberOfSeats,
+	                                           UnaryOperator<Checkpoint<CANDIDATE_TYPE>> startingState,
+	                                           List<Checkpoint<CANDIDATE_TYPE>> rounds) {
+		boolean measuring = countingMetrics.isEnabled();
+		long startOfCalculation = measuring ? System.nanoTime() : 0;
 
 		VoteWeightRecalculator<CANDIDATE_TYPE> redistributor = voteWeightRecalculationMethod.recalculatorFor();
-		long numberOfValidBallots = calculateNumberOfValidVotes();
+		PreprocessedBallots<CANDIDATE_TYPE> preprocessedBallots = preprocessBallots();
+		long numberOfValidBallots = preprocessedBallots.numberOfValidVotes;
 		BigFraction quorum = quorumCalculation.calculateQuorum(numberOfValidBallots, numberOfSeats);
 		electionCalculationListener.quorumHasBeenCalculated(numberOfValidBallots, numberOfSeats, quorum);
 
-		CandidateStates<CANDIDATE_TYPE> candidateStates = new CandidateStates<>(qualifiedCandidates);
-		ImmutableCollection<VoteState<CANDIDATE_TYPE>> voteStates = constructVoteStates(candidateStates);
+		Checkpoint<CANDIDATE_TYPE> resumedState = startingState.apply(initialState(qualifiedCandidates));
+		if (rounds != null) {
+			rounds.add(resumedState);
+		}
+		long round = resumedState.round;
+		CandidateStates<CANDIDATE_TYPE> candidateStates = resumedState.candidateStates;
+		ImmutableCollection<VoteState<CANDIDATE_TYPE>> voteStates = resumedState.voteStates;
+		long numberOfElectedCandidates = resumedState.numberOfElectedCandidates;
 
-		electionCalculationListener
-			.calculationStarted(election, new VoteDistribution<>(candidateStates.getHopefulCandidates(),  voteStates));
+		if (detailLevel.includes(DetailLevel.ROUND_SUMMARIES)) {
+			electionCalculationListener
+				.calculationStarted(election, voteTallying.tally(candidateStates.getHopefulCandidates(), voteStates));
+		}
 
-		long numberOfElectedCandidates = 0;
 		while (notAllSeatsFilled(numberOfElectedCandidates, numberOfSeats) && anyCandidateIsHopeful(candidateStates)) {
+			long startOfRound = measuring ? System.nanoTime() : 0;
 			ElectionStepResult<CANDIDATE_TYPE> electionStepResult = electionStep
 				.declareWinnerOrStrikeCandidate(quorum,
 				                                voteStates,
@@ -99,37 +196,54 @@ public class STVElectionCalculation<CANDIDATE_TYPE extends Candidate> implements
 			candidateStates = electionStepResult.newCandidateStates;
 			voteStates = electionStepResult.newVoteStates;
 			numberOfElectedCandidates = electionStepResult.newNumberOfElectedCandidates;
+			round++;
+			if (measuring) {
+				countingMetrics.roundCompleted(election.getOfficeName(), round, System.nanoTime() - startOfRound);
+			}
+			Checkpoint<CANDIDATE_TYPE> checkpoint =
+				new Checkpoint<>(round, numberOfElectedCandidates, candidateStates, voteStates);
+			countCheckpoints.save(election, numberOfSeats, checkpoint);
+			if (rounds != null) {
+				rounds.add(checkpoint);
+			}
 		}
 
+		countCheckpoints.discard(election, numberOfSeats, candidateStates);
 		ImmutableSet<CANDIDATE_TYPE> electedCandidates = getElectedCandidates(candidateStates);
 		electionCalculationListener.electedCandidates(electedCandidates);
+		if (measuring) {
+			countingMetrics.calculationCompleted(election.getOfficeName(), numberOfSeats, round,
+			                                     System.nanoTime() - startOfCalculation);
+		}
 		return electedCandidates;
 	}
 
-	private long calculateNumberOfValidVotes() {
-		long numberOfValidVotes = 0;
-		for (Ballot<CANDIDATE_TYPE> ballot : ballots) {
-			Optional<Vote<CANDIDATE_TYPE>> vote = ballot.getVote(election);
-			if (vote.isPresent() && vote.get().isValid()) {
-				numberOfValidVotes++;
-			}
-		}
+	VoteWeightRecalculator<CANDIDATE_TYPE> recalculatorFor(
+		STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener) {
+		return voteWeightRecalculationMethod.recalculatorFor(electionCalculationListener);
+	}
 
-		return numberOfValidVotes;
+	BigFraction calculateQuorum(long numberOfSeats) {
+		return quorumCalculation.calculateQuorum(preprocessBallots().numberOfValidVotes, numberOfSeats);
 	}
 
-	private ImmutableCollection<VoteState<CANDIDATE_TYPE>> constructVoteStates(
-		CandidateStates<CANDIDATE_TYPE> candidateStates) {
-		ImmutableList.Builder<VoteState<CANDIDATE_TYPE>> builder = ImmutableList.builder();
-		for (Ballot<CANDIDATE_TYPE> ballot : ballots) {
-			Optional<VoteState<CANDIDATE_TYPE>> voteStateOptional = VoteState.forBallotAndElection(ballot, election);
-            voteStateOptional.ifPresent(
-					candidateTypeVoteState -> builder.add(candidateTypeVoteState.withFirstHopefulCandidate(candidateStates))
-			);
-		}
-		return builder.build();
+	/**
+	 * The state of a count of the qualifiedCandidates before its first round.
+	 */
+	Checkpoint<CANDIDATE_TYPE> initialState(ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates) {
+		CandidateStates<CANDIDATE_TYPE> initialCandidateStates = new CandidateStates<>(qualifiedCandidates);
+		return new Checkpoint<>(0, 0, initialCandidateStates,
+		                        preprocessBallots().constructVoteStates(initialCandidateStates));
 	}
 
+	private PreprocessedBallots<CANDIDATE_TYPE> preprocessBallots() {
+		PreprocessedBallots<CANDIDATE_TYPE> result = preprocessedBallots;
+		if (result == null) {
+			result = new PreprocessedBallots<>(ballots, election);
+			preprocessedBallots = result;
+		}
+		return result;
+	}
 
 	private boolean notAllSeatsFilled(long numberOfElectedCandidates, long numberOfSeatsToElect) {
 		boolean notAllSeatsFilled = numberOfElectedCandidates < numberOfSeatsToElect;
@@ -139,10 +253,8 @@ public class STVElectionCalculation<CANDIDATE_TYPE extends Candidate> implements
 
 
 	private boolean anyCandidateIsHopeful(CandidateStates<CANDIDATE_TYPE> candidateStates) {
-		for (CandidateState<CANDIDATE_TYPE> candidateState : candidateStates) {
-			if (candidateState.isHopeful()) {
-				return true;
-			}
+		if (!candidateStates.getHopefulCandidates().isEmpty()) {
+			return true;
 		}
 
 		electionCalculationListener.noCandidatesAreLeft();
@@ -161,51 +273,38 @@ public class STVElectionCalculation<CANDIDATE_TYPE extends Candidate> implements
 		return builder.build();
 	}
 
-	private <T extends Candidate> Matcher<Pair<Ballot<T>, Ballot<T>>> hasEqualIds() {
-		return new TypeSafeDiagnosingMatcher<>() {
-            @Override
-            protected boolean matchesSafely(Pair<Ballot<T>, Ballot<T>> item, Description mismatchDescription) {
-                long firstId = item.getFirst().id;
-                long secondId = item.getSecond().id;
-                if (firstId != secondId) {
-                    mismatchDescription.appendValue(item).appendText(" had different ids ").appendValue(firstId)
-                            .appendText(" and ").appendValue(secondId);
-                    return false;
-                }
-                return true;
-            }
-
-            @Override
-            public void describeTo(Description description) {
-                description.appendText("has equal ids");
-            }
-        };
-	}
+	/**
+	 * The VoteStates of all ballots that took part in the election, before any candidate has been qualified. Each
+	 * calculation positions them at the first candidate that is hopeful in it. Instances are immutable.
+	 */
+	private static final class PreprocessedBallots<CANDIDATE_TYPE extends Candidate> {
+		private final ImmutableList<VoteState<CANDIDATE_TYPE>> voteStates;
+		private final long numberOfValidVotes;
 
+		PreprocessedBallots(ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots, Election<CANDIDATE_TYPE> election) {
+			ImmutableList.Builder<VoteState<CANDIDATE_TYPE>> builder = ImmutableList.builder();
+			long numberOfValidVotesDraft = 0;
+			for (Ballot<CANDIDATE_TYPE> ballot : ballots) {
+				Optional<VoteState<CANDIDATE_TYPE>> voteState = VoteState.forBallotAndElection(ballot, election);
+				if (voteState.isPresent()) {
+					builder.add(voteState.get());
+					if (!voteState.get().isInvalid()) {
+						numberOfValidVotesDraft++;
+					}
+				}
+			}
+			this.voteStates = builder.build();
+			this.numberOfValidVotes = numberOfValidVotesDraft;
+		}
 
-	private static <T> Matcher<Iterable<T>> hasAPairOfElementsThat(Matcher<Pair<T, T>> subMatcher) {
-		return new TypeSafeDiagnosingMatcher<>() {
-            @Override
-            protected boolean matchesSafely(Iterable<T> iterable, Description mismatchDescription) {
-                for (T item1 : iterable) {
-                    for (T item2 : iterable) {
-                        if (item1 != item2) {
-                            Pair<T, T> pair = new Pair<>(item1, item2);
-                            if (subMatcher.matches(pair)) {
-                                return true;
-                            }
-                        }
-                    }
-                }
-
-                mismatchDescription.appendValue(iterable).appendText(" did not contain a pair of elements that ").appendDescriptionOf(subMatcher);
-                return false;
-            }
-
-            @Override
-            public void describeTo(Description description) {
-                description.appendText("has a pair of Elements that ").appendDescriptionOf(subMatcher);
-            }
-        };
+		ImmutableCollection<VoteState<CANDIDATE_TYPE>> constructVoteStates(
+			CandidateStates<CANDIDATE_TYPE> candidateStates) {
+			ImmutableList.Builder<VoteState<CANDIDATE_TYPE>> builder =
+				ImmutableList.builderWithExpectedSize(voteStates.size());
+			for (VoteState<CANDIDATE_TYPE> voteState : voteStates) {
+				builder.add(voteState.withFirstHopefulCandidate(candidateStates));
+			}
+			return builder.build();
+		}
 	}
 }
@@ -33,20 +33,49 @@ public class STVElectionCalculationFactory<CANDIDATE_TYPE extends Candidate> imp
 	private final QuorumCalculation quorumCalculation;
 	private final STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener;
 	private final AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver;
+	private final VoteWeightRecalculationMethod<CANDIDATE_TYPE> voteWeightRecalculationMethod;
+	private final CountingOptions countingOptions;
 
 	public STVElectionCalculationFactory(QuorumCalculation quorumCalculation,
 	                                     STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener,
 	                                     AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver) {
+		this(quorumCalculation, electionCalculationListener, ambiguityResolver, CountingOptions.defaults());
+	}
+
+	/**
+	 * The options are shared by all calculations, so CountCheckpoints.inDirectory only tells the counts of elections
+	 * apart by their office names.
+	 */
+	public STVElectionCalculationFactory(QuorumCalculation quorumCalculation,
+	                                     STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener,
+	                                     AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
+	                                     CountingOptions countingOptions) {
+		this(quorumCalculation, electionCalculationListener, ambiguityResolver,
+		     new WeightedInclusiveGregoryMethod<>(electionCalculationListener,
+		                                          validateThat(countingOptions, is(notNullValue())).voteTallying),
+		     countingOptions);
+	}
+
+	/**
+	 * The VoteWeightRecalculationMethod should report to the same listener, e.g. a
+	 * ParallelWeightedInclusiveGregoryMethod on the pool of a parallel VoteTallying.
+	 */
+	public STVElectionCalculationFactory(QuorumCalculation quorumCalculation,
+	                                     STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener,
+	                                     AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
+	                                     VoteWeightRecalculationMethod<CANDIDATE_TYPE> voteWeightRecalculationMethod,
+	                                     CountingOptions countingOptions) {
 		this.quorumCalculation = validateThat(quorumCalculation, is(notNullValue()));
 		this.electionCalculationListener = validateThat(electionCalculationListener, is(notNullValue()));
 		this.ambiguityResolver = validateThat(ambiguityResolver, is(notNullValue()));
+		this.voteWeightRecalculationMethod = validateThat(voteWeightRecalculationMethod, is(notNullValue()));
+		this.countingOptions = validateThat(countingOptions, is(notNullValue()));
 	}
 
 	@Override
 	public final STVElectionCalculation<CANDIDATE_TYPE> createElectionCalculation(Election<CANDIDATE_TYPE> election,
 	                                                                      ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots) {
 		return new STVElectionCalculation<>(ballots, quorumCalculation, electionCalculationListener, election,
-		                                                ambiguityResolver, new WeightedInclusiveGregoryMethod<>(
-			electionCalculationListener));
+		                                                ambiguityResolver, voteWeightRecalculationMethod, countingOptions);
 	}
 }
@@ -23,7 +23,48 @@ import info.gehrels.voting.Candidate;
 import info.gehrels.voting.Election;
 import org.apache.commons.math3.fraction.BigFraction;
 
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
 public interface STVElectionCalculationListener<CANDIDATE_TYPE extends Candidate> {
+	/**
+	 * The events a listener needs. The engines skip the events a listener does not need, and everything they would
+	 * only compute for them.
+	 */
+	enum DetailLevel {
+		/**
+		 * All events but calculationStarted and voteWeightRedistributionCompleted, whose VoteDistributions are only
+		 * tallied for the listener.
+		 */
+		RESULTS,
+		/**
+		 * Also calculationStarted and voteWeightRedistributionCompleted, but the latter with empty collections
+		 * instead of the VoteStates.
+		 */
+		ROUND_SUMMARIES,
+		/**
+		 * All events with all their parameters.
+		 */
+		FULL_TRACE;
+
+		static DetailLevel of(STVElectionCalculationListener<?> listener) {
+			return validateThat("The listener must have a detail level", listener.getDetailLevel(),
+			                    is(notNullValue()));
+		}
+
+		boolean includes(DetailLevel detailLevel) {
+			return compareTo(detailLevel) >= 0;
+		}
+	}
+
+	/**
+	 * Asked once, when a calculation is created.
+	 */
+	default DetailLevel getDetailLevel() {
+		return DetailLevel.FULL_TRACE;
+	}
+
 	void numberOfElectedPositions(long numberOfElectedCandidates, long numberOfSeatsToElect);
 
 	void electedCandidates(ImmutableSet<CANDIDATE_TYPE> electedCandidates);
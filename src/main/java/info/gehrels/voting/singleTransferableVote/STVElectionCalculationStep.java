@@ -24,10 +24,13 @@ import com.google.common.collect.ImmutableSortedSet;
 import info.gehrels.voting.AmbiguityResolver;
 import info.gehrels.voting.AmbiguityResolver.AmbiguityResolverResult;
 import info.gehrels.voting.Candidate;
+import info.gehrels.voting.singleTransferableVote.CountingMetrics.Transfer;
+import info.gehrels.voting.singleTransferableVote.STVElectionCalculationListener.DetailLevel;
 import org.apache.commons.math3.fraction.BigFraction;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map.Entry;
 
 import static com.google.common.collect.ImmutableSet.copyOf;
@@ -44,11 +47,29 @@ public class STVElectionCalculationStep<CANDIDATE extends Candidate> {
 
 	private final STVElectionCalculationListener<CANDIDATE> electionCalculationListener;
 	private final AmbiguityResolver<CANDIDATE> ambiguityResolver;
+	private final VoteTallying voteTallying;
+	private final DetailLevel detailLevel;
+	private final CountingMetrics countingMetrics;
+	private final boolean measuring;
 
 	public STVElectionCalculationStep(STVElectionCalculationListener<CANDIDATE> electionCalculationListener,
 	                                  AmbiguityResolver<CANDIDATE> ambiguityResolver) {
+		this(electionCalculationListener, ambiguityResolver, CountingOptions.defaults());
+	}
+
+	/**
+	 * Uses the VoteTallying and the CountingMetrics of the options, checkpoints are up to the caller.
+	 */
+	public STVElectionCalculationStep(STVElectionCalculationListener<CANDIDATE> electionCalculationListener,
+	                                  AmbiguityResolver<CANDIDATE> ambiguityResolver,
+	                                  CountingOptions countingOptions) {
+		validateThat(countingOptions, is(not(nullValue())));
+		this.countingMetrics = countingOptions.countingMetrics;
+		this.measuring = countingMetrics.isEnabled();
 		this.ambiguityResolver = validateThat(ambiguityResolver, is(not(nullValue())));
 		this.electionCalculationListener = validateThat(electionCalculationListener, is(not(nullValue())));
+		this.voteTallying = countingOptions.voteTallying;
+		this.detailLevel = DetailLevel.of(electionCalculationListener);
 	}
 
 	public final ElectionStepResult<CANDIDATE> declareWinnerOrStrikeCandidate(BigFraction quorum,
@@ -56,28 +77,71 @@ public class STVElectionCalculationStep<CANDIDATE extends Candidate> {
 																			  VoteWeightRecalculator<CANDIDATE> redistributor,
 																			  long numberOfElectedCandidates,
 																			  CandidateStates<CANDIDATE> candidateStates) {
-		ImmutableSet<CANDIDATE> winningCandidates = allCandidatesThatReachedTheQuorum(quorum, voteStates, candidateStates);
+		long startOfQuorumCheck = measuring ? System.nanoTime() : 0;
+		// The distribution is counted once and shared by everything that needs the votes at the start of this step.
+		VoteDistribution<CANDIDATE> voteDistribution = voteTallying.tally(candidateStates.getHopefulCandidates(),
+		                                                                  voteStates);
+		ImmutableSet<CANDIDATE> winningCandidates = allCandidatesThatReachedTheQuorum(quorum, voteDistribution);
+		long startOfTransfer = 0;
+		if (measuring) {
+			startOfTransfer = System.nanoTime();
+			countingMetrics.quorumChecked(startOfTransfer - startOfQuorumCheck);
+		}
+
+		ElectionStepResult<CANDIDATE> electionStepResult;
 		if (winningCandidates.isEmpty()) {
-			return calculateElectionStepResultByStrikingTheWeakestCandidate(quorum,
+			electionStepResult = calculateElectionStepResultByStrikingTheWeakestCandidate(quorum,
 					                                                        voteStates,
+			                                                                voteDistribution,
 			                                                                numberOfElectedCandidates,
 			                                                                candidateStates);
 		} else {
-			return calculateElectionStepResultByRedistributingTheWinnersExceedingVotes(quorum,
+			electionStepResult = calculateElectionStepResultByRedistributingTheWinnersExceedingVotes(quorum,
 			                                                                           voteStates,
+			                                                                           voteDistribution,
 			                                                                           redistributor,
 			                                                                           numberOfElectedCandidates,
 			                                                                           winningCandidates,
 			                                                                           candidateStates);
 		}
+
+		if (measuring) {
+			countingMetrics.votesTransferred(winningCandidates.isEmpty() ? Transfer.EXCLUSION : Transfer.SURPLUS,
+			                                 numberOfChangedVoteStates(voteStates, electionStepResult.newVoteStates),
+			                                 System.nanoTime() - startOfTransfer);
+			measureVoteWeights(electionStepResult.newVoteStates);
+		}
+		return electionStepResult;
 	}
 
-	private ImmutableSet<CANDIDATE> allCandidatesThatReachedTheQuorum(BigFraction quorum,
-																	  ImmutableCollection<VoteState<CANDIDATE>> voteStates,
-																	  CandidateStates<CANDIDATE> candidateStates) {
-		VoteDistribution<CANDIDATE> voteDistribution = new VoteDistribution<>(candidateStates.getHopefulCandidates(),
-				                                                              voteStates);
+	// Vote states that are neither reweighted nor moved on are kept as they are, in the same order
+	private static <CANDIDATE extends Candidate> long numberOfChangedVoteStates(
+		ImmutableCollection<VoteState<CANDIDATE>> originalVoteStates,
+		ImmutableCollection<VoteState<CANDIDATE>> newVoteStates) {
+		long numberOfChangedVoteStates = 0;
+		Iterator<VoteState<CANDIDATE>> newVoteStatesIterator = newVoteStates.iterator();
+		for (VoteState<CANDIDATE> originalVoteState : originalVoteStates) {
+			if (newVoteStatesIterator.next() != originalVoteState) {
+				numberOfChangedVoteStates++;
+			}
+		}
+		return numberOfChangedVoteStates;
+	}
+
+	private void measureVoteWeights(ImmutableCollection<VoteState<CANDIDATE>> voteStates) {
+		int maximumNumeratorBitLength = 0;
+		int maximumDenominatorBitLength = 0;
+		for (VoteState<CANDIDATE> voteState : voteStates) {
+			BigFraction voteWeight = voteState.getVoteWeight();
+			maximumNumeratorBitLength = Math.max(maximumNumeratorBitLength, voteWeight.getNumerator().bitLength());
+			maximumDenominatorBitLength = Math.max(maximumDenominatorBitLength,
+			                                       voteWeight.getDenominator().bitLength());
+		}
+		countingMetrics.voteWeightsMeasured(maximumNumeratorBitLength, maximumDenominatorBitLength);
+	}
 
+	private ImmutableSet<CANDIDATE> allCandidatesThatReachedTheQuorum(BigFraction quorum,
+																	  VoteDistribution<CANDIDATE> voteDistribution) {
 		// We use a sorted set here, to provide Unit tests a predictable execution order.
 		Builder<CANDIDATE> candidatesThatReachedTheQuorum = ImmutableSortedSet.orderedBy(comparing(o -> o.name));
 
@@ -97,14 +161,11 @@ public class STVElectionCalculationStep<CANDIDATE extends Candidate> {
     private ElectionStepResult<CANDIDATE> calculateElectionStepResultByRedistributingTheWinnersExceedingVotes(
 														BigFraction quorum,
 														ImmutableCollection<VoteState<CANDIDATE>> originalVoteStates,
+														VoteDistribution<CANDIDATE> originalVoteDistribution,
 														VoteWeightRecalculator<CANDIDATE> redistributor,
 														long numberOfElectedCandidates,
 														ImmutableSet<CANDIDATE> winners,
 														CandidateStates<CANDIDATE> originalCandidateStates) {
-
-		VoteDistribution<CANDIDATE> originalVoteDistribution = new VoteDistribution<>(originalCandidateStates.getHopefulCandidates(),
-				                                                                      originalVoteStates);
-
 		CandidateStates<CANDIDATE> newCandidateStates = originalCandidateStates;
 		ImmutableCollection<VoteState<CANDIDATE>> voteStatesAfterRedistribution = originalVoteStates;
 		long newNumberOfElectedCandidates = numberOfElectedCandidates;
@@ -113,10 +174,14 @@ public class STVElectionCalculationStep<CANDIDATE extends Candidate> {
                                                            originalVoteDistribution.votesByCandidate.get(winner),
 					                                       quorum);
 			newCandidateStates = newCandidateStates.withElected(winner);
+			long startOfRecalculation = measuring ? System.nanoTime() : 0;
 			voteStatesAfterRedistribution = redistributor.recalculateExceededVoteWeight(winner,
 					                                                                    quorum,
 			                                                                            voteStatesAfterRedistribution,
 			                                                                            originalCandidateStates);
+			if (measuring) {
+				countingMetrics.voteWeightsRecalculated(System.nanoTime() - startOfRecalculation);
+			}
 			newNumberOfElectedCandidates++;
 		}
 
@@ -124,14 +189,7 @@ public class STVElectionCalculationStep<CANDIDATE extends Candidate> {
 		ImmutableCollection<VoteState<CANDIDATE>> newVoteStates =
 				createVoteStatesPointingAtNextHopefulCandidate(voteStatesAfterRedistribution, newCandidateStates);
 
-		electionCalculationListener.voteWeightRedistributionCompleted(
-				originalVoteStates,
-				newVoteStates,
-		        new VoteDistribution<>(
-			    	newCandidateStates.getHopefulCandidates(),
-					newVoteStates
-				)
-		);
+		notifyThatVoteWeightRedistributionCompleted(originalVoteStates, newVoteStates, newCandidateStates);
 
 		return new ElectionStepResult<>(newVoteStates, newNumberOfElectedCandidates, newCandidateStates);
 	}
@@ -139,35 +197,46 @@ public class STVElectionCalculationStep<CANDIDATE extends Candidate> {
 	private ElectionStepResult<CANDIDATE> calculateElectionStepResultByStrikingTheWeakestCandidate(
 																BigFraction quorum,
 																ImmutableCollection<VoteState<CANDIDATE>> voteStates,
+																VoteDistribution<CANDIDATE> voteDistribution,
 																long numberOfElectedCandidates,
 																CandidateStates<CANDIDATE> candidateStates) {
 
 		electionCalculationListener.nobodyReachedTheQuorumYet(quorum);
-		State<CANDIDATE> state = strikeWeakestCandidate(voteStates, candidateStates);
+		State<CANDIDATE> state = strikeWeakestCandidate(voteStates, voteDistribution, candidateStates);
 		return new ElectionStepResult<>(state.voteStates, numberOfElectedCandidates, state.candidateStates);
 	}
 
 	private State<CANDIDATE> strikeWeakestCandidate(
 		ImmutableCollection<VoteState<CANDIDATE>> voteStates,
+		VoteDistribution<CANDIDATE> voteDistributionBeforeStriking,
 		CandidateStates<CANDIDATE> oldCandidateStates) {
 
-		VoteDistribution<CANDIDATE> voteDistributionBeforeStriking = new VoteDistribution<>(
-			oldCandidateStates.getHopefulCandidates(), voteStates);
-
 		CANDIDATE weakestCandidate = calculateWeakestCandidate(voteDistributionBeforeStriking);
 
 		CandidateStates<CANDIDATE> newCandidateStates = oldCandidateStates.withLoser(weakestCandidate);
 		ImmutableCollection<VoteState<CANDIDATE>> newVoteStates = createVoteStatesPointingAtNextHopefulCandidate(
 			voteStates, newCandidateStates);
 
-		VoteDistribution<CANDIDATE> voteDistributionAfterStriking = new VoteDistribution<>(
-			newCandidateStates.getHopefulCandidates(), newVoteStates);
-
 		electionCalculationListener.candidateDropped(voteDistributionBeforeStriking, weakestCandidate);
-		electionCalculationListener.voteWeightRedistributionCompleted(voteStates, newVoteStates, voteDistributionAfterStriking);
+		notifyThatVoteWeightRedistributionCompleted(voteStates, newVoteStates, newCandidateStates);
 		return new State<>(newCandidateStates, newVoteStates);
 	}
 
+	private void notifyThatVoteWeightRedistributionCompleted(
+		ImmutableCollection<VoteState<CANDIDATE>> originalVoteStates,
+		ImmutableCollection<VoteState<CANDIDATE>> newVoteStates,
+		CandidateStates<CANDIDATE> newCandidateStates) {
+		if (!detailLevel.includes(DetailLevel.ROUND_SUMMARIES)) {
+			return;
+		}
+
+		boolean fullTrace = detailLevel.includes(DetailLevel.FULL_TRACE);
+		electionCalculationListener.voteWeightRedistributionCompleted(
+			fullTrace ? originalVoteStates : ImmutableList.of(),
+			fullTrace ? newVoteStates : ImmutableList.of(),
+			voteTallying.tally(newCandidateStates.getHopefulCandidates(), newVoteStates));
+	}
+
 
 	private CANDIDATE calculateWeakestCandidate(VoteDistribution<CANDIDATE> voteDistribution) {
 		BigFraction numberOfVotesOfBestCandidate = new BigFraction(Integer.MAX_VALUE, 1);
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import info.gehrels.voting.AmbiguityResolver;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.BallotSource;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.QuorumCalculation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static info.gehrels.voting.DuplicateBallotIdDetector.hasNoPairOfElementsWithEqualIds;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Counts variants of one Election on the same ballots, e.g. to answer what would have happened if a candidate had not
+ * stood or if there had been one more seat. The ballots are read into a single CountingModel, which all Scenarios
+ * share. The Scenarios are then counted concurrently on the given Executor with CompactSTVElectionCalculation, each
+ * with its own STVElectionCalculationListener. The Executor bounds the number of Scenarios counted at the same time.
+ * The AmbiguityResolver is shared and must therefore be thread safe.
+ */
+public final class ScenarioSTVElectionCalculation<CANDIDATE_TYPE extends Candidate> {
+	private final QuorumCalculation quorumCalculation;
+	private final Function<Scenario<CANDIDATE_TYPE>, STVElectionCalculationListener<CANDIDATE_TYPE>> listenerFactory;
+	private final AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver;
+	private final BallotRepresentation ballotRepresentation;
+	private final VoteWeightArithmetic arithmetic;
+	private final Executor executor;
+
+	public ScenarioSTVElectionCalculation(
+		QuorumCalculation quorumCalculation,
+		Function<Scenario<CANDIDATE_TYPE>, STVElectionCalculationListener<CANDIDATE_TYPE>> listenerFactory,
+		AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
+		Executor executor) {
+		this(quorumCalculation, listenerFactory, ambiguityResolver, BallotRepresentation.COLUMNS,
+		     VoteWeightArithmetic.exact(), executor);
+	}
+
+	/**
+	 * @param quorumCalculation the QuorumCalculation of all Scenarios that do not have their own.
+	 * @param arithmetic        the VoteWeightArithmetic of all Scenarios that do not have their own.
+	 */
+	public ScenarioSTVElectionCalculation(
+		QuorumCalculation quorumCalculation,
+		Function<Scenario<CANDIDATE_TYPE>, STVElectionCalculationListener<CANDIDATE_TYPE>> listenerFactory,
+		AmbiguityResolver<CANDIDATE_TYPE> ambiguityResolver,
+		BallotRepresentation ballotRepresentation,
+		VoteWeightArithmetic arithmetic,
+		Executor executor) {
+		this.quorumCalculation = validateThat(quorumCalculation, is(not(nullValue())));
+		this.listenerFactory = validateThat(listenerFactory, is(not(nullValue())));
+		this.ambiguityResolver = validateThat(ambiguityResolver, is(not(nullValue())));
+		this.ballotRepresentation = validateThat(ballotRepresentation, is(not(nullValue())));
+		this.arithmetic = validateThat(arithmetic, is(not(nullValue())));
+		this.executor = validateThat(executor, is(not(nullValue())));
+	}
+
+	/**
+	 * @return the elected candidates of each Scenario, in the order of scenarios.
+	 */
+	public ImmutableMap<Scenario<CANDIDATE_TYPE>, ImmutableSet<CANDIDATE_TYPE>> calculate(
+		Election<CANDIDATE_TYPE> election, ImmutableList<Scenario<CANDIDATE_TYPE>> scenarios,
+		ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots) {
+		validateThat(ballots, allOf(
+			is(not(nullValue())),
+			hasNoPairOfElementsWithEqualIds()
+		));
+		return calculate(election, scenarios, BallotSource.of(ballots), ballots.size());
+	}
+
+	/**
+	 * Same as calculate(election, scenarios, ballots), but reads the ballots from a BallotSource in one pass. Ballots
+	 * with equal ids are rejected with an IllegalArgumentException.
+	 */
+	public ImmutableMap<Scenario<CANDIDATE_TYPE>, ImmutableSet<CANDIDATE_TYPE>> calculate(
+		Election<CANDIDATE_TYPE> election, ImmutableList<Scenario<CANDIDATE_TYPE>> scenarios,
+		BallotSource<CANDIDATE_TYPE> ballots) {
+		validateThat(ballots, is(not(nullValue())));
+		return calculate(election, scenarios, ballots, 0);
+	}
+
+	private ImmutableMap<Scenario<CANDIDATE_TYPE>, ImmutableSet<CANDIDATE_TYPE>> calculate(
+		Election<CANDIDATE_TYPE> election, ImmutableList<Scenario<CANDIDATE_TYPE>> scenarios,
+		BallotSource<CANDIDATE_TYPE> ballots, int expectedNumberOfBallots) {
+		validateThat(election, is(not(nullValue())));
+		validateThat(scenarios, is(not(nullValue())));
+
+		CountingModel<CANDIDATE_TYPE> countingModel =
+			ballotRepresentation.createModel(election, ballots, expectedNumberOfBallots);
+
+		Map<Scenario<CANDIDATE_TYPE>, CompletableFuture<ImmutableSet<CANDIDATE_TYPE>>> futures = new LinkedHashMap<>();
+		for (Scenario<CANDIDATE_TYPE> scenario : scenarios) {
+			CompactSTVElectionCalculation<CANDIDATE_TYPE> electionCalculation = new CompactSTVElectionCalculation<>(
+				countingModel,
+				(scenario.quorumCalculation == null) ? quorumCalculation : scenario.quorumCalculation,
+				listenerFactory.apply(scenario), election, ambiguityResolver,
+				(scenario.arithmetic == null) ? arithmetic : scenario.arithmetic);
+			ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates =
+				Sets.difference(election.getCandidates(), scenario.excludedCandidates).immutableCopy();
+			futures.put(scenario, CompletableFuture.supplyAsync(
+				() -> electionCalculation.calculate(qualifiedCandidates, scenario.numberOfSeats), executor));
+		}
+
+		ImmutableMap.Builder<Scenario<CANDIDATE_TYPE>, ImmutableSet<CANDIDATE_TYPE>> results =
+			ImmutableMap.builderWithExpectedSize(futures.size());
+		for (Map.Entry<Scenario<CANDIDATE_TYPE>, CompletableFuture<ImmutableSet<CANDIDATE_TYPE>>> future : futures
+			.entrySet()) {
+			results.put(future.getKey(), BatchSTVElectionCalculation.join(future.getValue()));
+		}
+		return results.build();
+	}
+
+	/**
+	 * One variant of an Election: The number of seats, the candidates that do not stand, and optionally its own
+	 * QuorumCalculation and VoteWeightArithmetic. Instances are immutable and compared by identity.
+	 */
+	public static final class Scenario<CANDIDATE_TYPE extends Candidate> {
+		private final String name;
+		private final long numberOfSeats;
+		private final ImmutableSet<CANDIDATE_TYPE> excludedCandidates;
+		// null if the ScenarioSTVElectionCalculation's one is used
+		private final QuorumCalculation quorumCalculation;
+		private final VoteWeightArithmetic arithmetic;
+
+		public Scenario(String name, long numberOfSeats) {
+			this(name, numberOfSeats, ImmutableSet.of(), null, null);
+		}
+
+		private Scenario(String name, long numberOfSeats, ImmutableSet<CANDIDATE_TYPE> excludedCandidates,
+		                 QuorumCalculation quorumCalculation, VoteWeightArithmetic arithmetic) {
+			this.name = validateThat(name, is(notNullValue()));
+			this.numberOfSeats = validateThat(numberOfSeats, is(greaterThanOrEqualTo(0L)));
+			this.excludedCandidates = validateThat(excludedCandidates, allOf(is(notNullValue()),
+			                                                                 everyItem(is(notNullValue()))));
+			this.quorumCalculation = quorumCalculation;
+			this.arithmetic = arithmetic;
+		}
+
+		public Scenario<CANDIDATE_TYPE> withExcludedCandidates(ImmutableSet<CANDIDATE_TYPE> newExcludedCandidates) {
+			return new Scenario<>(name, numberOfSeats, newExcludedCandidates, quorumCalculation, arithmetic);
+		}
+
+		public Scenario<CANDIDATE_TYPE> withQuorumCalculation(QuorumCalculation newQuorumCalculation) {
+			return new Scenario<>(name, numberOfSeats, excludedCandidates,
+			                      validateThat(newQuorumCalculation, is(notNullValue())), arithmetic);
+		}
+
+		public Scenario<CANDIDATE_TYPE> withArithmetic(VoteWeightArithmetic newArithmetic) {
+			return new Scenario<>(name, numberOfSeats, excludedCandidates, quorumCalculation,
+			                      validateThat(newArithmetic, is(notNullValue())));
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getNumberOfSeats() {
+			return numberOfSeats;
+		}
+
+		public ImmutableSet<CANDIDATE_TYPE> getExcludedCandidates() {
+			return excludedCandidates;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
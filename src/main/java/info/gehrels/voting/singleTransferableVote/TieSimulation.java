@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.AmbiguityResolver;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.singleTransferableVote.CountCheckpoints.Checkpoint;
+import info.gehrels.voting.singleTransferableVote.STVElectionCalculationStep.ElectionStepResult;
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Estimates how likely each candidate is elected if every tie between equally weak candidates is resolved by drawing
+ * lots, e.g. before an election result is announced. Simulates a number of counts of an STVElectionCalculation, each
+ * of which draws each lot uniformly at random.
+ * <p>
+ * The counts are not repeated one by one. All of them share the rounds up to the first tie. There, the counts are
+ * distributed over the tied candidates by their draws, and each candidate that has been drawn at least once is
+ * counted on in a branch of its own. The branches are counted in parallel on a ForkJoinPool, with the
+ * VoteWeightRecalculationMethod of the calculation and without notifying any listener. The method must therefore
+ * support recalculatorFor(STVElectionCalculationListener), as the Weighted Inclusive Gregory Methods do. A simulation
+ * with the same seed always yields the same result.
+ */
+public final class TieSimulation<CANDIDATE_TYPE extends Candidate> {
+	private static final String AUDIT_LOG = "Drawn in a simulation";
+
+	private final STVElectionCalculation<CANDIDATE_TYPE> electionCalculation;
+	private final ForkJoinPool forkJoinPool;
+	private final VoteWeightRecalculator<CANDIDATE_TYPE> redistributor;
+
+	public TieSimulation(STVElectionCalculation<CANDIDATE_TYPE> electionCalculation) {
+		this(electionCalculation, ForkJoinPool.commonPool());
+	}
+
+	public TieSimulation(STVElectionCalculation<CANDIDATE_TYPE> electionCalculation, ForkJoinPool forkJoinPool) {
+		this.electionCalculation = validateThat(electionCalculation, is(not(nullValue())));
+		this.forkJoinPool = validateThat(forkJoinPool, is(not(nullValue())));
+		this.redistributor = electionCalculation.recalculatorFor(new NoOpSTVElectionCalculationListener<>());
+	}
+
+	public Result<CANDIDATE_TYPE> simulate(ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates, long numberOfSeats,
+	                                       long numberOfCounts, long seed) {
+		validateThat(qualifiedCandidates, is(not(nullValue())));
+		validateThat(numberOfSeats, is(greaterThanOrEqualTo(0L)));
+		validateThat(numberOfCounts, is(greaterThan(0L)));
+
+		Branch<CANDIDATE_TYPE> branch = new Branch<>(electionCalculation.calculateQuorum(numberOfSeats),
+		                                             numberOfSeats, redistributor,
+		                                             electionCalculation.initialState(qualifiedCandidates),
+		                                             null, numberOfCounts, new SplittableRandom(seed));
+		Outcomes<CANDIDATE_TYPE> outcomes = forkJoinPool.invoke(branch);
+		return new Result<>(numberOfCounts, ImmutableMap.copyOf(outcomes.numberOfCountsByElectedCandidate),
+		                    outcomes.numberOfBranches);
+	}
+
+	public static final class Result<CANDIDATE_TYPE extends Candidate> {
+		private final long numberOfCounts;
+		private final ImmutableMap<CANDIDATE_TYPE, Long> numberOfCountsByElectedCandidate;
+		private final long numberOfBranches;
+
+		Result(long numberOfCounts, ImmutableMap<CANDIDATE_TYPE, Long> numberOfCountsByElectedCandidate,
+		       long numberOfBranches) {
+			this.numberOfCounts = numberOfCounts;
+			this.numberOfCountsByElectedCandidate = numberOfCountsByElectedCandidate;
+			this.numberOfBranches = numberOfBranches;
+		}
+
+		public long getNumberOfCounts() {
+			return numberOfCounts;
+		}
+
+		public long getNumberOfCountsElectedIn(CANDIDATE_TYPE candidate) {
+			return numberOfCountsByElectedCandidate.getOrDefault(candidate, 0L);
+		}
+
+		public double getProbabilityOfBeingElected(CANDIDATE_TYPE candidate) {
+			return (double) getNumberOfCountsElectedIn(candidate) / numberOfCounts;
+		}
+
+		/**
+		 * @return the number of distinct sequences of drawn lots that have actually been counted.
+		 */
+		public long getNumberOfBranches() {
+			return numberOfBranches;
+		}
+
+		@Override
+		public String toString() {
+			return numberOfCountsByElectedCandidate + " out of " + numberOfCounts + " counts";
+		}
+	}
+
+	private static final class Outcomes<CANDIDATE_TYPE extends Candidate> {
+		private final Map<CANDIDATE_TYPE, Long> numberOfCountsByElectedCandidate = new HashMap<>();
+		private long numberOfBranches;
+
+		void add(Outcomes<CANDIDATE_TYPE> other) {
+			other.numberOfCountsByElectedCandidate.forEach(
+				(candidate, numberOfCounts) -> numberOfCountsByElectedCandidate.merge(candidate, numberOfCounts,
+				                                                                      Long::sum));
+			numberOfBranches += other.numberOfBranches;
+		}
+	}
+
+	/**
+	 * Counts numberOfCounts counts that are in the same state and, if drawnCandidate is not null, have drawn it in the
+	 * tie of their next round.
+	 */
+	private static final class Branch<CANDIDATE_TYPE extends Candidate> extends RecursiveTask<Outcomes<CANDIDATE_TYPE>> {
+		private static final long serialVersionUID = 1L;
+
+		private final BigFraction quorum;
+		private final long numberOfSeats;
+		private final VoteWeightRecalculator<CANDIDATE_TYPE> redistributor;
+		private final Checkpoint<CANDIDATE_TYPE> state;
+		private final CANDIDATE_TYPE drawnCandidate;
+		private final long numberOfCounts;
+		private final SplittableRandom random;
+
+		Branch(BigFraction quorum, long numberOfSeats, VoteWeightRecalculator<CANDIDATE_TYPE> redistributor,
+		       Checkpoint<CANDIDATE_TYPE> state, CANDIDATE_TYPE drawnCandidate, long numberOfCounts,
+		       SplittableRandom random) {
+			this.quorum = quorum;
+			this.numberOfSeats = numberOfSeats;
+			this.redistributor = redistributor;
+			this.state = state;
+			this.drawnCandidate = drawnCandidate;
+			this.numberOfCounts = numberOfCounts;
+			this.random = random;
+		}
+
+		@Override
+		protected Outcomes<CANDIDATE_TYPE> compute() {
+			NoOpSTVElectionCalculationListener<CANDIDATE_TYPE> listener = new NoOpSTVElectionCalculationListener<>();
+			CandidateStates<CANDIDATE_TYPE> candidateStates = state.candidateStates;
+			ImmutableCollection<VoteState<CANDIDATE_TYPE>> voteStates = state.voteStates;
+			long numberOfElectedCandidates = state.numberOfElectedCandidates;
+			long round = state.round;
+			CANDIDATE_TYPE nextDrawnCandidate = drawnCandidate;
+
+			while ((numberOfElectedCandidates < numberOfSeats) && !candidateStates.getHopefulCandidates().isEmpty()) {
+				TieRecorder<CANDIDATE_TYPE> tieRecorder = new TieRecorder<>(nextDrawnCandidate);
+				ElectionStepResult<CANDIDATE_TYPE> electionStepResult =
+					new STVElectionCalculationStep<>(listener, tieRecorder)
+						.declareWinnerOrStrikeCandidate(quorum, voteStates, redistributor, numberOfElectedCandidates,
+						                                candidateStates);
+				if (tieRecorder.undrawnTie != null) {
+					return drawLots(new Checkpoint<>(round, numberOfElectedCandidates, candidateStates, voteStates),
+					                tieRecorder.undrawnTie);
+				}
+
+				candidateStates = electionStepResult.newCandidateStates;
+				voteStates = electionStepResult.newVoteStates;
+				numberOfElectedCandidates = electionStepResult.newNumberOfElectedCandidates;
+				round++;
+				nextDrawnCandidate = null;
+			}
+
+			Outcomes<CANDIDATE_TYPE> outcomes = new Outcomes<>();
+			for (CandidateState<CANDIDATE_TYPE> candidateState : candidateStates) {
+				if (candidateState.isElected()) {
+					outcomes.numberOfCountsByElectedCandidate.put(candidateState.getCandidate(), numberOfCounts);
+				}
+			}
+			outcomes.numberOfBranches = 1;
+			return outcomes;
+		}
+
+		private Outcomes<CANDIDATE_TYPE> drawLots(Checkpoint<CANDIDATE_TYPE> stateBeforeTie,
+		                                          ImmutableList<CANDIDATE_TYPE> tiedCandidates) {
+			long[] numberOfCountsByTiedCandidate = new long[tiedCandidates.size()];
+			for (long count = 0; count < numberOfCounts; count++) {
+				numberOfCountsByTiedCandidate[random.nextInt(tiedCandidates.size())]++;
+			}
+
+			List<Branch<CANDIDATE_TYPE>> branches = new ArrayList<>();
+			for (int i = 0; i < tiedCandidates.size(); i++) {
+				if (numberOfCountsByTiedCandidate[i] > 0) {
+					// Split in a fixed order, so that the seed alone determines the result
+					branches.add(new Branch<>(quorum, numberOfSeats, redistributor, stateBeforeTie,
+					                          tiedCandidates.get(i), numberOfCountsByTiedCandidate[i],
+					                          random.split()));
+				}
+			}
+
+			Outcomes<CANDIDATE_TYPE> outcomes = new Outcomes<>();
+			for (Branch<CANDIDATE_TYPE> branch : invokeAll(branches)) {
+				outcomes.add(branch.join());
+			}
+			return outcomes;
+		}
+	}
+
+	/**
+	 * Resolves a tie in favour of the drawn candidate. Any other tie is recorded, to be drawn afterwards.
+	 */
+	private static final class TieRecorder<CANDIDATE_TYPE extends Candidate> implements
+		AmbiguityResolver<CANDIDATE_TYPE> {
+		private final CANDIDATE_TYPE drawnCandidate;
+		private ImmutableList<CANDIDATE_TYPE> undrawnTie;
+
+		TieRecorder(CANDIDATE_TYPE drawnCandidate) {
+			this.drawnCandidate = drawnCandidate;
+		}
+
+		@Override
+		public AmbiguityResolverResult<CANDIDATE_TYPE> chooseOneOfMany(ImmutableSet<CANDIDATE_TYPE> bestCandidates) {
+			if ((drawnCandidate != null) && bestCandidates.contains(drawnCandidate)) {
+				return new AmbiguityResolverResult<>(drawnCandidate, AUDIT_LOG);
+			}
+
+			// The result of this step is discarded, any candidate will do
+			undrawnTie = bestCandidates.asList();
+			return new AmbiguityResolverResult<>(bestCandidates.iterator().next(), AUDIT_LOG);
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.singleTransferableVote.NumberColumn.TransferFactor;
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.util.Arrays;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static info.gehrels.voting.singleTransferableVote.PreferenceTree.NO_NODE;
+import static info.gehrels.voting.singleTransferableVote.PreferenceTree.ROOT;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * The mutable state of one calculation over a PreferenceTree. A node is active, if all ballots below it currently
+ * count for the candidate of that node, each with the vote weight activeWeights[node]. The active nodes of a candidate
+ * are chained into a pile. When the candidate is elected or struck, each of its active nodes is replaced by its
+ * children, skipping subtrees of candidates that are no longer hopeful. Ballots ending at a replaced node are
+ * exhausted and keep the vote weight exhaustedWeights[node].
+ */
+final class TreeCountingState<CANDIDATE_TYPE extends Candidate> implements CountingState<CANDIDATE_TYPE> {
+	private static final int END_OF_PILE = -1;
+
+	private final PreferenceTree<CANDIDATE_TYPE> tree;
+	private final boolean[] hopeful;
+	private final boolean[] elected;
+
+	private final boolean[] active;
+	private final NumberColumn activeWeights;
+	private final NumberColumn exhaustedWeights;
+	private final int[] modificationsOfNode;
+	private final int[] pileHead;
+	private final int[] nextInPile;
+	// Indexed by candidate index, followed by the no votes and the invalid votes
+	private final NumberColumn votes;
+	private final int noVotes;
+	private final int invalidVotes;
+
+	private final VoteState<CANDIDATE_TYPE>[] voteStates;
+	private final int[] nodeOfVoteState;
+	private final int[] modificationsOfVoteState;
+
+	TreeCountingState(PreferenceTree<CANDIDATE_TYPE> tree, ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates,
+	                  VoteWeightArithmetic arithmetic) {
+		this.tree = tree;
+		int numberOfCandidates = tree.candidateIndex.size();
+		this.hopeful = new boolean[numberOfCandidates];
+		this.elected = new boolean[numberOfCandidates];
+		for (CANDIDATE_TYPE qualifiedCandidate : qualifiedCandidates) {
+			int candidateIndex = tree.indexOf(qualifiedCandidate);
+			if (candidateIndex != -1) {
+				hopeful[candidateIndex] = true;
+			}
+		}
+
+		this.active = new boolean[tree.numberOfNodes()];
+		this.activeWeights = arithmetic.newColumn(tree.numberOfNodes());
+		this.exhaustedWeights = arithmetic.newColumn(tree.numberOfNodes());
+		this.modificationsOfNode = new int[tree.numberOfNodes()];
+		this.pileHead = new int[numberOfCandidates];
+		Arrays.fill(pileHead, END_OF_PILE);
+		this.nextInPile = new int[tree.numberOfNodes()];
+		this.noVotes = numberOfCandidates;
+		this.invalidVotes = numberOfCandidates + 1;
+		this.votes = arithmetic.newColumn(numberOfCandidates + 2);
+		for (int candidateIndex = 0; candidateIndex < numberOfCandidates; candidateIndex++) {
+			votes.setToInteger(candidateIndex, 0);
+		}
+		votes.setToInteger(noVotes, tree.numberOfNoVotes);
+		votes.setToInteger(invalidVotes, tree.numberOfInvalidVotes);
+		@SuppressWarnings("unchecked")
+		VoteState<CANDIDATE_TYPE>[] voteStates = (VoteState<CANDIDATE_TYPE>[]) new VoteState<?>[tree.numberOfBallots()];
+		this.voteStates = voteStates;
+		this.nodeOfVoteState = new int[tree.numberOfBallots()];
+		this.modificationsOfVoteState = new int[tree.numberOfBallots()];
+
+		activeWeights.setToInteger(ROOT, 1);
+		distributeBallotsOf(ROOT);
+	}
+
+	@Override
+	public int numberOfCandidates() {
+		return hopeful.length;
+	}
+
+	@Override
+	public CANDIDATE_TYPE candidate(int candidateIndex) {
+		return tree.candidateIndex.get(candidateIndex);
+	}
+
+	@Override
+	public boolean isHopeful(int candidateIndex) {
+		return hopeful[candidateIndex];
+	}
+
+	@Override
+	public boolean anyCandidateIsHopeful() {
+		for (boolean isHopeful : hopeful) {
+			if (isHopeful) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void markAsElected(int candidateIndex) {
+		validateThat("Candidate " + candidate(candidateIndex) + " must be hopeful", hopeful[candidateIndex], is(true));
+		hopeful[candidateIndex] = false;
+		elected[candidateIndex] = true;
+	}
+
+	@Override
+	public void markAsLooser(int candidateIndex) {
+		validateThat("Candidate " + candidate(candidateIndex) + " must be hopeful", hopeful[candidateIndex], is(true));
+		hopeful[candidateIndex] = false;
+	}
+
+	@Override
+	public BigFraction votesFor(int candidateIndex) {
+		return votes.get(candidateIndex);
+	}
+
+	@Override
+	public int compareVotes(int candidateIndex, int otherCandidateIndex) {
+		return votes.compare(candidateIndex, otherCandidateIndex);
+	}
+
+	@Override
+	public int compareVotesTo(int candidateIndex, BigFraction numberOfVotes) {
+		return votes.compareTo(candidateIndex, numberOfVotes);
+	}
+
+	@Override
+	public TransferFactor excessiveFractionOfVoteWeight(int candidateIndex, BigFraction quorum) {
+		return votes.excessiveFraction(candidateIndex, quorum);
+	}
+
+	@Override
+	public void multiplyVoteWeightsOfVotesFor(int candidateIndex, TransferFactor factor) {
+		// The sum is built anew, because truncating arithmetics do not distribute the factor over the sum.
+		votes.setToInteger(candidateIndex, 0);
+		for (int node = pileHead[candidateIndex]; node != END_OF_PILE; node = nextInPile[node]) {
+			activeWeights.multiply(node, factor);
+			votes.addMultiple(candidateIndex, activeWeights, node, tree.subtreeCount[node]);
+			modificationsOfNode[node]++;
+		}
+	}
+
+	@Override
+	public void moveVotesToNextHopefulCandidate() {
+		for (int candidateIndex = 0; candidateIndex < hopeful.length; candidateIndex++) {
+			if (hopeful[candidateIndex] || (pileHead[candidateIndex] == END_OF_PILE)) {
+				continue;
+			}
+
+			int node = pileHead[candidateIndex];
+			pileHead[candidateIndex] = END_OF_PILE;
+			votes.setToInteger(candidateIndex, 0);
+			while (node != END_OF_PILE) {
+				int next = nextInPile[node];
+				active[node] = false;
+				modificationsOfNode[node]++;
+				distributeBallotsOf(node);
+				node = next;
+			}
+		}
+	}
+
+	@Override
+	public ImmutableSet<CANDIDATE_TYPE> electedCandidates() {
+		ImmutableSet.Builder<CANDIDATE_TYPE> builder = ImmutableSet.builder();
+		for (int candidateIndex = 0; candidateIndex < elected.length; candidateIndex++) {
+			if (elected[candidateIndex]) {
+				builder.add(candidate(candidateIndex));
+			}
+		}
+		return builder.build();
+	}
+
+	@Override
+	public VoteDistribution<CANDIDATE_TYPE> toVoteDistribution() {
+		ImmutableMap.Builder<CANDIDATE_TYPE, BigFraction> votesByCandidateBuilder = ImmutableMap.builder();
+		for (int candidateIndex = 0; candidateIndex < hopeful.length; candidateIndex++) {
+			if (hopeful[candidateIndex]) {
+				votesByCandidateBuilder.put(candidate(candidateIndex), votes.get(candidateIndex));
+			}
+		}
+
+		return new VoteDistribution<>(votesByCandidateBuilder.build(), votes.get(noVotes), votes.get(invalidVotes));
+	}
+
+	/**
+	 * The position of a ballot is found by walking up from the node its ranking ends at to the active node. Only the
+	 * VoteStates of ballots whose node has been modified since the last call are created anew.
+	 */
+	@Override
+	public ImmutableList<VoteState<CANDIDATE_TYPE>> toVoteStates() {
+		BigFraction[] activeWeightOfNode = new BigFraction[tree.numberOfNodes()];
+		BigFraction[] exhaustedWeightOfNode = new BigFraction[tree.numberOfNodes()];
+		for (int ballotIndex = 0; ballotIndex < voteStates.length; ballotIndex++) {
+			int terminalNode = tree.nodeOfBallot[ballotIndex];
+			int node = terminalNode;
+			while ((node != NO_NODE) && !active[node]) {
+				node = tree.parentOfNode[node];
+			}
+			int relevantNode = (node == NO_NODE) ? terminalNode : node;
+
+			if ((voteStates[ballotIndex] != null) && (nodeOfVoteState[ballotIndex] == relevantNode)
+			    && ((relevantNode == NO_NODE)
+			        || (modificationsOfVoteState[ballotIndex] == modificationsOfNode[relevantNode]))) {
+				continue;
+			}
+
+			BigFraction voteWeight = BigFraction.ONE;
+			int position = 0;
+			if (terminalNode == NO_NODE) {
+				// Invalid and no votes keep their initial state
+			} else if (node == NO_NODE) {
+				if (exhaustedWeightOfNode[terminalNode] == null) {
+					exhaustedWeightOfNode[terminalNode] = exhaustedWeights.get(terminalNode);
+				}
+				voteWeight = exhaustedWeightOfNode[terminalNode];
+				position = tree.depthOfNode[terminalNode];
+			} else {
+				if (activeWeightOfNode[node] == null) {
+					activeWeightOfNode[node] = activeWeights.get(node);
+				}
+				voteWeight = activeWeightOfNode[node];
+				position = tree.depthOfNode[node] - 1;
+			}
+
+			voteStates[ballotIndex] = new VoteState<>(tree.ballotIds[ballotIndex], tree.voteOfBallot(ballotIndex),
+			                                          voteWeight, position);
+			nodeOfVoteState[ballotIndex] = relevantNode;
+			if (relevantNode != NO_NODE) {
+				modificationsOfVoteState[ballotIndex] = modificationsOfNode[relevantNode];
+			}
+		}
+		return ImmutableList.copyOf(voteStates);
+	}
+
+	/**
+	 * Moves the ballots below a node that is not active (anymore) to the next hopeful candidate, each with the vote
+	 * weight activeWeights[node].
+	 */
+	private void distributeBallotsOf(int node) {
+		if (tree.terminalCount[node] > 0) {
+			exhaustedWeights.copy(node, activeWeights, node);
+			votes.addMultiple(noVotes, exhaustedWeights, node, tree.terminalCount[node]);
+			modificationsOfNode[node]++;
+		}
+
+		for (int child = tree.firstChild[node]; child != NO_NODE; child = tree.nextSibling[child]) {
+			activeWeights.copy(child, activeWeights, node);
+			int candidateIndex = tree.candidateOfNode[child];
+			if (hopeful[candidateIndex]) {
+				active[child] = true;
+				modificationsOfNode[child]++;
+				nextInPile[child] = pileHead[candidateIndex];
+				pileHead[candidateIndex] = child;
+				votes.addMultiple(candidateIndex, activeWeights, child, tree.subtreeCount[child]);
+			} else {
+				distributeBallotsOf(child);
+			}
+		}
+	}
+}
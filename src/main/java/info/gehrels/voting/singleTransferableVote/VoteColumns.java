@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.BallotSource;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.CandidateIndex;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.Vote;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The votes of all ballots for one Election, stored column by column. Ballots with equal votes share a row, so row r
+ * represents multiplicity[r] ballots. Its ranking consists of the candidate indices rankedCandidates[rankingStart[r]]
+ * up to (exclusively) rankedCandidates[rankingStart[r + 1]], where an index refers to the candidateIndex. Ballot
+ * b, counted in the order of the original collection, has the id ballotIds[b] and belongs to row rowOfBallot[b].
+ * Instances are immutable.
+ */
+final class VoteColumns<CANDIDATE_TYPE extends Candidate> implements CountingModel<CANDIDATE_TYPE> {
+	final CandidateIndex<CANDIDATE_TYPE> candidateIndex;
+	final boolean[] valid;
+	final boolean[] no;
+	final long[] multiplicity;
+	final int[] rankingStart;
+	final int[] rankedCandidates;
+	final long[] ballotIds;
+	final int[] rowOfBallot;
+	final long numberOfValidVotes;
+
+	private final ImmutableList<Vote<CANDIDATE_TYPE>> voteOfRow;
+
+	private VoteColumns(CandidateIndex<CANDIDATE_TYPE> candidateIndex,
+	                    boolean[] valid, boolean[] no, long[] multiplicity, int[] rankingStart, int[] rankedCandidates,
+	                    long[] ballotIds, int[] rowOfBallot, ImmutableList<Vote<CANDIDATE_TYPE>> voteOfRow) {
+		this.candidateIndex = candidateIndex;
+		this.valid = valid;
+		this.no = no;
+		this.multiplicity = multiplicity;
+		this.rankingStart = rankingStart;
+		this.rankedCandidates = rankedCandidates;
+		this.ballotIds = ballotIds;
+		this.rowOfBallot = rowOfBallot;
+		this.voteOfRow = voteOfRow;
+
+		long numberOfValidVotesDraft = 0;
+		for (int row = 0; row < valid.length; row++) {
+			if (valid[row]) {
+				numberOfValidVotesDraft += multiplicity[row];
+			}
+		}
+		this.numberOfValidVotes = numberOfValidVotesDraft;
+	}
+
+	static <CANDIDATE_TYPE extends Candidate> VoteColumns<CANDIDATE_TYPE> fromBallots(
+		Election<CANDIDATE_TYPE> election, ImmutableCollection<Ballot<CANDIDATE_TYPE>> ballots) {
+		Builder<CANDIDATE_TYPE> builder = new Builder<>(election, ballots.size());
+		BallotSource.of(ballots).forEachVote(election, builder);
+		return builder.build();
+	}
+
+	int numberOfRows() {
+		return multiplicity.length;
+	}
+
+	int numberOfBallots() {
+		return ballotIds.length;
+	}
+
+	@Override
+	public long numberOfValidVotes() {
+		return numberOfValidVotes;
+	}
+
+	@Override
+	public int indexOf(CANDIDATE_TYPE candidate) {
+		return candidateIndex.indexOf(candidate);
+	}
+
+	Vote<CANDIDATE_TYPE> voteOfBallot(int ballotIndex) {
+		return voteOfRow.get(rowOfBallot[ballotIndex]);
+	}
+
+	@Override
+	public ColumnCountingState<CANDIDATE_TYPE> startCounting(ImmutableSet<CANDIDATE_TYPE> qualifiedCandidates,
+	                                                     VoteWeightArithmetic arithmetic) {
+		return new ColumnCountingState<>(this, qualifiedCandidates, arithmetic);
+	}
+
+	static final class Builder<CANDIDATE_TYPE extends Candidate> implements CountingModel.Builder<CANDIDATE_TYPE> {
+		private static final int INITIAL_ROW_CAPACITY = 1024;
+
+		private final Election<CANDIDATE_TYPE> election;
+		private final Map<Ranking, Integer> rowByRanking = new HashMap<>();
+		// Reused to look up each ballot's ranking, only copied for new rows
+		private final Ranking probe = new Ranking();
+		private final ImmutableList.Builder<Vote<CANDIDATE_TYPE>> voteOfRow = ImmutableList.builder();
+
+		private int numberOfBallots = 0;
+		private long[] ballotIds;
+		private int[] rowOfBallot;
+
+		private int numberOfRows = 0;
+		private boolean[] valid;
+		private boolean[] no;
+		private long[] multiplicity;
+		private int[] rankingStart;
+		private int[] rankedCandidates;
+
+		Builder(Election<CANDIDATE_TYPE> election, int expectedNumberOfBallots) {
+			this.election = election;
+			int ballotCapacity = Math.max(expectedNumberOfBallots, 1);
+			this.ballotIds = new long[ballotCapacity];
+			this.rowOfBallot = new int[ballotCapacity];
+			// Most ballots share their row with others, so the rows start small
+			int rowCapacity = Math.min(ballotCapacity, INITIAL_ROW_CAPACITY);
+			this.valid = new boolean[rowCapacity];
+			this.no = new boolean[rowCapacity];
+			this.multiplicity = new long[rowCapacity];
+			this.rankingStart = new int[rowCapacity + 1];
+			this.rankedCandidates = new int[rowCapacity];
+		}
+
+		@Override
+		public void accept(long ballotId, boolean isValid, boolean isNo, int[] rankedCandidateIndices,
+		                   int numberOfRankedCandidates) {
+			// Invalid and no votes have no ranking
+			int length = (isValid && !isNo) ? numberOfRankedCandidates : 0;
+			probe.set(isValid, isNo, rankedCandidateIndices, length);
+			Integer existingRow = rowByRanking.get(probe);
+			int row;
+			if (existingRow != null) {
+				row = existingRow;
+			} else {
+				row = addRow(isValid, isNo, rankedCandidateIndices, length);
+			}
+
+			if (numberOfBallots == ballotIds.length) {
+				ballotIds = Arrays.copyOf(ballotIds, 2 * numberOfBallots);
+				rowOfBallot = Arrays.copyOf(rowOfBallot, 2 * numberOfBallots);
+			}
+			multiplicity[row]++;
+			ballotIds[numberOfBallots] = ballotId;
+			rowOfBallot[numberOfBallots] = row;
+			numberOfBallots++;
+		}
+
+		@Override
+		public VoteColumns<CANDIDATE_TYPE> build() {
+			CountingModel.validateThatBallotIdsAreDistinct(ballotIds, numberOfBallots);
+			return new VoteColumns<>(election.getCandidateIndex(),
+			                         Arrays.copyOf(valid, numberOfRows),
+			                         Arrays.copyOf(no, numberOfRows),
+			                         Arrays.copyOf(multiplicity, numberOfRows),
+			                         Arrays.copyOf(rankingStart, numberOfRows + 1),
+			                         Arrays.copyOf(rankedCandidates, rankingStart[numberOfRows]),
+			                         Arrays.copyOf(ballotIds, numberOfBallots),
+			                         Arrays.copyOf(rowOfBallot, numberOfBallots),
+			                         voteOfRow.build());
+		}
+
+		private int addRow(boolean isValid, boolean isNo, int[] rankedCandidateIndices, int numberOfRankedCandidates) {
+			// Also validates the ranking, before anything is changed
+			voteOfRow.add(Vote.createVote(election, isValid, isNo, rankedCandidateIndices, numberOfRankedCandidates));
+
+			int row = numberOfRows++;
+			if (row == valid.length) {
+				int newLength = 2 * valid.length;
+				valid = Arrays.copyOf(valid, newLength);
+				no = Arrays.copyOf(no, newLength);
+				multiplicity = Arrays.copyOf(multiplicity, newLength);
+				rankingStart = Arrays.copyOf(rankingStart, newLength + 1);
+			}
+
+			int end = rankingStart[row] + numberOfRankedCandidates;
+			if (end > rankedCandidates.length) {
+				rankedCandidates = Arrays.copyOf(rankedCandidates, Math.max(end, 2 * rankedCandidates.length));
+			}
+			System.arraycopy(rankedCandidateIndices, 0, rankedCandidates, rankingStart[row], numberOfRankedCandidates);
+			valid[row] = isValid;
+			no[row] = isNo;
+			rankingStart[row + 1] = end;
+
+			Ranking ranking = new Ranking();
+			ranking.set(isValid, isNo, Arrays.copyOf(rankedCandidateIndices, numberOfRankedCandidates),
+			            numberOfRankedCandidates);
+			rowByRanking.put(ranking, row);
+			return row;
+		}
+	}
+
+	private static final class Ranking {
+		private boolean valid;
+		private boolean no;
+		private int[] candidateIndices;
+		private int length;
+
+		void set(boolean valid, boolean no, int[] candidateIndices, int length) {
+			this.valid = valid;
+			this.no = no;
+			this.candidateIndices = candidateIndices;
+			this.length = length;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Ranking other)) {
+				return false;
+			}
+
+			return (valid == other.valid) && (no == other.no)
+			       && Arrays.equals(candidateIndices, 0, length, other.candidateIndices, 0, other.length);
+		}
+
+		@Override
+		public int hashCode() {
+			int hashCode = (valid ? 2 : 0) + (no ? 1 : 0);
+			for (int position = 0; position < length; position++) {
+				hashCode = (31 * hashCode) + candidateIndices[position];
+			}
+			return hashCode;
+		}
+	}
+}
@@ -4,47 +4,129 @@ import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import info.gehrels.voting.Candidate;
+import info.gehrels.voting.CandidateIndex;
 import org.apache.commons.math3.fraction.BigFraction;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public final class VoteDistribution<CANDIDATE extends Candidate> {
 	public final ImmutableMap<CANDIDATE, BigFraction> votesByCandidate;
 	public final BigFraction noVotes;
 	public final BigFraction invalidVotes;
 
 	public VoteDistribution(ImmutableSet<CANDIDATE> candidates, ImmutableCollection<VoteState<CANDIDATE>> voteStates) {
-		Map<CANDIDATE, BigFraction> votesByCandidateDraft = createZeroVotesMap(candidates);
-		BigFraction noVotesDraft = BigFraction.ZERO;
-		BigFraction invalidVotesDraft = BigFraction.ZERO;
-
-		for (VoteState<CANDIDATE> voteState : voteStates) {
-			if (voteState.isInvalid()) {
-				invalidVotesDraft = invalidVotesDraft.add(voteState.getVoteWeight());
-			} else if (voteState.isNoVote()) {
-				noVotesDraft = noVotesDraft.add(voteState.getVoteWeight());
-			} else {
-				CANDIDATE candidate = voteState.getPreferredCandidate().get();
-                votesByCandidateDraft.compute(candidate, (k, votes) -> votes.add(voteState.getVoteWeight()));
-			}
-		}
+		this(new PartialSums<>(candidates, voteStates));
+	}
 
-		this.votesByCandidate = ImmutableMap.copyOf(votesByCandidateDraft);
-		this.noVotes = noVotesDraft;
-		this.invalidVotes = invalidVotesDraft;
+	VoteDistribution(PartialSums<CANDIDATE> sums) {
+		this.votesByCandidate = sums.votesByCandidate();
+		this.noVotes = sums.noVotes.sum();
+		this.invalidVotes = sums.invalidVotes.sum();
 	}
 
-	private Map<CANDIDATE, BigFraction> createZeroVotesMap(ImmutableSet<CANDIDATE> candidates) {
-		Map<CANDIDATE, BigFraction> zeroVotesMap = new HashMap<>();
-		for (CANDIDATE candidate : candidates) {
-			zeroVotesMap.put(candidate, BigFraction.ZERO);
-		}
-		return zeroVotesMap;
+	VoteDistribution(ImmutableMap<CANDIDATE, BigFraction> votesByCandidate, BigFraction noVotes,
+	                 BigFraction invalidVotes) {
+		this.votesByCandidate = votesByCandidate;
+		this.noVotes = noVotes;
+		this.invalidVotes = invalidVotes;
 	}
 
 	@Override
 	public String toString() {
 		return votesByCandidate + ", No: " + noVotes + ", Invalid: " + invalidVotes;
 	}
+
+	/**
+	 * The sums of the vote weights of some of the VoteStates, indexed like the CandidateIndex of their Election.
+	 * Partial sums of disjoint parts can be merged in any order, the result is always the same.
+	 */
+	static final class PartialSums<CANDIDATE extends Candidate> {
+		private final ImmutableSet<CANDIDATE> candidates;
+		private final VoteWeightSum noVotes = new VoteWeightSum();
+		private final VoteWeightSum invalidVotes = new VoteWeightSum();
+		// Taken from the first VoteState that prefers a candidate
+		private CandidateIndex<CANDIDATE> candidateIndex;
+		private VoteWeightSum[] votesByCandidateIndex;
+
+		PartialSums(ImmutableSet<CANDIDATE> candidates, Iterable<VoteState<CANDIDATE>> voteStates) {
+			this.candidates = candidates;
+			for (VoteState<CANDIDATE> voteState : voteStates) {
+				if (voteState.isInvalid()) {
+					invalidVotes.add(voteState.getVoteWeight());
+				} else if (voteState.isNoVote()) {
+					noVotes.add(voteState.getVoteWeight());
+				} else {
+					votesFor(voteState).add(voteState.getVoteWeight());
+				}
+			}
+		}
+
+		PartialSums<CANDIDATE> merge(PartialSums<CANDIDATE> other) {
+			noVotes.addAll(other.noVotes);
+			invalidVotes.addAll(other.invalidVotes);
+			if (other.candidateIndex == null) {
+				return this;
+			}
+
+			for (int otherIndex = 0; otherIndex < other.votesByCandidateIndex.length; otherIndex++) {
+				if (other.votesByCandidateIndex[otherIndex] != null) {
+					votesFor(other.candidateIndex, otherIndex).addAll(other.votesByCandidateIndex[otherIndex]);
+				}
+			}
+			return this;
+		}
+
+		ImmutableMap<CANDIDATE, BigFraction> votesByCandidate() {
+			ImmutableMap.Builder<CANDIDATE, BigFraction> votesByCandidate =
+				ImmutableMap.builderWithExpectedSize(candidates.size());
+			int numberOfSums = 0;
+			for (CANDIDATE candidate : candidates) {
+				int index = (candidateIndex == null) ? CandidateIndex.NOT_INDEXED : candidateIndex.indexOf(candidate);
+				if ((index == CandidateIndex.NOT_INDEXED) || (votesByCandidateIndex[index] == null)) {
+					votesByCandidate.put(candidate, BigFraction.ZERO);
+				} else {
+					votesByCandidate.put(candidate, votesByCandidateIndex[index].sum());
+					numberOfSums++;
+				}
+			}
+
+			if ((candidateIndex != null) && (numberOfSums != numberOfNonNullSums())) {
+				throw new IllegalArgumentException("Some VoteStates prefer a candidate that is not one of " + candidates);
+			}
+			return votesByCandidate.build();
+		}
+
+		private VoteWeightSum votesFor(VoteState<CANDIDATE> voteState) {
+			return votesFor(voteState.getCandidateIndex(), voteState.getPreferredCandidateIndex());
+		}
+
+		// VoteStates of different Election instances are translated by candidate
+		private VoteWeightSum votesFor(CandidateIndex<CANDIDATE> otherCandidateIndex, int otherIndex) {
+			if (candidateIndex == null) {
+				candidateIndex = otherCandidateIndex;
+				votesByCandidateIndex = new VoteWeightSum[candidateIndex.size()];
+			}
+
+			int index = (otherCandidateIndex == candidateIndex)
+				? otherIndex
+				: candidateIndex.indexOf(otherCandidateIndex.get(otherIndex));
+			if (index == CandidateIndex.NOT_INDEXED) {
+				throw new IllegalArgumentException(
+					"VoteStates prefer " + otherCandidateIndex.get(otherIndex) + ", who is not one of " + candidates);
+			}
+
+			if (votesByCandidateIndex[index] == null) {
+				votesByCandidateIndex[index] = new VoteWeightSum();
+			}
+			return votesByCandidateIndex[index];
+		}
+
+		private int numberOfNonNullSums() {
+			int numberOfNonNullSums = 0;
+			for (VoteWeightSum votes : votesByCandidateIndex) {
+				if (votes != null) {
+					numberOfNonNullSums++;
+				}
+			}
+			return numberOfNonNullSums;
+		}
+	}
 }
@@ -19,6 +19,7 @@ package info.gehrels.voting.singleTransferableVote;
 import com.google.common.collect.ImmutableList;
 import info.gehrels.voting.Ballot;
 import info.gehrels.voting.Candidate;
+import info.gehrels.voting.CandidateIndex;
 import info.gehrels.voting.Election;
 import info.gehrels.voting.Vote;
 import org.apache.commons.math3.fraction.BigFraction;
@@ -26,7 +27,10 @@ import org.apache.commons.math3.fraction.BigFraction;
 import java.util.Optional;
 
 import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 
 public final class VoteState<CANDIDATE_TYPE extends Candidate> {
@@ -50,8 +54,8 @@ public final class VoteState<CANDIDATE_TYPE extends Candidate> {
 		this(ballotId, vote, BigFraction.ONE, 0);
 	}
 
-	private VoteState(long ballotId, Vote<CANDIDATE_TYPE> vote, BigFraction voteWeight,
-	                  int currentPositionInRankedCandidatesList) {
+	VoteState(long ballotId, Vote<CANDIDATE_TYPE> vote, BigFraction voteWeight,
+	          int currentPositionInRankedCandidatesList) {
 		this.ballotId = ballotId;
 		this.vote = vote;
 		this.rankedCandidates = vote.getRankedCandidates();
@@ -60,20 +64,17 @@ public final class VoteState<CANDIDATE_TYPE extends Candidate> {
 	}
 
 	public VoteState<CANDIDATE_TYPE> withFirstHopefulCandidate(CandidateStates<CANDIDATE_TYPE> candidateStates) {
-		VoteState<CANDIDATE_TYPE> result = this;
-
-		Optional<CANDIDATE_TYPE> preferredCandidate = result.getPreferredCandidate();
-		while (preferredCandidate.isPresent()) {
-			CandidateState<CANDIDATE_TYPE> candidateState = candidateStates.getCandidateState(preferredCandidate.get());
-			if ((candidateState != null) && candidateState.isHopeful()) {
-				return result;
+		int position = currentPositionInRankedCandidatesList;
+		while (position < rankedCandidates.size()) {
+			if (candidateStates.isHopeful(rankedCandidates.get(position))) {
+				break;
 			}
-
-			result = result.withNextPreference();
-			preferredCandidate = result.getPreferredCandidate();
+			position++;
 		}
 
-		return result;
+		return (position == currentPositionInRankedCandidatesList)
+			? this
+			: new VoteState<>(ballotId, vote, voteWeight, position);
 	}
 
 	public Optional<CANDIDATE_TYPE> getPreferredCandidate() {
@@ -84,18 +85,43 @@ public final class VoteState<CANDIDATE_TYPE extends Candidate> {
 		return Optional.of(rankedCandidates.get(currentPositionInRankedCandidatesList));
 	}
 
-	public BigFraction getVoteWeight() {
-		return voteWeight;
+	/**
+	 * @return the index of the preferred candidate in the CandidateIndex of the Election, or
+	 * CandidateIndex.NOT_INDEXED if there is no preferred candidate.
+	 */
+	public int getPreferredCandidateIndex() {
+		if (currentPositionInRankedCandidatesList >= rankedCandidates.size()) {
+			return CandidateIndex.NOT_INDEXED;
+		}
+
+		return vote.getRankedCandidateIndex(currentPositionInRankedCandidatesList);
+	}
+
+	Vote<CANDIDATE_TYPE> getVote() {
+		return vote;
 	}
 
-	private VoteState<CANDIDATE_TYPE> withNextPreference() {
-		return new VoteState<>(ballotId, vote, voteWeight, currentPositionInRankedCandidatesList + 1);
+	CandidateIndex<CANDIDATE_TYPE> getCandidateIndex() {
+		return vote.getElection().getCandidateIndex();
+	}
+
+	public BigFraction getVoteWeight() {
+		return voteWeight;
 	}
 
 	public VoteState<CANDIDATE_TYPE> withVoteWeight(BigFraction newVoteWeight) {
 		return new VoteState<>(ballotId, vote, newVoteWeight, currentPositionInRankedCandidatesList);
 	}
 
+	int getCurrentPosition() {
+		return currentPositionInRankedCandidatesList;
+	}
+
+	VoteState<CANDIDATE_TYPE> withVoteWeightAndPosition(BigFraction newVoteWeight, int newPosition) {
+		validateThat(newPosition, is(both(greaterThanOrEqualTo(0)).and(lessThanOrEqualTo(rankedCandidates.size()))));
+		return new VoteState<>(ballotId, vote, newVoteWeight, newPosition);
+	}
+
 	public long getBallotId() {
 		return ballotId;
 	}
@@ -110,6 +136,6 @@ public final class VoteState<CANDIDATE_TYPE extends Candidate> {
 	}
 
 	public boolean isNoVote() {
-		return vote.isNo() || getPreferredCandidate().isEmpty();
+		return vote.isNo() || (currentPositionInRankedCandidatesList >= rankedCandidates.size());
 	}
 }
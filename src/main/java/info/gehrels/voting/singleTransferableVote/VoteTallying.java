@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.singleTransferableVote.VoteDistribution.PartialSums;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * How STVElectionCalculation sums up the vote weights of all VoteStates to a VoteDistribution. The sums are exact,
+ * so each kind of tallying results in the same VoteDistribution.
+ */
+public abstract class VoteTallying {
+	// Parts of this size are tallied by one task. Large enough to outweigh the costs of forking and merging.
+	static final int VOTE_STATES_PER_TASK = 8192;
+
+	private VoteTallying() {
+	}
+
+	/**
+	 * Tallies all VoteStates in the calling thread.
+	 */
+	public static VoteTallying sequential() {
+		return new VoteTallying() {
+			@Override
+			public <CANDIDATE extends Candidate> VoteDistribution<CANDIDATE> tally(
+				ImmutableSet<CANDIDATE> candidates, ImmutableCollection<VoteState<CANDIDATE>> voteStates) {
+				return new VoteDistribution<>(candidates, voteStates);
+			}
+
+			@Override
+			public String toString() {
+				return "sequential";
+			}
+		};
+	}
+
+	/**
+	 * Splits the VoteStates into parts of a fixed size, tallies the parts as tasks of the given pool and merges the
+	 * partial sums. How the parts are split does not depend on the parallelism of the pool.
+	 */
+	public static VoteTallying parallel(ForkJoinPool forkJoinPool) {
+		return parallel(forkJoinPool, VOTE_STATES_PER_TASK);
+	}
+
+	// Smaller parts let tests split a few VoteStates like many
+	static VoteTallying parallel(ForkJoinPool forkJoinPool, int voteStatesPerTask) {
+		validateThat(forkJoinPool, is(notNullValue()));
+		validateThat(voteStatesPerTask, is(greaterThan(0)));
+		return new VoteTallying() {
+			@Override
+			public <CANDIDATE extends Candidate> VoteDistribution<CANDIDATE> tally(
+				ImmutableSet<CANDIDATE> candidates, ImmutableCollection<VoteState<CANDIDATE>> voteStates) {
+				ImmutableList<VoteState<CANDIDATE>> voteStateList = voteStates.asList();
+				return new VoteDistribution<>(
+					forkJoinPool.invoke(new PartialTally<>(candidates, voteStateList, voteStatesPerTask, 0,
+					                                       voteStateList.size())));
+			}
+
+			@Override
+			public String toString() {
+				return "parallel on " + forkJoinPool;
+			}
+		};
+	}
+
+	public abstract <CANDIDATE extends Candidate> VoteDistribution<CANDIDATE> tally(
+		ImmutableSet<CANDIDATE> candidates, ImmutableCollection<VoteState<CANDIDATE>> voteStates);
+
+	private static final class PartialTally<CANDIDATE extends Candidate> extends RecursiveTask<PartialSums<CANDIDATE>> {
+		private static final long serialVersionUID = 1L;
+
+		private final ImmutableSet<CANDIDATE> candidates;
+		private final ImmutableList<VoteState<CANDIDATE>> voteStates;
+		private final int voteStatesPerTask;
+		private final int from;
+		private final int to;
+
+		PartialTally(ImmutableSet<CANDIDATE> candidates, ImmutableList<VoteState<CANDIDATE>> voteStates,
+		             int voteStatesPerTask, int from, int to) {
+			this.candidates = candidates;
+			this.voteStates = voteStates;
+			this.voteStatesPerTask = voteStatesPerTask;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected PartialSums<CANDIDATE> compute() {
+			if ((to - from) <= voteStatesPerTask) {
+				return new PartialSums<>(candidates, voteStates.subList(from, to));
+			}
+
+			int middle = (from + to) >>> 1;
+			PartialTally<CANDIDATE> secondHalf = new PartialTally<>(candidates, voteStates, voteStatesPerTask, middle,
+			                                                        to);
+			secondHalf.fork();
+			PartialSums<CANDIDATE> firstHalf = new PartialTally<>(candidates, voteStates, voteStatesPerTask, from,
+			                                                      middle).compute();
+			return firstHalf.merge(secondHalf.join());
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * The kind of numbers CompactSTVElectionCalculation uses for vote weights and tallies. Listeners always receive
+ * BigFractions, which represent the fixed point numbers exactly.
+ */
+public abstract class VoteWeightArithmetic {
+	public static final int MAXIMUM_DECIMAL_PLACES = 9;
+
+	private VoteWeightArithmetic() {
+	}
+
+	/**
+	 * Calculates exactly with BigFractions, like STVElectionCalculation does.
+	 */
+	public static VoteWeightArithmetic exact() {
+		return new VoteWeightArithmetic() {
+			@Override
+			NumberColumn newColumn(int size) {
+				return new ExactNumberColumn(size);
+			}
+
+			@Override
+			public String toString() {
+				return "exact";
+			}
+		};
+	}
+
+	/**
+	 * Calculates with decimal fixed point numbers, stored as scaled longs. The quorum is rounded up to the given
+	 * number of decimal places, so a candidate reaches it exactly if the candidate would reach the unrounded quorum.
+	 * Transfer factors and vote weights are truncated after each multiplication, sums are exact.
+	 */
+	public static VoteWeightArithmetic fixedPoint(int decimalPlaces) {
+		validateThat(decimalPlaces, is(allOf(greaterThanOrEqualTo(0), lessThanOrEqualTo(MAXIMUM_DECIMAL_PLACES))));
+		return new VoteWeightArithmetic() {
+			@Override
+			NumberColumn newColumn(int size) {
+				return new FixedPointNumberColumn(size, decimalPlaces);
+			}
+
+			@Override
+			public String toString() {
+				return "fixed point with " + decimalPlaces + " decimal places";
+			}
+		};
+	}
+
+	abstract NumberColumn newColumn(int size);
+}
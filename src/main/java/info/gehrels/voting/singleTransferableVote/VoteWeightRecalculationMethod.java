@@ -20,4 +20,15 @@ import info.gehrels.voting.Candidate;
 
 public interface VoteWeightRecalculationMethod<CANDIDATE_TYPE extends Candidate> {
 	VoteWeightRecalculator<CANDIDATE_TYPE> recalculatorFor();
+
+	/**
+	 * Same as recalculatorFor, but reports to the given listener instead of the one the method has been created with,
+	 * e.g. for the counts of a TieSimulation.
+	 *
+	 * @throws UnsupportedOperationException if this method cannot report to another listener.
+	 */
+	default VoteWeightRecalculator<CANDIDATE_TYPE> recalculatorFor(
+		STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener) {
+		throw new UnsupportedOperationException(getClass().getName() + " cannot report to another listener");
+	}
 }
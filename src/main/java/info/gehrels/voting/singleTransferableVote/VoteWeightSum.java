@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Sums up vote weights by counting how often each BigFraction instance has been added. Ballots with the same transfer
+ * history share one instance, so adding is an integer addition, and the BigFraction arithmetic happens once per
+ * distinct instance when the sum is read. The sum is exactly the same as if all summands were added one by one.
+ */
+final class VoteWeightSum {
+	private final Map<BigFraction, long[]> multiplicityOfSummand = new IdentityHashMap<>();
+
+	void add(BigFraction voteWeight) {
+		add(voteWeight, 1);
+	}
+
+	void add(BigFraction voteWeight, long multiplicity) {
+		multiplicityOfSummand.computeIfAbsent(voteWeight, summand -> new long[1])[0] += multiplicity;
+	}
+
+	void addAll(VoteWeightSum other) {
+		for (Entry<BigFraction, long[]> summand : other.multiplicityOfSummand.entrySet()) {
+			add(summand.getKey(), summand.getValue()[0]);
+		}
+	}
+
+	BigFraction sum() {
+		BigFraction sum = BigFraction.ZERO;
+		for (Entry<BigFraction, long[]> summand : multiplicityOfSummand.entrySet()) {
+			long multiplicity = summand.getValue()[0];
+			sum = sum.add((multiplicity == 1) ? summand.getKey() : summand.getKey().multiply(multiplicity));
+		}
+		return sum;
+	}
+}
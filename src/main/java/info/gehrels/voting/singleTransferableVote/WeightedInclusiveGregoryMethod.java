@@ -22,21 +22,42 @@ import com.google.common.collect.ImmutableList.Builder;
 import info.gehrels.voting.Candidate;
 import org.apache.commons.math3.fraction.BigFraction;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static info.gehrels.parameterValidation.MatcherValidation.validateThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
 public class WeightedInclusiveGregoryMethod<CANDIDATE_TYPE extends Candidate> implements
 	VoteWeightRecalculationMethod<CANDIDATE_TYPE> {
 	private final STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener;
+	private final VoteTallying voteTallying;
 
 	public WeightedInclusiveGregoryMethod(STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener) {
+		this(electionCalculationListener, VoteTallying.sequential());
+	}
+
+	public WeightedInclusiveGregoryMethod(STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener,
+	                                      VoteTallying voteTallying) {
 		this.electionCalculationListener = electionCalculationListener;
+		this.voteTallying = validateThat(voteTallying, is(notNullValue()));
 	}
 
 	@Override
 	public final VoteWeightRecalculator<CANDIDATE_TYPE> recalculatorFor() {
-		return new WigmVoteWeightRecalculator<>(electionCalculationListener);
+		return new WigmVoteWeightRecalculator<>(electionCalculationListener, voteTallying);
+	}
+
+	@Override
+	public final VoteWeightRecalculator<CANDIDATE_TYPE> recalculatorFor(
+		STVElectionCalculationListener<CANDIDATE_TYPE> electionCalculationListener) {
+		return new WigmVoteWeightRecalculator<>(validateThat(electionCalculationListener, is(notNullValue())),
+		                                        voteTallying);
 	}
 
 	private record WigmVoteWeightRecalculator<CANDIDATE extends Candidate>(
-			STVElectionCalculationListener<CANDIDATE> electionCalculationListener)
+			STVElectionCalculationListener<CANDIDATE> electionCalculationListener, VoteTallying voteTallying)
 			implements VoteWeightRecalculator<CANDIDATE> {
 
 		@Override
@@ -45,7 +66,7 @@ public class WeightedInclusiveGregoryMethod<CANDIDATE_TYPE extends Candidate> im
 																					 ImmutableCollection<VoteState<CANDIDATE>> originalVoteStates,
 																					 CandidateStates<CANDIDATE> candidateStates) {
 				Builder<VoteState<CANDIDATE>> resultBuilder = ImmutableList.builder();
-				VoteDistribution<CANDIDATE> voteDistribution = new VoteDistribution<>(
+				VoteDistribution<CANDIDATE> voteDistribution = voteTallying.tally(
 						candidateStates.getHopefulCandidates(), originalVoteStates);
 
 				BigFraction votesForCandidate = voteDistribution.votesByCandidate.get(winner);
@@ -55,9 +76,12 @@ public class WeightedInclusiveGregoryMethod<CANDIDATE_TYPE extends Candidate> im
 				electionCalculationListener
 						.redistributingExcessiveFractionOfVoteWeight(winner, excessiveFractionOfVoteWeight);
 
+				// Votes with equal transfer histories share their vote weight instance, and keep sharing the product
+				Map<BigFraction, BigFraction> newVoteWeights = new IdentityHashMap<>();
 				for (VoteState<CANDIDATE> voteState : originalVoteStates) {
 					if (voteState.getPreferredCandidate().orElse(null) == winner) {
-						BigFraction newVoteWeight = voteState.getVoteWeight().multiply(excessiveFractionOfVoteWeight);
+						BigFraction newVoteWeight = newVoteWeights.computeIfAbsent(
+							voteState.getVoteWeight(), voteWeight -> voteWeight.multiply(excessiveFractionOfVoteWeight));
 						VoteState<CANDIDATE> newVoteState = voteState.withVoteWeight(newVoteWeight);
 						resultBuilder.add(newVoteState);
 					} else {
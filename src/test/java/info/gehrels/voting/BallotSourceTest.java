@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+public final class BallotSourceTest {
+	private static final Candidate CANDIDATE_A = new Candidate("A");
+	private static final Candidate CANDIDATE_B = new Candidate("B");
+	private static final Candidate CANDIDATE_C = new Candidate("C");
+	private static final Election<Candidate> ELECTION_1 =
+		new Election<>("office1", ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C));
+	private static final Election<Candidate> ELECTION_2 = new Election<>("office2", ImmutableSet.of(CANDIDATE_A));
+
+	@Test
+	public void passesTheVotesForTheElectionAsCandidateIndices() {
+		BallotSource<Candidate> ballots = BallotSource.of(ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(
+				Vote.createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_C, CANDIDATE_A)),
+				Vote.createNoVote(ELECTION_2))),
+			new Ballot<>(2, ImmutableSet.of(Vote.createPreferenceVote(ELECTION_2, ImmutableList.of(CANDIDATE_A)))),
+			new Ballot<>(3, ImmutableSet.of(Vote.createNoVote(ELECTION_1))),
+			new Ballot<>(4, ImmutableSet.of(Vote.createInvalidVote(ELECTION_1)))
+		));
+
+		List<String> votes = new ArrayList<>();
+		ballots.forEachVote(ELECTION_1, (ballotId, valid, no, rankedCandidateIndices, numberOfRankedCandidates) ->
+			votes.add(ballotId + " " + valid + " " + no + " "
+			          + Arrays.toString(Arrays.copyOf(rankedCandidateIndices, numberOfRankedCandidates))));
+
+		assertThat(votes, contains("1 true false [2, 0]", "3 true true []", "4 false false []"));
+	}
+
+	@Test
+	public void passesTheVotesForSeveralElectionsWithTheirIndex() {
+		BallotSource<Candidate> ballots = BallotSource.of(ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(
+				Vote.createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_C, CANDIDATE_A)),
+				Vote.createNoVote(ELECTION_2))),
+			new Ballot<>(2, ImmutableSet.of(Vote.createPreferenceVote(ELECTION_2, ImmutableList.of(CANDIDATE_A))))
+		));
+
+		List<String> votes = new ArrayList<>();
+		ballots.forEachVote(ImmutableList.of(ELECTION_2, ELECTION_1),
+		                    (electionIndex, ballotId, valid, no, rankedCandidateIndices, numberOfRankedCandidates) ->
+			                    votes.add(electionIndex + " " + ballotId + " " + valid + " " + no + " "
+			                              + Arrays.toString(Arrays.copyOf(rankedCandidateIndices,
+			                                                              numberOfRankedCandidates))));
+
+		assertThat(votes, contains("1 1 true false [2, 0]", "0 1 true true []", "0 2 true false [0]"));
+	}
+
+	@Test
+	public void startsANewPassOnEachCall() {
+		BallotSource<Candidate> ballots = BallotSource.of(ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(Vote.createNoVote(ELECTION_1))),
+			new Ballot<>(2, ImmutableSet.of(Vote.createNoVote(ELECTION_1)))
+		));
+
+		List<Long> ids = new ArrayList<>();
+		ballots.forEachBallot(ballot -> ids.add(ballot.id));
+		ballots.forEachBallot(ballot -> ids.add(ballot.id));
+
+		assertThat(ids, contains(1L, 2L, 1L, 2L));
+	}
+}
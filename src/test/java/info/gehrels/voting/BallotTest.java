@@ -129,4 +129,69 @@ public final class BallotTest {
 		assertThat(newBallot.getVote(ELECTION_2).isPresent(), is(true));
 		assertThat(newBallot.getVote(ELECTION_2).get(), is(sameInstance(VOTE_FOR_ELECTION_2)));
 	}
+
+	@Test
+	public void findsTheVoteByOfficeNameThroughTheElectionCatalogue() {
+		ElectionCatalogue catalogue = ElectionCatalogue.of(ImmutableList.of(ELECTION_1, ELECTION_2));
+		Ballot<GenderedCandidate> ballot = new Ballot<>(0, ImmutableSet.of(VOTE_FOR_ELECTION_2), catalogue);
+
+		assertThat(ballot.getVote(ELECTION_2).get(), is(sameInstance(VOTE_FOR_ELECTION_2)));
+		assertThat(ballot.getVote(ELECTION_1), is(anEmptyOptional()));
+		assertThat(ballot.getVote("Unknown Office"), is(anEmptyOptional()));
+	}
+
+	@Test
+	public void withReplacedElectionKeepsUsingTheElectionCatalogue() {
+		ElectionCatalogue catalogue = ElectionCatalogue.of(ImmutableList.of(ELECTION_1, ELECTION_2));
+		Ballot<GenderedCandidate> originalBallot = new Ballot<>(0, ImmutableSet.of(VOTE_FOR_ELECTION_1, VOTE_FOR_ELECTION_2), catalogue);
+
+		GenderedElection migratedElection1 = ELECTION_1.withOfficeName("Office1 migrated");
+		Ballot<GenderedCandidate> newBallot = originalBallot.withReplacedElection(ELECTION_1.getOfficeName(), migratedElection1);
+
+		assertThat(newBallot.getVote(ELECTION_1), is(anEmptyOptional()));
+		assertThat(newBallot.getVote(migratedElection1).get().getElection(), is(migratedElection1));
+		assertThat(newBallot.getVote(ELECTION_2).get(), is(sameInstance(VOTE_FOR_ELECTION_2)));
+		assertThat(newBallot.votesByElections.values(), contains(newBallot.getVote(migratedElection1).get(), VOTE_FOR_ELECTION_2));
+		assertThat(originalBallot.withReplacedElection("Unknown Office", migratedElection1), is(sameInstance(originalBallot)));
+	}
+
+	@Test
+	public void rejectsRenamingAnOfficeToOneTheBallotAlsoVotesOn() {
+		ElectionCatalogue catalogue = ElectionCatalogue.of(ImmutableList.of(ELECTION_1, ELECTION_2));
+		ImmutableSet<Vote<GenderedCandidate>> votes = ImmutableSet.of(VOTE_FOR_ELECTION_1, VOTE_FOR_ELECTION_2);
+		GenderedElection renamedElection1 = ELECTION_1.withOfficeName(ELECTION_2.getOfficeName());
+
+		IllegalArgumentException withoutCatalogue = assertThrows(
+				IllegalArgumentException.class,
+				() -> new Ballot<>(0, votes).withReplacedElection(ELECTION_1.getOfficeName(), renamedElection1)
+		);
+		IllegalArgumentException withCatalogue = assertThrows(
+				IllegalArgumentException.class,
+				() -> new Ballot<>(0, votes, catalogue).withReplacedElection(ELECTION_1.getOfficeName(), renamedElection1)
+		);
+		assertThat(withCatalogue.getMessage(), is(withoutCatalogue.getMessage()));
+	}
+
+	@Test
+	public void renamesAnOfficeToAnotherOfficeOfTheCatalogueTheBallotDoesNotVoteOn() {
+		ElectionCatalogue catalogue = ElectionCatalogue.of(ImmutableList.of(ELECTION_1, ELECTION_2));
+		ImmutableSet<Vote<GenderedCandidate>> votes = ImmutableSet.of(VOTE_FOR_ELECTION_1);
+		GenderedElection renamedElection1 = ELECTION_1.withOfficeName(ELECTION_2.getOfficeName());
+
+		Ballot<GenderedCandidate> newBallot = new Ballot<>(0, votes, catalogue)
+			.withReplacedElection(ELECTION_1.getOfficeName(), renamedElection1);
+
+		assertThat(newBallot, is(new Ballot<>(0, votes).withReplacedElection(ELECTION_1.getOfficeName(), renamedElection1)));
+		assertThat(newBallot.getVote(ELECTION_2.getOfficeName()).get().getElection(), is(renamedElection1));
+	}
+
+	@Test
+	public void rejectsVotesForOfficesThatAreNotPartOfTheElectionCatalogue() {
+		ElectionCatalogue catalogue = ElectionCatalogue.of(ImmutableList.of(ELECTION_1));
+
+		assertThrows(
+				IllegalArgumentException.class,
+				() -> new Ballot<>(0, ImmutableSet.of(VOTE_FOR_ELECTION_1, VOTE_FOR_ELECTION_2), catalogue)
+		);
+	}
 }
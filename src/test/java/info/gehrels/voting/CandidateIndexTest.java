@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public final class CandidateIndexTest {
+	private static final Candidate CANDIDATE_A = new Candidate("A");
+	private static final Candidate CANDIDATE_B = new Candidate("B");
+	private static final Candidate CANDIDATE_C = new Candidate("C");
+	private static final Election<Candidate> ELECTION =
+		new Election<>("Example Office", ImmutableSet.of(CANDIDATE_B, CANDIDATE_C, CANDIDATE_A));
+
+	@Test
+	public void indexesCandidatesDenselyInTheOrderOfTheElection() {
+		CandidateIndex<Candidate> candidateIndex = ELECTION.getCandidateIndex();
+
+		assertThat(candidateIndex.size(), is(3));
+		assertThat(candidateIndex.indexOf(CANDIDATE_B), is(0));
+		assertThat(candidateIndex.indexOf(CANDIDATE_C), is(1));
+		assertThat(candidateIndex.indexOf(CANDIDATE_A), is(2));
+		assertThat(candidateIndex.get(2), is(sameInstance(CANDIDATE_A)));
+		assertThat(candidateIndex.asList(), contains(CANDIDATE_B, CANDIDATE_C, CANDIDATE_A));
+	}
+
+	@Test
+	public void doesNotIndexCandidatesThatDoNotRunInTheElection() {
+		assertThat(ELECTION.getCandidateIndex().indexOf(new Candidate("D")), is(CandidateIndex.NOT_INDEXED));
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public final class DuplicateBallotIdDetectorTest {
+	@Test
+	public void returnsEmptySetForEmptyBallotCollection() {
+		assertThat(DuplicateBallotIdDetector.findDuplicateIds(ImmutableList.<Ballot<Candidate>>of()), is(empty()));
+	}
+
+	@Test
+	public void returnsEmptySetIfAllIdsAreDistinct() {
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(ballot(0), ballot(1), ballot(-1), ballot(42));
+
+		assertThat(DuplicateBallotIdDetector.findDuplicateIds(ballots), is(empty()));
+	}
+
+	@Test
+	public void returnsEachDuplicateIdOnceInAscendingOrder() {
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(
+			ballot(7), ballot(0), ballot(7), ballot(3), ballot(0), ballot(7));
+
+		assertThat(DuplicateBallotIdDetector.findDuplicateIds(ballots), contains(0L, 7L));
+	}
+
+	@Test
+	public void findsDuplicatesAfterTheIdSetHadToGrow() {
+		ImmutableList.Builder<Ballot<Candidate>> builder = ImmutableList.builder();
+		for (long id = 0; id < 10_000; id++) {
+			builder.add(ballot(id * 1024));
+		}
+		builder.add(ballot(5 * 1024));
+
+		assertThat(DuplicateBallotIdDetector.findDuplicateIds(builder.build()), contains(5L * 1024));
+	}
+
+	private static Ballot<Candidate> ballot(long id) {
+		return new Ballot<>(id, ImmutableSet.of());
+	}
+}
@@ -18,8 +18,17 @@ package info.gehrels.voting;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.singleTransferableVote.STVElectionCalculationListener;
+import info.gehrels.voting.singleTransferableVote.STVElectionCalculationListener.DetailLevel;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public final class TestUtils {
 	private static int s_ballotId = 0;
@@ -27,6 +36,15 @@ public final class TestUtils {
 	private TestUtils() {
 	}
 
+	/**
+	 * A mock that asks for all events, as a mock would otherwise answer null to getDetailLevel.
+	 */
+	public static <T extends Candidate> STVElectionCalculationListener<T> mockListener() {
+		STVElectionCalculationListener<T> listener = mock(STVElectionCalculationListener.class);
+		when(listener.getDetailLevel()).thenReturn(DetailLevel.FULL_TRACE);
+		return listener;
+	}
+
 	public static <T extends Candidate> Ballot<T> createBallot(String preferenceString, Election<T> election) {
 		ImmutableList<T> preference = toPreference(preferenceString, election.getCandidates());
 		Vote<T> vote;
@@ -47,6 +65,31 @@ public final class TestUtils {
 		return new Ballot<>(s_ballotId++, ImmutableSet.of(Vote.createInvalidVote(election)));
 	}
 
+	/**
+	 * Creates ballots with random, possibly incomplete rankings. About one in twenty of them is invalid and another one
+	 * in twenty is a no vote.
+	 */
+	public static <T extends Candidate> ImmutableList<Ballot<T>> createRandomBallots(Random random,
+	                                                                               Election<T> election,
+	                                                                               int numberOfBallots) {
+		ImmutableList.Builder<Ballot<T>> ballots = ImmutableList.builder();
+		for (int i = 0; i < numberOfBallots; i++) {
+			int kind = random.nextInt(20);
+			if (kind == 0) {
+				ballots.add(createInvalidBallot(election));
+			} else if (kind == 1) {
+				ballots.add(createNoBallot(election));
+			} else {
+				List<T> candidates = new ArrayList<>(election.getCandidates());
+				Collections.shuffle(candidates, random);
+				int rankingLength = 1 + random.nextInt(candidates.size());
+				ballots.add(new Ballot<>(s_ballotId++, ImmutableSet.of(
+					Vote.createPreferenceVote(election, ImmutableList.copyOf(candidates.subList(0, rankingLength))))));
+			}
+		}
+		return ballots.build();
+	}
+
 	private static <T extends Candidate> ImmutableList<T> toPreference(String preferences, Collection<T> candidates) {
 		ImmutableList.Builder<T> preferenceBuilder = ImmutableList.builder();
 		for (int i = 0; i < preferences.length(); i++) {
@@ -75,4 +118,17 @@ public final class TestUtils {
 		}
 
 	}
+
+	public static final class TakeTheFirstOneByNameAmbiguityResolver<T extends Candidate> implements AmbiguityResolver<T> {
+		@Override
+		public AmbiguityResolverResult<T> chooseOneOfMany(ImmutableSet<T> bestCandidates) {
+			T firstByName = null;
+			for (T candidate : bestCandidates) {
+				if ((firstByName == null) || (candidate.name.compareTo(firstByName.name) < 0)) {
+					firstByName = candidate;
+				}
+			}
+			return new AmbiguityResolverResult<>(firstByName, "Habe den alphabetisch ersten Namen genommen");
+		}
+	}
 }
@@ -63,6 +63,59 @@ public final class VoteTest {
 		assertThat(preferenceVote.isValid(), is(true));
 	}
 
+	@Test
+	public void preferenceVoteKnowsTheIndicesOfItsRankedCandidates() {
+		Vote<GenderedCandidate> preferenceVote = Vote.createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_B, CANDIDATE_A));
+
+		assertThat(preferenceVote.getRankedCandidateIndex(0), is(ELECTION.getCandidateIndex().indexOf(CANDIDATE_B)));
+		assertThat(preferenceVote.getRankedCandidateIndex(1), is(ELECTION.getCandidateIndex().indexOf(CANDIDATE_A)));
+	}
+
+	@Test
+	public void preferenceVoteCreationThrowsIfACandidateIsRankedTwice() {
+		assertThrows(
+				IllegalArgumentException.class,
+				() -> Vote.createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_B, CANDIDATE_A, CANDIDATE_B))
+		);
+	}
+
+	@Test
+	public void preferenceVoteCreationThrowsIfACandidateIsRankedTwiceInALongRanking() {
+		ImmutableList.Builder<GenderedCandidate> candidates = ImmutableList.builder();
+		for (int i = 0; i < 40; i++) {
+			candidates.add(new GenderedCandidate("Candidate " + i, false));
+		}
+		ImmutableList<GenderedCandidate> ranking = candidates.build();
+		GenderedElection election = new GenderedElection("List Office", 0, 40, ImmutableSet.copyOf(ranking));
+
+		assertThat(Vote.createPreferenceVote(election, ranking).getRankedCandidates(), is(ranking));
+		assertThrows(
+				IllegalArgumentException.class,
+				() -> Vote.createPreferenceVote(election, ImmutableList.<GenderedCandidate>builder()
+					.addAll(ranking.subList(0, 30)).add(ranking.get(3)).build())
+		);
+	}
+
+	@Test
+	public void preferenceVoteCreationThrowsIfACandidateDoesNotRunInTheElection() {
+		assertThrows(
+				IllegalArgumentException.class,
+				() -> Vote.createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_B, new GenderedCandidate("C", false)))
+		);
+	}
+
+	@Test
+	public void createsVotesFromCandidateIndices() {
+		int indexOfA = ELECTION.getCandidateIndex().indexOf(CANDIDATE_A);
+		int indexOfB = ELECTION.getCandidateIndex().indexOf(CANDIDATE_B);
+
+		assertThat(Vote.createVote(ELECTION, true, false, new int[]{indexOfB, indexOfA, 4711}, 2),
+		           is(Vote.createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_B, CANDIDATE_A))));
+		assertThat(Vote.createVote(ELECTION, true, true, new int[0], 0), is(Vote.createNoVote(ELECTION)));
+		assertThat(Vote.createVote(ELECTION, false, false, new int[]{indexOfA}, 1), is(Vote.createInvalidVote(ELECTION)));
+		assertThrows(IllegalArgumentException.class, () -> Vote.createVote(ELECTION, true, false, new int[]{2}, 1));
+	}
+
 	@Test()
 	public void withReplacedCandidateVersionThrowsIfNewElectionVersionDoesNotContainAllCandidates() {
 		Vote<GenderedCandidate> vote = Vote.createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_B, CANDIDATE_A));
@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import info.gehrels.voting.Vote;
+import info.gehrels.voting.singleTransferableVote.CompactSTVElectionCalculationFactory;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+import static info.gehrels.voting.TestUtils.mockListener;
+import static info.gehrels.voting.Vote.createNoVote;
+import static info.gehrels.voting.Vote.createPreferenceVote;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class BinaryBallotFileTest {
+	private static final Candidate CANDIDATE_A = new Candidate("A");
+	private static final Candidate CANDIDATE_B = new Candidate("B");
+	private static final Candidate CANDIDATE_C = new Candidate("C");
+	private static final Election<Candidate> ELECTION_1 =
+		new Election<>("office1", ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C));
+	private static final Election<Candidate> ELECTION_2 = new Election<>("office2", ImmutableSet.of(CANDIDATE_B));
+
+	@Test
+	public void readsTheBallotsThatHaveBeenWritten() throws IOException {
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(
+			new Ballot<>(-4711, ImmutableSet.of(
+				createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_C, CANDIDATE_A)),
+				createNoVote(ELECTION_2))),
+			new Ballot<>(Long.MAX_VALUE, ImmutableSet.of(Vote.createInvalidVote(ELECTION_1))),
+			new Ballot<>(0, ImmutableSet.of())
+		);
+
+		Path file = Files.createTempFile("ballots", ".stvb");
+		try {
+			BinaryBallotFileWriter.write(file, ImmutableList.of(ELECTION_1, ELECTION_2), ballots);
+			BinaryBallotFileReader<Candidate> reader =
+				BinaryBallotFileReader.open(file, ImmutableList.of(ELECTION_2, ELECTION_1));
+
+			List<Ballot<Candidate>> readBallots = new ArrayList<>();
+			reader.forEachBallot(readBallots::add);
+
+			assertThat(readBallots, is(ballots));
+			assertThat(reader.getElections(), contains(ELECTION_1, ELECTION_2));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void matchesTheCandidatesOfTheFileByName() throws IOException {
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_C, CANDIDATE_A))))
+		);
+		Candidate otherA = new Candidate("A");
+		Candidate otherC = new Candidate("C");
+		Election<Candidate> reorderedElection = new Election<>("office1", ImmutableSet.of(otherC, new Candidate("B"),
+		                                                                                  otherA));
+
+		Path file = Files.createTempFile("ballots", ".stvb");
+		try {
+			BinaryBallotFileWriter.write(file, ImmutableList.of(ELECTION_1), ballots);
+			BinaryBallotFileReader<Candidate> reader =
+				BinaryBallotFileReader.open(file, ImmutableList.of(reorderedElection));
+
+			List<Vote<Candidate>> votes = new ArrayList<>();
+			reader.forEachVote(reorderedElection, (ballotId, valid, no, rankedCandidateIndices, numberOfRankedCandidates) ->
+				votes.add(Vote.createVote(reorderedElection, valid, no, rankedCandidateIndices, numberOfRankedCandidates)));
+
+			assertThat(votes, contains(createPreferenceVote(reorderedElection, ImmutableList.of(otherC, otherA))));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void passesTheVotesForSeveralElectionsInOnePass() throws IOException {
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(
+				createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_C, CANDIDATE_A)),
+				createNoVote(ELECTION_2))),
+			new Ballot<>(2, ImmutableSet.of(createPreferenceVote(ELECTION_2, ImmutableList.of(CANDIDATE_B))))
+		);
+
+		Path file = Files.createTempFile("ballots", ".stvb");
+		try {
+			BinaryBallotFileWriter.write(file, ImmutableList.of(ELECTION_1, ELECTION_2), ballots);
+			BinaryBallotFileReader<Candidate> reader =
+				BinaryBallotFileReader.open(file, ImmutableList.of(ELECTION_1, ELECTION_2));
+
+			List<String> votes = new ArrayList<>();
+			reader.forEachVote(ImmutableList.of(ELECTION_2, ELECTION_1),
+			                   (electionIndex, ballotId, valid, no, rankedCandidateIndices, numberOfRankedCandidates) ->
+				                   votes.add(electionIndex + " " + ballotId + " " + valid + " " + no + " " + Arrays
+					                   .toString(Arrays.copyOf(rankedCandidateIndices, numberOfRankedCandidates))));
+
+			assertThat(votes, contains("1 1 true false [2, 0]", "0 1 true true []", "0 2 true false [0]"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void countsTheBallotsOfTheFileLikeTheWrittenBallots() throws IOException {
+		Random random = new Random(4711);
+		ImmutableList<Ballot<Candidate>> ballots = createRandomBallots(random, ELECTION_1, 1000);
+
+		Path file = Files.createTempFile("ballots", ".stvb");
+		try {
+			BinaryBallotFileWriter.write(file, ImmutableList.of(ELECTION_1), ballots);
+			BinaryBallotFileReader<Candidate> reader = BinaryBallotFileReader.open(file, ImmutableList.of(ELECTION_1));
+			CompactSTVElectionCalculationFactory<Candidate> factory = new CompactSTVElectionCalculationFactory<>(
+				new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000)),
+				mockListener(), new TakeTheFirstOneByNameAmbiguityResolver<>());
+
+			assertThat(factory.createElectionCalculation(ELECTION_1, reader).calculate(ELECTION_1.getCandidates(), 2),
+			           is(factory.createElectionCalculation(ELECTION_1, ballots)
+			                     .calculate(ELECTION_1.getCandidates(), 2)));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void rejectsFilesThatAreNoBallotFiles() throws IOException {
+		Path file = Files.createTempFile("ballots", ".stvb");
+		try {
+			Files.writeString(file, "office1;A;B;C");
+
+			assertThrows(IOException.class, () -> BinaryBallotFileReader.open(file, ImmutableList.of(ELECTION_1)));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static info.gehrels.voting.Vote.createInvalidVote;
+import static info.gehrels.voting.Vote.createPreferenceVote;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class BltBallotFileTest {
+	private static final Candidate CANDIDATE_A = new Candidate("Ann");
+	private static final Candidate CANDIDATE_B = new Candidate("Bob");
+	private static final Candidate CANDIDATE_D = new Candidate("Dora");
+	private static final Election<Candidate> ELECTION =
+		new Election<>("Board", ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_D));
+
+	@Test
+	public void readsTheBallotsTheNumberOfSeatsAndTheTitle() throws IOException {
+		Path file = createFile("4 2\n-3\n2 1 3 4 0\r\n\n1 0\n 1 4  2 0 \n0\n\"Ann\"\n\"Bob\"\n\"Carl\"\n\"Dora\"\n\"The Board\"\n");
+		try {
+			BltBallotFile<Candidate> bltFile = BltBallotFile.read(file, ELECTION);
+
+			assertThat(bltFile.getNumberOfSeats(), is(2L));
+			assertThat(bltFile.getTitle(), is("The Board"));
+			assertThat(bltFile.getBallots().getNumberOfBallots(), is(4L));
+			assertThat(ballotsOf(bltFile.getBallots()), contains(
+				new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_A, CANDIDATE_D)))),
+				new Ballot<>(2, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_A, CANDIDATE_D)))),
+				new Ballot<>(3, ImmutableSet.of(createInvalidVote(ELECTION))),
+				new Ballot<>(4, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_D, CANDIDATE_B))))
+			));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void readsBallotsRankingOnlyWithdrawnCandidatesAsInvalidVotes() throws IOException {
+		Path file = createFile("3 1\n-2\n3 2 0\n1 2 3 0\n0\n\"Ann\"\n\"Bob\"\n\"Dora\"\n\"The Board\"\n");
+		try {
+			List<Boolean> validities = new ArrayList<>();
+			BltBallotFile.read(file, ELECTION).getBallots()
+				.forEachVote(ELECTION, (ballotId, valid, no, rankedCandidateIndices, numberOfRankedCandidates) ->
+					validities.add(valid));
+
+			assertThat(validities, contains(false, false, false, true));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void readsTheSameBallotsInChunks() throws IOException {
+		Random random = new Random(4711);
+		StringBuilder content = new StringBuilder("3 1\n");
+		for (int line = 0; line < 5000; line++) {
+			content.append(random.nextInt(3) + 1);
+			for (int candidate = 1; candidate <= 3; candidate++) {
+				if (random.nextBoolean()) {
+					content.append(' ').append(candidate);
+				}
+			}
+			content.append(" 0\n");
+		}
+		content.append("0\n\"Ann\"\n\"Bob\"\n\"Dora\"\n\"The Board\"\n");
+
+		Path file = createFile(content.toString());
+		try {
+			List<Ballot<Candidate>> ballotsReadAtOnce = ballotsOf(BltBallotFile.read(file, ELECTION, Runnable::run, 1)
+			                                                                   .getBallots());
+			List<Ballot<Candidate>> ballotsReadInChunks = ballotsOf(BltBallotFile.read(file, ELECTION, Runnable::run, 7)
+			                                                                     .getBallots());
+
+			assertThat(ballotsReadInChunks, is(ballotsReadAtOnce));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void reportsTheLineAndColumnOfMalformedBallots() throws IOException {
+		Path file = createFile("3 1\n1 1 0\n2 3 1 3 0\n0\n\"Ann\"\n\"Bob\"\n\"Dora\"\n\"The Board\"\n");
+		try {
+			BallotFileParseException e = assertThrows(BallotFileParseException.class,
+			                                          () -> BltBallotFile.read(file, ELECTION, Runnable::run, 2));
+
+			assertThat(e.getLine(), is(3L));
+			assertThat(e.getColumn(), is(7L));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void rejectsMoreCandidatesThanTheFileCanName() throws IOException {
+		Path file = createFile("2000000000 1\n");
+		try {
+			BallotFileParseException e = assertThrows(BallotFileParseException.class,
+			                                          () -> BltBallotFile.read(file, ELECTION));
+
+			assertThat(e.getLine(), is(1L));
+			assertThat(e.getColumn(), is(1L));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void rejectsCandidatesTheElectionDoesNotHave() throws IOException {
+		Path file = createFile("2 1\n1 1 0\n0\n\"Ann\"\n\"Eve\"\n\"The Board\"\n");
+		try {
+			BallotFileParseException e = assertThrows(BallotFileParseException.class,
+			                                          () -> BltBallotFile.read(file, ELECTION));
+
+			assertThat(e.getLine(), is(5L));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	static Path createFile(String content) throws IOException {
+		Path file = Files.createTempFile("ballots", ".txt");
+		Files.writeString(file, content);
+		return file;
+	}
+
+	static List<Ballot<Candidate>> ballotsOf(ImportedBallots<Candidate> importedBallots) {
+		List<Ballot<Candidate>> ballots = new ArrayList<>();
+		importedBallots.forEachBallot(ballots::add);
+		return ballots;
+	}
+}
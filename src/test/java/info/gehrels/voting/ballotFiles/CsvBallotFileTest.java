@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.ballotFiles;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import info.gehrels.voting.singleTransferableVote.CompactSTVElectionCalculationFactory;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static info.gehrels.voting.TestUtils.mockListener;
+import static info.gehrels.voting.Vote.createInvalidVote;
+import static info.gehrels.voting.Vote.createPreferenceVote;
+import static info.gehrels.voting.ballotFiles.BltBallotFileTest.ballotsOf;
+import static info.gehrels.voting.ballotFiles.BltBallotFileTest.createFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class CsvBallotFileTest {
+	private static final Candidate CANDIDATE_A = new Candidate("Ann");
+	private static final Candidate CANDIDATE_B = new Candidate("Bob");
+	private static final Candidate CANDIDATE_C = new Candidate("Carl \"The Count\", Smith");
+	private static final Election<Candidate> ELECTION =
+		new Election<>("Board", ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C));
+
+	@Test
+	public void readsTheBallotsOfEachLine() throws IOException {
+		Path file = createFile("7,Ann,Bob\n-2, \"Carl \"\"The Count\"\", Smith\" ,Ann,,\r\n\n3\n");
+		try {
+			ImportedBallots<Candidate> ballots = CsvBallotFile.read(file, ELECTION, Runnable::run, 2);
+
+			assertThat(ballotsOf(ballots), contains(
+				new Ballot<>(7, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_A, CANDIDATE_B)))),
+				new Ballot<>(-2, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_C, CANDIDATE_A)))),
+				new Ballot<>(3, ImmutableSet.of(createInvalidVote(ELECTION)))
+			));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void countsTheImportedBallotsLikeTheBallotsTheyStandFor() throws IOException {
+		Path file = createFile("1,Ann,Bob\n2,Bob\n3,Bob,Ann\n4,\"Carl \"\"The Count\"\", Smith\",Bob\n5,Ann\n");
+		try {
+			ImportedBallots<Candidate> ballots = CsvBallotFile.read(file, ELECTION);
+			CompactSTVElectionCalculationFactory<Candidate> factory = new CompactSTVElectionCalculationFactory<>(
+				new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000)),
+				mockListener(), new TakeTheFirstOneByNameAmbiguityResolver<>());
+
+			assertThat(factory.createElectionCalculation(ELECTION, ballots).calculate(ELECTION.getCandidates(), 2),
+			           is(factory.createElectionCalculation(ELECTION, ImmutableList.copyOf(ballotsOf(ballots)))
+			                     .calculate(ELECTION.getCandidates(), 2)));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void countsTheImportedBallotsForAnEqualElection() throws IOException {
+		Path file = createFile("1,Ann,Bob\n2,Bob\n3,Bob,Ann\n4,\"Carl \"\"The Count\"\", Smith\",Bob\n5,Ann\n");
+		try {
+			ImportedBallots<Candidate> ballots = CsvBallotFile.read(file, ELECTION);
+			Election<Candidate> equalElection = new Election<>("Board", ImmutableSet.of(
+				new Candidate(CANDIDATE_C.name), new Candidate(CANDIDATE_B.name), new Candidate(CANDIDATE_A.name)));
+			CompactSTVElectionCalculationFactory<Candidate> factory = new CompactSTVElectionCalculationFactory<>(
+				new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000)),
+				mockListener(), new TakeTheFirstOneByNameAmbiguityResolver<>());
+
+			ImmutableSet<Candidate> electedCandidates = factory.createElectionCalculation(equalElection, ballots)
+				.calculate(equalElection.getCandidates(), 2);
+
+			assertThat(electedCandidates, contains(equalElection.getCandidate("Bob").get(),
+			                                      equalElection.getCandidate("Ann").get()));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void reportsTheLineAndColumnOfUnknownCandidates() throws IOException {
+		Path file = createFile("1,Ann\n2,Bob,Eve\n");
+		try {
+			BallotFileParseException e = assertThrows(BallotFileParseException.class,
+			                                          () -> CsvBallotFile.read(file, ELECTION, Runnable::run, 2));
+
+			assertThat(e.getLine(), is(2L));
+			assertThat(e.getColumn(), is(7L));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void reportsTheSecondLineUsingABallotId() throws IOException {
+		Path file = createFile("1,Ann\n2,Bob\n1,Bob\n");
+		try {
+			BallotFileParseException e = assertThrows(BallotFileParseException.class,
+			                                          () -> CsvBallotFile.read(file, ELECTION, Runnable::run, 3));
+
+			assertThat(e.getLine(), is(3L));
+			assertThat(e.getColumn(), is(1L));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import info.gehrels.voting.singleTransferableVote.AsynchronousSTVElectionCalculationListener.WhenFull;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+import static info.gehrels.voting.TestUtils.mockListener;
+import static org.apache.commons.math3.fraction.BigFraction.ONE;
+import static org.apache.commons.math3.fraction.BigFraction.TWO;
+import static org.apache.commons.math3.fraction.BigFraction.ZERO;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public final class AsynchronousSTVElectionCalculationListenerTest {
+	private final ForkJoinPool forkJoinPool = new ForkJoinPool(1);
+
+	@AfterEach
+	public void shutdownForkJoinPool() {
+		forkJoinPool.shutdown();
+	}
+
+	@Test
+	public void hasWrittenTheWholeAuditTrailWhenTheCalculationReturns() {
+		Random random = new Random(4711);
+		Election<Candidate> election = new Election<>("office", ImmutableSet.of(
+			new Candidate("A"), new Candidate("B"), new Candidate("C"), new Candidate("D"), new Candidate("E")));
+		ImmutableList<Ballot<Candidate>> ballots = createRandomBallots(random, election, 200);
+
+		StringBuilder synchronousAuditTrail = new StringBuilder();
+		calculate(ballots, election, new StringBuilderBackedSTVElectionCalculationListener<>(synchronousAuditTrail));
+		StringBuilder asynchronousAuditTrail = new StringBuilder();
+		calculate(ballots, election, new AsynchronousSTVElectionCalculationListener<>(
+			new StringBuilderBackedSTVElectionCalculationListener<>(asynchronousAuditTrail), 4, WhenFull.BLOCK,
+			forkJoinPool));
+
+		assertThat(asynchronousAuditTrail.toString(), is(synchronousAuditTrail.toString()));
+	}
+
+	@Test
+	public void discardsEventsWhileTheQueueIsFull() throws InterruptedException {
+		STVElectionCalculationListener<Candidate> delegate = mockListener();
+		CountDownLatch firstEventIsBeingDelivered = new CountDownLatch(1);
+		CountDownLatch delegateMayContinue = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			firstEventIsBeingDelivered.countDown();
+			delegateMayContinue.await();
+			return null;
+		}).when(delegate).nobodyReachedTheQuorumYet(ZERO);
+		AsynchronousSTVElectionCalculationListener<Candidate> listener =
+			new AsynchronousSTVElectionCalculationListener<>(delegate, 1, WhenFull.DISCARD, forkJoinPool);
+
+		listener.nobodyReachedTheQuorumYet(ZERO);
+		firstEventIsBeingDelivered.await();
+		listener.nobodyReachedTheQuorumYet(ONE);
+		listener.nobodyReachedTheQuorumYet(TWO);
+		delegateMayContinue.countDown();
+		listener.flush();
+
+		assertThat(listener.getNumberOfDiscardedEvents(), is(1L));
+		verify(delegate, never()).nobodyReachedTheQuorumYet(TWO);
+		InOrder inOrder = inOrder(delegate);
+		inOrder.verify(delegate).nobodyReachedTheQuorumYet(ZERO);
+		inOrder.verify(delegate).nobodyReachedTheQuorumYet(ONE);
+	}
+
+	@Test
+	public void rethrowsTheFirstExceptionOfTheListenerOnFlush() {
+		STVElectionCalculationListener<Candidate> delegate = mockListener();
+		doThrow(new IllegalStateException("first")).when(delegate).noCandidatesAreLeft();
+		AsynchronousSTVElectionCalculationListener<Candidate> listener =
+			new AsynchronousSTVElectionCalculationListener<>(delegate, 1, WhenFull.BLOCK, forkJoinPool);
+
+		listener.noCandidatesAreLeft();
+		listener.nobodyReachedTheQuorumYet(ONE);
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, listener::flush);
+		assertThat(e.getMessage(), is("first"));
+		verify(delegate).nobodyReachedTheQuorumYet(ONE);
+	}
+
+	private static void calculate(ImmutableList<Ballot<Candidate>> ballots, Election<Candidate> election,
+	                              STVElectionCalculationListener<Candidate> listener) {
+		new STVElectionCalculation<>(ballots,
+		                             new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(
+			                             new BigFraction(1, 1000)),
+		                             listener, election, new TakeTheFirstOneByNameAmbiguityResolver<>(),
+		                             new WeightedInclusiveGregoryMethod<>(listener))
+			.calculate(election.getCandidates(), 3);
+	}
+}
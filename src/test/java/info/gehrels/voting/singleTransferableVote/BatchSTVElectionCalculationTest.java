@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.QuorumCalculation;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import info.gehrels.voting.Vote;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+import static info.gehrels.voting.TestUtils.mockListener;
+import static info.gehrels.voting.Vote.createPreferenceVote;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class BatchSTVElectionCalculationTest {
+	private static final Candidate CANDIDATE_1_A = new Candidate("1a");
+	private static final Candidate CANDIDATE_1_B = new Candidate("1b");
+	private static final Candidate CANDIDATE_2_A = new Candidate("2a");
+	private static final Election<Candidate> ELECTION_1 = new Election<>("office1",
+	                                                                     ImmutableSet.of(CANDIDATE_1_A, CANDIDATE_1_B));
+	private static final Election<Candidate> ELECTION_2 = new Election<>("office2", ImmutableSet.of(CANDIDATE_2_A));
+
+	private final ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+
+	@AfterEach
+	public void shutdownForkJoinPool() {
+		forkJoinPool.shutdown();
+	}
+
+	@Test
+	public void countsEachElectionLikeASeparateCompactSTVElectionCalculation() {
+		Random random = new Random(4711);
+		List<Election<Candidate>> elections = new ArrayList<>();
+		List<ImmutableList<Ballot<Candidate>>> ballotsByElection = new ArrayList<>();
+		ImmutableMap.Builder<Election<Candidate>, Long> numberOfSeatsByElection = ImmutableMap.builder();
+		for (int i = 0; i < 5; i++) {
+			Candidate[] candidates = new Candidate[2 + random.nextInt(8)];
+			for (int j = 0; j < candidates.length; j++) {
+				candidates[j] = new Candidate(i + String.valueOf((char) ('A' + j)));
+			}
+			Election<Candidate> election = new Election<>("office" + i, ImmutableSet.copyOf(candidates));
+			elections.add(election);
+			ballotsByElection.add(createRandomBallots(random, election, 300));
+			numberOfSeatsByElection.put(election, (long) random.nextInt(candidates.length + 1));
+		}
+		ImmutableList<Ballot<Candidate>> ballots = combine(ballotsByElection);
+
+		Map<Election<Candidate>, StringBuilder> actualProtocols = new HashMap<>();
+		ImmutableMap<Election<Candidate>, ImmutableSet<Candidate>> actual = new BatchSTVElectionCalculation<>(
+			quorumCalculation(),
+			election -> {
+				StringBuilder protocol = new StringBuilder();
+				actualProtocols.put(election, protocol);
+				return new StringBuilderBackedSTVElectionCalculationListener<>(protocol);
+			},
+			new TakeTheFirstOneByNameAmbiguityResolver<>(), forkJoinPool)
+			.calculate(numberOfSeatsByElection.build(), ballots);
+
+		assertThat(actual.keySet().asList(), is(elections));
+		for (int i = 0; i < elections.size(); i++) {
+			Election<Candidate> election = elections.get(i);
+			StringBuilder expectedProtocol = new StringBuilder();
+			ImmutableSet<Candidate> expected = new CompactSTVElectionCalculation<>(
+				ballots, quorumCalculation(),
+				new StringBuilderBackedSTVElectionCalculationListener<>(expectedProtocol), election,
+				new TakeTheFirstOneByNameAmbiguityResolver<>())
+				.calculate(election.getCandidates(), numberOfSeatsByElection.build().get(election));
+
+			assertThat(actual.get(election), is(expected));
+			assertThat(actualProtocols.get(election).toString(), is(expectedProtocol.toString()));
+		}
+	}
+
+	@Test
+	public void ignoresVotesForElectionsThatAreNotCounted() {
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_1_B)),
+			                                createPreferenceVote(ELECTION_2, ImmutableList.of(CANDIDATE_2_A)))),
+			new Ballot<>(2, ImmutableSet.of(createPreferenceVote(ELECTION_2, ImmutableList.of(CANDIDATE_2_A))))
+		);
+
+		ImmutableMap<Election<Candidate>, ImmutableSet<Candidate>> result = new BatchSTVElectionCalculation<>(
+			quorumCalculation(), election -> mockListener(),
+			new TakeTheFirstOneByNameAmbiguityResolver<>(), forkJoinPool)
+			.calculate(ImmutableMap.of(ELECTION_1, 1L), ballots);
+
+		assertThat(result.keySet(), contains(ELECTION_1));
+		assertThat(result.get(ELECTION_1), contains(CANDIDATE_1_B));
+	}
+
+	@Test
+	public void rejectsBallotsWithEqualIds() {
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_1_A)))),
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION_2, ImmutableList.of(CANDIDATE_2_A))))
+		);
+		BatchSTVElectionCalculation<Candidate> batchCalculation = new BatchSTVElectionCalculation<>(
+			quorumCalculation(), election -> mockListener(),
+			new TakeTheFirstOneByNameAmbiguityResolver<>(), forkJoinPool);
+
+		assertThrows(IllegalArgumentException.class,
+		             () -> batchCalculation.calculate(ImmutableMap.of(ELECTION_1, 1L, ELECTION_2, 1L), ballots));
+	}
+
+	private static ImmutableList<Ballot<Candidate>> combine(List<ImmutableList<Ballot<Candidate>>> ballotsByElection) {
+		ImmutableList.Builder<Ballot<Candidate>> ballots = ImmutableList.builder();
+		for (int i = 0; i < ballotsByElection.get(0).size(); i++) {
+			ImmutableSet.Builder<Vote<Candidate>> votes = ImmutableSet.builder();
+			for (ImmutableList<Ballot<Candidate>> ballotsOfOneElection : ballotsByElection) {
+				votes.addAll(ballotsOfOneElection.get(i).votesByElections.values());
+			}
+			ballots.add(new Ballot<>(ballotsByElection.get(0).get(i).id, votes.build()));
+		}
+		return ballots.build();
+	}
+
+	private static QuorumCalculation quorumCalculation() {
+		return new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000));
+	}
+}
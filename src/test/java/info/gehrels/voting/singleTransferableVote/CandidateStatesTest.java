@@ -22,11 +22,13 @@ import org.junit.jupiter.api.Test;
 
 import static info.gehrels.voting.singleTransferableVote.CandidateStateMatchers.candidateStateFor;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.emptyIterable;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class CandidateStatesTest {
 	private static final Candidate A = new Candidate("A");
@@ -103,6 +105,26 @@ public final class CandidateStatesTest {
 		assertThat(result.getCandidateState(B).isElected(), is(true));
 	}
 
+	@Test
+	public void transitionsDoNotChangeTheOriginalCandidateStates() {
+		CandidateStates<Candidate> oldCandidateStates = new CandidateStates<>(ImmutableSet.of(A, B, C));
+		ImmutableSet<Candidate> oldHopefulCandidates = oldCandidateStates.getHopefulCandidates();
+
+		CandidateStates<Candidate> result = oldCandidateStates.withElected(A).withLoser(C);
+
+		assertThat(result.getHopefulCandidates(), contains(B));
+		assertThat(oldCandidateStates.getHopefulCandidates(), is(oldHopefulCandidates));
+		assertThat(oldCandidateStates.getHopefulCandidates(), contains(A, B, C));
+		assertThat(oldCandidateStates.getCandidateState(A).isElected(), is(false));
+	}
+
+	@Test
+	public void withElectedThrowsIfCandidateIsAlreadyALooser() {
+		CandidateStates<Candidate> candidateStates = new CandidateStates<>(ImmutableSet.of(A, B)).withLoser(A);
+
+		assertThrows(IllegalArgumentException.class, () -> candidateStates.withElected(A));
+	}
+
 	@Test
 	public void returnsEmptyIteratorForEmptyState() {
 		CandidateStates<Candidate> candidateStates = new CandidateStates<>(ImmutableSet.of());
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.singleTransferableVote.NumberColumn.TransferFactor;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public final class ColumnCountingStateTest {
+	private static final Candidate A = new Candidate("A");
+	private static final Candidate B = new Candidate("B");
+	private static final Candidate C = new Candidate("C");
+	private static final Candidate D = new Candidate("D");
+	private static final Candidate E = new Candidate("E");
+	private static final Election<Candidate> ELECTION = new Election<>("office", ImmutableSet.of(A, B, C, D, E));
+
+	@Test
+	public void incrementallyMaintainedVoteDistributionEqualsAFullRecount() {
+		Random random = new Random(42);
+		for (int i = 0; i < 50; i++) {
+			VoteColumns<Candidate> columns = VoteColumns.fromBallots(ELECTION, createRandomBallots(random, ELECTION,
+			                                                                                        100));
+			ColumnCountingState<Candidate> state = new ColumnCountingState<>(columns, ImmutableSet.of(A, B, C, D),
+			                                                                  VoteWeightArithmetic.exact());
+			assertThatDistributionMatchesRecount(state);
+
+			while (state.anyCandidateIsHopeful()) {
+				int candidateIndex = random.nextInt(state.numberOfCandidates());
+				if (!state.isHopeful(candidateIndex)) {
+					continue;
+				}
+
+				if (random.nextBoolean()) {
+					state.markAsElected(candidateIndex);
+					state.multiplyVoteWeightsOfVotesFor(candidateIndex,
+					                                    new TransferFactor(new BigFraction(1 + random.nextInt(5), 7), 0));
+				} else {
+					state.markAsLooser(candidateIndex);
+				}
+				state.moveVotesToNextHopefulCandidate();
+				assertThatDistributionMatchesRecount(state);
+			}
+		}
+	}
+
+	private static void assertThatDistributionMatchesRecount(ColumnCountingState<Candidate> state) {
+		ImmutableSet.Builder<Candidate> hopefulCandidates = ImmutableSet.builder();
+		for (int candidateIndex = 0; candidateIndex < state.numberOfCandidates(); candidateIndex++) {
+			if (state.isHopeful(candidateIndex)) {
+				hopefulCandidates.add(state.candidate(candidateIndex));
+			}
+		}
+
+		VoteDistribution<Candidate> recount = new VoteDistribution<>(hopefulCandidates.build(), state.toVoteStates());
+		VoteDistribution<Candidate> maintained = state.toVoteDistribution();
+		assertThat(maintained.votesByCandidate, is(recount.votesByCandidate));
+		assertThat(maintained.noVotes, is(recount.noVotes));
+		assertThat(maintained.invalidVotes, is(recount.invalidVotes));
+	}
+}
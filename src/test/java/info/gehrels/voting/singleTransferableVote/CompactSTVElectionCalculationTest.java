@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.AmbiguityResolver;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.BallotSource;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.QuorumCalculation;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+import static info.gehrels.voting.TestUtils.mockListener;
+import static info.gehrels.voting.Vote.createInvalidVote;
+import static info.gehrels.voting.Vote.createNoVote;
+import static info.gehrels.voting.Vote.createPreferenceVote;
+import static org.apache.commons.math3.fraction.BigFraction.TWO;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public final class CompactSTVElectionCalculationTest {
+	private static final Candidate CANDIDATE_1_A = new Candidate("1a");
+	private static final Candidate CANDIDATE_1_B = new Candidate("1b");
+	private static final Candidate CANDIDATE_2_A = new Candidate("2a");
+	private static final Election<Candidate> ELECTION_1 = new Election<>("office1",
+	                                                                     ImmutableSet.of(CANDIDATE_1_A, CANDIDATE_1_B));
+	private static final QuorumCalculation QUORUM =
+		new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000));
+	private static final Election<Candidate> ELECTION_2 = new Election<>("office2", ImmutableSet.of(CANDIDATE_2_A));
+
+	private static final Pattern AMBIGUOUS_CANDIDATES = Pattern.compile("\\[(.*)]");
+
+	private final QuorumCalculation quorumCalculationMock = mock(QuorumCalculation.class);
+	private final STVElectionCalculationListener<Candidate> electionCalculationListenerMock =
+		mockListener();
+	private final AmbiguityResolver<Candidate> ambiguityResolverMock = mock(AmbiguityResolver.class);
+
+	@Test
+	public void callsQuorumCalculatorAndListenerWithTheCorrectParameters() {
+		doReturn(TWO).when(quorumCalculationMock).calculateQuorum(anyLong(), anyLong());
+
+		new CompactSTVElectionCalculation<>(setupBallotsFixture(), quorumCalculationMock,
+		                                    electionCalculationListenerMock, ELECTION_1, ambiguityResolverMock)
+			.calculate(ImmutableSet.of(CANDIDATE_1_A), 2);
+
+		verify(quorumCalculationMock).calculateQuorum(3, 2);
+		verify(electionCalculationListenerMock).quorumHasBeenCalculated(3, 2, TWO);
+	}
+
+	@Test
+	public void rejectsBallotsWithEqualIds() {
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_1_A)))),
+			new Ballot<>(1, ImmutableSet.of(createNoVote(ELECTION_1)))
+		);
+
+		assertThrows(IllegalArgumentException.class,
+		             () -> new CompactSTVElectionCalculation<>(ballots, quorumCalculationMock,
+		                                                       electionCalculationListenerMock, ELECTION_1,
+		                                                       ambiguityResolverMock));
+	}
+
+	@Test
+	public void rejectsBallotsWithEqualIdsFromABallotSource() {
+		BallotSource<Candidate> ballots = BallotSource.of(ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_1_A)))),
+			new Ballot<>(1, ImmutableSet.of(createNoVote(ELECTION_1)))
+		));
+
+		for (BallotRepresentation ballotRepresentation : BallotRepresentation.values()) {
+			assertThrows(IllegalArgumentException.class,
+			             () -> new CompactSTVElectionCalculation<>(ballots, quorumCalculationMock,
+			                                                       electionCalculationListenerMock, ELECTION_1,
+			                                                       ambiguityResolverMock, ballotRepresentation,
+			                                                       VoteWeightArithmetic.exact()));
+		}
+	}
+
+	@Test
+	public void countsABallotSourceLikeTheCollectionOfItsBallots() {
+		Random random = new Random(42);
+		for (int i = 0; i < 50; i++) {
+			Candidate[] candidates = new Candidate[2 + random.nextInt(8)];
+			for (int j = 0; j < candidates.length; j++) {
+				candidates[j] = new Candidate(String.valueOf((char) ('A' + j)));
+			}
+			Election<Candidate> election = new Election<>("office", ImmutableSet.copyOf(candidates));
+			ImmutableList<Ballot<Candidate>> ballots = createRandomBallots(random, election, 1 + random.nextInt(150));
+			long numberOfSeats = random.nextInt(candidates.length + 1);
+
+			for (BallotRepresentation ballotRepresentation : BallotRepresentation.values()) {
+				StringBuilder expectedProtocol = new StringBuilder();
+				ImmutableSet<Candidate> expected = new CompactSTVElectionCalculationFactory<>(
+					quorumCalculation(), new StringBuilderBackedSTVElectionCalculationListener<>(expectedProtocol),
+					new TakeTheFirstOneByNameAmbiguityResolver<>(), ballotRepresentation, VoteWeightArithmetic.exact())
+					.createElectionCalculation(election, ballots).calculate(election.getCandidates(), numberOfSeats);
+
+				StringBuilder actualProtocol = new StringBuilder();
+				ImmutableSet<Candidate> actual = new CompactSTVElectionCalculationFactory<>(
+					quorumCalculation(), new StringBuilderBackedSTVElectionCalculationListener<>(actualProtocol),
+					new TakeTheFirstOneByNameAmbiguityResolver<>(), ballotRepresentation, VoteWeightArithmetic.exact())
+					.createElectionCalculation(election, BallotSource.of(ballots))
+					.calculate(election.getCandidates(), numberOfSeats);
+
+				assertThat(actual, is(expected));
+				assertThat(actualProtocol.toString(), is(expectedProtocol.toString()));
+			}
+		}
+	}
+
+	@Test
+	public void electsTheSameCandidatesAndReportsTheSameStepsAsSTVElectionCalculation() {
+		Random random = new Random(4711);
+		for (int i = 0; i < 200; i++) {
+			Candidate[] candidates = new Candidate[2 + random.nextInt(8)];
+			for (int j = 0; j < candidates.length; j++) {
+				candidates[j] = new Candidate(String.valueOf((char) ('A' + j)));
+			}
+			Election<Candidate> election = new Election<>("office", ImmutableSet.copyOf(candidates));
+			ImmutableList<Ballot<Candidate>> ballots = createRandomBallots(random, election, 1 + random.nextInt(150));
+			ImmutableSet<Candidate> qualifiedCandidates = ImmutableSet.copyOf(
+				Arrays.copyOf(candidates, 1 + random.nextInt(candidates.length)));
+			long numberOfSeats = random.nextInt(candidates.length + 1);
+
+			StringBuilder expectedProtocol = new StringBuilder();
+			ImmutableSet<Candidate> expected = new STVElectionCalculationFactory<>(
+				quorumCalculation(), new StringBuilderBackedSTVElectionCalculationListener<>(expectedProtocol),
+				new TakeTheFirstOneByNameAmbiguityResolver<>())
+				.createElectionCalculation(election, ballots).calculate(qualifiedCandidates, numberOfSeats);
+
+			for (BallotRepresentation ballotRepresentation : BallotRepresentation.values()) {
+				StringBuilder actualProtocol = new StringBuilder();
+				ImmutableSet<Candidate> actual = new CompactSTVElectionCalculationFactory<>(
+					quorumCalculation(), new StringBuilderBackedSTVElectionCalculationListener<>(actualProtocol),
+					new TakeTheFirstOneByNameAmbiguityResolver<>(), ballotRepresentation, VoteWeightArithmetic.exact())
+					.createElectionCalculation(election, ballots).calculate(qualifiedCandidates, numberOfSeats);
+
+				assertThat(actual, is(expected));
+				// Vote distributions and ambiguous candidates of STVElectionCalculation are hash ordered, so only
+				// compare the sorted lines.
+				assertThat(sortedLines(actualProtocol), is(sortedLines(expectedProtocol)));
+			}
+		}
+	}
+
+	@Test
+	public void truncatesTransferFactorsAndVoteWeightsInFixedPointArithmetic() {
+		Candidate a = new Candidate("A");
+		Candidate b = new Candidate("B");
+		Candidate c = new Candidate("C");
+		Election<Candidate> election = new Election<>("office", ImmutableSet.of(a, b, c));
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(election, ImmutableList.of(a, b)))),
+			new Ballot<>(2, ImmutableSet.of(createPreferenceVote(election, ImmutableList.of(a, b)))),
+			new Ballot<>(3, ImmutableSet.of(createPreferenceVote(election, ImmutableList.of(a, c))))
+		);
+		doReturn(TWO).when(quorumCalculationMock).calculateQuorum(anyLong(), anyLong());
+
+		for (BallotRepresentation ballotRepresentation : BallotRepresentation.values()) {
+			STVElectionCalculationListener<Candidate> listenerMock = mockListener();
+			ImmutableSet<Candidate> electedCandidates = new CompactSTVElectionCalculation<>(
+				ballots, quorumCalculationMock, listenerMock, election, ambiguityResolverMock, ballotRepresentation,
+				VoteWeightArithmetic.fixedPoint(2))
+				.calculate(ImmutableSet.of(a, b, c), 2);
+
+			assertThat(electedCandidates, is(ImmutableSet.of(a)));
+			verify(listenerMock).redistributingExcessiveFractionOfVoteWeight(a, new BigFraction(33, 100));
+			verify(listenerMock).candidateDropped(
+				argThat(distribution -> new BigFraction(66, 100).equals(distribution.votesByCandidate.get(b))
+				                        && new BigFraction(33, 100).equals(distribution.votesByCandidate.get(c))),
+				eq(c));
+		}
+	}
+
+	private static QuorumCalculation quorumCalculation() {
+		return new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000));
+	}
+
+	private static ImmutableList<String> sortedLines(StringBuilder protocol) {
+		ImmutableList.Builder<String> lines = ImmutableList.builder();
+		for (String line : protocol.toString().split("\n")) {
+			Matcher matcher = AMBIGUOUS_CANDIDATES.matcher(line);
+			if (matcher.find()) {
+				String[] names = matcher.group(1).split(", ");
+				Arrays.sort(names);
+				line = matcher.replaceFirst("[" + String.join(", ", names) + "]");
+			}
+			lines.add(line);
+		}
+		return ImmutableList.sortedCopyOf(lines.build());
+	}
+
+	private ImmutableList<Ballot<Candidate>> setupBallotsFixture() {
+		return ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION_2, ImmutableList.of(CANDIDATE_2_A)))),
+			new Ballot<>(2, ImmutableSet.of(createInvalidVote(ELECTION_1))),
+			new Ballot<>(3, ImmutableSet.of(createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_1_A)))),
+			new Ballot<>(4, ImmutableSet.of(createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_1_B)))),
+			new Ballot<>(5, ImmutableSet.of(createNoVote(ELECTION_1)))
+		);
+	}
+}
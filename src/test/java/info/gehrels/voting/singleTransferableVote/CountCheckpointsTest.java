@@ -0,0 +1,236 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import info.gehrels.voting.genderedElections.ElectionCalculationWithFemaleExclusivePositions;
+import info.gehrels.voting.genderedElections.ElectionCalculationWithFemaleExclusivePositions.Result;
+import info.gehrels.voting.genderedElections.ElectionCalculationWithFemaleExclusivePositionsListener;
+import info.gehrels.voting.genderedElections.GenderedCandidate;
+import info.gehrels.voting.genderedElections.GenderedElection;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static info.gehrels.voting.TestUtils.mockListener;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.CANDIDATE_A;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.CANDIDATE_D;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.ELECTION;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createBallot;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createBallots;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createCalculation;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.emptyIterable;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public final class CountCheckpointsTest {
+	@Test
+	public void resumesAnInterruptedCountAfterItsLastRound() throws IOException {
+		ImmutableList<Ballot<Candidate>> ballots = createBallots(ELECTION);
+		ImmutableSet<Candidate> uninterruptedResult =
+			createCheckpointedCalculation(ballots, mockListener(), CountCheckpoints.none())
+				.calculate(ELECTION.getCandidates(), 2);
+
+		Path directory = Files.createTempDirectory("checkpoints");
+		try {
+			interruptCountAfterTheFirstRound(ballots, directory);
+
+			STVElectionCalculationListener<Candidate> resumedListener = mockListener();
+			ImmutableSet<Candidate> resumedResult =
+				createCheckpointedCalculation(ballots, resumedListener, CountCheckpoints.inDirectory(directory))
+					.calculate(ELECTION.getCandidates(), 2);
+
+			assertThat(resumedResult, is(uninterruptedResult));
+			verify(resumedListener, never()).candidateIsElected(eq(CANDIDATE_A), any(), any());
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	public void keepsTheCheckpointOfEachCountApart() throws IOException {
+		ImmutableList<Ballot<Candidate>> ballots = createBallots(ELECTION);
+		Path directory = Files.createTempDirectory("checkpoints");
+		try {
+			interruptCountAfterTheFirstRound(ballots, directory);
+
+			// A count of one seat neither uses nor removes the checkpoint of the interrupted count of two seats
+			assertThat(createCheckpointedCalculation(ballots, mockListener(),
+			                                         CountCheckpoints.inDirectory(directory))
+				           .calculate(ELECTION.getCandidates(), 1),
+			           is(ImmutableSet.of(CANDIDATE_A)));
+			STVElectionCalculationListener<Candidate> resumedListener = mockListener();
+			createCheckpointedCalculation(ballots, resumedListener, CountCheckpoints.inDirectory(directory))
+				.calculate(ELECTION.getCandidates(), 2);
+			verify(resumedListener, never()).candidateIsElected(eq(CANDIDATE_A), any(), any());
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	public void rejectsTheCheckpointOfACountOnOtherRankings() throws IOException {
+		Path directory = Files.createTempDirectory("checkpoints");
+		try {
+			interruptCountAfterTheFirstRound(createBallots(ELECTION), directory);
+
+			// The same ballot ids, but the last ballot ranks D instead of B
+			ImmutableList<Ballot<Candidate>> correctedBallots = ImmutableList.<Ballot<Candidate>>builder()
+				.addAll(createBallots(ELECTION).subList(0, 18))
+				.add(createBallot(ELECTION, 18, CANDIDATE_D))
+				.build();
+			assertThrows(IllegalArgumentException.class,
+			             () -> createCheckpointedCalculation(correctedBallots, mockListener(),
+			                                                 CountCheckpoints.inDirectory(directory))
+				             .calculate(ELECTION.getCandidates(), 2));
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	public void startsOverAfterACompleteCount() throws IOException {
+		ImmutableList<Ballot<Candidate>> ballots = createBallots(ELECTION);
+		Path directory = Files.createTempDirectory("checkpoints");
+		try {
+			STVElectionCalculation<Candidate> calculation =
+				createCheckpointedCalculation(ballots, mockListener(),
+				                              CountCheckpoints.inDirectory(directory));
+			calculation.calculate(ELECTION.getCandidates(), 2);
+			try (Stream<Path> files = Files.list(directory)) {
+				assertThat(files.toList(), is(emptyIterable()));
+			}
+
+			assertThat(calculation.calculate(ELECTION.getCandidates(), 2),
+			           is(createCheckpointedCalculation(ballots, mockListener(),
+			                                            CountCheckpoints.none())
+				              .calculate(ELECTION.getCandidates(), 2)));
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	public void resumesTheSecondCountOfAGenderedElection() throws IOException {
+		GenderedCandidate candidateF = new GenderedCandidate("F", true);
+		GenderedCandidate candidateG = new GenderedCandidate("G", true);
+		GenderedCandidate candidateA = new GenderedCandidate("A", false);
+		GenderedCandidate candidateB = new GenderedCandidate("B", false);
+		GenderedCandidate candidateC = new GenderedCandidate("C", false);
+		GenderedElection election = new GenderedElection("office", 1, 2, ImmutableSet.of(
+			candidateF, candidateG, candidateA, candidateB, candidateC));
+		// F is elected in the female exclusive count. The open count elects A in its first round, and C only after B
+		// and G have been excluded.
+		ImmutableList.Builder<Ballot<GenderedCandidate>> ballotsBuilder = ImmutableList.builder();
+		long id = 0;
+		for (int i = 0; i < 23; i++) {
+			ballotsBuilder.add(createBallot(election, id++, candidateF, candidateA));
+		}
+		for (int i = 0; i < 6; i++) {
+			ballotsBuilder.add(createBallot(election, id++, candidateA, candidateB));
+		}
+		for (int i = 0; i < 12; i++) {
+			ballotsBuilder.add(createBallot(election, id++, candidateC));
+		}
+		for (int i = 0; i < 3; i++) {
+			ballotsBuilder.add(createBallot(election, id++, candidateG, candidateC));
+		}
+		ImmutableList<Ballot<GenderedCandidate>> ballots = ballotsBuilder.build();
+		Result uninterruptedResult = createGenderedCalculation(mockListener(),
+		                                                       CountCheckpoints.none())
+			.calculateElectionResult(election, ballots);
+
+		Path directory = Files.createTempDirectory("checkpoints");
+		try {
+			// Interrupts the open count when it elects its second candidate
+			STVElectionCalculationListener<GenderedCandidate> interruptedListener =
+				mockListener();
+			doNothing().doNothing().doThrow(new IllegalStateException("interrupted"))
+				.when(interruptedListener).candidateIsElected(any(), any(), any());
+			assertThrows(IllegalStateException.class,
+			             () -> createGenderedCalculation(interruptedListener, CountCheckpoints.inDirectory(directory))
+				             .calculateElectionResult(election, ballots));
+
+			STVElectionCalculationListener<GenderedCandidate> resumedListener =
+				mockListener();
+			Result resumedResult = createGenderedCalculation(resumedListener, CountCheckpoints.inDirectory(directory))
+				.calculateElectionResult(election, ballots);
+
+			assertThat(resumedResult.getCandidatesElectedInFemaleExclusiveRun(),
+			           is(uninterruptedResult.getCandidatesElectedInFemaleExclusiveRun()));
+			assertThat(resumedResult.getCandidatesElectedInNotFemaleExclusiveRun(),
+			           is(uninterruptedResult.getCandidatesElectedInNotFemaleExclusiveRun()));
+			verify(resumedListener).candidateIsElected(eq(candidateF), any(), any());
+			verify(resumedListener, never()).candidateIsElected(eq(candidateA), any(), any());
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	private static void interruptCountAfterTheFirstRound(ImmutableList<Ballot<Candidate>> ballots, Path directory) {
+		// Interrupts the count when the second candidate is elected, after A has been elected in the first round
+		STVElectionCalculationListener<Candidate> interruptedListener = mockListener();
+		doNothing().doThrow(new IllegalStateException("interrupted"))
+			.when(interruptedListener).candidateIsElected(any(), any(), any());
+		assertThrows(IllegalStateException.class,
+		             () -> createCheckpointedCalculation(ballots, interruptedListener,
+		                                                 CountCheckpoints.inDirectory(directory))
+			             .calculate(ELECTION.getCandidates(), 2));
+	}
+
+	private static STVElectionCalculation<Candidate> createCheckpointedCalculation(
+		ImmutableList<Ballot<Candidate>> ballots, STVElectionCalculationListener<Candidate> listener,
+		CountCheckpoints countCheckpoints) {
+		return createCalculation(ELECTION, ballots, listener,
+		                         CountingOptions.defaults().withCountCheckpoints(countCheckpoints));
+	}
+
+	private static ElectionCalculationWithFemaleExclusivePositions createGenderedCalculation(
+		STVElectionCalculationListener<GenderedCandidate> listener, CountCheckpoints countCheckpoints) {
+		return new ElectionCalculationWithFemaleExclusivePositions(
+			new STVElectionCalculationFactory<>(
+				new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000)), listener,
+				new TakeTheFirstOneByNameAmbiguityResolver<>(),
+				CountingOptions.defaults().withCountCheckpoints(countCheckpoints)),
+			mock(ElectionCalculationWithFemaleExclusivePositionsListener.class));
+	}
+
+	private static void deleteDirectory(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import org.apache.commons.math3.fraction.BigFraction;
+
+import static info.gehrels.voting.TestUtils.mockListener;
+import static info.gehrels.voting.Vote.createPreferenceVote;
+
+/**
+ * A small count that takes three rounds for two seats: Ten ballots rank A and B, four C, three D and C, and two B. A
+ * is elected in the first round and A's surplus moves on to B. D is excluded in the second round, and C reaches the
+ * quorum with D's votes in the third.
+ */
+final class CountFixture {
+	static final Candidate CANDIDATE_A = new Candidate("A");
+	static final Candidate CANDIDATE_B = new Candidate("B");
+	static final Candidate CANDIDATE_C = new Candidate("C");
+	static final Candidate CANDIDATE_D = new Candidate("D");
+	static final Election<Candidate> ELECTION =
+		new Election<>("office", ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C, CANDIDATE_D));
+
+	private CountFixture() {
+	}
+
+	static STVElectionCalculation<Candidate> createCalculation(Election<Candidate> election,
+	                                                          ImmutableList<Ballot<Candidate>> ballots) {
+		return createCalculation(election, ballots, mockListener(),
+		                         CountingOptions.defaults());
+	}
+
+	static STVElectionCalculation<Candidate> createCalculation(Election<Candidate> election,
+	                                                          ImmutableList<Ballot<Candidate>> ballots,
+	                                                          STVElectionCalculationListener<Candidate> listener,
+	                                                          CountingOptions countingOptions) {
+		return new STVElectionCalculation<>(ballots,
+		                                    new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(
+			                                    new BigFraction(1, 1000)),
+		                                    listener, election, new TakeTheFirstOneByNameAmbiguityResolver<>(),
+		                                    new WeightedInclusiveGregoryMethod<>(listener), countingOptions);
+	}
+
+	/**
+	 * @param election must include the candidates A, B, C and D.
+	 */
+	static ImmutableList<Ballot<Candidate>> createBallots(Election<Candidate> election) {
+		ImmutableList.Builder<Ballot<Candidate>> ballots = ImmutableList.builder();
+		long id = 0;
+		for (int i = 0; i < 10; i++) {
+			ballots.add(createBallot(election, id++, CANDIDATE_A, CANDIDATE_B));
+		}
+		for (int i = 0; i < 4; i++) {
+			ballots.add(createBallot(election, id++, CANDIDATE_C));
+		}
+		for (int i = 0; i < 3; i++) {
+			ballots.add(createBallot(election, id++, CANDIDATE_D, CANDIDATE_C));
+		}
+		for (int i = 0; i < 2; i++) {
+			ballots.add(createBallot(election, id++, CANDIDATE_B));
+		}
+		return ballots.build();
+	}
+
+	@SafeVarargs
+	static <CANDIDATE_TYPE extends Candidate> Ballot<CANDIDATE_TYPE> createBallot(Election<CANDIDATE_TYPE> election,
+	                                                                              long id,
+	                                                                              CANDIDATE_TYPE... rankedCandidates) {
+		return new Ballot<>(id, ImmutableSet.of(createPreferenceVote(election, ImmutableList.copyOf(rankedCandidates))));
+	}
+}
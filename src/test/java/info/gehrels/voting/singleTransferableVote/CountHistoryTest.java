@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import org.junit.jupiter.api.Test;
+
+import static info.gehrels.voting.singleTransferableVote.CountFixture.CANDIDATE_A;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.CANDIDATE_B;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.CANDIDATE_C;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.CANDIDATE_D;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createBallot;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createBallots;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createCalculation;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public final class CountHistoryTest {
+	private static final Candidate CANDIDATE_E = new Candidate("E");
+	private static final Election<Candidate> ELECTION =
+		new Election<>("office", ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C, CANDIDATE_D, CANDIDATE_E));
+
+	@Test
+	public void recountsOnlyTheRoundsAWithdrawnCandidateTookPartIn() {
+		STVElectionCalculation<Candidate> calculation = createCalculation(ELECTION, createBallots(ELECTION));
+		CountHistory<Candidate> previousCount = calculation.calculateWithHistory(ELECTION.getCandidates(), 2);
+
+		// A is elected in the first round. E has no votes until it is dropped in the second round.
+		ImmutableSet<Candidate> remainingCandidates = ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C,
+		                                                              CANDIDATE_D);
+		CountHistory<Candidate> recount = calculation.recount(previousCount, remainingCandidates);
+
+		CountHistory<Candidate> completeCount = createCalculation(ELECTION, createBallots(ELECTION))
+			.calculateWithHistory(remainingCandidates, 2);
+		assertThat(recount.getFirstCountedRound(), is(2));
+		assertThat(recount.getElectedCandidates(), is(completeCount.getElectedCandidates()));
+		assertThat(recount.getNumberOfRounds(), is(completeCount.getNumberOfRounds()));
+		assertThat(recount.getElectedCandidates(), is(ImmutableSet.of(CANDIDATE_A, CANDIDATE_C)));
+	}
+
+	@Test
+	public void recountsTheRoundInWhichAWithdrawnCandidateReceivedASurplus() {
+		ImmutableList.Builder<Ballot<Candidate>> ballots = ImmutableList.builder();
+		long id = 0;
+		for (int i = 0; i < 10; i++) {
+			ballots.add(createBallot(ELECTION, id++, CANDIDATE_A, CANDIDATE_E, CANDIDATE_B));
+		}
+		for (int i = 0; i < 4; i++) {
+			ballots.add(createBallot(ELECTION, id++, CANDIDATE_C));
+		}
+		for (int i = 0; i < 3; i++) {
+			ballots.add(createBallot(ELECTION, id++, CANDIDATE_D, CANDIDATE_C));
+		}
+		for (int i = 0; i < 2; i++) {
+			ballots.add(createBallot(ELECTION, id++, CANDIDATE_B));
+		}
+		STVElectionCalculation<Candidate> calculation = createCalculation(ELECTION, ballots.build());
+		CountHistory<Candidate> previousCount = calculation.calculateWithHistory(ELECTION.getCandidates(), 2);
+
+		// The surplus of A, elected in the first round, is transferred to E
+		ImmutableSet<Candidate> remainingCandidates = ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C,
+		                                                              CANDIDATE_D);
+		CountHistory<Candidate> recount = calculation.recount(previousCount, remainingCandidates);
+
+		CountHistory<Candidate> completeCount = calculation.calculateWithHistory(remainingCandidates, 2);
+		assertThat(recount.getFirstCountedRound(), is(1));
+		assertThat(recount.getElectedCandidates(), is(completeCount.getElectedCandidates()));
+		assertThat(recount.getNumberOfRounds(), is(completeCount.getNumberOfRounds()));
+	}
+
+	@Test
+	public void takesAllRoundsFromACountOnBallotsWithACorrectedCandidate() {
+		CountHistory<Candidate> previousCount = createCalculation(ELECTION, createBallots(ELECTION))
+			.calculateWithHistory(ELECTION.getCandidates(), 2);
+
+		Candidate correctedCandidateC = new Candidate("C");
+		Election<Candidate> correctedElection =
+			new Election<>("office", ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, correctedCandidateC, CANDIDATE_D,
+			                                         CANDIDATE_E));
+		ImmutableList.Builder<Ballot<Candidate>> correctedBallots = ImmutableList.builder();
+		for (Ballot<Candidate> ballot : createBallots(ELECTION)) {
+			correctedBallots.add(ballot.withReplacedCandidateVersion(correctedElection, correctedCandidateC));
+		}
+
+		CountHistory<Candidate> recount = createCalculation(correctedElection, correctedBallots.build())
+			.recount(previousCount, correctedElection.getCandidates());
+
+		assertThat(recount.getFirstCountedRound(), is(previousCount.getNumberOfRounds() + 1));
+		assertThat(recount.getNumberOfRounds(), is(previousCount.getNumberOfRounds()));
+		assertThat(recount.getElectedCandidates(), is(ImmutableSet.of(CANDIDATE_A, correctedCandidateC)));
+	}
+
+	@Test
+	public void recountsEverythingIfACandidateHasBeenAdded() {
+		STVElectionCalculation<Candidate> calculation = createCalculation(ELECTION, createBallots(ELECTION));
+		CountHistory<Candidate> previousCount =
+			calculation.calculateWithHistory(ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C, CANDIDATE_E), 2);
+
+		CountHistory<Candidate> recount = calculation.recount(previousCount, ELECTION.getCandidates());
+
+		assertThat(recount.getFirstCountedRound(), is(1));
+		assertThat(recount.getElectedCandidates(),
+		           is(calculation.calculateWithHistory(ELECTION.getCandidates(), 2).getElectedCandidates()));
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.singleTransferableVote.CountingMetrics.Transfer;
+import jdk.jfr.EventType;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static info.gehrels.voting.TestUtils.mockListener;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.ELECTION;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createBallots;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createCalculation;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItems;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public final class CountingMetricsTest {
+	@Test
+	public void measuresEachRoundAndTransfer() {
+		CountingMetrics countingMetrics = mock(CountingMetrics.class);
+		doReturn(true).when(countingMetrics).isEnabled();
+
+		createMeasuredCalculation(countingMetrics).calculate(ELECTION.getCandidates(), 2);
+
+		// A's surplus moves A's ten votes on to B, then D is excluded and C reaches the quorum with D's three votes
+		verify(countingMetrics, times(3)).quorumChecked(anyLong());
+		verify(countingMetrics).votesTransferred(eq(Transfer.SURPLUS), eq(10L), anyLong());
+		verify(countingMetrics).votesTransferred(eq(Transfer.EXCLUSION), eq(3L), anyLong());
+		verify(countingMetrics, times(2)).voteWeightsRecalculated(anyLong());
+		verify(countingMetrics, times(3)).voteWeightsMeasured(anyInt(), anyInt());
+		verify(countingMetrics).roundCompleted(eq("office"), eq(1L), anyLong());
+		verify(countingMetrics).roundCompleted(eq("office"), eq(3L), anyLong());
+		verify(countingMetrics).calculationCompleted(eq("office"), eq(2L), eq(3L), anyLong());
+	}
+
+	@Test
+	public void measuresNothingIfNotEnabled() {
+		CountingMetrics countingMetrics = mock(CountingMetrics.class);
+		doReturn(false).when(countingMetrics).isEnabled();
+
+		createMeasuredCalculation(countingMetrics).calculate(ELECTION.getCandidates(), 2);
+
+		verify(countingMetrics, never()).quorumChecked(anyLong());
+		verify(countingMetrics, never()).voteWeightsRecalculated(anyLong());
+		verify(countingMetrics, never()).roundCompleted(eq("office"), anyLong(), anyLong());
+		verify(countingMetrics, never()).calculationCompleted(eq("office"), anyLong(), anyLong(), anyLong());
+	}
+
+	@Test
+	public void recordsFlightRecorderEvents() throws IOException {
+		Path file = Files.createTempFile("count", ".jfr");
+		try {
+			try (Recording recording = new Recording()) {
+				recording.enable("info.gehrels.voting.Calculation");
+				recording.enable("info.gehrels.voting.Round");
+				recording.enable("info.gehrels.voting.VoteTransfer");
+				recording.enable("info.gehrels.voting.VoteWeightRecalculation");
+				recording.start();
+				createMeasuredCalculation(new JfrCountingMetrics()).calculate(ELECTION.getCandidates(), 2);
+				recording.stop();
+				recording.dump(file);
+			}
+
+			List<String> eventNames = RecordingFile.readAllEvents(file).stream()
+				.map(RecordedEvent::getEventType)
+				.map(EventType::getName)
+				.toList();
+			assertThat(eventNames, hasItems("info.gehrels.voting.Calculation", "info.gehrels.voting.Round",
+			                                "info.gehrels.voting.VoteTransfer",
+			                                "info.gehrels.voting.VoteWeightRecalculation"));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static STVElectionCalculation<Candidate> createMeasuredCalculation(CountingMetrics countingMetrics) {
+		return createCalculation(ELECTION, createBallots(ELECTION), mockListener(),
+		                         CountingOptions.defaults().withCountingMetrics(countingMetrics));
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.ElectionCalculation;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.QuorumCalculation;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import info.gehrels.voting.singleTransferableVote.STVElectionCalculationListener.DetailLevel;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+
+import static info.gehrels.voting.singleTransferableVote.CountFixture.ELECTION;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createBallots;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createCalculation;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checks both the reference and the compact calculation against the detail level their listener asks for.
+ */
+public final class DetailLevelTest {
+	private static final QuorumCalculation QUORUM =
+		new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000));
+	private static final ImmutableList<Function<STVElectionCalculationListener<Candidate>, ElectionCalculation<Candidate>>>
+		CALCULATIONS = ImmutableList.of(
+		listener -> createCalculation(ELECTION, createBallots(ELECTION), listener, CountingOptions.defaults()),
+		listener -> new CompactSTVElectionCalculation<>(createBallots(ELECTION), QUORUM, listener, ELECTION,
+		                                                new TakeTheFirstOneByNameAmbiguityResolver<>()));
+
+	@Test
+	public void skipsTheRoundSummariesForListenersThatOnlyNeedTheResults() {
+		for (Function<STVElectionCalculationListener<Candidate>, ElectionCalculation<Candidate>> calculation
+			: CALCULATIONS) {
+			STVElectionCalculationListener<Candidate> listener = createListener(DetailLevel.RESULTS);
+
+			calculation.apply(listener).calculate(ELECTION.getCandidates(), 2);
+
+			verify(listener, never()).calculationStarted(any(), any());
+			verify(listener, never()).voteWeightRedistributionCompleted(any(), any(), any());
+			verify(listener).electedCandidates(any());
+		}
+	}
+
+	@Test
+	public void passesNoVoteStatesToListenersThatOnlyNeedRoundSummaries() {
+		for (Function<STVElectionCalculationListener<Candidate>, ElectionCalculation<Candidate>> calculation
+			: CALCULATIONS) {
+			STVElectionCalculationListener<Candidate> listener = createListener(DetailLevel.ROUND_SUMMARIES);
+
+			calculation.apply(listener).calculate(ELECTION.getCandidates(), 2);
+
+			verify(listener).calculationStarted(eq(ELECTION), any());
+			verify(listener, atLeastOnce()).voteWeightRedistributionCompleted(eq(ImmutableList.of()),
+			                                                                  eq(ImmutableList.of()), any());
+			verify(listener, never()).voteWeightRedistributionCompleted(argThat(voteStates -> !voteStates.isEmpty()),
+			                                                            any(), any());
+		}
+	}
+
+	@Test
+	public void rejectsListenersWithoutADetailLevel() {
+		for (Function<STVElectionCalculationListener<Candidate>, ElectionCalculation<Candidate>> calculation
+			: CALCULATIONS) {
+			assertThrows(IllegalArgumentException.class, () -> calculation.apply(createListener(null)));
+		}
+	}
+
+	private static STVElectionCalculationListener<Candidate> createListener(DetailLevel detailLevel) {
+		STVElectionCalculationListener<Candidate> listener = mock(STVElectionCalculationListener.class);
+		doReturn(detailLevel).when(listener).getDetailLevel();
+		return listener;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import info.gehrels.voting.singleTransferableVote.NumberColumn.TransferFactor;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class FixedPointNumberColumnTest {
+	@Test
+	public void truncatesProducts() {
+		FixedPointNumberColumn column = new FixedPointNumberColumn(1, 2);
+		column.setToInteger(0, 1);
+
+		column.multiply(0, new TransferFactor(new BigFraction(67, 100), 67));
+		column.multiply(0, new TransferFactor(new BigFraction(67, 100), 67));
+
+		// 0.67 * 0.67 = 0.4489
+		assertThat(column.get(0), is(new BigFraction(44, 100)));
+	}
+
+	@Test
+	public void addsMultiplesExactly() {
+		FixedPointNumberColumn weights = new FixedPointNumberColumn(1, 3);
+		weights.setToInteger(0, 1);
+		weights.multiply(0, new TransferFactor(new BigFraction(1, 8), 125));
+		FixedPointNumberColumn sums = new FixedPointNumberColumn(1, 3);
+		sums.setToInteger(0, 0);
+
+		sums.addMultiple(0, weights, 0, 3);
+		sums.addMultiple(0, weights, 0, 5);
+
+		assertThat(sums.get(0), is(BigFraction.ONE));
+	}
+
+	@Test
+	public void roundsTheQuorumUpAndTruncatesTheExcessiveFraction() {
+		FixedPointNumberColumn column = new FixedPointNumberColumn(1, 2);
+		column.setToInteger(0, 3);
+
+		// The quorum 1.001 is rounded up to 1.01, (3 - 1.01) / 3 = 0.66333...
+		TransferFactor factor = column.excessiveFraction(0, new BigFraction(1001, 1000));
+
+		assertThat(factor.scaledValue, is(66L));
+		assertThat(factor.fraction, is(new BigFraction(66, 100)));
+	}
+
+	@Test
+	public void comparesExactlyWithFractions() {
+		FixedPointNumberColumn column = new FixedPointNumberColumn(2, 2);
+		column.setToInteger(0, 1);
+		column.setToInteger(1, 2);
+
+		assertThat(column.compareTo(0, new BigFraction(1001, 1000)) < 0, is(true));
+		assertThat(column.compareTo(0, BigFraction.ONE), is(0));
+		assertThat(column.compare(1, 0) > 0, is(true));
+	}
+
+	@Test
+	public void rejectsTooManyDecimalPlaces() {
+		assertThrows(IllegalArgumentException.class,
+		             () -> VoteWeightArithmetic.fixedPoint(VoteWeightArithmetic.MAXIMUM_DECIMAL_PLACES + 1));
+	}
+}
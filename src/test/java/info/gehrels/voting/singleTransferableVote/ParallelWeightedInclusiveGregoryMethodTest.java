@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+import static info.gehrels.voting.TestUtils.mockListener;
+import static info.gehrels.voting.Vote.createPreferenceVote;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.verify;
+
+public final class ParallelWeightedInclusiveGregoryMethodTest {
+	private static final Candidate CANDIDATE_A = new Candidate("A");
+	private static final Candidate CANDIDATE_B = new Candidate("B");
+	private static final Candidate CANDIDATE_C = new Candidate("C");
+	private static final Candidate CANDIDATE_D = new Candidate("D");
+	private static final Election<Candidate> ELECTION = new Election<>("office", ImmutableSet.of(
+		CANDIDATE_A, CANDIDATE_B, CANDIDATE_C, CANDIDATE_D));
+	private static final CandidateStates<Candidate> ALL_HOPEFUL_CANDIDATE_STATES =
+		new CandidateStates<>(ELECTION.getCandidates());
+
+	private final ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+	private final STVElectionCalculationListener<Candidate> listenerMock = mockListener();
+
+	@AfterEach
+	public void shutdownForkJoinPool() {
+		forkJoinPool.shutdown();
+	}
+
+	@Test
+	public void recalculatesTheSameVoteWeightsInTheSameOrderAsWeightedInclusiveGregoryMethod() {
+		ImmutableList<VoteState<Candidate>> voteStates = createVoteStates(
+			(3 * VoteTallying.VOTE_STATES_PER_TASK) + 17);
+		BigFraction quorum = new BigFraction(4711, 3);
+
+		ImmutableList<VoteState<Candidate>> expected = new WeightedInclusiveGregoryMethod<>(listenerMock)
+			.recalculatorFor()
+			.recalculateExceededVoteWeight(CANDIDATE_A, quorum, voteStates, ALL_HOPEFUL_CANDIDATE_STATES).asList();
+		ImmutableList<VoteState<Candidate>> actual = new ParallelWeightedInclusiveGregoryMethod<>(listenerMock,
+		                                                                                       forkJoinPool)
+			.recalculatorFor()
+			.recalculateExceededVoteWeight(CANDIDATE_A, quorum, voteStates, ALL_HOPEFUL_CANDIDATE_STATES).asList();
+
+		assertThat(actual.size(), is(expected.size()));
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(actual.get(i).getBallotId(), is(expected.get(i).getBallotId()));
+			assertThat(actual.get(i).getPreferredCandidate(), is(expected.get(i).getPreferredCandidate()));
+			assertThat(actual.get(i).getVoteWeight(), is(expected.get(i).getVoteWeight()));
+		}
+	}
+
+	@Test
+	public void votesThatSharedTheirVoteWeightShareTheReducedVoteWeightAcrossAllParts() {
+		ImmutableList<VoteState<Candidate>> voteStates = createVoteStates(3 * VoteTallying.VOTE_STATES_PER_TASK);
+
+		ImmutableCollection<VoteState<Candidate>> newVoteStates = new ParallelWeightedInclusiveGregoryMethod<>(
+			listenerMock, forkJoinPool)
+			.recalculatorFor()
+			.recalculateExceededVoteWeight(CANDIDATE_A, BigFraction.ONE, voteStates, ALL_HOPEFUL_CANDIDATE_STATES);
+
+		BigFraction sharedVoteWeight = null;
+		for (VoteState<Candidate> voteState : newVoteStates) {
+			if (voteState.getPreferredCandidate().orElse(null) == CANDIDATE_A) {
+				if (sharedVoteWeight == null) {
+					sharedVoteWeight = voteState.getVoteWeight();
+				}
+				assertThat(voteState.getVoteWeight(), is(sameInstance(sharedVoteWeight)));
+			}
+		}
+	}
+
+	@Test
+	public void reportsTheVoteWeightRedistribution() {
+		ImmutableList<VoteState<Candidate>> voteStates = ImmutableList.of(
+			createVoteState(1, new BigFraction(3, 4), ImmutableList.of(CANDIDATE_A, CANDIDATE_B)),
+			createVoteState(2, BigFraction.ONE, ImmutableList.of(CANDIDATE_A)),
+			createVoteState(3, BigFraction.ONE, ImmutableList.of(CANDIDATE_B)));
+
+		new ParallelWeightedInclusiveGregoryMethod<>(listenerMock, forkJoinPool)
+			.recalculatorFor()
+			.recalculateExceededVoteWeight(CANDIDATE_A, new BigFraction(7, 8), voteStates,
+			                               ALL_HOPEFUL_CANDIDATE_STATES);
+
+		verify(listenerMock).redistributingExcessiveFractionOfVoteWeight(CANDIDATE_A, BigFraction.ONE_HALF);
+	}
+
+	@Test
+	public void stvElectionCalculationWithTheParallelMethodReportsTheSameSteps() {
+		// Small parts split these few ballots like a large election, the large ones are counted by the benchmarks
+		ImmutableList<Ballot<Candidate>> ballots = createRandomBallots(new Random(4711), ELECTION, 1000);
+
+		StringBuilder expectedProtocol = new StringBuilder();
+		ImmutableSet<Candidate> expected = new STVElectionCalculationFactory<>(
+			new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000)),
+			new StringBuilderBackedSTVElectionCalculationListener<>(expectedProtocol),
+			new TakeTheFirstOneByNameAmbiguityResolver<>())
+			.createElectionCalculation(ELECTION, ballots).calculate(ELECTION.getCandidates(), 2);
+
+		StringBuilder actualProtocol = new StringBuilder();
+		StringBuilderBackedSTVElectionCalculationListener<Candidate> listener =
+			new StringBuilderBackedSTVElectionCalculationListener<>(actualProtocol);
+		ImmutableSet<Candidate> actual = new STVElectionCalculationFactory<>(
+			new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000)),
+			listener,
+			new TakeTheFirstOneByNameAmbiguityResolver<>(),
+			new ParallelWeightedInclusiveGregoryMethod<>(listener, forkJoinPool, 64),
+			CountingOptions.defaults().withVoteTallying(VoteTallying.parallel(forkJoinPool, 64)))
+			.createElectionCalculation(ELECTION, ballots).calculate(ELECTION.getCandidates(), 2);
+
+		assertThat(actual, is(expected));
+		assertThat(actualProtocol.toString(), is(expectedProtocol.toString()));
+	}
+
+	private static ImmutableList<VoteState<Candidate>> createVoteStates(int numberOfBallots) {
+		ImmutableList.Builder<VoteState<Candidate>> voteStates = ImmutableList.builder();
+		for (Ballot<Candidate> ballot : createRandomBallots(new Random(4711), ELECTION, numberOfBallots)) {
+			voteStates.add(VoteState.forBallotAndElection(ballot, ELECTION).get()
+				.withFirstHopefulCandidate(ALL_HOPEFUL_CANDIDATE_STATES));
+		}
+		return voteStates.build();
+	}
+
+	private static VoteState<Candidate> createVoteState(long ballotId, BigFraction voteWeight,
+	                                                    ImmutableList<Candidate> ranking) {
+		Ballot<Candidate> ballot = new Ballot<>(ballotId, ImmutableSet.of(createPreferenceVote(ELECTION, ranking)));
+		return VoteState.forBallotAndElection(ballot, ELECTION).get()
+			.withFirstHopefulCandidate(ALL_HOPEFUL_CANDIDATE_STATES)
+			.withVoteWeight(voteWeight);
+	}
+}
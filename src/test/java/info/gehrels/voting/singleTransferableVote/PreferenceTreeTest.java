@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import org.junit.jupiter.api.Test;
+
+import static info.gehrels.voting.Vote.createInvalidVote;
+import static info.gehrels.voting.Vote.createNoVote;
+import static info.gehrels.voting.Vote.createPreferenceVote;
+import static info.gehrels.voting.singleTransferableVote.PreferenceTree.NO_NODE;
+import static info.gehrels.voting.singleTransferableVote.PreferenceTree.ROOT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public final class PreferenceTreeTest {
+	private static final Candidate A = new Candidate("A");
+	private static final Candidate B = new Candidate("B");
+	private static final Candidate C = new Candidate("C");
+	private static final Election<Candidate> ELECTION = new Election<>("office", ImmutableSet.of(A, B, C));
+
+	@Test
+	public void sharesNodesOfCommonRankingPrefixes() {
+		PreferenceTree<Candidate> tree = PreferenceTree.fromBallots(ELECTION, ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(A, B, C)))),
+			new Ballot<>(2, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(A, B)))),
+			new Ballot<>(3, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(A, C)))),
+			new Ballot<>(4, ImmutableSet.of(createNoVote(ELECTION))),
+			new Ballot<>(5, ImmutableSet.of(createInvalidVote(ELECTION))),
+			new Ballot<>(6, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(B))))
+		));
+
+		// Root, A, AB, ABC, AC and B
+		assertThat(tree.numberOfNodes(), is(6));
+		assertThat(tree.numberOfValidVotes(), is(5L));
+		assertThat(tree.numberOfNoVotes, is(1L));
+		assertThat(tree.numberOfInvalidVotes, is(1L));
+		assertThat(tree.subtreeCount[ROOT], is(4L));
+
+		int nodeOfA = tree.parentOfNode[tree.parentOfNode[tree.nodeOfBallot[0]]];
+		assertThat(tree.parentOfNode[nodeOfA], is(ROOT));
+		assertThat(tree.candidateOfNode[nodeOfA], is(tree.indexOf(A)));
+		assertThat(tree.subtreeCount[nodeOfA], is(3L));
+		assertThat(tree.terminalCount[nodeOfA], is(0L));
+		assertThat(tree.nodeOfBallot[1], is(tree.parentOfNode[tree.nodeOfBallot[0]]));
+		assertThat(tree.parentOfNode[tree.nodeOfBallot[2]], is(nodeOfA));
+		assertThat(tree.depthOfNode[tree.nodeOfBallot[0]], is(3));
+		assertThat(tree.nodeOfBallot[3], is(NO_NODE));
+		assertThat(tree.nodeOfBallot[4], is(NO_NODE));
+		assertThat(tree.parentOfNode[tree.nodeOfBallot[5]], is(ROOT));
+	}
+}
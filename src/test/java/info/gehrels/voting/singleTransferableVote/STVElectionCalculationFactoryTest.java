@@ -25,6 +25,7 @@ import info.gehrels.voting.Election;
 import info.gehrels.voting.QuorumCalculation;
 import org.junit.jupiter.api.Test;
 
+import static info.gehrels.voting.TestUtils.mockListener;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
@@ -32,7 +33,7 @@ import static org.mockito.Mockito.mock;
 
 public final class STVElectionCalculationFactoryTest {
 	private final QuorumCalculation quorumCalculation = mock(QuorumCalculation.class);
-	private final STVElectionCalculationListener<Candidate> electionCalculationListener = mock(STVElectionCalculationListener.class);
+	private final STVElectionCalculationListener<Candidate> electionCalculationListener = mockListener();
 	private final AmbiguityResolver<Candidate> ambiguityResolver = mock(AmbiguityResolver.class);
 
 	@Test
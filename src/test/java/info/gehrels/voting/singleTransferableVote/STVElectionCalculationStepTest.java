@@ -30,6 +30,7 @@ import org.hamcrest.Matcher;
 import org.junit.jupiter.api.Test;
 import org.mockito.hamcrest.MockitoHamcrest;
 
+import static info.gehrels.voting.TestUtils.mockListener;
 import static info.gehrels.voting.singleTransferableVote.CandidateStateMatchers.withElectedCandidate;
 import static info.gehrels.voting.singleTransferableVote.CandidateStateMatchers.withLooser;
 import static info.gehrels.voting.singleTransferableVote.ElectionStepResultMatchers.anElectionStepResult;
@@ -86,8 +87,7 @@ public final class STVElectionCalculationStepTest {
 	);
 	private static final BigFraction FIVE = new BigFraction(5);
 
-	private final STVElectionCalculationListener<Candidate> electionCalculationListenerMock = mock(
-		STVElectionCalculationListener.class);
+	private final STVElectionCalculationListener<Candidate> electionCalculationListenerMock = mockListener();
 	private final AmbiguityResolver<Candidate> ambiguityResolverMock = mock(AmbiguityResolver.class);
 	private final VoteWeightRecalculator<Candidate> redistributorMock = mock(VoteWeightRecalculator.class);
 
@@ -22,13 +22,21 @@ import info.gehrels.voting.AmbiguityResolver;
 import info.gehrels.voting.Ballot;
 import info.gehrels.voting.Candidate;
 import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
 import info.gehrels.voting.QuorumCalculation;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import org.apache.commons.math3.fraction.BigFraction;
 import org.junit.jupiter.api.Test;
 
+import static info.gehrels.voting.TestUtils.mockListener;
 import static info.gehrels.voting.Vote.createInvalidVote;
 import static info.gehrels.voting.Vote.createNoVote;
 import static info.gehrels.voting.Vote.createPreferenceVote;
 import static org.apache.commons.math3.fraction.BigFraction.TWO;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -40,11 +48,13 @@ public final class STVElectionCalculationTest {
 	private static final Candidate CANDIDATE_2_A = new Candidate("2a");
 	private static final Election<Candidate> ELECTION_1 = new Election<>("office1",
 	                                                                     ImmutableSet.of(CANDIDATE_1_A, CANDIDATE_1_B));
+	private static final QuorumCalculation QUORUM =
+		new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000));
 	private static final Election<Candidate> ELECTION_2 = new Election<>("office2", ImmutableSet.of(CANDIDATE_2_A));
 
 	private final QuorumCalculation quorumCalculationMock = mock(QuorumCalculation.class);
 	private final STVElectionCalculationListener<Candidate> electionCalculationListenerMock =
-		mock(STVElectionCalculationListener.class);
+		mockListener();
 	private final AmbiguityResolver<Candidate> ambiguityResolverMock =
 		mock(AmbiguityResolver.class);
 	private final VoteWeightRecalculationMethod<Candidate> redistributionMethodMock =
@@ -72,6 +82,36 @@ public final class STVElectionCalculationTest {
 		verify(electionCalculationListenerMock).quorumHasBeenCalculated(3, 2, TWO);
 	}
 
+	@Test
+	public void countsLaterCalculationsWithTheirOwnCandidatesOnTheSameBallots() {
+		STVElectionCalculation<Candidate> reusedCalculation = createCalculation();
+		reusedCalculation.calculate(ImmutableSet.of(CANDIDATE_1_A), 1);
+
+		assertThat(reusedCalculation.calculate(ImmutableSet.of(CANDIDATE_1_B), 1),
+		           is(createCalculation().calculate(ImmutableSet.of(CANDIDATE_1_B), 1)));
+		assertThat(reusedCalculation.calculate(ELECTION_1.getCandidates(), 2),
+		           is(createCalculation().calculate(ELECTION_1.getCandidates(), 2)));
+	}
+
+	@Test
+	public void rejectsBallotsWithEqualIds() {
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_1_A)))),
+			new Ballot<>(2, ImmutableSet.of(createPreferenceVote(ELECTION_1, ImmutableList.of(CANDIDATE_1_B)))),
+			new Ballot<>(1, ImmutableSet.of(createNoVote(ELECTION_1)))
+		);
+
+		assertThrows(IllegalArgumentException.class,
+		             () -> new STVElectionCalculation<>(ballots, quorumCalculationMock, electionCalculationListenerMock,
+		                                                ELECTION_1, ambiguityResolverMock, redistributionMethodMock));
+	}
+
+	private STVElectionCalculation<Candidate> createCalculation() {
+		return new STVElectionCalculation<>(setupBallotsFixture(), QUORUM, electionCalculationListenerMock, ELECTION_1,
+		                                    new TakeTheFirstOneByNameAmbiguityResolver<>(),
+		                                    new WeightedInclusiveGregoryMethod<>(electionCalculationListenerMock));
+	}
+
 	// TODO: Dieser Test ist als White Box Test noch deutlich ausbaubar
     // TODO: Aufruf von electionCalculationListener.calculationStarted,
     // TODO: electionCalculationListener.electedCandidates(electedCandidates),
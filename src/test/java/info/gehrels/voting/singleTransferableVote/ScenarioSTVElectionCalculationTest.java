@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.QuorumCalculation;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import info.gehrels.voting.singleTransferableVote.ScenarioSTVElectionCalculation.Scenario;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+import static info.gehrels.voting.TestUtils.mockListener;
+import static info.gehrels.voting.Vote.createPreferenceVote;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public final class ScenarioSTVElectionCalculationTest {
+	private static final Candidate CANDIDATE_A = new Candidate("A");
+	private static final Candidate CANDIDATE_B = new Candidate("B");
+	private static final Candidate CANDIDATE_C = new Candidate("C");
+	private static final Election<Candidate> ELECTION =
+		new Election<>("office", ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C));
+
+	private final ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+
+	@AfterEach
+	public void shutdownForkJoinPool() {
+		forkJoinPool.shutdown();
+	}
+
+	@Test
+	public void countsEachScenarioLikeASeparateCompactSTVElectionCalculation() {
+		Random random = new Random(4711);
+		Candidate[] candidates = new Candidate[8];
+		for (int i = 0; i < candidates.length; i++) {
+			candidates[i] = new Candidate(String.valueOf((char) ('A' + i)));
+		}
+		Election<Candidate> election = new Election<>("office", ImmutableSet.copyOf(candidates));
+		ImmutableList<Ballot<Candidate>> ballots = createRandomBallots(random, election, 500);
+		QuorumCalculation otherQuorumCalculation =
+			new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 2));
+		Scenario<Candidate> threeSeats = new Scenario<>("three seats", 3);
+		ImmutableList<Scenario<Candidate>> scenarios = ImmutableList.of(
+			threeSeats,
+			new Scenario<>("four seats", 4),
+			threeSeats.withExcludedCandidates(ImmutableSet.of(candidates[0], candidates[5])),
+			threeSeats.withQuorumCalculation(otherQuorumCalculation),
+			threeSeats.withArithmetic(VoteWeightArithmetic.fixedPoint(5)));
+
+		Map<Scenario<Candidate>, StringBuilder> actualProtocols = new ConcurrentHashMap<>();
+		ImmutableMap<Scenario<Candidate>, ImmutableSet<Candidate>> actual = new ScenarioSTVElectionCalculation<>(
+			quorumCalculation(),
+			scenario -> {
+				StringBuilder protocol = new StringBuilder();
+				actualProtocols.put(scenario, protocol);
+				return new StringBuilderBackedSTVElectionCalculationListener<>(protocol);
+			},
+			new TakeTheFirstOneByNameAmbiguityResolver<>(), forkJoinPool)
+			.calculate(election, scenarios, ballots);
+
+		assertThat(actual.keySet().asList(), is(scenarios));
+		for (int i = 0; i < scenarios.size(); i++) {
+			Scenario<Candidate> scenario = scenarios.get(i);
+			StringBuilder expectedProtocol = new StringBuilder();
+			ImmutableSet<Candidate> expected = new CompactSTVElectionCalculation<>(
+				ballots, (i == 3) ? otherQuorumCalculation : quorumCalculation(),
+				new StringBuilderBackedSTVElectionCalculationListener<>(expectedProtocol), election,
+				new TakeTheFirstOneByNameAmbiguityResolver<>(), BallotRepresentation.COLUMNS,
+				(i == 4) ? VoteWeightArithmetic.fixedPoint(5) : VoteWeightArithmetic.exact())
+				.calculate(Sets.difference(election.getCandidates(), scenario.getExcludedCandidates()).immutableCopy(),
+				           scenario.getNumberOfSeats());
+
+			assertThat(actual.get(scenario), is(expected));
+			assertThat(actualProtocols.get(scenario).toString(), is(expectedProtocol.toString()));
+		}
+	}
+
+	@Test
+	public void doesNotElectExcludedCandidates() {
+		ImmutableList<Ballot<Candidate>> ballots = ImmutableList.of(
+			new Ballot<>(1, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_A, CANDIDATE_C)))),
+			new Ballot<>(2, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_A, CANDIDATE_C)))),
+			new Ballot<>(3, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(CANDIDATE_B))))
+		);
+		Scenario<Candidate> withA = new Scenario<>("with A", 1);
+		Scenario<Candidate> withoutA = withA.withExcludedCandidates(ImmutableSet.of(CANDIDATE_A));
+
+		ImmutableMap<Scenario<Candidate>, ImmutableSet<Candidate>> result = new ScenarioSTVElectionCalculation<>(
+			quorumCalculation(), scenario -> mockListener(),
+			new TakeTheFirstOneByNameAmbiguityResolver<>(), forkJoinPool)
+			.calculate(ELECTION, ImmutableList.of(withA, withoutA), ballots);
+
+		assertThat(result.get(withA), contains(CANDIDATE_A));
+		assertThat(result.get(withoutA), contains(CANDIDATE_C));
+	}
+
+	private static QuorumCalculation quorumCalculation() {
+		return new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000));
+	}
+}
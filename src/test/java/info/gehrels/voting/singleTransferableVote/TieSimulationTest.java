@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import info.gehrels.voting.singleTransferableVote.TieSimulation.Result;
+import org.junit.jupiter.api.AfterEach;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static info.gehrels.voting.TestUtils.mockListener;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createBallot;
+import static info.gehrels.voting.singleTransferableVote.CountFixture.createCalculation;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class TieSimulationTest {
+	private static final Candidate CANDIDATE_A = new Candidate("A");
+	private static final Candidate CANDIDATE_B = new Candidate("B");
+	private static final Candidate CANDIDATE_C = new Candidate("C");
+	private static final Election<Candidate> ELECTION =
+		new Election<>("office", ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C));
+
+	private final ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+
+	@AfterEach
+	public void shutdownForkJoinPool() {
+		forkJoinPool.shutdown();
+	}
+
+	@Test
+	public void drawsEachTiedCandidateEquallyOften() {
+		// All three are tied in the first round, the votes of the dropped candidate then elect the next one
+		STVElectionCalculation<Candidate> electionCalculation = createCalculation(ELECTION, ImmutableList.of(
+			createBallot(ELECTION, 1, CANDIDATE_A, CANDIDATE_B),
+			createBallot(ELECTION, 2, CANDIDATE_B, CANDIDATE_C),
+			createBallot(ELECTION, 3, CANDIDATE_C, CANDIDATE_A)));
+		TieSimulation<Candidate> tieSimulation = new TieSimulation<>(electionCalculation, forkJoinPool);
+
+		Result<Candidate> result = tieSimulation.simulate(ELECTION.getCandidates(), 1, 30000, 4711);
+
+		assertThat(result.getNumberOfBranches(), is(3L));
+		assertThat(result.getNumberOfCountsElectedIn(CANDIDATE_A) + result.getNumberOfCountsElectedIn(CANDIDATE_B)
+		           + result.getNumberOfCountsElectedIn(CANDIDATE_C), is(30000L));
+		assertThat(result.getProbabilityOfBeingElected(CANDIDATE_A), is(closeTo(1.0 / 3, 0.02)));
+		assertThat(result.getProbabilityOfBeingElected(CANDIDATE_B), is(closeTo(1.0 / 3, 0.02)));
+		assertThat(result.getProbabilityOfBeingElected(CANDIDATE_C), is(closeTo(1.0 / 3, 0.02)));
+		assertThat(tieSimulation.simulate(ELECTION.getCandidates(), 1, 30000, 4711).toString(),
+		           is(result.toString()));
+	}
+
+	@Test
+	public void countsOnlyOnceWithoutTies() {
+		STVElectionCalculation<Candidate> electionCalculation = createCalculation(ELECTION, ImmutableList.of(
+			createBallot(ELECTION, 1, CANDIDATE_A),
+			createBallot(ELECTION, 2, CANDIDATE_A),
+			createBallot(ELECTION, 3, CANDIDATE_B)));
+
+		Result<Candidate> result = new TieSimulation<>(electionCalculation, forkJoinPool)
+			.simulate(ELECTION.getCandidates(), 1, 1000, 4711);
+
+		assertThat(result.getNumberOfBranches(), is(1L));
+		assertThat(result.getProbabilityOfBeingElected(CANDIDATE_A), is(1.0));
+		assertThat(result.getProbabilityOfBeingElected(CANDIDATE_B), is(0.0));
+	}
+
+	@Test
+	public void recalculatesTheVoteWeightsWithTheMethodOfTheCalculation() {
+		AtomicInteger numberOfRecalculations = new AtomicInteger();
+		VoteWeightRecalculator<Candidate> wigm =
+			new WeightedInclusiveGregoryMethod<Candidate>(mockListener())
+				.recalculatorFor();
+		VoteWeightRecalculationMethod<Candidate> countingMethod = new VoteWeightRecalculationMethod<>() {
+			@Override
+			public VoteWeightRecalculator<Candidate> recalculatorFor() {
+				return wigm;
+			}
+
+			@Override
+			public VoteWeightRecalculator<Candidate> recalculatorFor(
+				STVElectionCalculationListener<Candidate> electionCalculationListener) {
+				return (winner, quorum, voteStates, candidateStates) -> {
+					numberOfRecalculations.incrementAndGet();
+					return wigm.recalculateExceededVoteWeight(winner, quorum, voteStates, candidateStates);
+				};
+			}
+		};
+
+		// A is elected with a surplus, then B and C are tied
+		new TieSimulation<>(createCalculationWith(countingMethod, ImmutableList.of(
+			createBallot(ELECTION, 1, CANDIDATE_A),
+			createBallot(ELECTION, 2, CANDIDATE_A),
+			createBallot(ELECTION, 3, CANDIDATE_A),
+			createBallot(ELECTION, 4, CANDIDATE_B),
+			createBallot(ELECTION, 5, CANDIDATE_C))), forkJoinPool)
+			.simulate(ELECTION.getCandidates(), 2, 100, 4711);
+
+		assertThat(numberOfRecalculations.get(), is(greaterThan(0)));
+	}
+
+	@Test
+	public void rejectsCalculationsWhoseMethodCannotReportToAnotherListener() {
+		VoteWeightRecalculationMethod<Candidate> countingMethod =
+			new WeightedInclusiveGregoryMethod<Candidate>(mockListener())::recalculatorFor;
+
+		assertThrows(UnsupportedOperationException.class,
+		             () -> new TieSimulation<>(createCalculationWith(countingMethod, ImmutableList.of(
+			             createBallot(ELECTION, 1, CANDIDATE_A))), forkJoinPool));
+	}
+
+	private static STVElectionCalculation<Candidate> createCalculationWith(
+		VoteWeightRecalculationMethod<Candidate> voteWeightRecalculationMethod,
+		ImmutableList<Ballot<Candidate>> ballots) {
+		return new STVElectionCalculation<>(ballots,
+		                                    new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(
+			                                    new BigFraction(1, 1000)),
+		                                    mockListener(), ELECTION,
+		                                    new TakeTheFirstOneByNameAmbiguityResolver<>(),
+		                                    voteWeightRecalculationMethod);
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.singleTransferableVote.NumberColumn.TransferFactor;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public final class TreeCountingStateTest {
+	private static final Candidate A = new Candidate("A");
+	private static final Candidate B = new Candidate("B");
+	private static final Candidate C = new Candidate("C");
+	private static final Candidate D = new Candidate("D");
+	private static final Candidate E = new Candidate("E");
+	private static final Election<Candidate> ELECTION = new Election<>("office", ImmutableSet.of(A, B, C, D, E));
+
+	@Test
+	public void countsLikeColumnCountingStateWithExactArithmetic() {
+		countsLikeColumnCountingState(VoteWeightArithmetic.exact());
+	}
+
+	@Test
+	public void countsLikeColumnCountingStateWithFixedPointArithmetic() {
+		countsLikeColumnCountingState(VoteWeightArithmetic.fixedPoint(3));
+	}
+
+	private static void countsLikeColumnCountingState(VoteWeightArithmetic arithmetic) {
+		Random random = new Random(42);
+		for (int i = 0; i < 50; i++) {
+			ImmutableList<Ballot<Candidate>> ballots = createRandomBallots(random, ELECTION, 100);
+			ImmutableSet<Candidate> qualifiedCandidates = ImmutableSet.of(A, B, C, D);
+			CountingState<Candidate> expected = VoteColumns.fromBallots(ELECTION, ballots)
+				.startCounting(qualifiedCandidates, arithmetic);
+			CountingState<Candidate> actual = PreferenceTree.fromBallots(ELECTION, ballots)
+				.startCounting(qualifiedCandidates, arithmetic);
+			assertThatStatesAreEqual(actual, expected);
+
+			while (expected.anyCandidateIsHopeful()) {
+				int candidateIndex = random.nextInt(expected.numberOfCandidates());
+				if (!expected.isHopeful(candidateIndex)) {
+					continue;
+				}
+
+				if (random.nextBoolean() && (expected.compareVotesTo(candidateIndex, BigFraction.ZERO) > 0)) {
+					BigFraction quorum = expected.votesFor(candidateIndex)
+						.multiply(new BigFraction(1 + random.nextInt(5), 7));
+					TransferFactor factor = expected.excessiveFractionOfVoteWeight(candidateIndex, quorum);
+					expected.markAsElected(candidateIndex);
+					expected.multiplyVoteWeightsOfVotesFor(candidateIndex, factor);
+					actual.markAsElected(candidateIndex);
+					actual.multiplyVoteWeightsOfVotesFor(candidateIndex, factor);
+				} else {
+					expected.markAsLooser(candidateIndex);
+					actual.markAsLooser(candidateIndex);
+				}
+				expected.moveVotesToNextHopefulCandidate();
+				actual.moveVotesToNextHopefulCandidate();
+				assertThatStatesAreEqual(actual, expected);
+			}
+
+			assertThat(actual.electedCandidates(), is(expected.electedCandidates()));
+		}
+	}
+
+	private static void assertThatStatesAreEqual(CountingState<Candidate> actual, CountingState<Candidate> expected) {
+		for (int candidateIndex = 0; candidateIndex < expected.numberOfCandidates(); candidateIndex++) {
+			if (expected.isHopeful(candidateIndex)) {
+				assertThat(actual.votesFor(candidateIndex), is(expected.votesFor(candidateIndex)));
+			}
+		}
+
+		VoteDistribution<Candidate> actualDistribution = actual.toVoteDistribution();
+		VoteDistribution<Candidate> expectedDistribution = expected.toVoteDistribution();
+		assertThat(actualDistribution.votesByCandidate, is(expectedDistribution.votesByCandidate));
+		assertThat(actualDistribution.noVotes, is(expectedDistribution.noVotes));
+		assertThat(actualDistribution.invalidVotes, is(expectedDistribution.invalidVotes));
+
+		ImmutableList<VoteState<Candidate>> actualVoteStates = actual.toVoteStates();
+		ImmutableList<VoteState<Candidate>> expectedVoteStates = expected.toVoteStates();
+		assertThat(actualVoteStates.size(), is(expectedVoteStates.size()));
+		for (int i = 0; i < expectedVoteStates.size(); i++) {
+			VoteState<Candidate> actualVoteState = actualVoteStates.get(i);
+			VoteState<Candidate> expectedVoteState = expectedVoteStates.get(i);
+			assertThat(actualVoteState.getBallotId(), is(expectedVoteState.getBallotId()));
+			assertThat(actualVoteState.getVoteWeight(), is(expectedVoteState.getVoteWeight()));
+			assertThat(actualVoteState.getPreferredCandidate(), is(expectedVoteState.getPreferredCandidate()));
+			assertThat(actualVoteState.isNoVote(), is(expectedVoteState.isNoVote()));
+			assertThat(actualVoteState.isInvalid(), is(expectedVoteState.isInvalid()));
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import org.junit.jupiter.api.Test;
+
+import static info.gehrels.voting.Vote.createInvalidVote;
+import static info.gehrels.voting.Vote.createNoVote;
+import static info.gehrels.voting.Vote.createPreferenceVote;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public final class VoteColumnsTest {
+	private static final Candidate A = new Candidate("A");
+	private static final Candidate B = new Candidate("B");
+	private static final Election<Candidate> ELECTION = new Election<>("office", ImmutableSet.of(A, B));
+	private static final Election<Candidate> OTHER_ELECTION = new Election<>("other office", ImmutableSet.of(A));
+
+	@Test
+	public void groupsBallotsWithEqualVotesIntoOneRow() {
+		VoteColumns<Candidate> columns = VoteColumns.fromBallots(ELECTION, ImmutableList.of(
+			new Ballot<>(10, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(A, B)))),
+			new Ballot<>(11, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(B)))),
+			new Ballot<>(12, ImmutableSet.of(createNoVote(ELECTION))),
+			new Ballot<>(13, ImmutableSet.of(createPreferenceVote(ELECTION, ImmutableList.of(A, B)))),
+			new Ballot<>(14, ImmutableSet.of(createInvalidVote(ELECTION))),
+			new Ballot<>(15, ImmutableSet.of(createPreferenceVote(OTHER_ELECTION, ImmutableList.of(A)))),
+			new Ballot<>(16, ImmutableSet.of(createNoVote(ELECTION)))
+		));
+
+		assertThat(columns.numberOfRows(), is(4));
+		assertThat(columns.numberOfBallots(), is(6));
+		assertThat(columns.numberOfValidVotes, is(5L));
+		assertThat(columns.ballotIds, is(new long[]{10, 11, 12, 13, 14, 16}));
+		assertThat(columns.rowOfBallot, is(new int[]{0, 1, 2, 0, 3, 2}));
+		assertThat(columns.multiplicity, is(new long[]{2, 1, 2, 1}));
+		assertThat(columns.rankingStart, is(new int[]{0, 2, 3, 3, 3}));
+		assertThat(columns.rankedCandidates, is(new int[]{0, 1, 1}));
+		assertThat(columns.valid, is(new boolean[]{true, true, true, false}));
+		assertThat(columns.no, is(new boolean[]{false, false, true, false}));
+	}
+}
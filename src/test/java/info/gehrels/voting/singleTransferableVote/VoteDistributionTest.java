@@ -22,6 +22,7 @@ import static org.apache.commons.math3.fraction.BigFraction.ZERO;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class VoteDistributionTest {
 	private static final ImmutableList<VoteState<Candidate>> EMPTY_VOTE_STATE_LIST = ImmutableList.of();
@@ -153,6 +154,17 @@ public final class VoteDistributionTest {
 		           )));
 	}
 
+	@Test
+	public void throwsIfAVoteStatePrefersACandidateOutsideOfTheCandidateSet() {
+		ImmutableList<VoteState<Candidate>> voteStates = ImmutableList.of(
+			createVoteStateFor(0, CANDIDATE_JOHN),
+			createVoteStateFor(1, CANDIDATE_MARTA)
+		);
+
+		assertThrows(IllegalArgumentException.class,
+		             () -> new VoteDistribution<>(ImmutableSet.of(CANDIDATE_JOHN), voteStates));
+	}
+
 	private VoteState<Candidate> createVoteStateFor(int id, Candidate... candidates) {
 		Vote<Candidate> preferenceVote = Vote.createPreferenceVote(ELECTION, ImmutableList.copyOf(candidates));
 		return VoteState.forBallotAndElection(new Ballot<>(id, ImmutableSet.of(preferenceVote)), ELECTION).get();
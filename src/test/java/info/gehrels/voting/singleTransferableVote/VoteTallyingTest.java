@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import info.gehrels.voting.Ballot;
+import info.gehrels.voting.Candidate;
+import info.gehrels.voting.Election;
+import info.gehrels.voting.NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum;
+import info.gehrels.voting.TestUtils.TakeTheFirstOneByNameAmbiguityResolver;
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static info.gehrels.voting.TestUtils.createRandomBallots;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public final class VoteTallyingTest {
+	private static final Candidate CANDIDATE_A = new Candidate("A");
+	private static final Candidate CANDIDATE_B = new Candidate("B");
+	private static final Candidate CANDIDATE_C = new Candidate("C");
+	private static final Candidate CANDIDATE_D = new Candidate("D");
+	private static final Candidate CANDIDATE_E = new Candidate("E");
+	private static final Election<Candidate> ELECTION = new Election<>("office", ImmutableSet.of(
+		CANDIDATE_A, CANDIDATE_B, CANDIDATE_C, CANDIDATE_D, CANDIDATE_E));
+
+	@Test
+	public void parallelTallyingResultsInTheSameVoteDistributionForEachParallelism() {
+		Random random = new Random(4711);
+		ImmutableList<BigFraction> voteWeights = ImmutableList.of(
+			BigFraction.ONE, new BigFraction(1, 3), new BigFraction(2, 7), new BigFraction(5, 11));
+		ImmutableList.Builder<VoteState<Candidate>> voteStatesBuilder = ImmutableList.builder();
+		CandidateStates<Candidate> candidateStates = new CandidateStates<>(ELECTION.getCandidates());
+		for (Ballot<Candidate> ballot : createRandomBallots(random, ELECTION,
+		                                                    (3 * VoteTallying.VOTE_STATES_PER_TASK) + 17)) {
+			voteStatesBuilder.add(VoteState.forBallotAndElection(ballot, ELECTION).get()
+				.withFirstHopefulCandidate(candidateStates)
+				.withVoteWeight(voteWeights.get(random.nextInt(voteWeights.size()))));
+		}
+		ImmutableList<VoteState<Candidate>> voteStates = voteStatesBuilder.build();
+		ImmutableSet<Candidate> hopefulCandidates = ImmutableSet.of(CANDIDATE_A, CANDIDATE_B, CANDIDATE_C, CANDIDATE_D,
+		                                                            CANDIDATE_E);
+
+		VoteDistribution<Candidate> expected = VoteTallying.sequential().tally(hopefulCandidates, voteStates);
+
+		for (int parallelism : new int[]{1, 2, 5}) {
+			ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+			try {
+				VoteDistribution<Candidate> actual = VoteTallying.parallel(forkJoinPool)
+					.tally(hopefulCandidates, voteStates);
+
+				assertThat(actual.votesByCandidate.entrySet().asList(),
+				           contains(expected.votesByCandidate.entrySet().toArray()));
+				assertThat(actual.noVotes, is(expected.noVotes));
+				assertThat(actual.invalidVotes, is(expected.invalidVotes));
+			} finally {
+				forkJoinPool.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void stvElectionCalculationWithParallelTallyingReportsTheSameSteps() {
+		// Small parts split these few ballots like a large election, the large ones are counted by the benchmarks
+		ImmutableList<Ballot<Candidate>> ballots = createRandomBallots(new Random(4711), ELECTION, 1000);
+
+		StringBuilder expectedProtocol = new StringBuilder();
+		ImmutableSet<Candidate> expected = createElectionCalculation(
+			ballots, expectedProtocol, VoteTallying.sequential()).calculate(ELECTION.getCandidates(), 2);
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+		try {
+			StringBuilder actualProtocol = new StringBuilder();
+			ImmutableSet<Candidate> actual = createElectionCalculation(
+				ballots, actualProtocol, VoteTallying.parallel(forkJoinPool, 64)).calculate(ELECTION.getCandidates(), 2);
+
+			assertThat(actual, is(expected));
+			assertThat(actualProtocol.toString(), is(expectedProtocol.toString()));
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	private static STVElectionCalculation<Candidate> createElectionCalculation(
+		ImmutableList<Ballot<Candidate>> ballots, StringBuilder protocol, VoteTallying voteTallying) {
+		return new STVElectionCalculationFactory<>(
+			new NotMoreThanTheAllowedNumberOfCandidatesCanReachItQuorum(new BigFraction(1, 1000)),
+			new StringBuilderBackedSTVElectionCalculationListener<>(protocol),
+			new TakeTheFirstOneByNameAmbiguityResolver<>(),
+			CountingOptions.defaults().withVoteTallying(voteTallying))
+			.createElectionCalculation(ELECTION, ballots);
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2014 Benjamin Gehrels
+ *
+ * This file is part of The Single Transferable Vote Elections Library.
+ *
+ * The Single Transferable Vote Elections Library is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * The Single Transferable Vote Elections Library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along with The Single Transferable Vote
+ * Elections Library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.gehrels.voting.singleTransferableVote;
+
+import org.apache.commons.math3.fraction.BigFraction;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public final class VoteWeightSumTest {
+	@Test
+	public void isZeroWithoutSummands() {
+		assertThat(new VoteWeightSum().sum(), is(BigFraction.ZERO));
+	}
+
+	@Test
+	public void equalsTheSumOfAllSummandsAddedOneByOne() {
+		BigFraction oneThird = new BigFraction(1, 3);
+		BigFraction anotherOneThird = new BigFraction(1, 3);
+		BigFraction twoSevenths = new BigFraction(2, 7);
+
+		VoteWeightSum voteWeightSum = new VoteWeightSum();
+		voteWeightSum.add(oneThird);
+		voteWeightSum.add(twoSevenths, 4);
+		voteWeightSum.add(oneThird);
+		voteWeightSum.add(anotherOneThird, 3);
+
+		assertThat(voteWeightSum.sum(), is(oneThird.add(twoSevenths.multiply(4)).add(oneThird).add(oneThird.multiply(3))));
+	}
+}
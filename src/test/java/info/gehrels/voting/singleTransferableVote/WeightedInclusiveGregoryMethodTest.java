@@ -27,13 +27,15 @@ import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
 
 import static info.gehrels.voting.TestUtils.createBallot;
+import static info.gehrels.voting.TestUtils.mockListener;
 import static info.gehrels.voting.singleTransferableVote.VoteStateMatchers.aVoteState;
 import static info.gehrels.voting.singleTransferableVote.VoteStateMatchers.withBallotId;
 import static info.gehrels.voting.singleTransferableVote.VoteStateMatchers.withVoteWeight;
 import static org.apache.commons.math3.fraction.BigFraction.ONE_HALF;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasItems;
-import static org.mockito.Mockito.mock;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.Mockito.verify;
 
 public final class WeightedInclusiveGregoryMethodTest {
@@ -58,7 +60,7 @@ public final class WeightedInclusiveGregoryMethodTest {
 		VoteState.forBallotAndElection(BALLOT_NO_VOTES, ELECTION).get()
 	);
 
-	private final STVElectionCalculationListener<Candidate> listenerMock = mock(STVElectionCalculationListener.class);
+	private final STVElectionCalculationListener<Candidate> listenerMock = mockListener();
 	private final WeightedInclusiveGregoryMethod<Candidate> wigm = new WeightedInclusiveGregoryMethod<>(
 		listenerMock);
 
@@ -114,5 +116,17 @@ public final class WeightedInclusiveGregoryMethodTest {
 		));
 	}
 
+	@Test
+	public void votesThatSharedTheirVoteWeightShareTheReducedVoteWeight() {
+		VoteWeightRecalculator<Candidate> voteWeightRecalculator = wigm.recalculatorFor();
 
+		ImmutableList<VoteState<Candidate>> voteStates = voteWeightRecalculator
+			.recalculateExceededVoteWeight(CANDIDATE_A, BigFraction.ONE, ImmutableList.of(
+				VoteState.forBallotAndElection(BALLOT_ABCD, ELECTION).get(),
+				VoteState.forBallotAndElection(BALLOT_ACD, ELECTION).get()
+			), ALL_HOPEFUL_CANDIDATE_STATE).asList();
+
+		assertThat(voteStates.get(0).getVoteWeight(), is(ONE_HALF));
+		assertThat(voteStates.get(1).getVoteWeight(), is(sameInstance(voteStates.get(0).getVoteWeight())));
+	}
 }